@@ -1,23 +1,7 @@
--- Create database if not exists
-CREATE DATABASE IF NOT EXISTS movie_rental_system;
+-- Sample data, loaded by initialize.sh after the schema in src/main/resources/database.sql
+-- (which also inserts the pricing categories and late fee tiers)
 USE movie_rental_system;
 
--- Import schema first
-SOURCE src/main/resources/database.sql;
-
--- Insert sample data
--- Pricing Categories
-INSERT INTO pricing_categories (name, base_price) VALUES 
-('New Release', 5.00),
-('Regular', 3.50),
-('Classic', 2.00);
-
--- Late Fee Rules
-INSERT INTO late_fees (days_late_start, days_late_end, fee_per_day) VALUES 
-(1, 3, 1.00),
-(4, 7, 2.00),
-(8, 999999, 3.00);
-
 -- Sample Movies
 INSERT INTO movies (title, genre, available_copies) VALUES 
 ('The Dark Knight', 'Action', 5),
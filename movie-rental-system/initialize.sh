@@ -18,7 +18,8 @@ fi
 
 # Initialize database
 echo "Setting up database..."
-mysql -u"$DB_USER" -p"$DB_PASS" < init-database.sql
+mysql -u"$DB_USER" -p"$DB_PASS" < src/main/resources/database.sql && \
+    mysql -u"$DB_USER" -p"$DB_PASS" < init-database.sql
 
 if [ $? -eq 0 ]; then
     echo "Database initialized successfully!"
@@ -0,0 +1,105 @@
+package bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares a JMH JSON result file with the checked-in baseline and exits non-zero when a
+// benchmark got slower than the threshold allows. Scores are compared in the direction of
+// the benchmark mode: lower is better for time per operation, higher for throughput.
+//   java bench.BaselineComparator <baseline.json> <result.json> [threshold, default 0.20]
+public class BaselineComparator {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [threshold]");
+            System.exit(2);
+        }
+        Path baselinePath = Paths.get(args[0]);
+        Path resultPath = Paths.get(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.20;
+
+        if (!Files.exists(baselinePath)) {
+            System.out.println("No baseline at " + baselinePath + "; copy " + resultPath + " there to create one");
+            return;
+        }
+        Map<String, Score> baseline = read(baselinePath);
+        Map<String, Score> current = read(resultPath);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : new TreeMap<>(current).entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %-70s %12.3f %s%n", entry.getKey(), now.value, now.unit);
+                continue;
+            }
+            if (!before.unit.equals(now.unit)) {
+                System.out.printf("SKIPPED    %-70s unit changed from %s to %s%n", entry.getKey(), before.unit, now.unit);
+                continue;
+            }
+            // Positive change means slower, whichever way the mode counts
+            double change = now.higherIsBetter
+                ? (before.value - now.value) / before.value
+                : (now.value - before.value) / before.value;
+            String verdict = change > threshold ? "REGRESSION" : change < -threshold ? "IMPROVED" : "OK";
+            if (change > threshold) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-70s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                verdict, entry.getKey(), before.value, now.value, now.unit, change * 100);
+        }
+
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.0f%% against %s%n",
+                regressions, threshold * 100, baselinePath);
+            System.exit(1);
+        }
+    }
+
+    // Score per benchmark name plus its parameters, e.g. bench.LateFeeBenchmark.calculateLateFee:daysLate=30
+    private static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            JsonArray results = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : results) {
+                JsonObject result = element.getAsJsonObject();
+                StringBuilder key = new StringBuilder(result.get("benchmark").getAsString());
+                if (result.has("params")) {
+                    Map<String, JsonElement> params = new TreeMap<>();
+                    for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue());
+                    }
+                    for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+                        key.append(':').append(param.getKey()).append('=').append(param.getValue().getAsString());
+                    }
+                }
+                JsonObject metric = result.getAsJsonObject("primaryMetric");
+                scores.put(key.toString(), new Score(metric.get("score").getAsDouble(),
+                    metric.get("scoreUnit").getAsString(), "thrpt".equals(result.get("mode").getAsString())));
+            }
+        }
+        return scores;
+    }
+
+    private static class Score {
+        final double value;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(double value, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
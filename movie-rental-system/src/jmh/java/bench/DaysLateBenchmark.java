@@ -0,0 +1,33 @@
+package bench;
+
+import model.Rental;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rental.getDaysLate across a mix of open, on-time and late rentals
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DaysLateBenchmark {
+    private Rental[] rentals;
+
+    @Setup
+    public void setUp() {
+        List<Rental> sample = SampleData.rentals(1000);
+        rentals = sample.toArray(new Rental[0]);
+    }
+
+    @Benchmark
+    public long getDaysLate() {
+        long total = 0;
+        for (Rental rental : rentals) {
+            total += rental.getDaysLate();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import dao.LateFeeTierTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Late fee tier evaluation. LateFeeDAO.calculateLateFee is one SQL lookup per call, so the
+// in-memory LateFeeTierTable with the same semantics is what gets measured here; daysLate
+// covers the precomputed range and the binary-search fallback beyond it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LateFeeBenchmark {
+    @Param({"2", "30", "500"})
+    public int daysLate;
+
+    private LateFeeTierTable tiers;
+
+    @Setup
+    public void setUp() {
+        tiers = new LateFeeTierTable(SampleData.lateFeeTiers());
+    }
+
+    @Benchmark
+    public BigDecimal calculateLateFee() {
+        return tiers.calculateLateFee(daysLate);
+    }
+}
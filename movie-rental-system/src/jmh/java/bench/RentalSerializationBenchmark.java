@@ -0,0 +1,35 @@
+package bench;
+
+import com.google.gson.Gson;
+import model.Rental;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Gson serialization of List<Rental> to UTF-8 bytes, as MovieRentalServlet.writeJson does for GET /rentals.
+// Gson reflects into java.time, which needs the package opened on JDK 16+.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens=java.base/java.time=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class RentalSerializationBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private final Gson gson = new Gson();
+    private List<Rental> rentals;
+
+    @Setup
+    public void setUp() {
+        rentals = SampleData.rentals(rows);
+    }
+
+    @Benchmark
+    public byte[] toJsonBytes() {
+        return gson.toJson(rentals).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import model.LateFee;
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic rows shaped like the production tables
+public final class SampleData {
+    public static final String[] RENTAL_COLUMNS = {
+        "id", "user_id", "movie_id", "rental_date", "due_date", "return_date", "base_price",
+        "late_fee", "total_price", "copy_id", "created_at", "movie_title", "user_name"
+    };
+    public static final String[] MOVIE_COLUMNS = {
+        "id", "title", "genre", "available_copies", "version", "created_at", "base_price"
+    };
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Sci-Fi", "Documentary"};
+
+    private SampleData() {}
+
+    public static List<Object[]> rentalRows(int count) {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            LocalDate rentalDate = START.plusDays(random.nextInt(365));
+            LocalDate dueDate = rentalDate.plusDays(7);
+            // About a third of the rentals are still out
+            LocalDate returnDate = random.nextInt(3) == 0 ? null : rentalDate.plusDays(random.nextInt(14));
+            BigDecimal basePrice = new BigDecimal("3.99");
+            BigDecimal lateFee = returnDate != null && returnDate.isAfter(dueDate) ? new BigDecimal("6.00") : BigDecimal.ZERO;
+            rows.add(new Object[] {
+                i, 1 + random.nextInt(5000), 1 + random.nextInt(2000),
+                Date.valueOf(rentalDate), Date.valueOf(dueDate), returnDate == null ? null : Date.valueOf(returnDate),
+                basePrice, lateFee, basePrice.add(lateFee), random.nextBoolean() ? null : random.nextInt(20000),
+                Timestamp.valueOf(rentalDate.atTime(12, 0)), "Movie title " + (i % 2000), "Customer " + (i % 5000)
+            });
+        }
+        return rows;
+    }
+
+    public static List<Object[]> movieRows(int count) {
+        Random random = new Random(7);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Object[] {
+                i, "Movie title " + i, GENRES[random.nextInt(GENRES.length)], random.nextInt(10), 1,
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 12, 0)), random.nextInt(4) == 0 ? null : new BigDecimal("3.99")
+            });
+        }
+        return rows;
+    }
+
+    public static List<Rental> rentals(int count) {
+        List<Rental> rentals = new ArrayList<>(count);
+        for (Object[] row : rentalRows(count)) {
+            Rental rental = new Rental();
+            rental.setId((Integer) row[0]);
+            rental.setUserId((Integer) row[1]);
+            rental.setMovieId((Integer) row[2]);
+            rental.setRentalDate(((Date) row[3]).toLocalDate());
+            rental.setDueDate(((Date) row[4]).toLocalDate());
+            if (row[5] != null) {
+                rental.setReturnDate(((Date) row[5]).toLocalDate());
+            }
+            rental.setBasePrice((BigDecimal) row[6]);
+            rental.setLateFee((BigDecimal) row[7]);
+            rental.setTotalPrice((BigDecimal) row[8]);
+            rental.setCopyId((Integer) row[9]);
+            rental.setCreatedAt(((Timestamp) row[10]).toLocalDateTime());
+            rental.setMovieTitle((String) row[11]);
+            rental.setUserName((String) row[12]);
+            rentals.add(rental);
+        }
+        return rentals;
+    }
+
+    // The tiers seeded by database.sql
+    public static List<LateFee> lateFeeTiers() {
+        List<LateFee> tiers = new ArrayList<>();
+        tiers.add(new LateFee(1, 3, new BigDecimal("1.00")));
+        tiers.add(new LateFee(4, 7, new BigDecimal("2.00")));
+        tiers.add(new LateFee(8, 999999, new BigDecimal("3.00")));
+        return tiers;
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory ResultSet over prebuilt rows, so the DAO mapping code can be measured without a database.
+// Only the accessors the mapResultSetTo* methods use are supported; beforeFirst() rewinds for the next invocation.
+public final class SyntheticResultSet implements InvocationHandler {
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final List<Object[]> rows;
+    private int cursor = -1;
+    private boolean lastWasNull;
+
+    private SyntheticResultSet(String[] columns, List<Object[]> rows) {
+        for (int i = 0; i < columns.length; i++) {
+            columnIndex.put(columns[i], i);
+        }
+        this.rows = rows;
+    }
+
+    public static ResultSet of(String[] columns, List<Object[]> rows) {
+        return (ResultSet) Proxy.newProxyInstance(SyntheticResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, new SyntheticResultSet(columns, rows));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "next":
+                return ++cursor < rows.size();
+            case "beforeFirst":
+                cursor = -1;
+                return null;
+            case "close":
+                return null;
+            case "wasNull":
+                return lastWasNull;
+            case "getInt": {
+                Object value = value(args[0]);
+                return value == null ? 0 : ((Number) value).intValue();
+            }
+            case "getString":
+                return value(args[0]);
+            case "getBigDecimal":
+                return (BigDecimal) value(args[0]);
+            case "getDate":
+                return (Date) value(args[0]);
+            case "getTimestamp":
+                return (Timestamp) value(args[0]);
+            case "getObject":
+                return value(args[0]);
+            default:
+                throw new SQLException("Not supported by SyntheticResultSet: " + method.getName());
+        }
+    }
+
+    private Object value(Object column) throws SQLException {
+        Integer index = column instanceof Integer ? (Integer) column - 1 : columnIndex.get(column);
+        if (index == null) {
+            throw new SQLException("Unknown column " + column);
+        }
+        Object value = rows.get(cursor)[index];
+        lastWasNull = value == null;
+        return value;
+    }
+}
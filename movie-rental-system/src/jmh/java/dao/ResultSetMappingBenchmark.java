@@ -0,0 +1,53 @@
+package dao;
+
+import bench.SampleData;
+import bench.SyntheticResultSet;
+import model.Movie;
+import model.Rental;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// mapResultSetToRental / mapResultSetToMovie over a synthetic ResultSet, per page of rows
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultSetMappingBenchmark {
+    @Param({"1000"})
+    public int rows;
+
+    private final JdbcRentalDAO rentalDAO = new JdbcRentalDAO();
+    private final JdbcMovieDAO movieDAO = new JdbcMovieDAO();
+    private ResultSet rentalRows;
+    private ResultSet movieRows;
+
+    @Setup
+    public void setUp() {
+        rentalRows = SyntheticResultSet.of(SampleData.RENTAL_COLUMNS, SampleData.rentalRows(rows));
+        movieRows = SyntheticResultSet.of(SampleData.MOVIE_COLUMNS, SampleData.movieRows(rows));
+    }
+
+    @Benchmark
+    public void mapRentals(Blackhole blackhole) throws SQLException {
+        rentalRows.beforeFirst();
+        while (rentalRows.next()) {
+            Rental rental = rentalDAO.mapResultSetToRental(rentalRows);
+            blackhole.consume(rental);
+        }
+    }
+
+    @Benchmark
+    public void mapMovies(Blackhole blackhole) throws SQLException {
+        movieRows.beforeFirst();
+        while (movieRows.next()) {
+            Movie movie = movieDAO.mapResultSetToMovie(movieRows);
+            blackhole.consume(movie);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package web;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-request routing work in MovieRentalServlet: the route template used for metrics and
+// the regex path match for /movies/{id}/copies in doPost, over a representative mix of paths
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingBenchmark {
+    private static final String[] PATHS = {
+        "/movies", "/rentals", "/users/42", "/movies/1234/copies", "/rentals/return/98765", "/active-rentals"
+    };
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        for (String path : PATHS) {
+            blackhole.consume(Routes.template(path));
+        }
+    }
+
+    @Benchmark
+    public void regexMatch(Blackhole blackhole) {
+        for (String path : PATHS) {
+            blackhole.consume(path.matches("/movies/\\d+/copies"));
+        }
+    }
+}
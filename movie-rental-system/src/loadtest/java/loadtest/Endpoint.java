@@ -0,0 +1,26 @@
+package loadtest;
+
+// The request types in the workload mix
+enum Endpoint {
+    BROWSE("browse", "GET /api/movies"),
+    CHECKOUT("checkout", "POST /api/rentals"),
+    RETURN("return", "PUT /api/rentals/return/{id}"),
+    ACTIVE("active", "GET /api/active-rentals");
+
+    final String key;
+    final String label;
+
+    Endpoint(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+
+    static Endpoint forKey(String key) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.key.equalsIgnoreCase(key)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint in mix: " + key);
+    }
+}
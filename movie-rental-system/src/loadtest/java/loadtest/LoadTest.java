@@ -0,0 +1,201 @@
+package loadtest;
+
+import dao.RentalView;
+import datagen.DatasetGenerator;
+import datagen.JdbcRowSink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// End-to-end load test: seeds a stand-in database, boots Launcher in this JVM against it and
+// drives an open-loop workload mix, then prints throughput and latency percentiles per endpoint.
+//
+//   mvn -Ploadtest compile exec:exec@loadtest -Dloadtest.args="--rate 500 --duration 120 --scale 0.1"
+//
+// Options (defaults in brackets):
+//   --rate <req/s> [200]   --duration <s> [60]   --warmup <s> [10]
+//   --mix browse=50,checkout=20,return=20,active=10
+//   --movies [100000] --users [1000000] --rentals [10000000] --overdue-ratio [0.002] --scale [1.0]
+//   --seed [42]  --reseed  --no-seed
+//   --db-url/--db-user/--db-password   use another database (schema from database.sql must exist)
+//   --shards <n> [1]                   split the H2 stand-in into n user-id shards
+//   --base-url <url>                   drive an already running server instead of booting Launcher
+public class LoadTest {
+    private static final int LAUNCHER_PORT = 8000;
+    // Flagged-request summaries would flood the console at load; held so the level sticks
+    private static final Logger JDBC_TRACE_LOG = Logger.getLogger("movierental.jdbc");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        DatasetGenerator.Settings dataset = new DatasetGenerator.Settings();
+        dataset.movies = Integer.parseInt(options.getOrDefault("movies", "100000"));
+        dataset.users = Integer.parseInt(options.getOrDefault("users", "1000000"));
+        dataset.rentals = Integer.parseInt(options.getOrDefault("rentals", "10000000"));
+        dataset.overdueRatio = Double.parseDouble(options.getOrDefault("overdue-ratio", "0.002"));
+        dataset.seed = seed;
+        dataset.scale(Double.parseDouble(options.getOrDefault("scale", "1.0")));
+
+        StandInDatabase database = new StandInDatabase(
+            options.getOrDefault("db-url", StandInDatabase.DEFAULT_URL),
+            options.getOrDefault("db-user", "sa"),
+            options.getOrDefault("db-password", ""));
+        database.exportToApplication();
+        int shardCount = Integer.parseInt(options.getOrDefault("shards", "1"));
+        if (shardCount > 1 && !database.isH2()) {
+            throw new IllegalArgumentException("--shards needs the H2 stand-in; set shard.urls for other databases");
+        }
+        ShardedStandIns shards = new ShardedStandIns(database, shardCount,
+            options.getOrDefault("db-user", "sa"), options.getOrDefault("db-password", ""));
+        if (shardCount > 1) {
+            shards.exportToApplication();
+        }
+        JDBC_TRACE_LOG.setLevel(Level.WARNING);
+        // Jobs that only make sense against production MySQL stay off unless asked for
+        System.setProperty("archive.enabled", System.getProperty("archive.enabled", "false"));
+        System.setProperty("accrual.enabled", System.getProperty("accrual.enabled", "false"));
+
+        if (options.containsKey("reseed") && database.isH2()) {
+            try (Connection conn = database.connect(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+            }
+            shards.dropAll();
+        }
+        database.createSchema();
+        shards.createSchema();
+        if (!options.containsKey("no-seed")) {
+            long existing = database.count("movies");
+            if (existing == 0) {
+                try (JdbcRowSink sink = database.openSink()) {
+                    new DatasetGenerator(dataset).generate(sink);
+                }
+            } else {
+                System.out.printf("Reusing existing dataset (%,d movies); pass --reseed to regenerate%n", existing);
+            }
+            shards.split();
+            // Fill the rental listings' read model on shards the split filled and on datasets
+            // seeded before it existed
+            for (StandInDatabase shard : shards.all()) {
+                try (Connection conn = shard.connect()) {
+                    RentalView.rebuild(conn);
+                }
+            }
+        }
+        int movieCount = (int) database.count("movies");
+        long users = 0;
+        for (StandInDatabase shard : shards.all()) {
+            users += shard.count("users");
+        }
+        int userCount = (int) users;
+        ConcurrentLinkedQueue<Integer> openRentals = loadOpenRentals(shards.all(), seed);
+        System.out.printf("Dataset: %,d movies, %,d users, %,d open rentals%n", movieCount, userCount, openRentals.size());
+
+        String baseUrl = options.get("base-url");
+        if (baseUrl == null) {
+            bootLauncher();
+            baseUrl = "http://localhost:" + LAUNCHER_PORT + "/api";
+        }
+
+        OpenLoopDriver driver = new OpenLoopDriver(baseUrl,
+            Double.parseDouble(options.getOrDefault("rate", "200")),
+            Integer.parseInt(options.getOrDefault("warmup", "10")),
+            Integer.parseInt(options.getOrDefault("duration", "60")),
+            parseMix(options.getOrDefault("mix", "browse=50,checkout=20,return=20,active=10")),
+            seed,
+            random -> 1 + random.nextInt(movieCount),
+            random -> 1 + random.nextInt(userCount),
+            openRentals);
+        driver.run();
+        driver.printReport();
+        // Tomcat's threads are not daemons
+        System.exit(0);
+    }
+
+    // Open rentals the return requests work through, shuffled so returns do not walk the table in id order
+    private static ConcurrentLinkedQueue<Integer> loadOpenRentals(List<StandInDatabase> shards, long seed) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (StandInDatabase database : shards) {
+            try (Connection conn = database.connect();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id FROM rentals WHERE return_date IS NULL")) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        Collections.shuffle(ids, new Random(seed));
+        return new ConcurrentLinkedQueue<>(ids);
+    }
+
+    // Launcher lives in the default package, so it is started reflectively; main() blocks on the server
+    private static void bootLauncher() throws Exception {
+        Class<?> launcher = Class.forName("Launcher");
+        Thread server = new Thread(() -> {
+            try {
+                launcher.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }, "launcher");
+        server.setDaemon(true);
+        server.start();
+
+        // The port opens before the webapp is deployed, so wait for the API itself to answer
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + LAUNCHER_PORT + "/api/metrics"))
+            .timeout(Duration.ofSeconds(5)).build();
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("The API did not come up on port " + LAUNCHER_PORT);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String spec) {
+        Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            mix.put(Endpoint.forKey(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
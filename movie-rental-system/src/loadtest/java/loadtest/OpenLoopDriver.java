@@ -0,0 +1,200 @@
+package loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Open-loop load: requests are scheduled at a fixed arrival rate whether or not earlier ones
+// have completed, so a slow server cannot throttle its own load. Latency is measured from
+// each request's intended send time (coordinated-omission correction); when the scheduler
+// or the client falls behind, that delay counts against the server like a real queue would.
+final class OpenLoopDriver {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final String baseUrl;
+    private final double ratePerSecond;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final Endpoint[] mixTable;
+    private final Random random;
+    private final IdSampler movies;
+    private final IdSampler users;
+    private final Queue<Integer> openRentals;
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong skippedReturns = new AtomicLong();
+    private long maxSchedulerLagNanos;
+
+    // Chooses the movie or user id for a checkout
+    interface IdSampler {
+        int next(Random random);
+    }
+
+    OpenLoopDriver(String baseUrl, double ratePerSecond, int warmupSeconds, int durationSeconds,
+                   Map<Endpoint, Integer> mix, long seed, IdSampler movies, IdSampler users, Queue<Integer> openRentals) {
+        this.baseUrl = baseUrl;
+        this.ratePerSecond = ratePerSecond;
+        this.warmupNanos = warmupSeconds * 1_000_000_000L;
+        this.durationNanos = durationSeconds * 1_000_000_000L;
+        this.random = new Random(seed);
+        this.movies = movies;
+        this.users = users;
+        this.openRentals = openRentals;
+
+        // One slot per percentage point of weight, so picking an endpoint is an array read
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        mixTable = new Endpoint[Math.max(total, 1)];
+        int slot = 0;
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                mixTable[slot++] = entry.getKey();
+            }
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+    }
+
+    void run() throws InterruptedException {
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        long start = System.nanoTime();
+        long end = start + warmupNanos + durationNanos;
+        long measureFrom = start + warmupNanos;
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long now = System.nanoTime();
+            while (now < intended) {
+                LockSupport.parkNanos(intended - now);
+                now = System.nanoTime();
+            }
+            maxSchedulerLagNanos = Math.max(maxSchedulerLagNanos, now - intended);
+            send(mixTable[random.nextInt(mixTable.length)], intended, intended >= measureFrom);
+        }
+
+        // Let the stragglers finish; anything still running after a minute is reported as lost
+        long drainUntil = System.nanoTime() + 60_000_000_000L;
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void send(Endpoint endpoint, long intended, boolean measured) {
+        HttpRequest request = buildRequest(endpoint);
+        if (request == null) {
+            skippedReturns.incrementAndGet();
+            return;
+        }
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            inFlight.decrementAndGet();
+            boolean failed = error != null || response.statusCode() >= 400;
+            if (!failed && endpoint == Endpoint.CHECKOUT) {
+                Matcher matcher = ID.matcher(response.body());
+                if (matcher.find()) {
+                    openRentals.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+            if (measured) {
+                recorders.get(endpoint).record(done - intended, done - sent, failed);
+            }
+        });
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint) {
+        switch (endpoint) {
+            case BROWSE:
+                return get("/movies");
+            case ACTIVE:
+                return get("/active-rentals");
+            case CHECKOUT: {
+                LocalDate today = LocalDate.now();
+                String body = "{\"userId\":" + users.next(random) + ",\"movieId\":" + movies.next(random)
+                    + ",\"rentalDate\":" + date(today) + ",\"dueDate\":" + date(today.plusDays(7))
+                    + ",\"basePrice\":3.50,\"lateFee\":0,\"totalPrice\":3.50}";
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/rentals"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            }
+            case RETURN: {
+                Integer rentalId = openRentals.poll();
+                if (rentalId == null) {
+                    return null;
+                }
+                String body = "{\"returnDate\":" + date(LocalDate.now()) + ",\"lateFee\":0}";
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/rentals/return/" + rentalId))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            }
+            default:
+                throw new IllegalStateException("Unhandled endpoint " + endpoint);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    // LocalDate as the servlet's default Gson instance reads it
+    private static String date(LocalDate date) {
+        return "{\"year\":" + date.getYear() + ",\"month\":" + date.getMonthValue() + ",\"day\":" + date.getDayOfMonth() + "}";
+    }
+
+    void printReport() {
+        double seconds = durationNanos / 1e9;
+        System.out.println();
+        System.out.printf("Open-loop run: %.0f req/s offered for %.0f s (after %.0f s warmup)%n",
+            ratePerSecond, seconds, warmupNanos / 1e9);
+        System.out.printf("%-32s %9s %7s %9s %10s %10s %10s %10s %12s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "svc p99 ms");
+
+        long allCount = 0;
+        long allErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyRecorder.Snapshot snapshot = recorders.get(endpoint).snapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            allCount += snapshot.count();
+            allErrors += snapshot.errors;
+            System.out.printf("%-32s %9d %7d %9.1f %10.2f %10.2f %10.2f %10.2f %12.2f%n",
+                endpoint.label, snapshot.count(), snapshot.errors, snapshot.count() / seconds,
+                LatencyRecorder.Snapshot.percentileMillis(snapshot.response, 50),
+                LatencyRecorder.Snapshot.percentileMillis(snapshot.response, 99),
+                LatencyRecorder.Snapshot.percentileMillis(snapshot.response, 99.9),
+                LatencyRecorder.Snapshot.percentileMillis(snapshot.response, 100),
+                LatencyRecorder.Snapshot.percentileMillis(snapshot.service, 99));
+        }
+        System.out.printf("%-32s %9d %7d %9.1f%n", "total", allCount, allErrors, allCount / seconds);
+        System.out.printf("Peak in flight: %d, max scheduler lag: %.2f ms, returns skipped (no open rental): %d, unfinished: %d%n",
+            peakInFlight.get(), maxSchedulerLagNanos / 1e6, skippedReturns.get(), inFlight.get());
+        System.out.println("Latency is measured from the intended send time; svc p99 is from the actual send.");
+    }
+}
@@ -0,0 +1,164 @@
+package loadtest;
+
+import util.Shards;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// H2 stand-ins for a sharded deployment: the seeded stand-in is shard 0 and each further
+// shard is another H2 file next to it. split() spreads a dataset seeded into shard 0 the way
+// the sharded DAOs expect it: reference tables copied everywhere, users and their rentals moved
+// to the shard owning the user's slot.
+final class ShardedStandIns {
+    private static final String[] REFERENCE_TABLES = {"pricing_categories", "late_fees", "movies", "movie_pricing"};
+    private static final int BATCH = 5000;
+
+    private final List<StandInDatabase> shards = new ArrayList<>();
+
+    ShardedStandIns(StandInDatabase primary, int count, String user, String password) {
+        shards.add(primary);
+        for (int shard = 1; shard < count; shard++) {
+            shards.add(new StandInDatabase(StandInDatabase.DEFAULT_URL.replace("/movie_rental;", "/movie_rental_shard" + shard + ";"),
+                                           user, password));
+        }
+    }
+
+    List<StandInDatabase> all() {
+        return shards;
+    }
+
+    // Point the application at the shards; must run before Shards is first used
+    void exportToApplication() {
+        StringBuilder urls = new StringBuilder();
+        for (StandInDatabase shard : shards) {
+            urls.append(urls.length() == 0 ? "" : ",").append(shard.url());
+        }
+        System.setProperty("shard.urls", urls.toString());
+    }
+
+    void dropAll() throws SQLException {
+        for (StandInDatabase shard : shards.subList(1, shards.size())) {
+            try (Connection conn = shard.connect(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    void createSchema() throws SQLException, IOException {
+        for (StandInDatabase shard : shards.subList(1, shards.size())) {
+            shard.createSchema();
+        }
+    }
+
+    // Spread a freshly seeded shard 0 over the others; a no-op once the other shards hold movies
+    void split() throws SQLException {
+        if (shards.size() < 2 || shards.get(1).count("movies") > 0) {
+            return;
+        }
+        try (Connection source = shards.get(0).connect()) {
+            for (int shard = 1; shard < shards.size(); shard++) {
+                int target = shard;
+                try (Connection conn = shards.get(shard).connect()) {
+                    // The schema script seeds default categories and tiers; take shard 0's instead
+                    try (Statement stmt = conn.createStatement()) {
+                        for (int i = REFERENCE_TABLES.length - 1; i >= 0; i--) {
+                            stmt.execute("DELETE FROM " + REFERENCE_TABLES[i]);
+                        }
+                    }
+                    for (String table : REFERENCE_TABLES) {
+                        copy(source, conn, "SELECT * FROM " + table, table, rs -> true);
+                    }
+                    copy(source, conn, "SELECT * FROM users", "users",
+                         rs -> Shards.shardForId(rs.getInt("id")) == target);
+                    copy(source, conn, "SELECT * FROM rentals", "rentals",
+                         rs -> Shards.shardForId(rs.getInt("user_id")) == target);
+                }
+            }
+            // Only now drop what moved, rentals before their users
+            List<Integer> moved = new ArrayList<>();
+            try (Statement stmt = source.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id FROM users")) {
+                while (rs.next()) {
+                    if (Shards.shardForId(rs.getInt(1)) != 0) {
+                        moved.add(rs.getInt(1));
+                    }
+                }
+            }
+            delete(source, "DELETE FROM rental_view WHERE user_id = ?", moved);
+            delete(source, "DELETE FROM rentals WHERE user_id = ?", moved);
+            delete(source, "DELETE FROM users WHERE id = ?", moved);
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            System.out.printf("Shard %d: %,d users, %,d rentals%n", shard,
+                              shards.get(shard).count("users"), shards.get(shard).count("rentals"));
+        }
+    }
+
+    private interface RowFilter {
+        boolean accept(ResultSet rs) throws SQLException;
+    }
+
+    // Copy the selected rows column for column, ids included
+    private static void copy(Connection source, Connection target, String query, String table, RowFilter filter)
+            throws SQLException {
+        target.setAutoCommit(false);
+        try (Statement select = source.createStatement();
+             ResultSet rs = select.executeQuery(query)) {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            StringBuilder names = new StringBuilder();
+            StringBuilder marks = new StringBuilder();
+            for (int column = 1; column <= columns; column++) {
+                names.append(column == 1 ? "" : ", ").append(meta.getColumnName(column));
+                marks.append(column == 1 ? "?" : ", ?");
+            }
+            try (PreparedStatement insert = target.prepareStatement(
+                     "INSERT INTO " + table + " (" + names + ") VALUES (" + marks + ")")) {
+                int pending = 0;
+                while (rs.next()) {
+                    if (!filter.accept(rs)) {
+                        continue;
+                    }
+                    for (int column = 1; column <= columns; column++) {
+                        insert.setObject(column, rs.getObject(column));
+                    }
+                    insert.addBatch();
+                    if (++pending == BATCH) {
+                        insert.executeBatch();
+                        target.commit();
+                        pending = 0;
+                    }
+                }
+                insert.executeBatch();
+                target.commit();
+            }
+        } finally {
+            target.setAutoCommit(true);
+        }
+    }
+
+    private static void delete(Connection conn, String sql, List<Integer> ids) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(1, ids.get(i));
+                stmt.addBatch();
+                if ((i + 1) % BATCH == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package loadtest;
+
+import datagen.JdbcRowSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Local database for the load test: an H2 file database in MySQL mode under target/,
+// or any JDBC URL passed with --db-url (e.g. a local MySQL loaded from database.sql)
+final class StandInDatabase {
+    static final String DEFAULT_URL = "jdbc:h2:file:./target/loadtest-db/movie_rental;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+        + "CACHE_SIZE=262144;LOCK_TIMEOUT=10000";
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    StandInDatabase(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    String url() {
+        return url;
+    }
+
+    boolean isH2() {
+        return url.startsWith("jdbc:h2:");
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    // Bulk loader for the dataset generator
+    JdbcRowSink openSink() throws SQLException {
+        return new JdbcRowSink(url, user, password);
+    }
+
+    // Point the application at this database; DatabaseConfig gives system properties precedence
+    void exportToApplication() {
+        System.setProperty("db.url", url);
+        System.setProperty("db.user", user);
+        System.setProperty("db.password", password);
+    }
+
+    // Create the schema on the H2 stand-in; a MySQL target is expected to have database.sql applied
+    void createSchema() throws SQLException, IOException {
+        if (!isH2()) {
+            return;
+        }
+        String script;
+        try (InputStream in = StandInDatabase.class.getResourceAsStream("h2-schema.sql")) {
+            if (in == null) {
+                throw new IOException("h2-schema.sql not found on the classpath");
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    long count(String table) throws SQLException {
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+-- Schema for the H2 stand-in database used by the load test (MySQL compatibility mode).
+-- Mirrors src/main/resources/database.sql, with indexes declared separately and without
+-- the MySQL-only partitioning; keep the two in step.
+
+CREATE TABLE IF NOT EXISTS users (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(100) NOT NULL,
+    phone VARCHAR(20) NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS pricing_categories (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(50) NOT NULL,
+    base_price DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_category_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS movies (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    title VARCHAR(200) NOT NULL,
+    genre VARCHAR(50) NOT NULL,
+    available_copies INT NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS movie_pricing (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    movie_id INT NOT NULL,
+    pricing_category_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    FOREIGN KEY (pricing_category_id) REFERENCES pricing_categories(id)
+);
+
+CREATE TABLE IF NOT EXISTS movie_copies (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    movie_id INT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'AVAILABLE',
+    rental_id INT,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id)
+);
+CREATE INDEX IF NOT EXISTS idx_copies_movie_status ON movie_copies (movie_id, status);
+
+CREATE TABLE IF NOT EXISTS late_fees (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    days_late_start INT NOT NULL,
+    days_late_end INT NOT NULL,
+    fee_per_day DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS rentals (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    accrued_late_fee DECIMAL(10,2) DEFAULT 0.00,
+    accrued_at DATE,
+    copy_id INT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (movie_id) REFERENCES movies(id)
+);
+
+CREATE TABLE IF NOT EXISTS rentals_archive (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    copy_id INT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_archive_user ON rentals_archive (user_id);
+CREATE INDEX IF NOT EXISTS idx_archive_rental_date ON rentals_archive (rental_date);
+
+CREATE TABLE IF NOT EXISTS rental_view (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    copy_id INT,
+    created_at TIMESTAMP NULL,
+    movie_title VARCHAR(200),
+    user_name VARCHAR(100)
+);
+CREATE INDEX IF NOT EXISTS idx_rental_view_rental_date ON rental_view (rental_date);
+CREATE INDEX IF NOT EXISTS idx_rental_view_open_due ON rental_view (return_date, due_date);
+CREATE INDEX IF NOT EXISTS idx_rental_view_user ON rental_view (user_id);
+CREATE INDEX IF NOT EXISTS idx_rental_view_movie ON rental_view (movie_id);
+
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+    job_name VARCHAR(100) PRIMARY KEY,
+    run_date DATE NOT NULL,
+    last_id INT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS event_projections (
+    name VARCHAR(100) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    node VARCHAR(100) NOT NULL,
+    entity VARCHAR(32) NOT NULL,
+    entity_id INT NOT NULL,
+    published_millis BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_change_log_published ON change_log (published_millis);
+
+CREATE TABLE IF NOT EXISTS holds (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (movie_id) REFERENCES movies(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_holds_expires ON holds (expires_at);
+
+MERGE INTO pricing_categories (id, name, base_price) KEY (id) VALUES
+(1, 'New Release', 5.00),
+(2, 'Regular', 3.50),
+(3, 'Classic', 2.00);
+
+MERGE INTO late_fees (id, days_late_start, days_late_end, fee_per_day) KEY (id) VALUES
+(1, 1, 3, 1.00),
+(2, 4, 7, 2.00),
+(3, 8, 999999, 3.00);
@@ -4,10 +4,12 @@ import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.webresources.DirResourceSet;
 import org.apache.catalina.webresources.StandardRoot;
 
+import util.DatabaseConfig;
+
 import java.io.File;
 
 public class Launcher {
-    private static final int PORT = 8000;
+    private static final int PORT = DatabaseConfig.getInt("server.port", 8000);
 
     public static void main(String[] args) throws Exception {
         // Create Tomcat instance
@@ -27,6 +29,15 @@ public class Launcher {
             additionWebInfClasses.getAbsolutePath(), "/"));
         ctx.setResources(resources);
 
+        // Stop the webapp on Ctrl+C / SIGTERM so context listeners run (e.g. the in-memory snapshot)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                tomcat.stop();
+            } catch (Exception e) {
+                System.err.println("Error stopping server: " + e.getMessage());
+            }
+        }, "tomcat-shutdown"));
+
         try {
             // Start the server
             tomcat.start();
@@ -1,30 +1,37 @@
 import dao.*;
+import index.DueDateIndex;
+import index.MovieSearchIndex;
 import model.*;
 import util.DatabaseConnection;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 public class MovieRentalSystem {
     private static final Scanner scanner = new Scanner(System.in);
-    private static final UserDAO userDAO = new UserDAO();
-    private static final MovieDAO movieDAO = new MovieDAO();
-    private static final PricingCategoryDAO pricingCategoryDAO = new PricingCategoryDAO();
-    private static final LateFeeDAO lateFeeDAO = new LateFeeDAO();
-    private static final RentalDAO rentalDAO = new RentalDAO();
+    private static final UserDAO userDAO = DAOFactory.userDAO();
+    private static final MovieDAO movieDAO = DAOFactory.movieDAO();
+    private static final PricingCategoryDAO pricingCategoryDAO = DAOFactory.pricingCategoryDAO();
+    private static final LateFeeDAO lateFeeDAO = DAOFactory.lateFeeDAO();
+    private static final RentalDAO rentalDAO = DAOFactory.rentalDAO();
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     public static void main(String[] args) {
         try {
-            if (!DatabaseConnection.testConnection()) {
+            if (!DAOFactory.isInMemory() && !DatabaseConnection.testConnection()) {
                 System.out.println("Failed to connect to database. Please check your connection settings.");
                 return;
             }
+            DueDateIndex.getInstance().load(rentalDAO::getActiveRentals);
+            MovieSearchIndex.getInstance().load(movieDAO::getAll, rentalDAO::getRentalCountsByMovie);
             
             while (true) {
                 displayMainMenu();
@@ -57,6 +64,12 @@ public class MovieRentalSystem {
             System.out.println("An error occurred: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            try {
+                DAOFactory.saveSnapshot();
+            } catch (IOException e) {
+                System.out.println("Failed to save the in-memory snapshot: " + e.getMessage());
+            }
+            DAOFactory.shutdown();
             DatabaseConnection.closeConnection();
         }
     }
@@ -271,8 +284,11 @@ public class MovieRentalSystem {
         if (!email.isEmpty()) user.setEmail(email);
         if (!phone.isEmpty()) user.setPhone(phone);
 
-        if (userDAO.update(user)) {
+        UpdateResult result = userDAO.update(user);
+        if (result.isUpdated()) {
             System.out.println("User updated successfully!");
+        } else if (result == UpdateResult.CONFLICT) {
+            System.out.println("User was changed by someone else. Please try again.");
         } else {
             System.out.println("Failed to update user.");
         }
@@ -338,13 +354,25 @@ public class MovieRentalSystem {
 
         if (!title.isEmpty()) movie.setTitle(title);
         if (!genre.isEmpty()) movie.setGenre(genre);
-        if (!copies.isEmpty()) movie.setAvailableCopies(Integer.parseInt(copies));
 
-        if (movieDAO.update(movie, null)) {
-            System.out.println("Movie updated successfully!");
-        } else {
+        UpdateResult result = movieDAO.update(movie, null);
+        if (result == UpdateResult.CONFLICT) {
+            System.out.println("Movie was changed by someone else. Please try again.");
+            return;
+        } else if (!result.isUpdated()) {
             System.out.println("Failed to update movie.");
+            return;
+        }
+
+        // Copy counts are applied as a delta so concurrent rentals are not overwritten
+        if (!copies.isEmpty()) {
+            int delta = Integer.parseInt(copies) - movie.getAvailableCopies();
+            if (delta != 0 && !movieDAO.adjustAvailableCopies(movieId, delta)) {
+                System.out.println("Failed to update number of copies.");
+                return;
+            }
         }
+        System.out.println("Movie updated successfully!");
     }
 
     private static void setMoviePricing() throws SQLException {
@@ -372,8 +400,11 @@ public class MovieRentalSystem {
             return;
         }
 
-        if (movieDAO.update(movie, categoryId)) {
+        UpdateResult result = movieDAO.update(movie, categoryId);
+        if (result.isUpdated()) {
             System.out.println("Movie pricing updated successfully!");
+        } else if (result == UpdateResult.CONFLICT) {
+            System.out.println("Movie was changed by someone else. Please try again.");
         } else {
             System.out.println("Failed to update movie pricing.");
         }
@@ -383,14 +414,23 @@ public class MovieRentalSystem {
     private static void rentMovie() throws SQLException {
         System.out.println("\n=== Rent Movie ===");
         
-        // Show available movies
-        List<Movie> movies = movieDAO.getAvailableMovies();
+        // Load the user list while the movies load and the movie is picked
+        CompletableFuture<List<User>> usersLoad = userDAO.getAllAsync();
+
+        // Search the catalog instead of listing all of it
+        String query = getStringInput("Search movies by title or genre: ");
+        List<Movie> movies = new ArrayList<>();
+        for (Movie match : movieDAO.getByIds(MovieSearchIndex.getInstance().search(query, 20)).values()) {
+            if (match.isAvailable()) {
+                movies.add(match);
+            }
+        }
         if (movies.isEmpty()) {
-            System.out.println("No movies available for rent.");
+            System.out.println("No available movies match \"" + query + "\".");
             return;
         }
 
-        System.out.println("\nAvailable Movies:");
+        System.out.println("\nMatching Movies:");
         for (Movie movie : movies) {
             System.out.println(movie.getId() + ". " + movie.getTitle() + 
                              " (Price: $" + movie.getCurrentPrice() + ")");
@@ -404,7 +444,7 @@ public class MovieRentalSystem {
         }
 
         // Show users
-        List<User> users = userDAO.getAll();
+        List<User> users = AsyncReads.join(usersLoad);
         System.out.println("\nSelect User:");
         for (User user : users) {
             System.out.println(user.getId() + ". " + user.getName());
@@ -0,0 +1,45 @@
+package cache;
+
+// One write to a cached entity, as sent between API nodes. An id of ALL stands for every row
+// of the entity, e.g. after a bulk UPDATE.
+public final class Change {
+    public static final String MOVIE = "movie";
+    public static final String PRICING_CATEGORY = "pricing_category";
+    public static final String LATE_FEE = "late_fee";
+    public static final int ALL = 0;
+
+    private final String node;
+    private final String entity;
+    private final int id;
+    private final long publishedMillis;
+
+    public Change(String node, String entity, int id, long publishedMillis) {
+        this.node = node;
+        this.entity = entity;
+        this.id = id;
+        this.publishedMillis = publishedMillis;
+    }
+
+    // Node that made the write
+    public String getNode() {
+        return node;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // Publishing node's wall clock, for the staleness metric
+    public long getPublishedMillis() {
+        return publishedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return entity + "/" + (id == ALL ? "*" : String.valueOf(id)) + " from " + node;
+    }
+}
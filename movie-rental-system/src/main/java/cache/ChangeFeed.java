@@ -0,0 +1,191 @@
+package cache;
+
+import metrics.Metrics;
+import util.DatabaseConfig;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Tells the caches of every API node about writes. A write invalidates this node's caches
+// before publish() returns and is queued for the other nodes; a flusher thread sends the
+// queue every cache.invalidation.flush.millis and a tailer thread applies what the other
+// nodes sent. cache.invalidation.transport picks how changes travel:
+//   table  (default) the change_log table, polled every cache.invalidation.poll.millis
+//   udp              datagrams to cache.invalidation.udp.peers
+//   local            this node only; other nodes see writes after cache.max.staleness.seconds,
+//                    so it suits a single API node only
+public final class ChangeFeed {
+    private static ChangeFeed instance;
+
+    private final String node;
+    private final ChangeTransport transport;
+    private final long flushMillis;
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final BlockingQueue<Change> outgoing = new LinkedBlockingQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public interface Listener {
+        // id is Change.ALL when every row of the entity may have changed
+        void changed(int id);
+    }
+
+    private ChangeFeed(String node, ChangeTransport transport, long flushMillis) {
+        this.node = node;
+        this.transport = transport;
+        this.flushMillis = flushMillis;
+        if (transport != null) {
+            threads.add(start("change-feed-flusher", this::flushLoop));
+            threads.add(start("change-feed-tailer", this::tailLoop));
+        }
+    }
+
+    public static synchronized ChangeFeed getInstance() {
+        if (instance == null) {
+            instance = create();
+        }
+        return instance;
+    }
+
+    private static ChangeFeed create() {
+        String node = DatabaseConfig.get("cache.node.id", defaultNodeId());
+        String kind = DatabaseConfig.get("cache.invalidation.transport", "table").toLowerCase();
+        long flushMillis = DatabaseConfig.getInt("cache.invalidation.flush.millis", 20);
+        ChangeTransport transport;
+        switch (kind) {
+            case "local":
+                transport = null;
+                break;
+            case "table":
+                transport = new TableChangeTransport(DatabaseConfig.getInt("cache.invalidation.poll.millis", 200),
+                    TimeUnit.MINUTES.toMillis(DatabaseConfig.getInt("cache.change.log.retention.minutes", 60)));
+                break;
+            case "udp":
+                try {
+                    transport = new UdpChangeTransport(DatabaseConfig.getInt("cache.invalidation.udp.port", 4446),
+                        DatabaseConfig.get("cache.invalidation.udp.peers", ""));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot open the cache invalidation socket: " + e.getMessage(), e);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown cache.invalidation.transport: " + kind);
+        }
+        System.out.println("Cache invalidation over " + kind + " as node " + node);
+        return new ChangeFeed(node, transport, flushMillis);
+    }
+
+    public void subscribe(String entity, Listener listener) {
+        listeners.computeIfAbsent(entity, e -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    // Record a write: invalidate here now, tell the other nodes on the next flush
+    public void publish(String entity, int id) {
+        dispatch(entity, id);
+        if (transport != null) {
+            outgoing.add(new Change(node, entity, id, System.currentTimeMillis()));
+        }
+    }
+
+    private void dispatch(String entity, int id) {
+        List<Listener> subscribed = listeners.get(entity);
+        if (subscribed != null) {
+            for (Listener listener : subscribed) {
+                listener.changed(id);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        List<Change> batch = new ArrayList<>();
+        while (running || !outgoing.isEmpty()) {
+            try {
+                Change first = outgoing.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Let a burst of writes go out together
+                Thread.sleep(flushMillis);
+                batch.add(first);
+                outgoing.drainTo(batch);
+                transport.send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Dropped; the TTL bounds how long the other nodes keep the stale entries
+                System.err.println("Publishing " + batch.size() + " cache changes failed: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    private void tailLoop() {
+        while (running) {
+            try {
+                for (Change change : transport.receive(500)) {
+                    if (node.equals(change.getNode())) {
+                        continue;
+                    }
+                    Metrics.recordInvalidationLag(change.getPublishedMillis());
+                    dispatch(change.getEntity(), change.getId());
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Receiving cache changes failed: " + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Send what is still queued and stop the transport
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        ChangeFeed feed = instance;
+        instance = null;
+        feed.running = false;
+        for (Thread thread : feed.threads) {
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (feed.transport != null) {
+            feed.transport.close();
+        }
+    }
+
+    private static Thread start(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
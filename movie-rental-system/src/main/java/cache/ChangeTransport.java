@@ -0,0 +1,17 @@
+package cache;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+// Carries changes between API nodes for ChangeFeed. Delivery is best effort: a lost change
+// only means a cache entry lives until cache.max.staleness.seconds.
+public interface ChangeTransport {
+    void send(List<Change> changes) throws IOException, SQLException;
+
+    // Changes published since the last call, waiting up to timeoutMillis for some to arrive;
+    // may include this node's own changes
+    List<Change> receive(long timeoutMillis) throws IOException, SQLException;
+
+    void close();
+}
@@ -0,0 +1,121 @@
+package cache;
+
+import jfr.JfrEvents;
+import util.DatabaseConfig;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Process-local cache in front of a DAO read. Entries expire after cache.max.staleness.seconds
+// even if no invalidation arrives, which bounds staleness when a change is lost. A load that
+// overlaps an invalidation is returned but not kept, so a read racing a write cannot put the
+// old row back. Null results are cached too.
+public final class ReadThroughCache<K, V> {
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(DatabaseConfig.getInt("cache.max.staleness.seconds", 30));
+
+    private final String name;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    public interface BulkLoader<K, V> {
+        // Values for the keys that have one; keys left out are cached as null
+        Map<K, V> load(Collection<K> keys) throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public ReadThroughCache(String name) {
+        this.name = name;
+    }
+
+    public V get(K key, Loader<V> loader) throws SQLException {
+        Entry<V> entry = entries.get(key);
+        long now = System.nanoTime();
+        boolean hit = entry != null && now - entry.loadedAt < MAX_AGE_NANOS;
+        JfrEvents.cacheAccess(name, key, hit);
+        if (hit) {
+            return entry.value;
+        }
+        long before = generation.get();
+        V value = loader.load();
+        if (generation.get() == before) {
+            entries.put(key, new Entry<>(value, now));
+            // An invalidation between the check and the put must still win
+            if (generation.get() != before) {
+                entries.remove(key);
+            }
+        }
+        return value;
+    }
+
+    // Batch form of get: hits come from the cache and every miss from a single loader call
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader) throws SQLException {
+        Map<K, V> values = new HashMap<>();
+        Set<K> misses = new LinkedHashSet<>();
+        long now = System.nanoTime();
+        for (K key : keys) {
+            if (key == null || values.containsKey(key) || misses.contains(key)) {
+                continue;
+            }
+            Entry<V> entry = entries.get(key);
+            boolean hit = entry != null && now - entry.loadedAt < MAX_AGE_NANOS;
+            JfrEvents.cacheAccess(name, key, hit);
+            if (hit) {
+                values.put(key, entry.value);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return values;
+        }
+        long before = generation.get();
+        Map<K, V> loaded = loader.load(misses);
+        for (K key : misses) {
+            V value = loaded.get(key);
+            values.put(key, value);
+            if (generation.get() == before) {
+                entries.put(key, new Entry<>(value, now));
+            }
+        }
+        if (generation.get() != before) {
+            for (K key : misses) {
+                entries.remove(key);
+            }
+        }
+        return values;
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,144 @@
+package cache;
+
+import util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Changes appended to the change_log table and tailed by id. AUTO_INCREMENT ids can commit
+// out of order across nodes, so the tail does not move past a missing id until it has been
+// missing for a grace period; rows read twice in the meantime are harmless. Rows older than
+// the retention are pruned by whichever node gets there first.
+final class TableChangeTransport implements ChangeTransport {
+    private static final int MAX_ROWS = 1000;
+
+    private final long pollMillis;
+    private final long gapGraceMillis;
+    private final long retentionMillis;
+    private Connection writer;
+    private Connection reader;
+    private long position = -1;
+    private long gapSince;
+    private long lastPrune;
+
+    TableChangeTransport(long pollMillis, long retentionMillis) {
+        this.pollMillis = pollMillis;
+        this.gapGraceMillis = Math.max(1000, pollMillis * 5);
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    public synchronized void send(List<Change> changes) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO change_log (node, entity, entity_id, published_millis) VALUES ");
+        for (int i = 0; i < changes.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        if (writer == null) {
+            writer = DatabaseConnection.openConnection();
+        }
+        try (PreparedStatement stmt = writer.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Change change : changes) {
+                stmt.setString(index++, change.getNode());
+                stmt.setString(index++, change.getEntity());
+                stmt.setInt(index++, change.getId());
+                stmt.setLong(index++, change.getPublishedMillis());
+            }
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            writer = close(writer);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Change> receive(long timeoutMillis) throws SQLException {
+        try {
+            Thread.sleep(Math.min(timeoutMillis, pollMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        }
+        if (reader == null) {
+            reader = DatabaseConnection.openConnection();
+        }
+        try {
+            // Start from the end: a node that just started has nothing stale to drop
+            if (position < 0) {
+                try (Statement stmt = reader.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+                    rs.next();
+                    position = rs.getLong(1);
+                }
+            }
+            List<Change> changes = new ArrayList<>();
+            try (PreparedStatement stmt = reader.prepareStatement(
+                     "SELECT id, node, entity, entity_id, published_millis FROM change_log WHERE id > ? ORDER BY id LIMIT ?")) {
+                stmt.setLong(1, position);
+                stmt.setInt(2, MAX_ROWS);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    boolean contiguous = true;
+                    while (rs.next()) {
+                        long id = rs.getLong(1);
+                        changes.add(new Change(rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(5)));
+                        if (contiguous && id != position + 1 && !gapExpired()) {
+                            contiguous = false;
+                        }
+                        if (contiguous) {
+                            position = id;
+                            gapSince = 0;
+                        }
+                    }
+                }
+            }
+            prune();
+            return changes;
+        } catch (SQLException e) {
+            reader = close(reader);
+            throw e;
+        }
+    }
+
+    // True once the id after the tail has been missing longer than the grace period
+    private boolean gapExpired() {
+        long now = System.currentTimeMillis();
+        if (gapSince == 0) {
+            gapSince = now;
+        }
+        return now - gapSince > gapGraceMillis;
+    }
+
+    private void prune() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < 60_000) {
+            return;
+        }
+        lastPrune = now;
+        try (PreparedStatement stmt = reader.prepareStatement("DELETE FROM change_log WHERE published_millis < ?")) {
+            stmt.setLong(1, now - retentionMillis);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        writer = close(writer);
+        reader = close(reader);
+    }
+
+    private static Connection close(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing change log connection: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Changes sent as UDP datagrams to a fixed list of peers, one change per line:
+// node, entity, id and publish time separated by tabs. Nodes on one host each take their own
+// port and list the others on 127.0.0.1. Nothing is retransmitted; a lost datagram is
+// covered by the cache TTL.
+final class UdpChangeTransport implements ChangeTransport {
+    // Stay under a typical MTU so datagrams are not fragmented
+    private static final int MAX_PAYLOAD = 1400;
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers;
+    private final byte[] buffer = new byte[65535];
+
+    UdpChangeTransport(int port, String peerList) throws IOException {
+        this.socket = new DatagramSocket(port);
+        this.peers = new ArrayList<>();
+        for (String peer : peerList.split(",")) {
+            if (peer.trim().isEmpty()) {
+                continue;
+            }
+            String[] hostPort = peer.trim().split(":");
+            if (hostPort.length != 2) {
+                throw new IllegalArgumentException("cache.invalidation.udp.peers needs host:port entries, got " + peer);
+            }
+            peers.add(new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1])));
+        }
+    }
+
+    @Override
+    public void send(List<Change> changes) throws IOException {
+        StringBuilder payload = new StringBuilder();
+        for (Change change : changes) {
+            String line = change.getNode() + '\t' + change.getEntity() + '\t' + change.getId() + '\t'
+                + change.getPublishedMillis() + '\n';
+            if (payload.length() + line.length() > MAX_PAYLOAD) {
+                sendToPeers(payload);
+                payload.setLength(0);
+            }
+            payload.append(line);
+        }
+        if (payload.length() > 0) {
+            sendToPeers(payload);
+        }
+    }
+
+    private void sendToPeers(CharSequence payload) throws IOException {
+        byte[] bytes = payload.toString().getBytes(StandardCharsets.UTF_8);
+        for (InetSocketAddress peer : peers) {
+            socket.send(new DatagramPacket(bytes, bytes.length, peer));
+        }
+    }
+
+    @Override
+    public List<Change> receive(long timeoutMillis) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        socket.setSoTimeout((int) Math.max(1, timeoutMillis));
+        try {
+            socket.receive(packet);
+        } catch (SocketTimeoutException e) {
+            return changes;
+        }
+        String payload = new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+        for (String line : payload.split("\n")) {
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                continue;
+            }
+            try {
+                changes.add(new Change(fields[0], fields[1], Integer.parseInt(fields[2]), Long.parseLong(fields[3])));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring malformed change from " + packet.getSocketAddress() + ": " + line);
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,90 @@
+package dao;
+
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bounded executor behind the DAOs' async read methods, so a caller can start several reads
+// and wait for the slowest rather than their sum. async.reads.threads workers each keep a
+// database connection of their own, since queries on the shared connection would queue
+// behind each other. At most async.reads.queue reads wait for a worker; past that a read
+// fails at once instead of piling up. Every read fails with a TimeoutException after
+// async.reads.timeout.ms, counted from submission; a read still queued by then is skipped.
+public final class AsyncReads {
+    private static final int THREADS = Math.max(1, DatabaseConfig.getInt("async.reads.threads", 8));
+    private static final long TIMEOUT_MILLIS = DatabaseConfig.getInt("async.reads.timeout.ms", 5000);
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+        THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, DatabaseConfig.getInt("async.reads.queue", 64))), runnable -> {
+            Thread thread = new Thread(() -> {
+                DatabaseConnection.useOwnConnections();
+                runnable.run();
+            }, "async-read-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private AsyncReads() {}
+
+    public interface Read<T> {
+        T read() throws SQLException;
+    }
+
+    // Run a read on a worker, routed to the caller's shard if it has one
+    public static <T> CompletableFuture<T> supply(Read<T> read) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Integer shard = Shards.current();
+        try {
+            EXECUTOR.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(Shards.on(shard, read::read));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLException("Async read queue is full", e));
+        }
+        return future.orTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Wait for a read and rethrow its failure as the SQLException the blocking DAO call would throw
+    public static <T> T join(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a read", e);
+        } catch (ExecutionException e) {
+            throw asSQLException(e.getCause());
+        }
+    }
+
+    public static SQLException asSQLException(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof SQLException) {
+            return (SQLException) failure;
+        }
+        if (failure instanceof TimeoutException) {
+            return new SQLException("Read timed out after " + TIMEOUT_MILLIS + " ms", failure);
+        }
+        return new SQLException("Read failed: " + failure, failure);
+    }
+}
@@ -0,0 +1,103 @@
+package dao;
+
+import model.Movie;
+import model.Rental;
+import model.User;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Request-scoped batching in front of a getByIds read. load(id) only queues the id and returns
+// a future; everything queued is fetched with one batch read when a value is first needed
+// (get, getAll or dispatch), so code that looks entities up one at a time while building a
+// composite view costs a query per batch rather than per row. Results, misses included, are
+// memoized for the loader's lifetime and it never sees later writes, so create one per
+// request and drop it afterwards. Not thread-safe.
+public final class BatchLoader<V> {
+    public interface BatchRead<V> {
+        Map<Integer, V> read(Collection<Integer> ids) throws SQLException;
+    }
+
+    private final BatchRead<V> read;
+    private final Map<Integer, CompletableFuture<V>> loaded = new HashMap<>();
+    private final Map<Integer, CompletableFuture<V>> pending = new LinkedHashMap<>();
+
+    public BatchLoader(BatchRead<V> read) {
+        this.read = read;
+    }
+
+    public static BatchLoader<User> users(UserDAO userDAO) {
+        return new BatchLoader<>(userDAO::getByIds);
+    }
+
+    public static BatchLoader<Movie> movies(MovieDAO movieDAO) {
+        return new BatchLoader<>(movieDAO::getByIds);
+    }
+
+    public static BatchLoader<Rental> rentals(RentalDAO rentalDAO) {
+        return new BatchLoader<>(rentalDAO::getByIds);
+    }
+
+    // Queue an id unless it is already known; the future gets null for an unknown id
+    public CompletableFuture<V> load(int id) {
+        CompletableFuture<V> future = loaded.get(id);
+        if (future == null) {
+            future = new CompletableFuture<>();
+            loaded.put(id, future);
+            pending.put(id, future);
+        }
+        return future;
+    }
+
+    // The value for an id, fetching it with whatever else is queued; null if there is none
+    public V get(int id) throws SQLException {
+        CompletableFuture<V> future = load(id);
+        if (!future.isDone()) {
+            dispatch();
+        }
+        return AsyncReads.join(future);
+    }
+
+    // Values for the ids in one batch, keyed in the order asked for; unknown ids are left out
+    public Map<Integer, V> getAll(Collection<Integer> ids) throws SQLException {
+        for (Integer id : ids) {
+            load(id);
+        }
+        dispatch();
+        Map<Integer, V> values = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            V value = AsyncReads.join(loaded.get(id));
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        return values;
+    }
+
+    // Fetch every queued id with one batch read. A failed batch fails its futures and is
+    // forgotten, so asking again retries it.
+    public void dispatch() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Integer, CompletableFuture<V>> batch = new LinkedHashMap<>(pending);
+        pending.clear();
+        Map<Integer, V> values;
+        try {
+            values = read.read(batch.keySet());
+        } catch (SQLException | RuntimeException e) {
+            loaded.keySet().removeAll(batch.keySet());
+            for (CompletableFuture<V> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        }
+        for (Map.Entry<Integer, CompletableFuture<V>> entry : batch.entrySet()) {
+            entry.getValue().complete(values.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dao;
+
+import cache.Change;
+import cache.ChangeFeed;
+import cache.ReadThroughCache;
+import model.LateFee;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Late fee tiers served from one cached LateFeeTierTable, like CachingMovieDAO. The table is
+// small and changes rarely, so any write drops all of it. rangeOverlaps guards writes and
+// always asks the database.
+public class CachingLateFeeDAO implements LateFeeDAO {
+    private static final ReadThroughCache<String, List<LateFee>> TIERS = new ReadThroughCache<>("late-fees");
+    private static final ReadThroughCache<String, LateFeeTierTable> TABLE = new ReadThroughCache<>("late-fee-table");
+
+    static {
+        ChangeFeed.getInstance().subscribe(Change.LATE_FEE, id -> {
+            TIERS.invalidateAll();
+            TABLE.invalidateAll();
+        });
+    }
+
+    private final LateFeeDAO lateFees;
+
+    public CachingLateFeeDAO(LateFeeDAO lateFees) {
+        this.lateFees = lateFees;
+    }
+
+    @Override
+    public LateFee create(LateFee lateFee) throws SQLException {
+        LateFee created = lateFees.create(lateFee);
+        ChangeFeed.getInstance().publish(Change.LATE_FEE, created.getId());
+        return created;
+    }
+
+    @Override
+    public LateFee getById(int id) throws SQLException {
+        for (LateFee lateFee : tiers()) {
+            if (lateFee.getId() == id) {
+                return copyOf(lateFee);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<LateFee> getAll() throws SQLException {
+        List<LateFee> copies = new ArrayList<>();
+        for (LateFee lateFee : tiers()) {
+            copies.add(copyOf(lateFee));
+        }
+        return copies;
+    }
+
+    @Override
+    public boolean update(LateFee lateFee) throws SQLException {
+        boolean updated = lateFees.update(lateFee);
+        if (updated) {
+            ChangeFeed.getInstance().publish(Change.LATE_FEE, lateFee.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = lateFees.delete(id);
+        if (deleted) {
+            ChangeFeed.getInstance().publish(Change.LATE_FEE, id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public LateFee getApplicableLateFee(int daysLate) throws SQLException {
+        for (LateFee lateFee : tiers()) {
+            if (lateFee.isApplicable(daysLate)) {
+                return copyOf(lateFee);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public BigDecimal calculateLateFee(int daysLate) throws SQLException {
+        return TABLE.get("table", () -> new LateFeeTierTable(tiers())).calculateLateFee(daysLate);
+    }
+
+    @Override
+    public boolean rangeOverlaps(int start, int end, Integer excludeId) throws SQLException {
+        return lateFees.rangeOverlaps(start, end, excludeId);
+    }
+
+    private List<LateFee> tiers() throws SQLException {
+        return TIERS.get("all", lateFees::getAll);
+    }
+
+    private static LateFee copyOf(LateFee cached) {
+        return new LateFee(cached.getId(), cached.getDaysLateStart(), cached.getDaysLateEnd(),
+                           cached.getFeePerDay(), cached.getCreatedAt());
+    }
+}
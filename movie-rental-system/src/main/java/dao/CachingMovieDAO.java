@@ -0,0 +1,111 @@
+package dao;
+
+import cache.Change;
+import cache.ChangeFeed;
+import cache.ReadThroughCache;
+import model.Movie;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Movie reads served from process-local caches; writes go through and publish a change so
+// every node drops the movie and the cached lists. Rentals move copy counts too, so
+// ChangePublishingRentalDAO publishes for the movies it touches. Callers get copies and may
+// modify them.
+public class CachingMovieDAO implements MovieDAO {
+    private static final ReadThroughCache<Integer, Movie> BY_ID = new ReadThroughCache<>("movies");
+    private static final ReadThroughCache<String, List<Movie>> LISTS = new ReadThroughCache<>("movie-lists");
+
+    static {
+        ChangeFeed.getInstance().subscribe(Change.MOVIE, id -> {
+            if (id == Change.ALL) {
+                BY_ID.invalidateAll();
+            } else {
+                BY_ID.invalidate(id);
+            }
+            LISTS.invalidateAll();
+        });
+    }
+
+    private final MovieDAO movies;
+
+    public CachingMovieDAO(MovieDAO movies) {
+        this.movies = movies;
+    }
+
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        Movie created = movies.create(movie, pricingCategoryId);
+        ChangeFeed.getInstance().publish(Change.MOVIE, created.getId());
+        return created;
+    }
+
+    @Override
+    public Movie getById(int id) throws SQLException {
+        Movie movie = BY_ID.get(id, () -> movies.getById(id));
+        return movie == null ? null : copyOf(movie);
+    }
+
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Movie> found = IdLists.inOrder(ids, BY_ID.getAll(ids, movies::getByIds));
+        found.replaceAll((id, movie) -> copyOf(movie));
+        return found;
+    }
+
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        return copyOf(LISTS.get("all", movies::getAll));
+    }
+
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        UpdateResult result = movies.update(movie, pricingCategoryId);
+        if (result == UpdateResult.UPDATED) {
+            ChangeFeed.getInstance().publish(Change.MOVIE, movie.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        boolean adjusted = movies.adjustAvailableCopies(movieId, delta);
+        if (adjusted) {
+            ChangeFeed.getInstance().publish(Change.MOVIE, movieId);
+        }
+        return adjusted;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = movies.delete(id);
+        if (deleted) {
+            ChangeFeed.getInstance().publish(Change.MOVIE, id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        return copyOf(LISTS.get("available", movies::getAvailableMovies));
+    }
+
+    private static List<Movie> copyOf(List<Movie> cached) {
+        List<Movie> copies = new ArrayList<>(cached.size());
+        for (Movie movie : cached) {
+            copies.add(copyOf(movie));
+        }
+        return copies;
+    }
+
+    private static Movie copyOf(Movie cached) {
+        Movie movie = new Movie(cached.getId(), cached.getTitle(), cached.getGenre(),
+                                cached.getAvailableCopies(), cached.getCreatedAt());
+        movie.setVersion(cached.getVersion());
+        movie.setCurrentPrice(cached.getCurrentPrice());
+        return movie;
+    }
+}
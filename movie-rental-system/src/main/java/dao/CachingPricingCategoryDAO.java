@@ -0,0 +1,104 @@
+package dao;
+
+import cache.Change;
+import cache.ChangeFeed;
+import cache.ReadThroughCache;
+import model.PricingCategory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Pricing categories served from process-local caches, like CachingMovieDAO. The category
+// of a movie is also dropped when the movie changes, since a movie update can move it to
+// another category. nameExists guards writes and always asks the database.
+public class CachingPricingCategoryDAO implements PricingCategoryDAO {
+    private static final ReadThroughCache<Integer, PricingCategory> BY_ID = new ReadThroughCache<>("pricing-categories");
+    private static final ReadThroughCache<String, List<PricingCategory>> LISTS = new ReadThroughCache<>("pricing-category-lists");
+    private static final ReadThroughCache<Integer, PricingCategory> BY_MOVIE = new ReadThroughCache<>("movie-pricing");
+
+    static {
+        ChangeFeed feed = ChangeFeed.getInstance();
+        feed.subscribe(Change.PRICING_CATEGORY, id -> {
+            BY_ID.invalidateAll();
+            LISTS.invalidateAll();
+            BY_MOVIE.invalidateAll();
+        });
+        feed.subscribe(Change.MOVIE, id -> {
+            if (id == Change.ALL) {
+                BY_MOVIE.invalidateAll();
+            } else {
+                BY_MOVIE.invalidate(id);
+            }
+        });
+    }
+
+    private final PricingCategoryDAO categories;
+
+    public CachingPricingCategoryDAO(PricingCategoryDAO categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    public PricingCategory create(PricingCategory category) throws SQLException {
+        PricingCategory created = categories.create(category);
+        ChangeFeed.getInstance().publish(Change.PRICING_CATEGORY, created.getId());
+        return created;
+    }
+
+    @Override
+    public PricingCategory getById(int id) throws SQLException {
+        return copyOf(BY_ID.get(id, () -> categories.getById(id)));
+    }
+
+    @Override
+    public List<PricingCategory> getAll() throws SQLException {
+        List<PricingCategory> copies = new ArrayList<>();
+        for (PricingCategory category : LISTS.get("all", categories::getAll)) {
+            copies.add(copyOf(category));
+        }
+        return copies;
+    }
+
+    @Override
+    public boolean update(PricingCategory category) throws SQLException {
+        boolean updated = categories.update(category);
+        if (updated) {
+            ChangeFeed.getInstance().publish(Change.PRICING_CATEGORY, category.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = categories.delete(id);
+        if (deleted) {
+            ChangeFeed.getInstance().publish(Change.PRICING_CATEGORY, id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public PricingCategory getPricingCategoryForMovie(int movieId) throws SQLException {
+        return copyOf(BY_MOVIE.get(movieId, () -> categories.getPricingCategoryForMovie(movieId)));
+    }
+
+    // A bulk read for index builds; caching it would only hold a second copy of the index
+    @Override
+    public Map<Integer, Integer> getCategoryIdsByMovie() throws SQLException {
+        return categories.getCategoryIdsByMovie();
+    }
+
+    @Override
+    public boolean nameExists(String name) throws SQLException {
+        return categories.nameExists(name);
+    }
+
+    private static PricingCategory copyOf(PricingCategory cached) {
+        if (cached == null) {
+            return null;
+        }
+        return new PricingCategory(cached.getId(), cached.getName(), cached.getBasePrice(), cached.getCreatedAt());
+    }
+}
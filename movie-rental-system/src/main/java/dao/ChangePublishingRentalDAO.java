@@ -0,0 +1,81 @@
+package dao;
+
+import cache.Change;
+import cache.ChangeFeed;
+import index.DueDateIndex;
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Checkouts and returns move a movie's copy count, so they publish a movie change for the
+// movie caches. Rentals themselves are not cached.
+public class ChangePublishingRentalDAO implements RentalDAO {
+    private final RentalDAO rentals;
+
+    public ChangePublishingRentalDAO(RentalDAO rentals) {
+        this.rentals = rentals;
+    }
+
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        Rental created = rentals.create(rental);
+        ChangeFeed.getInstance().publish(Change.MOVIE, created.getMovieId());
+        return created;
+    }
+
+    @Override
+    public Rental getById(int id) throws SQLException {
+        return rentals.getById(id);
+    }
+
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        return rentals.getByIds(ids);
+    }
+
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        return rentals.getAll();
+    }
+
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        return rentals.getActiveRentals();
+    }
+
+    @Override
+    public List<Rental> getAll(FieldSet fields) throws SQLException {
+        return rentals.getAll(fields);
+    }
+
+    @Override
+    public List<Rental> getActiveRentals(FieldSet fields) throws SQLException {
+        return rentals.getActiveRentals(fields);
+    }
+
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        // The due-date index knows the movie of an open rental; without it every movie is dropped
+        Rental open = DueDateIndex.getInstance().get(rentalId);
+        boolean returned = rentals.returnMovie(rentalId, returnDate, lateFee);
+        if (returned) {
+            ChangeFeed.getInstance().publish(Change.MOVIE, open != null ? open.getMovieId() : Change.ALL);
+        }
+        return returned;
+    }
+
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        return rentals.getOverdueRentals();
+    }
+
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        return rentals.getRentalCountsByMovie();
+    }
+}
@@ -0,0 +1,331 @@
+package dao;
+
+import index.DueDateIndex;
+import metrics.Metrics;
+import model.Rental;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for counter-model checkouts. Concurrent RentalDAO.create calls queue here and
+// one coordinator thread commits them together: the movie rows are locked once, stock is
+// handed out in arrival order, all rentals go in with one multi-row INSERT and the counters
+// drop with one UPDATE, in a single transaction. Each caller gets its own id or its own
+// failure. The coordinator only waits for company while checkouts are actually overlapping;
+// an idle system commits a lone checkout immediately.
+final class CheckoutGroupCommit {
+    private static final CheckoutGroupCommit INSTANCE = new CheckoutGroupCommit(
+        DatabaseConfig.getInt("checkout.group.commit.max.batch", 64),
+        DatabaseConfig.getInt("checkout.group.commit.max.wait.micros", 2000));
+    // Window used when overlap is first seen, before it adapts
+    private static final long INITIAL_WINDOW_NANOS = 100_000;
+
+    private final int maxBatch;
+    private final long maxWindowNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private long windowNanos;
+    private Connection conn;
+
+    private static final class Pending {
+        final Rental rental;
+        final CompletableFuture<Rental> result = new CompletableFuture<>();
+
+        Pending(Rental rental) {
+            this.rental = rental;
+        }
+    }
+
+    private CheckoutGroupCommit(int maxBatch, int maxWaitMicros) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+        Thread thread = new Thread(this::run, "checkout-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static boolean isEnabled() {
+        return DatabaseConfig.getBoolean("checkout.group.commit.enabled", true) && !MovieCopyDAO.isEnabled()
+            && !Shards.isEnabled();
+    }
+
+    static CheckoutGroupCommit getInstance() {
+        return INSTANCE;
+    }
+
+    // Queue a checkout and wait for the group it lands in to commit
+    Rental submit(Rental rental) throws SQLException {
+        Pending pending = new Pending(rental);
+        queue.add(pending);
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for checkout commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Checkout failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+                boolean waited = false;
+                // Waiting only pays off when others are checking out at the same time
+                if (batch.size() < maxBatch && (batch.size() > 1 || windowNanos > 0)) {
+                    long window = windowNanos > 0 ? windowNanos : Math.min(INITIAL_WINDOW_NANOS, maxWindowNanos);
+                    long deadline = System.nanoTime() + window;
+                    int before = batch.size();
+                    while (batch.size() < maxBatch) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatch - batch.size());
+                    }
+                    waited = batch.size() > before;
+                    windowNanos = window;
+                }
+                adaptWindow(batch.size(), waited);
+                commitGroup(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never leave a caller waiting
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    // Grow the window while waiting brings in more checkouts, shrink it towards zero when it does not
+    private void adaptWindow(int size, boolean waited) {
+        if (size >= maxBatch) {
+            return;
+        }
+        if (waited) {
+            windowNanos = Math.min(maxWindowNanos, windowNanos * 2);
+        } else {
+            windowNanos /= 2;
+            if (windowNanos < INITIAL_WINDOW_NANOS / 4) {
+                windowNanos = 0;
+            }
+        }
+    }
+
+    // Commit the group; if the database rejects it as a whole, commit each checkout on its own
+    // so one bad request cannot fail the others
+    private void commitGroup(List<Pending> batch) {
+        Metrics.recordCheckoutGroup(batch.size());
+        try {
+            commit(batch);
+        } catch (SQLException e) {
+            closeConnection();
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            for (Pending pending : batch) {
+                // Requests already failed during allocation stay failed
+                if (pending.result.isDone()) {
+                    continue;
+                }
+                try {
+                    commit(Collections.singletonList(pending));
+                } catch (SQLException single) {
+                    closeConnection();
+                    pending.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) throws SQLException {
+        if (conn == null) {
+            conn = DatabaseConnection.openConnection();
+            conn.setAutoCommit(false);
+        }
+        try {
+            List<Pending> accepted = allocate(batch);
+            if (!accepted.isEmpty()) {
+                insertRentals(accepted);
+                List<Integer> ids = new ArrayList<>(accepted.size());
+                for (Pending pending : accepted) {
+                    ids.add(pending.rental.getId());
+                }
+                RentalView.insert(conn, ids);
+                takeCopies(accepted);
+            }
+            conn.commit();
+            for (Pending pending : accepted) {
+                DueDateIndex.getInstance().add(pending.rental);
+                pending.result.complete(pending.rental);
+            }
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        }
+    }
+
+    // Lock the movie rows in id order and hand out copies first come, first served; requests for
+    // unknown users or movies, or beyond the stock, are failed here and left out of the group
+    private List<Pending> allocate(List<Pending> batch) throws SQLException {
+        Set<Integer> movieIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (Pending pending : batch) {
+            movieIds.add(pending.rental.getMovieId());
+            userIds.add(pending.rental.getUserId());
+        }
+
+        Map<Integer, Integer> stock = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, available_copies FROM movies WHERE id IN (" + placeholders(movieIds.size()) + ") " +
+                 "ORDER BY id FOR UPDATE")) {
+            bindAll(stmt, movieIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        Set<Integer> users = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id FROM users WHERE id IN (" + placeholders(userIds.size()) + ")")) {
+            bindAll(stmt, userIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(rs.getInt(1));
+                }
+            }
+        }
+
+        List<Pending> accepted = new ArrayList<>();
+        for (Pending pending : batch) {
+            Rental rental = pending.rental;
+            Integer available = stock.get(rental.getMovieId());
+            if (!users.contains(rental.getUserId())) {
+                pending.result.completeExceptionally(new SQLIntegrityConstraintViolationException(
+                    "Creating rental failed, user " + rental.getUserId() + " does not exist."));
+            } else if (available == null) {
+                pending.result.completeExceptionally(new SQLIntegrityConstraintViolationException(
+                    "Creating rental failed, movie " + rental.getMovieId() + " does not exist."));
+            } else if (available <= 0) {
+                pending.result.completeExceptionally(new SQLException(
+                    "Creating rental failed, no copies of movie " + rental.getMovieId() + " available."));
+            } else {
+                stock.put(rental.getMovieId(), available - 1);
+                accepted.add(pending);
+            }
+        }
+        return accepted;
+    }
+
+    private void insertRentals(List<Pending> accepted) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO rentals (user_id, movie_id, rental_date, due_date, base_price, total_price) VALUES ");
+        for (int i = 0; i < accepted.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Pending pending : accepted) {
+                Rental rental = pending.rental;
+                stmt.setInt(index++, rental.getUserId());
+                stmt.setInt(index++, rental.getMovieId());
+                stmt.setDate(index++, Date.valueOf(rental.getRentalDate()));
+                stmt.setDate(index++, Date.valueOf(rental.getDueDate()));
+                stmt.setBigDecimal(index++, rental.getBasePrice());
+                stmt.setBigDecimal(index++, rental.getTotalPrice());
+            }
+            stmt.executeUpdate();
+
+            // Generated keys come back in row order
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (Pending pending : accepted) {
+                    if (!keys.next()) {
+                        throw new SQLException("Creating rental failed, no ID obtained.");
+                    }
+                    pending.rental.setId(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    // One UPDATE for the whole group: each movie drops by the number of copies handed out
+    private void takeCopies(List<Pending> accepted) throws SQLException {
+        Map<Integer, Integer> taken = new LinkedHashMap<>();
+        for (Pending pending : accepted) {
+            taken.merge(pending.rental.getMovieId(), 1, Integer::sum);
+        }
+        StringBuilder sql = new StringBuilder("UPDATE movies SET available_copies = available_copies - CASE id");
+        for (int i = 0; i < taken.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END WHERE id IN (").append(placeholders(taken.size())).append(")");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Map.Entry<Integer, Integer> entry : taken.entrySet()) {
+                stmt.setInt(index++, entry.getKey());
+                stmt.setInt(index++, entry.getValue());
+            }
+            for (Integer movieId : taken.keySet()) {
+                stmt.setInt(index++, movieId);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    private static void bindAll(PreparedStatement stmt, Set<Integer> ids) throws SQLException {
+        int index = 1;
+        for (Integer id : ids) {
+            stmt.setInt(index++, id);
+        }
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing group commit connection: " + e.getMessage());
+            }
+            conn = null;
+        }
+    }
+}
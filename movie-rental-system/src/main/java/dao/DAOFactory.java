@@ -0,0 +1,136 @@
+package dao;
+
+import cache.ChangeFeed;
+import eventlog.EventSourcedRentals;
+import util.DatabaseConfig;
+import util.Shards;
+
+import java.io.IOException;
+
+// Picks the storage engine behind the DAO interfaces from storage.engine:
+//   jdbc     (default) MySQL through DatabaseConnection
+//   memory             process-local tables in InMemoryStore, optionally snapshotted to disk
+//   eventlog           rental and inventory writes appended to a local event log and projected
+//                      into MySQL asynchronously; reads and other writes go to MySQL
+// With shard.urls set, the jdbc engine spreads users and rentals over several databases (see
+// Shards) and keeps movies, prices and late fee tiers on all of them.
+// With cache.enabled, movies, prices and late fee tiers are cached in process over the
+// database engines and invalidated across API nodes through ChangeFeed.
+// Every engine is wrapped in a TimedDAO, which records the DAO call metrics for it.
+public final class DAOFactory {
+    private static final String ENGINE = DatabaseConfig.get("storage.engine", "jdbc").toLowerCase();
+    private static final boolean IN_MEMORY = "memory".equals(ENGINE);
+    private static final boolean EVENT_SOURCED = "eventlog".equals(ENGINE);
+    // The memory engine has nothing to gain from a cache in front of it
+    private static final boolean CACHED = DatabaseConfig.getBoolean("cache.enabled", true) && !IN_MEMORY;
+
+    static {
+        // The log tracks copy counts; per-copy claims would need their own events
+        if (EVENT_SOURCED && MovieCopyDAO.isEnabled()) {
+            throw new IllegalStateException("storage.engine=eventlog requires inventory.mode=counter");
+        }
+        // Copy rows and their claims would have to live on one shard with the rentals
+        if (Shards.isEnabled() && (!"jdbc".equals(ENGINE) || MovieCopyDAO.isEnabled())) {
+            throw new IllegalStateException("shard.urls requires storage.engine=jdbc and inventory.mode=counter");
+        }
+    }
+
+    private DAOFactory() {}
+
+    public static boolean isInMemory() {
+        return IN_MEMORY;
+    }
+
+    public static boolean isEventSourced() {
+        return EVENT_SOURCED;
+    }
+
+    public static boolean isCached() {
+        return CACHED;
+    }
+
+    public static UserDAO userDAO() {
+        if (IN_MEMORY) {
+            return TimedDAO.wrap(UserDAO.class, new InMemoryUserDAO(InMemoryStore.getInstance()));
+        }
+        if (Shards.isEnabled()) {
+            return TimedDAO.wrap(UserDAO.class, new ShardedUserDAO());
+        }
+        return TimedDAO.wrap(UserDAO.class, EVENT_SOURCED ? new EventSourcedUserDAO() : new JdbcUserDAO());
+    }
+
+    // Every engine's movie writes also go to the search and facet indexes
+    public static MovieDAO movieDAO() {
+        if (IN_MEMORY) {
+            return new IndexingMovieDAO(TimedDAO.wrap(MovieDAO.class, new InMemoryMovieDAO(InMemoryStore.getInstance())));
+        }
+        MovieDAO movies;
+        if (Shards.isEnabled()) {
+            movies = new ReplicatedMovieDAO();
+        } else {
+            movies = EVENT_SOURCED ? new EventSourcedMovieDAO() : new JdbcMovieDAO();
+        }
+        movies = TimedDAO.wrap(MovieDAO.class, movies);
+        return new IndexingMovieDAO(CACHED ? new CachingMovieDAO(movies) : movies);
+    }
+
+    // Every engine's checkouts and returns also go to the facet index
+    public static RentalDAO rentalDAO() {
+        if (IN_MEMORY) {
+            return new IndexingRentalDAO(TimedDAO.wrap(RentalDAO.class, new InMemoryRentalDAO(InMemoryStore.getInstance())));
+        }
+        RentalDAO rentals;
+        if (Shards.isEnabled()) {
+            rentals = new ShardedRentalDAO();
+        } else {
+            rentals = EVENT_SOURCED ? new EventSourcedRentalDAO() : new JdbcRentalDAO();
+        }
+        rentals = TimedDAO.wrap(RentalDAO.class, rentals);
+        return new IndexingRentalDAO(CACHED ? new ChangePublishingRentalDAO(rentals) : rentals);
+    }
+
+    public static PricingCategoryDAO pricingCategoryDAO() {
+        if (IN_MEMORY) {
+            return TimedDAO.wrap(PricingCategoryDAO.class, new InMemoryPricingCategoryDAO(InMemoryStore.getInstance()));
+        }
+        PricingCategoryDAO categories = TimedDAO.wrap(PricingCategoryDAO.class,
+            Shards.isEnabled() ? new ReplicatedPricingCategoryDAO() : new JdbcPricingCategoryDAO());
+        return CACHED ? new CachingPricingCategoryDAO(categories) : categories;
+    }
+
+    public static LateFeeDAO lateFeeDAO() {
+        if (IN_MEMORY) {
+            return TimedDAO.wrap(LateFeeDAO.class, new InMemoryLateFeeDAO(InMemoryStore.getInstance()));
+        }
+        LateFeeDAO lateFees = TimedDAO.wrap(LateFeeDAO.class,
+            Shards.isEnabled() ? new ReplicatedLateFeeDAO() : new JdbcLateFeeDAO());
+        return CACHED ? new CachingLateFeeDAO(lateFees) : lateFees;
+    }
+
+    // Holds exist for the jdbc engine under the counter inventory model; see HoldManager
+    public static HoldDAO holdDAO() {
+        return TimedDAO.wrap(HoldDAO.class, new JdbcHoldDAO());
+    }
+
+    // Copy rows under inventory.mode=copies, for callers outside a storage engine
+    public static MovieCopyDAO movieCopyDAO() {
+        return TimedDAO.wrap(MovieCopyDAO.class, new JdbcMovieCopyDAO());
+    }
+
+    // Write the in-memory tables to storage.memory.snapshot.file; a no-op for JDBC or without a file
+    public static void saveSnapshot() throws IOException {
+        if (IN_MEMORY) {
+            InMemoryStore.getInstance().saveSnapshot();
+        }
+    }
+
+    // Stop the event log's projector and snapshot it, and send the last cache changes
+    public static void shutdown() {
+        if (EVENT_SOURCED) {
+            EventSourcedRentals.shutdown();
+        }
+        if (CACHED) {
+            ChangeFeed.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dao;
+
+import eventlog.EventSourcedRentals;
+import model.Movie;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Movies for the eventlog engine: copy counts change through the event log and are read back
+// from it, everything else is plain MySQL
+public class EventSourcedMovieDAO implements MovieDAO {
+    private final JdbcMovieDAO movies = new JdbcMovieDAO();
+
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        return movies.create(movie, pricingCategoryId);
+    }
+
+    @Override
+    public Movie getById(int id) throws SQLException {
+        Movie movie = movies.getById(id);
+        if (movie != null) {
+            overlayCopies(movie);
+        }
+        return movie;
+    }
+
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Movie> found = movies.getByIds(ids);
+        for (Movie movie : found.values()) {
+            overlayCopies(movie);
+        }
+        return found;
+    }
+
+    // Also behind getAll(FieldSet): the overlay needs every movie's id, so reads stay whole rows
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        List<Movie> all = movies.getAll();
+        for (Movie movie : all) {
+            overlayCopies(movie);
+        }
+        return all;
+    }
+
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        return movies.update(movie, pricingCategoryId);
+    }
+
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        return EventSourcedRentals.getInstance().adjustInventory(movieId, delta);
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return EventSourcedRentals.getInstance().deleteMovie(id, movies::delete);
+    }
+
+    // Filtered on the projected count, which can trail the log by the projection lag
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        List<Movie> available = movies.getAvailableMovies();
+        for (Movie movie : available) {
+            overlayCopies(movie);
+        }
+        return available;
+    }
+
+    // The log is ahead of movies.available_copies until the projector catches up
+    private void overlayCopies(Movie movie) throws SQLException {
+        Integer copies = EventSourcedRentals.getInstance().availableCopies(movie.getId());
+        if (copies != null) {
+            movie.setAvailableCopies(copies);
+        }
+    }
+}
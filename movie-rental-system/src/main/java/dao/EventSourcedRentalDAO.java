@@ -0,0 +1,68 @@
+package dao;
+
+import eventlog.EventSourcedRentals;
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Rentals for the eventlog engine: checkouts and returns go to the event log, reads come from
+// the MySQL tables the projector maintains, so a new rental can take a moment to show up there
+public class EventSourcedRentalDAO implements RentalDAO {
+    private final JdbcRentalDAO reads = new JdbcRentalDAO();
+
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        return EventSourcedRentals.getInstance().checkout(rental);
+    }
+
+    @Override
+    public Rental getById(int id) throws SQLException {
+        return reads.getById(id);
+    }
+
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        return reads.getByIds(ids);
+    }
+
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        return reads.getAll();
+    }
+
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        return reads.getActiveRentals();
+    }
+
+    @Override
+    public List<Rental> getAll(FieldSet fields) throws SQLException {
+        return reads.getAll(fields);
+    }
+
+    @Override
+    public List<Rental> getActiveRentals(FieldSet fields) throws SQLException {
+        return reads.getActiveRentals(fields);
+    }
+
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        return EventSourcedRentals.getInstance().returnRental(rentalId, returnDate, lateFee);
+    }
+
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        return reads.getOverdueRentals();
+    }
+
+    // Counted from the projected tables, so the latest checkouts may be missing
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        return reads.getRentalCountsByMovie();
+    }
+}
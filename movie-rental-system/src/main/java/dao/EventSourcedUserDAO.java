@@ -0,0 +1,60 @@
+package dao;
+
+import eventlog.EventSourcedRentals;
+import model.User;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Users for the eventlog engine: plain MySQL, except that deletes wait for pending rental
+// events to be projected so they cannot strand a rental of the deleted user
+public class EventSourcedUserDAO implements UserDAO {
+    private final JdbcUserDAO users = new JdbcUserDAO();
+
+    @Override
+    public User create(User user) throws SQLException {
+        return users.create(user);
+    }
+
+    @Override
+    public User getById(int id) throws SQLException {
+        return users.getById(id);
+    }
+
+    @Override
+    public Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException {
+        return users.getByIds(ids);
+    }
+
+    @Override
+    public User getByEmail(String email) throws SQLException {
+        return users.getByEmail(email);
+    }
+
+    @Override
+    public List<User> getAll() throws SQLException {
+        return users.getAll();
+    }
+
+    @Override
+    public List<User> getAll(FieldSet fields) throws SQLException {
+        return users.getAll(fields);
+    }
+
+    @Override
+    public UpdateResult update(User user) throws SQLException {
+        return users.update(user);
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return EventSourcedRentals.getInstance().deleteUser(id, users::delete);
+    }
+
+    @Override
+    public boolean emailExists(String email) throws SQLException {
+        return users.emailExists(email);
+    }
+}
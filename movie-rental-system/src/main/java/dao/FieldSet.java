@@ -0,0 +1,124 @@
+package dao;
+
+import model.Movie;
+import model.Rental;
+import model.User;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// A sparse fieldset, as in ?fields=id,title: the JSON properties of an entity a client wants.
+// The JDBC list reads select only the columns behind them and the servlet writes only them;
+// everything else on the returned objects keeps its Java default.
+public final class FieldSet {
+    // JSON property (the model's field name) -> column, in the model's field order
+    public enum Entity {
+        USER(User.class, "users",
+             "id", "id", "name", "name", "email", "email", "phone", "phone",
+             "version", "version", "createdAt", "created_at"),
+        MOVIE(Movie.class, "movies",
+              "id", "m.id", "title", "m.title", "genre", "m.genre", "availableCopies", "m.available_copies",
+              "version", "m.version", "createdAt", "m.created_at", "currentPrice", "pc.base_price"),
+        // Columns of rental_view
+        RENTAL(Rental.class, "rentals",
+               "id", "id", "userId", "user_id", "movieId", "movie_id", "rentalDate", "rental_date",
+               "dueDate", "due_date", "returnDate", "return_date", "basePrice", "base_price",
+               "lateFee", "late_fee", "totalPrice", "total_price", "copyId", "copy_id",
+               "createdAt", "created_at", "movieTitle", "movie_title", "userName", "user_name");
+
+        private final Class<?> type;
+        private final String label;
+        private final Map<String, String> columns = new LinkedHashMap<>();
+
+        Entity(Class<?> type, String label, String... propertiesAndColumns) {
+            this.type = type;
+            this.label = label;
+            for (int i = 0; i < propertiesAndColumns.length; i += 2) {
+                columns.put(propertiesAndColumns[i], propertiesAndColumns[i + 1]);
+            }
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+    }
+
+    private final Entity entity;
+    private final Set<String> properties;
+
+    private FieldSet(Entity entity, Set<String> properties) {
+        this.entity = entity;
+        this.properties = Collections.unmodifiableSet(properties);
+    }
+
+    // Parse a comma-separated list of property names; null when there is none. Throws
+    // IllegalArgumentException for an empty list or a property the entity does not have.
+    public static FieldSet parse(Entity entity, String value) {
+        if (value == null) {
+            return null;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String name : value.split(",")) {
+            String property = name.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            if (!entity.columns.containsKey(property)) {
+                throw new IllegalArgumentException("Unknown field '" + property + "' for " + entity.label
+                    + "; expected any of " + String.join(", ", entity.columns.keySet()));
+            }
+            requested.add(property);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        // Entity order, so equal sets print and compare alike
+        Set<String> properties = new LinkedHashSet<>();
+        for (String property : entity.columns.keySet()) {
+            if (requested.contains(property)) {
+                properties.add(property);
+            }
+        }
+        return new FieldSet(entity, properties);
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public boolean includes(String property) {
+        return properties.contains(property);
+    }
+
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    // The SQL select list for these properties
+    public String columns() {
+        StringBuilder columns = new StringBuilder();
+        for (String property : properties) {
+            columns.append(columns.length() == 0 ? "" : ", ").append(entity.columns.get(property));
+        }
+        return columns.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FieldSet && entity == ((FieldSet) other).entity
+            && properties.equals(((FieldSet) other).properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return entity.hashCode() * 31 + properties.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return entity + String.valueOf(properties);
+    }
+}
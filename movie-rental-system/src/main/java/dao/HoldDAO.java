@@ -0,0 +1,35 @@
+package dao;
+
+import model.Hold;
+import model.Rental;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Timed hold storage for HoldManager; see JdbcHoldDAO
+public interface HoldDAO {
+    // Take a copy for the user until expiresAt; null when no copy is left
+    Hold create(int userId, int movieId, LocalDateTime expiresAt) throws SQLException;
+
+    Hold getById(int id) throws SQLException;
+
+    // Turn an unexpired hold into a rental for the hold's user and movie, using the held copy;
+    // null when the hold is gone or has expired
+    Rental confirm(int holdId, Rental rental, LocalDateTime now) throws SQLException;
+
+    // Drop a hold and put its copy back; null when the hold is already gone
+    Hold release(int holdId) throws SQLException;
+
+    // Release those of the given holds that expired by asOf, in one transaction on conn;
+    // holds confirmed or released meanwhile are skipped
+    List<Hold> expire(Connection conn, List<Integer> holdIds, LocalDateTime asOf) throws SQLException;
+
+    // Ids of holds that expired by asOf, oldest first; catches holds whose timer was lost
+    List<Integer> getExpiredIds(Connection conn, LocalDateTime asOf, int limit) throws SQLException;
+
+    // Stream every hold, for rebuilding the expiry timers after a restart
+    void forEach(Connection conn, Consumer<Hold> visitor) throws SQLException;
+}
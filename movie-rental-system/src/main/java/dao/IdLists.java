@@ -0,0 +1,79 @@
+package dao;
+
+import util.Shards;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// IN-list plumbing for the getByIds batch reads
+final class IdLists {
+    // Ids per IN list, so one statement never grows past what the driver and planner handle well
+    static final int CHUNK = 500;
+
+    private IdLists() {}
+
+    // Distinct ids in first-seen order, cut into lists of at most CHUNK
+    static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            if (chunk.size() == CHUNK) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+            chunk.add(id);
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    static void bind(PreparedStatement stmt, List<Integer> ids) throws SQLException {
+        int index = 1;
+        for (Integer id : ids) {
+            stmt.setInt(index++, id);
+        }
+    }
+
+    // Distinct ids grouped by the shard owning them, in shard order
+    static Map<Integer, List<Integer>> byShard(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (id != null) {
+                byShard.computeIfAbsent(Shards.shardForId(id), shard -> new ArrayList<>()).add(id);
+            }
+        }
+        return byShard;
+    }
+
+    // The rows found, keyed in the order the ids were asked for
+    static <T> Map<Integer, T> inOrder(Collection<Integer> ids, Map<Integer, T> found) {
+        Map<Integer, T> ordered = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            T row = id == null ? null : found.get(id);
+            if (row != null) {
+                ordered.put(id, row);
+            }
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,119 @@
+package dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Concurrent map from positive int ids to rows for the in-memory engine. Ids are handed
+// out sequentially, so rows live in fixed-size pages indexed directly by id: a lookup is
+// two array reads with no boxing or hashing, and only page allocation takes a lock.
+final class IdTable<V> {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Replaced wholesale when a page is added, so readers always see fully built pages
+    private volatile AtomicReferenceArray<V>[] pages = newPages(16);
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Allocate the next id, like AUTO_INCREMENT
+    int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    // Keep the id counter past an id that was inserted explicitly
+    void reserve(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    V get(int id) {
+        AtomicReferenceArray<V> page = page(id);
+        return page == null ? null : page.get(id & PAGE_MASK);
+    }
+
+    void put(int id, V row) {
+        if (pageFor(id).getAndSet(id & PAGE_MASK, row) == null) {
+            size.incrementAndGet();
+        }
+        reserve(id);
+    }
+
+    // Replace a row only if it is still the one the caller read
+    boolean replace(int id, V expected, V row) {
+        AtomicReferenceArray<V> page = page(id);
+        return page != null && page.compareAndSet(id & PAGE_MASK, expected, row);
+    }
+
+    V remove(int id) {
+        AtomicReferenceArray<V> page = page(id);
+        if (page == null) {
+            return null;
+        }
+        V removed = page.getAndSet(id & PAGE_MASK, null);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    // Visit rows in id order; rows changed concurrently may or may not be seen
+    void forEach(Consumer<V> action) {
+        AtomicReferenceArray<V>[] current = pages;
+        for (AtomicReferenceArray<V> page : current) {
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                V row = page.get(i);
+                if (row != null) {
+                    action.accept(row);
+                }
+            }
+        }
+    }
+
+    private AtomicReferenceArray<V> page(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        AtomicReferenceArray<V>[] current = pages;
+        int index = id >>> PAGE_BITS;
+        return index < current.length ? current[index] : null;
+    }
+
+    private AtomicReferenceArray<V> pageFor(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Ids start at 1: " + id);
+        }
+        AtomicReferenceArray<V> page = page(id);
+        if (page != null) {
+            return page;
+        }
+        synchronized (this) {
+            AtomicReferenceArray<V>[] current = pages;
+            int index = id >>> PAGE_BITS;
+            if (index < current.length && current[index] != null) {
+                return current[index];
+            }
+            AtomicReferenceArray<V>[] grown = newPages(Math.max(current.length, Integer.highestOneBit(index) << 1));
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[index] = new AtomicReferenceArray<>(PAGE_SIZE);
+            pages = grown;
+            return grown[index];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> AtomicReferenceArray<V>[] newPages(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray<?>[length];
+    }
+}
@@ -0,0 +1,116 @@
+package dao;
+
+import model.LateFee;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// A handful of tiers, so lookups scan the table
+public class InMemoryLateFeeDAO implements LateFeeDAO {
+    private final InMemoryStore store;
+
+    InMemoryLateFeeDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public LateFee create(LateFee lateFee) throws SQLException {
+        store.beginWrite();
+        try {
+            LateFee stored = InMemoryStore.copy(lateFee);
+            stored.setId(store.lateFees.nextId());
+            stored.setCreatedAt(LocalDateTime.now());
+            store.lateFees.put(stored.getId(), stored);
+            lateFee.setId(stored.getId());
+            return lateFee;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public LateFee getById(int id) throws SQLException {
+        LateFee lateFee = store.lateFees.get(id);
+        return lateFee == null ? null : InMemoryStore.copy(lateFee);
+    }
+
+    @Override
+    public List<LateFee> getAll() throws SQLException {
+        return tiers();
+    }
+
+    @Override
+    public boolean update(LateFee lateFee) throws SQLException {
+        store.beginWrite();
+        try {
+            while (true) {
+                LateFee current = store.lateFees.get(lateFee.getId());
+                if (current == null) {
+                    return false;
+                }
+                LateFee updated = InMemoryStore.copy(lateFee);
+                updated.setCreatedAt(current.getCreatedAt());
+                if (store.lateFees.replace(lateFee.getId(), current, updated)) {
+                    return true;
+                }
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        store.beginWrite();
+        try {
+            return store.lateFees.remove(id) != null;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public LateFee getApplicableLateFee(int daysLate) throws SQLException {
+        for (LateFee lateFee : tiers()) {
+            if (daysLate >= lateFee.getDaysLateStart() && daysLate <= lateFee.getDaysLateEnd()) {
+                return lateFee;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public BigDecimal calculateLateFee(int daysLate) throws SQLException {
+        LateFee applicableFee = getApplicableLateFee(daysLate);
+        if (applicableFee == null) {
+            return BigDecimal.ZERO;
+        }
+        return applicableFee.getFeePerDay().multiply(BigDecimal.valueOf(daysLate));
+    }
+
+    @Override
+    public boolean rangeOverlaps(int start, int end, Integer excludeId) throws SQLException {
+        for (LateFee lateFee : tiers()) {
+            if (excludeId != null && lateFee.getId() == excludeId) {
+                continue;
+            }
+            boolean startInside = start >= lateFee.getDaysLateStart() && start <= lateFee.getDaysLateEnd();
+            boolean endInside = end >= lateFee.getDaysLateStart() && end <= lateFee.getDaysLateEnd();
+            if (startInside || endInside) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<LateFee> tiers() {
+        List<LateFee> lateFees = new ArrayList<>();
+        store.lateFees.forEach(lateFee -> lateFees.add(InMemoryStore.copy(lateFee)));
+        lateFees.sort(Comparator.comparingInt(LateFee::getDaysLateStart));
+        return lateFees;
+    }
+}
@@ -0,0 +1,175 @@
+package dao;
+
+import model.Movie;
+import model.PricingCategory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copy counts are atomic counters; per-copy inventory (inventory.mode=copies) is not modelled here
+public class InMemoryMovieDAO implements MovieDAO {
+    private final InMemoryStore store;
+
+    InMemoryMovieDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        store.beginWrite();
+        try {
+            if (store.pricingCategories.get(pricingCategoryId) == null) {
+                throw InMemoryStore.foreignKeyViolation("pricing_categories", pricingCategoryId);
+            }
+            Movie stored = InMemoryStore.copy(movie);
+            stored.setId(store.movies.nextId());
+            stored.setVersion(0);
+            stored.setCurrentPrice(null);
+            stored.setCreatedAt(LocalDateTime.now());
+            store.movies.put(stored.getId(), new InMemoryStore.MovieRow(stored, pricingCategoryId, movie.getAvailableCopies()));
+            movie.setId(stored.getId());
+            return movie;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public Movie getById(int id) throws SQLException {
+        InMemoryStore.MovieRow row = store.movies.get(id);
+        return row == null ? null : view(row);
+    }
+
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Movie> found = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            InMemoryStore.MovieRow row = id == null ? null : store.movies.get(id);
+            if (row != null && !found.containsKey(id)) {
+                found.put(id, view(row));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        return list(false);
+    }
+
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        store.beginWrite();
+        try {
+            InMemoryStore.MovieRow row = store.movies.get(movie.getId());
+            if (row == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (pricingCategoryId != null && store.pricingCategories.get(pricingCategoryId) == null) {
+                throw InMemoryStore.foreignKeyViolation("pricing_categories", pricingCategoryId);
+            }
+            synchronized (row) {
+                if (row.deleted) {
+                    return UpdateResult.NOT_FOUND;
+                }
+                Movie current = row.movie;
+                if (current.getVersion() != movie.getVersion()) {
+                    return UpdateResult.CONFLICT;
+                }
+                Movie updated = InMemoryStore.copy(current);
+                updated.setTitle(movie.getTitle());
+                updated.setGenre(movie.getGenre());
+                updated.setVersion(current.getVersion() + 1);
+                row.movie = updated;
+                if (pricingCategoryId != null) {
+                    row.pricingCategoryId = pricingCategoryId;
+                }
+            }
+            movie.setVersion(movie.getVersion() + 1);
+            return UpdateResult.UPDATED;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        store.beginWrite();
+        try {
+            InMemoryStore.MovieRow row = store.movies.get(movieId);
+            if (row == null) {
+                return false;
+            }
+            while (true) {
+                int available = row.available.get();
+                if (available + delta < 0) {
+                    return false;
+                }
+                if (row.available.compareAndSet(available, available + delta)) {
+                    return true;
+                }
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        store.beginWrite();
+        try {
+            InMemoryStore.MovieRow row = store.movies.get(id);
+            if (row == null) {
+                return false;
+            }
+            synchronized (row) {
+                if (row.deleted) {
+                    return false;
+                }
+                // Mark first, then check: a concurrent rental create increments before it checks the mark
+                row.deleted = true;
+                if (row.rentals.get() > 0) {
+                    row.deleted = false;
+                    throw InMemoryStore.referencedRow("movie", id);
+                }
+                store.movies.remove(id);
+                return true;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        return list(true);
+    }
+
+    private List<Movie> list(boolean availableOnly) {
+        List<Movie> movies = new ArrayList<>();
+        store.movies.forEach(row -> {
+            if (!availableOnly || row.available.get() > 0) {
+                movies.add(view(row));
+            }
+        });
+        movies.sort(Comparator.comparing(Movie::getTitle, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return movies;
+    }
+
+    // Caller's copy of the movie with its live copy count and current price
+    private Movie view(InMemoryStore.MovieRow row) {
+        Movie movie = InMemoryStore.copy(row.movie);
+        movie.setAvailableCopies(row.available.get());
+        PricingCategory category = store.pricingCategories.get(row.pricingCategoryId);
+        if (category != null) {
+            movie.setCurrentPrice(category.getBasePrice());
+        }
+        return movie;
+    }
+}
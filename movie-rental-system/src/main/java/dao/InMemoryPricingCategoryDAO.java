@@ -0,0 +1,138 @@
+package dao;
+
+import model.PricingCategory;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class InMemoryPricingCategoryDAO implements PricingCategoryDAO {
+    private final InMemoryStore store;
+
+    InMemoryPricingCategoryDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public PricingCategory create(PricingCategory category) throws SQLException {
+        store.beginWrite();
+        try {
+            // Names are unique; categories change rarely, so a table-wide lock is enough
+            synchronized (store.pricingCategories) {
+                requireUniqueName(category.getName(), 0);
+                PricingCategory stored = InMemoryStore.copy(category);
+                stored.setId(store.pricingCategories.nextId());
+                stored.setCreatedAt(LocalDateTime.now());
+                store.pricingCategories.put(stored.getId(), stored);
+                category.setId(stored.getId());
+                return category;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public PricingCategory getById(int id) throws SQLException {
+        PricingCategory category = store.pricingCategories.get(id);
+        return category == null ? null : InMemoryStore.copy(category);
+    }
+
+    @Override
+    public List<PricingCategory> getAll() throws SQLException {
+        List<PricingCategory> categories = new ArrayList<>();
+        store.pricingCategories.forEach(category -> categories.add(InMemoryStore.copy(category)));
+        categories.sort(Comparator.comparing(PricingCategory::getBasePrice));
+        return categories;
+    }
+
+    @Override
+    public boolean update(PricingCategory category) throws SQLException {
+        store.beginWrite();
+        try {
+            synchronized (store.pricingCategories) {
+                PricingCategory current = store.pricingCategories.get(category.getId());
+                if (current == null) {
+                    return false;
+                }
+                requireUniqueName(category.getName(), category.getId());
+                PricingCategory updated = InMemoryStore.copy(category);
+                updated.setCreatedAt(current.getCreatedAt());
+                store.pricingCategories.put(updated.getId(), updated);
+                return true;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        store.beginWrite();
+        try {
+            synchronized (store.pricingCategories) {
+                if (store.pricingCategories.get(id) == null) {
+                    return false;
+                }
+                // movie_pricing references the category
+                AtomicBoolean inUse = new AtomicBoolean();
+                store.movies.forEach(row -> {
+                    if (row.pricingCategoryId == id) {
+                        inUse.set(true);
+                    }
+                });
+                if (inUse.get()) {
+                    throw new SQLIntegrityConstraintViolationException(
+                        "Cannot delete or update a parent row: pricing category " + id + " is referenced by movies", "23000", 1451);
+                }
+                store.pricingCategories.remove(id);
+                return true;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public PricingCategory getPricingCategoryForMovie(int movieId) throws SQLException {
+        InMemoryStore.MovieRow movie = store.movies.get(movieId);
+        PricingCategory category = movie == null ? null : store.pricingCategories.get(movie.pricingCategoryId);
+        return category == null ? null : InMemoryStore.copy(category);
+    }
+
+    @Override
+    public Map<Integer, Integer> getCategoryIdsByMovie() throws SQLException {
+        Map<Integer, Integer> categoryIds = new HashMap<>();
+        store.movies.forEach(movie -> categoryIds.put(movie.movie.getId(), movie.pricingCategoryId));
+        return categoryIds;
+    }
+
+    @Override
+    public boolean nameExists(String name) throws SQLException {
+        return findByName(name) != null;
+    }
+
+    private PricingCategory findByName(String name) {
+        List<PricingCategory> match = new ArrayList<>(1);
+        store.pricingCategories.forEach(category -> {
+            if (category.getName().equalsIgnoreCase(name)) {
+                match.add(category);
+            }
+        });
+        return match.isEmpty() ? null : match.get(0);
+    }
+
+    private void requireUniqueName(String name, int id) throws SQLIntegrityConstraintViolationException {
+        PricingCategory existing = findByName(name);
+        if (existing != null && existing.getId() != id) {
+            throw new SQLIntegrityConstraintViolationException(
+                "Duplicate entry '" + name + "' for key 'uk_category_name'", "23000", 1062);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dao;
+
+import index.DueDateIndex;
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rentals take a copy off the movie's atomic counter; open rentals are indexed by due date
+public class InMemoryRentalDAO implements RentalDAO {
+    private final InMemoryStore store;
+
+    InMemoryRentalDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        store.beginWrite();
+        InMemoryStore.UserRow user = null;
+        InMemoryStore.MovieRow movie = null;
+        boolean created = false;
+        try {
+            // Reference counts go up before the deleted marks are checked, see the delete methods
+            user = store.users.get(rental.getUserId());
+            if (user == null) {
+                throw InMemoryStore.foreignKeyViolation("users", rental.getUserId());
+            }
+            user.rentals.incrementAndGet();
+            if (user.deleted) {
+                throw InMemoryStore.foreignKeyViolation("users", rental.getUserId());
+            }
+            movie = store.movies.get(rental.getMovieId());
+            if (movie == null) {
+                throw InMemoryStore.foreignKeyViolation("movies", rental.getMovieId());
+            }
+            movie.rentals.incrementAndGet();
+            if (movie.deleted) {
+                throw InMemoryStore.foreignKeyViolation("movies", rental.getMovieId());
+            }
+
+            if (!takeCopy(movie)) {
+                throw new SQLException("Creating rental failed, no copies of movie " + rental.getMovieId() + " available.");
+            }
+
+            Rental stored = InMemoryStore.copy(rental);
+            stored.setId(store.rentals.nextId());
+            stored.setCopyId(null);
+            stored.setCreatedAt(LocalDateTime.now());
+            store.rentals.put(stored.getId(), stored);
+            if (stored.getReturnDate() == null) {
+                store.openByDueDate.add(InMemoryStore.dueKey(stored));
+            }
+            created = true;
+
+            rental.setId(stored.getId());
+            rental.setCopyId(null);
+            DueDateIndex.getInstance().add(rental);
+            return rental;
+        } finally {
+            if (!created) {
+                if (user != null) {
+                    user.rentals.decrementAndGet();
+                }
+                if (movie != null) {
+                    movie.rentals.decrementAndGet();
+                }
+            }
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public Rental getById(int id) throws SQLException {
+        Rental rental = store.rentals.get(id);
+        return rental == null ? null : view(rental);
+    }
+
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Rental> found = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            Rental row = id == null ? null : store.rentals.get(id);
+            if (row != null && !found.containsKey(id)) {
+                found.put(id, view(row));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        List<Rental> rentals = new ArrayList<>(store.rentals.size());
+        store.rentals.forEach(rental -> rentals.add(view(rental)));
+        rentals.sort(Comparator.comparing(Rental::getRentalDate).reversed());
+        return rentals;
+    }
+
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        return open(null);
+    }
+
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        store.beginWrite();
+        try {
+            BigDecimal fee = lateFee != null ? lateFee : BigDecimal.ZERO;
+            while (true) {
+                Rental current = store.rentals.get(rentalId);
+                if (current == null) {
+                    return false;
+                }
+                Rental updated = InMemoryStore.copy(current);
+                updated.setReturnDate(returnDate);
+                updated.setLateFee(fee);
+                updated.setTotalPrice(current.getBasePrice().add(fee));
+                if (!store.rentals.replace(rentalId, current, updated)) {
+                    continue;
+                }
+
+                // Only the first return of a rental puts the copy back
+                if (current.getReturnDate() == null) {
+                    store.openByDueDate.remove(InMemoryStore.dueKey(current));
+                    InMemoryStore.MovieRow movie = store.movies.get(current.getMovieId());
+                    if (movie != null) {
+                        movie.available.incrementAndGet();
+                    }
+                    DueDateIndex.getInstance().remove(rentalId);
+                }
+                return true;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        return open(LocalDate.now());
+    }
+
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        store.rentals.forEach(rental -> counts.merge(rental.getMovieId(), 1, Integer::sum));
+        return counts;
+    }
+
+    // Open rentals in due date order, optionally only those due before the given day
+    private List<Rental> open(LocalDate dueBefore) {
+        List<Integer> ids = store.openRentalIds(dueBefore);
+        List<Rental> rentals = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Rental rental = store.rentals.get(id);
+            // Returned between the index scan and this read
+            if (rental != null && rental.getReturnDate() == null) {
+                rentals.add(view(rental));
+            }
+        }
+        return rentals;
+    }
+
+    private static boolean takeCopy(InMemoryStore.MovieRow movie) {
+        while (true) {
+            int available = movie.available.get();
+            if (available <= 0) {
+                return false;
+            }
+            if (movie.available.compareAndSet(available, available - 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Caller's copy of the rental with movie title and user name filled in
+    private Rental view(Rental rental) {
+        Rental view = InMemoryStore.copy(rental);
+        InMemoryStore.MovieRow movie = store.movies.get(rental.getMovieId());
+        InMemoryStore.UserRow user = store.users.get(rental.getUserId());
+        view.setMovieTitle(movie != null ? movie.movie.getTitle() : null);
+        view.setUserName(user != null ? user.user.getName() : null);
+        return view;
+    }
+}
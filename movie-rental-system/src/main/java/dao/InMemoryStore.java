@@ -0,0 +1,401 @@
+package dao;
+
+import model.LateFee;
+import model.Movie;
+import model.PricingCategory;
+import model.Rental;
+import model.User;
+import util.DatabaseConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Tables and indexes behind the in-memory DAOs (storage.engine=memory).
+// Rows sit in IdTables keyed by id. Model objects stored here are never mutated: updates
+// swap in a new copy and reads hand out copies, so readers never lock. Movie inventory is
+// an atomic counter per movie, and open rentals are kept ordered by due date for the
+// active and overdue queries. Foreign keys and the unique email are enforced like the schema.
+//
+// With storage.memory.snapshot.file set, the tables are loaded from that file at startup and
+// written back by saveSnapshot(); writers are held off while a snapshot is taken.
+final class InMemoryStore {
+    private static final int SNAPSHOT_MAGIC = 0x4D525331; // "MRS1"
+
+    private static volatile InMemoryStore instance;
+
+    final IdTable<UserRow> users = new IdTable<>();
+    final IdTable<MovieRow> movies = new IdTable<>();
+    final IdTable<Rental> rentals = new IdTable<>();
+    final IdTable<PricingCategory> pricingCategories = new IdTable<>();
+    final IdTable<LateFee> lateFees = new IdTable<>();
+    // Lower-cased email -> user id
+    final ConcurrentHashMap<String, Integer> usersByEmail = new ConcurrentHashMap<>();
+    // Open rentals as (due epoch day << 32 | rental id), so iteration order is by due date
+    final ConcurrentSkipListSet<Long> openByDueDate = new ConcurrentSkipListSet<>();
+
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Path snapshotFile;
+
+    // A user; rentals counts the rentals referencing it, which blocks deletes
+    static final class UserRow {
+        volatile User user;
+        final AtomicInteger rentals = new AtomicInteger();
+        volatile boolean deleted;
+
+        UserRow(User user) {
+            this.user = user;
+        }
+    }
+
+    // A movie with its pricing category and shelf counter
+    static final class MovieRow {
+        volatile Movie movie;
+        volatile int pricingCategoryId;
+        final AtomicInteger available;
+        final AtomicInteger rentals = new AtomicInteger();
+        volatile boolean deleted;
+
+        MovieRow(Movie movie, int pricingCategoryId, int available) {
+            this.movie = movie;
+            this.pricingCategoryId = pricingCategoryId;
+            this.available = new AtomicInteger(available);
+        }
+    }
+
+    private InMemoryStore(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    static InMemoryStore getInstance() {
+        if (instance == null) {
+            synchronized (InMemoryStore.class) {
+                if (instance == null) {
+                    String file = DatabaseConfig.get("storage.memory.snapshot.file", "");
+                    instance = open(file.isEmpty() ? null : Paths.get(file));
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Restore from the snapshot if there is one, otherwise start with the reference data of database.sql
+    static InMemoryStore open(Path snapshotFile) {
+        InMemoryStore store = new InMemoryStore(snapshotFile);
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try {
+                store.load(snapshotFile);
+                System.out.println("In-memory store restored from " + snapshotFile + ": " + store.movies.size() +
+                                   " movies, " + store.users.size() + " users, " + store.rentals.size() + " rentals");
+                return store;
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read snapshot " + snapshotFile, e);
+            }
+        }
+        store.seedReferenceData();
+        return store;
+    }
+
+    private void seedReferenceData() {
+        LocalDateTime now = LocalDateTime.now();
+        addPricingCategory(new PricingCategory(0, "New Release", new BigDecimal("5.00"), now));
+        addPricingCategory(new PricingCategory(0, "Regular", new BigDecimal("3.50"), now));
+        addPricingCategory(new PricingCategory(0, "Classic", new BigDecimal("2.00"), now));
+        addLateFee(new LateFee(0, 1, 3, new BigDecimal("1.00"), now));
+        addLateFee(new LateFee(0, 4, 7, new BigDecimal("2.00"), now));
+        addLateFee(new LateFee(0, 8, 999999, new BigDecimal("3.00"), now));
+    }
+
+    private void addPricingCategory(PricingCategory category) {
+        category.setId(pricingCategories.nextId());
+        pricingCategories.put(category.getId(), category);
+    }
+
+    private void addLateFee(LateFee lateFee) {
+        lateFee.setId(lateFees.nextId());
+        lateFees.put(lateFee.getId(), lateFee);
+    }
+
+    // Every mutation runs between beginWrite and endWrite so snapshots see a consistent state
+    void beginWrite() {
+        snapshotLock.readLock().lock();
+    }
+
+    void endWrite() {
+        snapshotLock.readLock().unlock();
+    }
+
+    static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    static long dueKey(Rental rental) {
+        return rental.getDueDate().toEpochDay() << 32 | rental.getId();
+    }
+
+    // Rental ids from the due-date index, optionally only those due before a day
+    List<Integer> openRentalIds(LocalDate dueBefore) {
+        List<Integer> ids = new ArrayList<>();
+        Iterable<Long> keys = dueBefore == null ? openByDueDate : openByDueDate.headSet(dueBefore.toEpochDay() << 32);
+        for (long key : keys) {
+            ids.add((int) key);
+        }
+        return ids;
+    }
+
+    static SQLIntegrityConstraintViolationException foreignKeyViolation(String table, int id) {
+        return new SQLIntegrityConstraintViolationException(
+            "Cannot add or update a child row: no " + table + " row with id " + id, "23000", 1452);
+    }
+
+    static SQLIntegrityConstraintViolationException referencedRow(String table, int id) {
+        return new SQLIntegrityConstraintViolationException(
+            "Cannot delete or update a parent row: " + table + " " + id + " is referenced by rentals", "23000", 1451);
+    }
+
+    static User copy(User user) {
+        User copy = new User(user.getId(), user.getName(), user.getEmail(), user.getPhone(), user.getCreatedAt());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+
+    static Movie copy(Movie movie) {
+        Movie copy = new Movie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getAvailableCopies(), movie.getCreatedAt());
+        copy.setVersion(movie.getVersion());
+        copy.setCurrentPrice(movie.getCurrentPrice());
+        return copy;
+    }
+
+    static Rental copy(Rental rental) {
+        Rental copy = new Rental();
+        copy.setId(rental.getId());
+        copy.setUserId(rental.getUserId());
+        copy.setMovieId(rental.getMovieId());
+        copy.setRentalDate(rental.getRentalDate());
+        copy.setDueDate(rental.getDueDate());
+        copy.setReturnDate(rental.getReturnDate());
+        copy.setBasePrice(rental.getBasePrice());
+        copy.setLateFee(rental.getLateFee());
+        copy.setTotalPrice(rental.getTotalPrice());
+        copy.setCopyId(rental.getCopyId());
+        copy.setCreatedAt(rental.getCreatedAt());
+        return copy;
+    }
+
+    static PricingCategory copy(PricingCategory category) {
+        return new PricingCategory(category.getId(), category.getName(), category.getBasePrice(), category.getCreatedAt());
+    }
+
+    static LateFee copy(LateFee lateFee) {
+        return new LateFee(lateFee.getId(), lateFee.getDaysLateStart(), lateFee.getDaysLateEnd(),
+                           lateFee.getFeePerDay(), lateFee.getCreatedAt());
+    }
+
+    // Write every table to the snapshot file; returns false when snapshots are not configured
+    boolean saveSnapshot() throws IOException {
+        if (snapshotFile == null) {
+            return false;
+        }
+        long started = System.nanoTime();
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        snapshotLock.writeLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            writeTable(out, pricingCategories, category -> {
+                out.writeInt(category.getId());
+                out.writeUTF(category.getName());
+                writeDecimal(out, category.getBasePrice());
+                writeDateTime(out, category.getCreatedAt());
+            });
+            writeTable(out, lateFees, lateFee -> {
+                out.writeInt(lateFee.getId());
+                out.writeInt(lateFee.getDaysLateStart());
+                out.writeInt(lateFee.getDaysLateEnd());
+                writeDecimal(out, lateFee.getFeePerDay());
+                writeDateTime(out, lateFee.getCreatedAt());
+            });
+            writeTable(out, users, row -> {
+                User user = row.user;
+                out.writeInt(user.getId());
+                writeString(out, user.getName());
+                writeString(out, user.getEmail());
+                writeString(out, user.getPhone());
+                out.writeInt(user.getVersion());
+                writeDateTime(out, user.getCreatedAt());
+            });
+            writeTable(out, movies, row -> {
+                Movie movie = row.movie;
+                out.writeInt(movie.getId());
+                writeString(out, movie.getTitle());
+                writeString(out, movie.getGenre());
+                out.writeInt(row.available.get());
+                out.writeInt(row.pricingCategoryId);
+                out.writeInt(movie.getVersion());
+                writeDateTime(out, movie.getCreatedAt());
+            });
+            writeTable(out, rentals, rental -> {
+                out.writeInt(rental.getId());
+                out.writeInt(rental.getUserId());
+                out.writeInt(rental.getMovieId());
+                out.writeLong(rental.getRentalDate().toEpochDay());
+                out.writeLong(rental.getDueDate().toEpochDay());
+                out.writeLong(rental.getReturnDate() == null ? Long.MIN_VALUE : rental.getReturnDate().toEpochDay());
+                writeDecimal(out, rental.getBasePrice());
+                writeDecimal(out, rental.getLateFee());
+                writeDecimal(out, rental.getTotalPrice());
+                writeDateTime(out, rental.getCreatedAt());
+            });
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("In-memory store snapshot written to %s in %.1f s%n", snapshotFile, (System.nanoTime() - started) / 1e9);
+        return true;
+    }
+
+    private void load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an in-memory store snapshot");
+            }
+            readTable(in, pricingCategories, () -> {
+                PricingCategory category = new PricingCategory(in.readInt(), in.readUTF(), readDecimal(in), readDateTime(in));
+                pricingCategories.put(category.getId(), category);
+            });
+            readTable(in, lateFees, () -> {
+                LateFee lateFee = new LateFee(in.readInt(), in.readInt(), in.readInt(), readDecimal(in), readDateTime(in));
+                lateFees.put(lateFee.getId(), lateFee);
+            });
+            readTable(in, users, () -> {
+                User user = new User();
+                user.setId(in.readInt());
+                user.setName(readString(in));
+                user.setEmail(readString(in));
+                user.setPhone(readString(in));
+                user.setVersion(in.readInt());
+                user.setCreatedAt(readDateTime(in));
+                users.put(user.getId(), new UserRow(user));
+                usersByEmail.put(emailKey(user.getEmail()), user.getId());
+            });
+            readTable(in, movies, () -> {
+                Movie movie = new Movie();
+                movie.setId(in.readInt());
+                movie.setTitle(readString(in));
+                movie.setGenre(readString(in));
+                int available = in.readInt();
+                int pricingCategoryId = in.readInt();
+                movie.setVersion(in.readInt());
+                movie.setCreatedAt(readDateTime(in));
+                movies.put(movie.getId(), new MovieRow(movie, pricingCategoryId, available));
+            });
+            readTable(in, rentals, () -> {
+                Rental rental = new Rental();
+                rental.setId(in.readInt());
+                rental.setUserId(in.readInt());
+                rental.setMovieId(in.readInt());
+                rental.setRentalDate(LocalDate.ofEpochDay(in.readLong()));
+                rental.setDueDate(LocalDate.ofEpochDay(in.readLong()));
+                long returned = in.readLong();
+                rental.setReturnDate(returned == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(returned));
+                rental.setBasePrice(readDecimal(in));
+                rental.setLateFee(readDecimal(in));
+                rental.setTotalPrice(readDecimal(in));
+                rental.setCreatedAt(readDateTime(in));
+                rentals.put(rental.getId(), rental);
+
+                users.get(rental.getUserId()).rentals.incrementAndGet();
+                movies.get(rental.getMovieId()).rentals.incrementAndGet();
+                if (rental.getReturnDate() == null) {
+                    openByDueDate.add(dueKey(rental));
+                }
+            });
+        }
+    }
+
+    private interface RowWriter<V> {
+        void write(V row) throws IOException;
+    }
+
+    private interface RowReader {
+        void read() throws IOException;
+    }
+
+    // Id counter, row count, then the rows; a row can be deleted between counting and writing
+    private static <V> void writeTable(DataOutputStream out, IdTable<V> table, RowWriter<V> writer) throws IOException {
+        List<V> rows = new ArrayList<>(table.size());
+        table.forEach(rows::add);
+        out.writeInt(table.lastId());
+        out.writeInt(rows.size());
+        for (V row : rows) {
+            writer.write(row);
+        }
+    }
+
+    private static void readTable(DataInputStream in, IdTable<?> table, RowReader reader) throws IOException {
+        int lastId = in.readInt();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            reader.read();
+        }
+        table.reserve(lastId);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Prices are small, so unscaled value and scale fit a long and a byte
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.unscaledValue().longValueExact());
+            out.writeByte(value.scale());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        return in.readBoolean() ? BigDecimal.valueOf(in.readLong(), in.readByte()) : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+}
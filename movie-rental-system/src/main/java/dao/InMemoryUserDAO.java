@@ -0,0 +1,148 @@
+package dao;
+
+import model.User;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InMemoryUserDAO implements UserDAO {
+    private final InMemoryStore store;
+
+    InMemoryUserDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User create(User user) throws SQLException {
+        store.beginWrite();
+        try {
+            int id = store.users.nextId();
+            if (store.usersByEmail.putIfAbsent(InMemoryStore.emailKey(user.getEmail()), id) != null) {
+                throw new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '" + user.getEmail() + "' for key 'uk_email'", "23000", 1062);
+            }
+            User stored = InMemoryStore.copy(user);
+            stored.setId(id);
+            stored.setVersion(0);
+            stored.setCreatedAt(LocalDateTime.now());
+            store.users.put(id, new InMemoryStore.UserRow(stored));
+            user.setId(id);
+            return user;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public User getById(int id) throws SQLException {
+        InMemoryStore.UserRow row = store.users.get(id);
+        return row == null ? null : InMemoryStore.copy(row.user);
+    }
+
+    @Override
+    public Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, User> found = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            InMemoryStore.UserRow row = id == null ? null : store.users.get(id);
+            if (row != null && !found.containsKey(id)) {
+                found.put(id, InMemoryStore.copy(row.user));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public User getByEmail(String email) throws SQLException {
+        Integer id = email == null ? null : store.usersByEmail.get(InMemoryStore.emailKey(email));
+        InMemoryStore.UserRow row = id == null ? null : store.users.get(id);
+        return row == null ? null : InMemoryStore.copy(row.user);
+    }
+
+    @Override
+    public List<User> getAll() throws SQLException {
+        List<User> users = new ArrayList<>(store.users.size());
+        store.users.forEach(row -> users.add(InMemoryStore.copy(row.user)));
+        users.sort(Comparator.comparing(User::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return users;
+    }
+
+    @Override
+    public UpdateResult update(User user) throws SQLException {
+        store.beginWrite();
+        try {
+            InMemoryStore.UserRow row = store.users.get(user.getId());
+            if (row == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            synchronized (row) {
+                if (row.deleted) {
+                    return UpdateResult.NOT_FOUND;
+                }
+                User current = row.user;
+                if (current.getVersion() != user.getVersion()) {
+                    return UpdateResult.CONFLICT;
+                }
+
+                // Claim the new email before giving up the old one
+                String oldKey = InMemoryStore.emailKey(current.getEmail());
+                String newKey = InMemoryStore.emailKey(user.getEmail());
+                if (newKey != null && !newKey.equals(oldKey)) {
+                    Integer owner = store.usersByEmail.putIfAbsent(newKey, user.getId());
+                    if (owner != null && owner != user.getId()) {
+                        throw new SQLIntegrityConstraintViolationException(
+                            "Duplicate entry '" + user.getEmail() + "' for key 'uk_email'", "23000", 1062);
+                    }
+                    store.usersByEmail.remove(oldKey, user.getId());
+                }
+
+                User updated = InMemoryStore.copy(user);
+                updated.setVersion(current.getVersion() + 1);
+                updated.setCreatedAt(current.getCreatedAt());
+                row.user = updated;
+            }
+            user.setVersion(user.getVersion() + 1);
+            return UpdateResult.UPDATED;
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        store.beginWrite();
+        try {
+            InMemoryStore.UserRow row = store.users.get(id);
+            if (row == null) {
+                return false;
+            }
+            synchronized (row) {
+                if (row.deleted) {
+                    return false;
+                }
+                // Mark first, then check: a concurrent rental create increments before it checks the mark
+                row.deleted = true;
+                if (row.rentals.get() > 0) {
+                    row.deleted = false;
+                    throw InMemoryStore.referencedRow("user", id);
+                }
+                store.users.remove(id);
+                store.usersByEmail.remove(InMemoryStore.emailKey(row.user.getEmail()), id);
+                return true;
+            }
+        } finally {
+            store.endWrite();
+        }
+    }
+
+    @Override
+    public boolean emailExists(String email) throws SQLException {
+        return email != null && store.usersByEmail.containsKey(InMemoryStore.emailKey(email));
+    }
+}
@@ -0,0 +1,84 @@
+package dao;
+
+import index.MovieFacetIndex;
+import index.MovieSearchIndex;
+import model.Movie;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Keeps MovieSearchIndex and MovieFacetIndex current with this node's movie writes. Writes on
+// other API nodes reach them with their next periodic loads (search.reload.interval.minutes,
+// facets.reload.interval.minutes).
+public class IndexingMovieDAO implements MovieDAO {
+    private final MovieDAO movies;
+
+    public IndexingMovieDAO(MovieDAO movies) {
+        this.movies = movies;
+    }
+
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        Movie created = movies.create(movie, pricingCategoryId);
+        MovieSearchIndex.getInstance().put(created.getId(), created.getTitle(), created.getGenre());
+        MovieFacetIndex.getInstance().put(created.getId(), created.getGenre(), pricingCategoryId, created.getAvailableCopies());
+        return created;
+    }
+
+    @Override
+    public Movie getById(int id) throws SQLException {
+        return movies.getById(id);
+    }
+
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        return movies.getByIds(ids);
+    }
+
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        return movies.getAll();
+    }
+
+    @Override
+    public List<Movie> getAll(FieldSet fields) throws SQLException {
+        return movies.getAll(fields);
+    }
+
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        UpdateResult result = movies.update(movie, pricingCategoryId);
+        if (result == UpdateResult.UPDATED) {
+            MovieSearchIndex.getInstance().put(movie.getId(), movie.getTitle(), movie.getGenre());
+            // Updates never write copy counts
+            MovieFacetIndex.getInstance().put(movie.getId(), movie.getGenre(), pricingCategoryId, null);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        boolean adjusted = movies.adjustAvailableCopies(movieId, delta);
+        if (adjusted) {
+            MovieFacetIndex.getInstance().adjustCopies(movieId, delta);
+        }
+        return adjusted;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = movies.delete(id);
+        if (deleted) {
+            MovieSearchIndex.getInstance().remove(id);
+            MovieFacetIndex.getInstance().remove(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        return movies.getAvailableMovies();
+    }
+}
@@ -0,0 +1,83 @@
+package dao;
+
+import index.DueDateIndex;
+import index.MovieFacetIndex;
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Checkouts take a copy off the shelf and returns put it back, which can flip a movie's
+// availability in MovieFacetIndex
+public class IndexingRentalDAO implements RentalDAO {
+    private final RentalDAO rentals;
+
+    public IndexingRentalDAO(RentalDAO rentals) {
+        this.rentals = rentals;
+    }
+
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        Rental created = rentals.create(rental);
+        MovieFacetIndex.getInstance().adjustCopies(created.getMovieId(), -1);
+        return created;
+    }
+
+    @Override
+    public Rental getById(int id) throws SQLException {
+        return rentals.getById(id);
+    }
+
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        return rentals.getByIds(ids);
+    }
+
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        return rentals.getAll();
+    }
+
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        return rentals.getActiveRentals();
+    }
+
+    @Override
+    public List<Rental> getAll(FieldSet fields) throws SQLException {
+        return rentals.getAll(fields);
+    }
+
+    @Override
+    public List<Rental> getActiveRentals(FieldSet fields) throws SQLException {
+        return rentals.getActiveRentals(fields);
+    }
+
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        // Look the movie up first: the return drops the rental from the due-date index
+        Rental open = DueDateIndex.getInstance().get(rentalId);
+        if (open == null) {
+            open = rentals.getById(rentalId);
+        }
+        boolean returned = rentals.returnMovie(rentalId, returnDate, lateFee);
+        if (returned && open != null) {
+            MovieFacetIndex.getInstance().adjustCopies(open.getMovieId(), 1);
+        }
+        return returned;
+    }
+
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        return rentals.getOverdueRentals();
+    }
+
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        return rentals.getRentalCountsByMovie();
+    }
+}
@@ -0,0 +1,288 @@
+package dao;
+
+import index.DueDateIndex;
+import model.Hold;
+import model.Rental;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Timed holds under the counter inventory model. Placing a hold takes the copy off
+// movies.available_copies in the same transaction that records it in holds, so the copy is
+// gone for everyone else at once. Confirming turns the hold into a rental without touching
+// the counter again; releasing or expiring it puts the copy back. The holds table is the
+// durable record; HoldManager keeps the expiry timers.
+public class JdbcHoldDAO implements HoldDAO {
+    // When sharded, holds and counters live on the first shard and the rental on the user's
+    private final ShardedRentalDAO shardedRentals = Shards.isEnabled() ? new ShardedRentalDAO() : null;
+
+    // Take a copy for the user until expiresAt; null when no copy is left
+    @Override
+    public Hold create(int userId, int movieId, LocalDateTime expiresAt) throws SQLException {
+        String takeSql = "UPDATE movies SET available_copies = available_copies - 1 WHERE id = ? AND available_copies > 0";
+        String sql = "INSERT INTO holds (user_id, movie_id, expires_at) VALUES (?, ?, ?)";
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(takeSql)) {
+                stmt.setInt(1, movieId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return null;
+                }
+            }
+
+            Hold hold = new Hold(0, userId, movieId, expiresAt);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, userId);
+                stmt.setInt(2, movieId);
+                stmt.setTimestamp(3, Timestamp.valueOf(expiresAt));
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Creating hold failed, no ID obtained.");
+                    }
+                    hold.setId(rs.getInt(1));
+                }
+            }
+
+            conn.commit();
+            return hold;
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public Hold getById(int id) throws SQLException {
+        try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(
+                 "SELECT id, user_id, movie_id, expires_at FROM holds WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResultSetToHold(rs) : null;
+            }
+        }
+    }
+
+    // Turn an unexpired hold into a rental for the hold's user and movie, using the held copy;
+    // null when the hold is gone or has expired
+    @Override
+    public Rental confirm(int holdId, Rental rental, LocalDateTime now) throws SQLException {
+        String lockSql = "SELECT id, user_id, movie_id, expires_at FROM holds WHERE id = ? AND expires_at > ? FOR UPDATE";
+        String deleteSql = "DELETE FROM holds WHERE id = ?";
+        String rentalSql = "INSERT INTO rentals (user_id, movie_id, rental_date, due_date, base_price, total_price) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            Hold hold;
+            try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                stmt.setInt(1, holdId);
+                stmt.setTimestamp(2, Timestamp.valueOf(now));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return null;
+                    }
+                    hold = mapResultSetToHold(rs);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+                stmt.setInt(1, holdId);
+                stmt.executeUpdate();
+            }
+            rental.setUserId(hold.getUserId());
+            rental.setMovieId(hold.getMovieId());
+
+            if (shardedRentals != null) {
+                // The hold is spent once this commits; insertTaken returns the copy if the rental fails
+                conn.commit();
+                shardedRentals.insertTaken(rental);
+                return rental;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(rentalSql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, rental.getUserId());
+                stmt.setInt(2, rental.getMovieId());
+                stmt.setDate(3, Date.valueOf(rental.getRentalDate()));
+                stmt.setDate(4, Date.valueOf(rental.getDueDate()));
+                stmt.setBigDecimal(5, rental.getBasePrice());
+                stmt.setBigDecimal(6, rental.getTotalPrice());
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Creating rental failed, no ID obtained.");
+                    }
+                    rental.setId(rs.getInt(1));
+                }
+            }
+            RentalView.insert(conn, rental.getId());
+
+            conn.commit();
+            DueDateIndex.getInstance().add(rental);
+            return rental;
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Drop a hold and put its copy back; null when the hold is already gone
+    @Override
+    public Hold release(int holdId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            List<Hold> released = releaseLocked(conn, new ArrayList<>(List.of(holdId)), null);
+            conn.commit();
+            return released.isEmpty() ? null : released.get(0);
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Release those of the given holds that expired by asOf, in one transaction on conn;
+    // holds confirmed or released meanwhile are skipped
+    @Override
+    public List<Hold> expire(Connection conn, List<Integer> holdIds, LocalDateTime asOf) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<Hold> expired = releaseLocked(conn, holdIds, asOf);
+            conn.commit();
+            return expired;
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Ids of holds that expired by asOf, oldest first; catches holds whose timer was lost
+    @Override
+    public List<Integer> getExpiredIds(Connection conn, LocalDateTime asOf, int limit) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id FROM holds WHERE expires_at <= ? ORDER BY expires_at LIMIT ?")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(asOf));
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Stream every hold, for rebuilding the expiry timers after a restart
+    @Override
+    public void forEach(Connection conn, Consumer<Hold> visitor) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id, user_id, movie_id, expires_at FROM holds")) {
+            stmt.setFetchSize(10000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.accept(mapResultSetToHold(rs));
+                }
+            }
+        }
+    }
+
+    // Lock and delete the holds (only the expired ones when asOf is set), then put their copies
+    // back with one UPDATE
+    private List<Hold> releaseLocked(Connection conn, List<Integer> holdIds, LocalDateTime asOf) throws SQLException {
+        List<Hold> released = new ArrayList<>();
+        if (holdIds.isEmpty()) {
+            return released;
+        }
+        String placeholders = placeholders(holdIds.size());
+        String lockSql = "SELECT id, user_id, movie_id, expires_at FROM holds WHERE id IN (" + placeholders + ")" +
+                    (asOf != null ? " AND expires_at <= ?" : "") + " ORDER BY id FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+            int index = 1;
+            for (Integer id : holdIds) {
+                stmt.setInt(index++, id);
+            }
+            if (asOf != null) {
+                stmt.setTimestamp(index, Timestamp.valueOf(asOf));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    released.add(mapResultSetToHold(rs));
+                }
+            }
+        }
+        if (released.isEmpty()) {
+            return released;
+        }
+
+        Map<Integer, Integer> copies = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "DELETE FROM holds WHERE id IN (" + placeholders(released.size()) + ")")) {
+            int index = 1;
+            for (Hold hold : released) {
+                stmt.setInt(index++, hold.getId());
+                copies.merge(hold.getMovieId(), 1, Integer::sum);
+            }
+            stmt.executeUpdate();
+        }
+        StringBuilder sql = new StringBuilder("UPDATE movies SET available_copies = available_copies + CASE id");
+        for (int i = 0; i < copies.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END WHERE id IN (").append(placeholders(copies.size())).append(")");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Map.Entry<Integer, Integer> entry : copies.entrySet()) {
+                stmt.setInt(index++, entry.getKey());
+                stmt.setInt(index++, entry.getValue());
+            }
+            for (Integer movieId : copies.keySet()) {
+                stmt.setInt(index++, movieId);
+            }
+            stmt.executeUpdate();
+        }
+        return released;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    private Hold mapResultSetToHold(ResultSet rs) throws SQLException {
+        return new Hold(rs.getInt("id"), rs.getInt("user_id"), rs.getInt("movie_id"),
+                        rs.getTimestamp("expires_at").toLocalDateTime());
+    }
+}
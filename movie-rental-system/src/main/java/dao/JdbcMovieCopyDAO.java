@@ -0,0 +1,120 @@
+package dao;
+
+import util.DatabaseConnection;
+
+import java.sql.*;
+
+// Per-copy inventory. Copies are claimed with SELECT ... FOR UPDATE SKIP LOCKED,
+// so concurrent checkouts of the same title lock different rows instead of
+// queueing on the movie row; movies.available_copies is reconciled from here.
+public class JdbcMovieCopyDAO implements MovieCopyDAO {
+    // Claim a free copy of the movie inside the caller's transaction; null if none is free
+    @Override
+    public Integer claimCopy(Connection conn, int movieId) throws SQLException {
+        String selectSql = "SELECT id FROM movie_copies WHERE movie_id = ? AND status = ? " +
+                          "LIMIT 1 FOR UPDATE SKIP LOCKED";
+        String claimSql = "UPDATE movie_copies SET status = ? WHERE id = ?";
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            stmt = conn.prepareStatement(selectSql);
+            stmt.setInt(1, movieId);
+            stmt.setString(2, AVAILABLE);
+            rs = stmt.executeQuery();
+
+            if (!rs.next()) {
+                return null;
+            }
+            int copyId = rs.getInt(1);
+
+            try (PreparedStatement claimStmt = conn.prepareStatement(claimSql)) {
+                claimStmt.setString(1, RENTED);
+                claimStmt.setInt(2, copyId);
+                claimStmt.executeUpdate();
+            }
+            return copyId;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+
+    // Record which rental holds a claimed copy
+    @Override
+    public void assignRental(Connection conn, int copyId, int rentalId) throws SQLException {
+        String sql = "UPDATE movie_copies SET rental_id = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, rentalId);
+            stmt.setInt(2, copyId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Put a copy back on the shelf inside the caller's transaction
+    @Override
+    public void releaseCopy(Connection conn, int copyId) throws SQLException {
+        String sql = "UPDATE movie_copies SET status = ?, rental_id = NULL WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, AVAILABLE);
+            stmt.setInt(2, copyId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Add available copies for a movie inside the caller's transaction
+    @Override
+    public void createCopies(Connection conn, int movieId, int count) throws SQLException {
+        String sql = "INSERT INTO movie_copies (movie_id, status) VALUES (?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                stmt.setInt(1, movieId);
+                stmt.setString(2, AVAILABLE);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Count the copies of a movie currently on the shelf
+    @Override
+    public int countAvailable(int movieId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM movie_copies WHERE movie_id = ? AND status = ?";
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, movieId);
+            stmt.setString(2, AVAILABLE);
+
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+
+    // Rewrite movies.available_copies from the copy table; only rows that drifted are touched
+    @Override
+    public int reconcileAvailableCopies(Connection conn) throws SQLException {
+        String sql = "UPDATE movies m " +
+                    "LEFT JOIN (SELECT movie_id, COUNT(*) AS free_copies FROM movie_copies " +
+                    "           WHERE status = ? GROUP BY movie_id) c ON c.movie_id = m.id " +
+                    "SET m.available_copies = COALESCE(c.free_copies, 0) " +
+                    "WHERE m.available_copies <> COALESCE(c.free_copies, 0)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, AVAILABLE);
+            return stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package dao;
+
+import model.Movie;
+import util.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.math.BigDecimal;
+
+public class JdbcMovieDAO implements MovieDAO {
+    // Called inside this engine's own transactions, which TimedDAO already times
+    private final MovieCopyDAO movieCopyDAO = new JdbcMovieCopyDAO();
+    
+    // Create a new movie
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        String sql = "INSERT INTO movies (title, genre, available_copies) VALUES (?, ?, ?)";
+        String pricingSql = "INSERT INTO movie_pricing (movie_id, pricing_category_id) VALUES (?, ?)";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        PreparedStatement pricingStmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Insert movie
+            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt.setString(1, movie.getTitle());
+            stmt.setString(2, movie.getGenre());
+            stmt.setInt(3, movie.getAvailableCopies());
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows == 0) {
+                throw new SQLException("Creating movie failed, no rows affected.");
+            }
+            
+            rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                movie.setId(rs.getInt(1));
+                
+                // Insert pricing
+                pricingStmt = conn.prepareStatement(pricingSql);
+                pricingStmt.setInt(1, movie.getId());
+                pricingStmt.setInt(2, pricingCategoryId);
+                pricingStmt.executeUpdate();
+                
+                // Shelve individual copies when per-copy inventory is enabled
+                if (MovieCopyDAO.isEnabled()) {
+                    movieCopyDAO.createCopies(conn, movie.getId(), movie.getAvailableCopies());
+                }
+                
+                conn.commit();
+                return movie;
+            } else {
+                throw new SQLException("Creating movie failed, no ID obtained.");
+            }
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    throw new SQLException("Error rolling back transaction", ex);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(pricingStmt);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get movie by ID with current price
+    @Override
+    public Movie getById(int id) throws SQLException {
+        String sql = "SELECT m.*, pc.base_price FROM movies m " +
+                    "LEFT JOIN movie_pricing mp ON m.id = mp.movie_id " +
+                    "LEFT JOIN pricing_categories pc ON mp.pricing_category_id = pc.id " +
+                    "WHERE m.id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToMovie(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get movies with current prices by ids, one query per IdLists.CHUNK ids
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT m.*, pc.base_price FROM movies m " +
+                    "LEFT JOIN movie_pricing mp ON m.id = mp.movie_id " +
+                    "LEFT JOIN pricing_categories pc ON mp.pricing_category_id = pc.id " +
+                    "WHERE m.id IN (";
+        
+        Connection conn = DatabaseConnection.getConnection();
+        Map<Integer, Movie> found = new HashMap<>();
+        for (List<Integer> chunk : IdLists.chunks(ids)) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql + IdLists.placeholders(chunk.size()) + ")")) {
+                IdLists.bind(stmt, chunk);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Movie movie = mapResultSetToMovie(rs);
+                        found.putIfAbsent(movie.getId(), movie);
+                    }
+                }
+            }
+        }
+        
+        return IdLists.inOrder(ids, found);
+    }
+    
+    // Get all movies with their current prices
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        String sql = "SELECT m.*, pc.base_price FROM movies m " +
+                    "LEFT JOIN movie_pricing mp ON m.id = mp.movie_id " +
+                    "LEFT JOIN pricing_categories pc ON mp.pricing_category_id = pc.id " +
+                    "ORDER BY m.title";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Movie> movies = new ArrayList<>();
+            while (rs.next()) {
+                movies.add(mapResultSetToMovie(rs));
+            }
+            
+            return movies;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Only the columns behind the fields; the pricing tables are joined only for currentPrice
+    @Override
+    public List<Movie> getAll(FieldSet fields) throws SQLException {
+        String sql = "SELECT " + fields.columns() + " FROM movies m " +
+                    (fields.includes("currentPrice")
+                        ? "LEFT JOIN movie_pricing mp ON m.id = mp.movie_id " +
+                          "LEFT JOIN pricing_categories pc ON mp.pricing_category_id = pc.id "
+                        : "") +
+                    "ORDER BY m.title";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Movie> movies = new ArrayList<>();
+            while (rs.next()) {
+                movies.add(mapResultSetToMovie(rs, fields));
+            }
+            
+            return movies;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Update movie details if the caller still holds the current version.
+    // Copy counts are never written here; use adjustAvailableCopies instead.
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        String titleSql = "SELECT title FROM movies WHERE id = ? FOR UPDATE";
+        String sql = "UPDATE movies SET title = ?, genre = ?, version = version + 1 WHERE id = ? AND version = ?";
+        String pricingSql = "UPDATE movie_pricing SET pricing_category_id = ? WHERE movie_id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        PreparedStatement pricingStmt = null;
+        boolean renamed;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Only a new title sends the catch-up through the movie's rentals
+            String oldTitle = null;
+            try (PreparedStatement titleStmt = conn.prepareStatement(titleSql)) {
+                titleStmt.setInt(1, movie.getId());
+                try (ResultSet rs = titleStmt.executeQuery()) {
+                    if (rs.next()) {
+                        oldTitle = rs.getString(1);
+                    }
+                }
+            }
+            
+            // Update movie
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, movie.getTitle());
+            stmt.setString(2, movie.getGenre());
+            stmt.setInt(3, movie.getId());
+            stmt.setInt(4, movie.getVersion());
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows == 0) {
+                conn.rollback();
+                return exists(conn, movie.getId()) ? UpdateResult.CONFLICT : UpdateResult.NOT_FOUND;
+            }
+            
+            // Update pricing if provided
+            if (pricingCategoryId != null) {
+                pricingStmt = conn.prepareStatement(pricingSql);
+                pricingStmt.setInt(1, pricingCategoryId);
+                pricingStmt.setInt(2, movie.getId());
+                pricingStmt.executeUpdate();
+            }
+            
+            conn.commit();
+            movie.setVersion(movie.getVersion() + 1);
+            renamed = !movie.getTitle().equals(oldTitle);
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    throw new SQLException("Error rolling back transaction", ex);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeStatement(pricingStmt);
+            DatabaseConnection.closeStatement(stmt);
+        }
+        
+        RentalView.movieUpdated(movie.getId(), renamed);
+        return UpdateResult.UPDATED;
+    }
+    
+    // Add (positive delta) or withdraw (negative delta) copies; never lets the count go below zero
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        String sql = "UPDATE movies SET available_copies = available_copies + ? " +
+                    "WHERE id = ? AND available_copies + ? >= 0";
+        String retireSql = "UPDATE movie_copies SET status = 'RETIRED' WHERE movie_id = ? AND status = ? LIMIT ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        PreparedStatement retireStmt = null;
+        boolean perCopy = MovieCopyDAO.isEnabled();
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, delta);
+            stmt.setInt(2, movieId);
+            stmt.setInt(3, delta);
+            
+            if (stmt.executeUpdate() == 0) {
+                conn.rollback();
+                return false;
+            }
+            
+            // Keep the copy table in step so reconciliation does not undo the change
+            if (perCopy && delta > 0) {
+                movieCopyDAO.createCopies(conn, movieId, delta);
+            } else if (perCopy && delta < 0) {
+                retireStmt = conn.prepareStatement(retireSql);
+                retireStmt.setInt(1, movieId);
+                retireStmt.setString(2, MovieCopyDAO.AVAILABLE);
+                retireStmt.setInt(3, -delta);
+                if (retireStmt.executeUpdate() != -delta) {
+                    conn.rollback();
+                    return false;
+                }
+            }
+            
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    throw new SQLException("Error rolling back transaction", ex);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeStatement(retireStmt);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Check whether a movie row exists
+    private boolean exists(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM movies WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    // Delete movie
+    @Override
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM movies WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows > 0;
+        } finally {
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Helper method to map ResultSet to Movie object (package-private for the JMH benchmarks)
+    Movie mapResultSetToMovie(ResultSet rs) throws SQLException {
+        Movie movie = new Movie();
+        movie.setId(rs.getInt("id"));
+        movie.setTitle(rs.getString("title"));
+        movie.setGenre(rs.getString("genre"));
+        movie.setAvailableCopies(rs.getInt("available_copies"));
+        movie.setVersion(rs.getInt("version"));
+        movie.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        
+        // Set current price if available
+        BigDecimal basePrice = rs.getBigDecimal("base_price");
+        if (basePrice != null) {
+            movie.setCurrentPrice(basePrice);
+        }
+        
+        return movie;
+    }
+    
+    // Map a row holding only the columns of a sparse fieldset
+    private Movie mapResultSetToMovie(ResultSet rs, FieldSet fields) throws SQLException {
+        Movie movie = new Movie();
+        if (fields.includes("id")) {
+            movie.setId(rs.getInt("id"));
+        }
+        if (fields.includes("title")) {
+            movie.setTitle(rs.getString("title"));
+        }
+        if (fields.includes("genre")) {
+            movie.setGenre(rs.getString("genre"));
+        }
+        if (fields.includes("availableCopies")) {
+            movie.setAvailableCopies(rs.getInt("available_copies"));
+        }
+        if (fields.includes("version")) {
+            movie.setVersion(rs.getInt("version"));
+        }
+        if (fields.includes("createdAt")) {
+            movie.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        }
+        if (fields.includes("currentPrice")) {
+            movie.setCurrentPrice(rs.getBigDecimal("base_price"));
+        }
+        return movie;
+    }
+    
+    // Get available movies
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        String sql = "SELECT m.*, pc.base_price FROM movies m " +
+                    "LEFT JOIN movie_pricing mp ON m.id = mp.movie_id " +
+                    "LEFT JOIN pricing_categories pc ON mp.pricing_category_id = pc.id " +
+                    "WHERE m.available_copies > 0 " +
+                    "ORDER BY m.title";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Movie> movies = new ArrayList<>();
+            while (rs.next()) {
+                movies.add(mapResultSetToMovie(rs));
+            }
+            
+            return movies;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package dao;
+
+import model.PricingCategory;
+import util.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.math.BigDecimal;
+
+public class JdbcPricingCategoryDAO implements PricingCategoryDAO {
+    // Create a new pricing category
+    @Override
+    public PricingCategory create(PricingCategory category) throws SQLException {
+        String sql = "INSERT INTO pricing_categories (name, base_price) VALUES (?, ?)";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            
+            stmt.setString(1, category.getName());
+            stmt.setBigDecimal(2, category.getBasePrice());
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows == 0) {
+                throw new SQLException("Creating pricing category failed, no rows affected.");
+            }
+            
+            rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                category.setId(rs.getInt(1));
+                return category;
+            } else {
+                throw new SQLException("Creating pricing category failed, no ID obtained.");
+            }
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get pricing category by ID
+    @Override
+    public PricingCategory getById(int id) throws SQLException {
+        String sql = "SELECT * FROM pricing_categories WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToPricingCategory(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get all pricing categories
+    @Override
+    public List<PricingCategory> getAll() throws SQLException {
+        String sql = "SELECT * FROM pricing_categories ORDER BY base_price";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<PricingCategory> categories = new ArrayList<>();
+            while (rs.next()) {
+                categories.add(mapResultSetToPricingCategory(rs));
+            }
+            
+            return categories;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Update pricing category
+    @Override
+    public boolean update(PricingCategory category) throws SQLException {
+        String sql = "UPDATE pricing_categories SET name = ?, base_price = ? WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            
+            stmt.setString(1, category.getName());
+            stmt.setBigDecimal(2, category.getBasePrice());
+            stmt.setInt(3, category.getId());
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows > 0;
+        } finally {
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Delete pricing category
+    @Override
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM pricing_categories WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows > 0;
+        } finally {
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get pricing category for a movie
+    @Override
+    public PricingCategory getPricingCategoryForMovie(int movieId) throws SQLException {
+        String sql = "SELECT pc.* FROM pricing_categories pc " +
+                    "JOIN movie_pricing mp ON pc.id = mp.pricing_category_id " +
+                    "WHERE mp.movie_id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, movieId);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToPricingCategory(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    @Override
+    public Map<Integer, Integer> getCategoryIdsByMovie() throws SQLException {
+        String sql = "SELECT movie_id, pricing_category_id FROM movie_pricing";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            Map<Integer, Integer> categoryIds = new HashMap<>();
+            while (rs.next()) {
+                categoryIds.put(rs.getInt(1), rs.getInt(2));
+            }
+            
+            return categoryIds;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Helper method to map ResultSet to PricingCategory object
+    private PricingCategory mapResultSetToPricingCategory(ResultSet rs) throws SQLException {
+        PricingCategory category = new PricingCategory();
+        category.setId(rs.getInt("id"));
+        category.setName(rs.getString("name"));
+        category.setBasePrice(rs.getBigDecimal("base_price"));
+        category.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return category;
+    }
+    
+    // Check if pricing category name exists
+    @Override
+    public boolean nameExists(String name) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM pricing_categories WHERE name = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, name);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt(1) > 0;
+            }
+            
+            return false;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+}
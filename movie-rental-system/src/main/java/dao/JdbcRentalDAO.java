@@ -0,0 +1,502 @@
+package dao;
+
+import index.DueDateIndex;
+import jfr.JfrEvents;
+import model.Movie;
+import model.Rental;
+import model.User;
+import util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.math.BigDecimal;
+
+public class JdbcRentalDAO implements RentalDAO {
+    // Columns shared by the live rentals table, rentals_archive and rental_view in either inventory mode
+    public static final String RENTAL_COLUMNS = "id, user_id, movie_id, rental_date, due_date, return_date, " +
+                                                "base_price, late_fee, total_price, created_at";
+    
+    // Called inside this engine's own transactions, which TimedDAO already times
+    private final MovieCopyDAO movieCopyDAO = new JdbcMovieCopyDAO();
+    
+    // The columns to copy out of rentals and rentals_archive. Their copy_id column is added by
+    // movie-copies.sql, which only inventory.mode=copies needs, so it is read only in that mode.
+    public static String copiedColumns() {
+        return MovieCopyDAO.isEnabled() ? RENTAL_COLUMNS + ", copy_id" : RENTAL_COLUMNS;
+    }
+
+    // Create a new rental
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        boolean perCopy = MovieCopyDAO.isEnabled();
+        String sql = perCopy
+            ? "INSERT INTO rentals (user_id, movie_id, rental_date, due_date, base_price, total_price, copy_id) " +
+              "VALUES (?, ?, ?, ?, ?, ?, ?)"
+            : "INSERT INTO rentals (user_id, movie_id, rental_date, due_date, base_price, total_price) " +
+              "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            // Concurrent counter-model checkouts share one transaction
+            if (CheckoutGroupCommit.isEnabled()) {
+                return CheckoutGroupCommit.getInstance().submit(rental);
+            }
+            
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Claim a specific copy without touching the shared movie row
+            Integer copyId = null;
+            if (perCopy) {
+                copyId = movieCopyDAO.claimCopy(conn, rental.getMovieId());
+                if (copyId == null) {
+                    throw new SQLException("Creating rental failed, no copies of movie " + rental.getMovieId() + " available.");
+                }
+            }
+            
+            // Create rental record
+            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt.setInt(1, rental.getUserId());
+            stmt.setInt(2, rental.getMovieId());
+            stmt.setDate(3, Date.valueOf(rental.getRentalDate()));
+            stmt.setDate(4, Date.valueOf(rental.getDueDate()));
+            stmt.setBigDecimal(5, rental.getBasePrice());
+            stmt.setBigDecimal(6, rental.getTotalPrice());
+            if (perCopy) {
+                stmt.setInt(7, copyId);
+            }
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows == 0) {
+                throw new SQLException("Creating rental failed, no rows affected.");
+            }
+            
+            rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                rental.setId(rs.getInt(1));
+                rental.setCopyId(copyId);
+                
+                RentalView.insert(conn, rental.getId());
+                if (perCopy) {
+                    movieCopyDAO.assignRental(conn, copyId, rental.getId());
+                } else {
+                    // Update movie available copies
+                    String updateMovieSql = "UPDATE movies SET available_copies = available_copies - 1 WHERE id = ?";
+                    PreparedStatement updateStmt = conn.prepareStatement(updateMovieSql);
+                    updateStmt.setInt(1, rental.getMovieId());
+                    updateStmt.executeUpdate();
+                    updateStmt.close();
+                }
+                
+                conn.commit();
+                DueDateIndex.getInstance().add(rental);
+                return rental;
+            } else {
+                throw new SQLException("Creating rental failed, no ID obtained.");
+            }
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    throw new SQLException("Error rolling back transaction", ex);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get rental by ID with movie and user details; archived rentals stay in the view
+    @Override
+    public Rental getById(int id) throws SQLException {
+        String sql = "SELECT " + RentalView.COLUMNS + " FROM rental_view WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToRental(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get rentals from the read model by ids, one query per IdLists.CHUNK ids
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT " + RentalView.COLUMNS + " FROM rental_view WHERE id IN (";
+        
+        Connection conn = DatabaseConnection.getConnection();
+        Map<Integer, Rental> found = new HashMap<>();
+        for (List<Integer> chunk : IdLists.chunks(ids)) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql + IdLists.placeholders(chunk.size()) + ")")) {
+                IdLists.bind(stmt, chunk);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Rental rental = mapResultSetToRental(rs);
+                        found.putIfAbsent(rental.getId(), rental);
+                    }
+                }
+            }
+        }
+        
+        return IdLists.inOrder(ids, found);
+    }
+    
+    // Get all rentals (live and archived) with movie and user details
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        String sql = "SELECT " + RentalView.COLUMNS + " FROM rental_view ORDER BY rental_date DESC";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Rental> rentals = new ArrayList<>();
+            while (rs.next()) {
+                rentals.add(mapResultSetToRental(rs));
+            }
+            
+            return rentals;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get active rentals (not returned)
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        String sql = "SELECT " + RentalView.COLUMNS + " FROM rental_view " +
+                    "WHERE return_date IS NULL " +
+                    "ORDER BY due_date ASC";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Rental> rentals = new ArrayList<>();
+            while (rs.next()) {
+                rentals.add(mapResultSetToRental(rs));
+            }
+            
+            return rentals;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Only the columns behind the fields
+    @Override
+    public List<Rental> getAll(FieldSet fields) throws SQLException {
+        return queryView(fields, "", "rental_date DESC");
+    }
+    
+    @Override
+    public List<Rental> getActiveRentals(FieldSet fields) throws SQLException {
+        return queryView(fields, "WHERE return_date IS NULL ", "due_date ASC");
+    }
+    
+    private List<Rental> queryView(FieldSet fields, String where, String orderBy) throws SQLException {
+        String sql = "SELECT " + fields.columns() + " FROM rental_view " + where + "ORDER BY " + orderBy;
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Rental> rentals = new ArrayList<>();
+            while (rs.next()) {
+                rentals.add(mapResultSetToRental(rs, fields));
+            }
+            return rentals;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Return movie and update late fees
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        String sql = "UPDATE rentals SET return_date = ?, late_fee = ?, total_price = base_price + ? WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Update rental record
+            stmt = conn.prepareStatement(sql);
+            stmt.setDate(1, Date.valueOf(returnDate));
+            stmt.setBigDecimal(2, lateFee);
+            stmt.setBigDecimal(3, lateFee);
+            stmt.setInt(4, rentalId);
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows > 0) {
+                // Get movie ID and, under per-copy inventory, the claimed copy for this rental
+                boolean perCopy = MovieCopyDAO.isEnabled();
+                String getMovieIdSql = perCopy ? "SELECT movie_id, copy_id FROM rentals WHERE id = ?"
+                                               : "SELECT movie_id FROM rentals WHERE id = ?";
+                PreparedStatement getMovieStmt = conn.prepareStatement(getMovieIdSql);
+                getMovieStmt.setInt(1, rentalId);
+                ResultSet rs = getMovieStmt.executeQuery();
+                
+                if (rs.next()) {
+                    int movieId = rs.getInt("movie_id");
+                    int copyId = perCopy ? rs.getInt("copy_id") : 0;
+                    
+                    if (perCopy && !rs.wasNull()) {
+                        // Put the rented copy back; available_copies is reconciled from movie_copies
+                        movieCopyDAO.releaseCopy(conn, copyId);
+                    } else {
+                        // Update movie available copies
+                        String updateMovieSql = "UPDATE movies SET available_copies = available_copies + 1 WHERE id = ?";
+                        PreparedStatement updateStmt = conn.prepareStatement(updateMovieSql);
+                        updateStmt.setInt(1, movieId);
+                        updateStmt.executeUpdate();
+                        updateStmt.close();
+                    }
+                }
+                
+                rs.close();
+                getMovieStmt.close();
+                
+                RentalView.returned(conn, rentalId, returnDate, lateFee);
+                conn.commit();
+                DueDateIndex.getInstance().remove(rentalId);
+                return true;
+            }
+            
+            return false;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    throw new SQLException("Error rolling back transaction", ex);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get overdue rentals, served from the due-date index once it has been built
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        DueDateIndex index = DueDateIndex.getInstance();
+        JfrEvents.cacheAccess("DueDateIndex", "overdue", index.isLoaded());
+        if (index.isLoaded()) {
+            List<Rental> overdue = index.getOverdue(LocalDate.now());
+            resolveDisplayFields(overdue);
+            return overdue;
+        }
+        
+        return queryOverdueRentals();
+    }
+    
+    // Rental counts per movie from the read model, which keeps archived rentals too
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        String sql = "SELECT movie_id, COUNT(*) FROM rental_view GROUP BY movie_id";
+        
+        try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            Map<Integer, Integer> counts = new HashMap<>();
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+            return counts;
+        }
+    }
+    
+    // Overdue rentals straight from the table, bypassing the index (package-private for the sharded DAO)
+    List<Rental> queryOverdueRentals() throws SQLException {
+        String sql = "SELECT " + RentalView.COLUMNS + " FROM rental_view " +
+                    "WHERE return_date IS NULL AND due_date < CURRENT_DATE " +
+                    "ORDER BY due_date ASC";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<Rental> rentals = new ArrayList<>();
+            while (rs.next()) {
+                rentals.add(mapResultSetToRental(rs));
+            }
+            return rentals;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Fill in movie title and user name for rentals that were indexed straight from create().
+    // Every missing movie and user is queued first, so the lookups cost one batched read each:
+    // movies through the cache, users one query per shard.
+    void resolveDisplayFields(List<Rental> rentals) throws SQLException {
+        BatchLoader<Movie> movies = BatchLoader.movies(DAOFactory.movieDAO());
+        BatchLoader<User> users = BatchLoader.users(DAOFactory.userDAO());
+        List<Rental> missing = new ArrayList<>();
+        for (Rental rental : rentals) {
+            if (rental.getMovieTitle() == null || rental.getUserName() == null) {
+                movies.load(rental.getMovieId());
+                users.load(rental.getUserId());
+                missing.add(rental);
+            }
+        }
+        
+        for (Rental rental : missing) {
+            Movie movie = movies.get(rental.getMovieId());
+            User user = users.get(rental.getUserId());
+            if (movie != null) {
+                rental.setMovieTitle(movie.getTitle());
+            }
+            if (user != null) {
+                rental.setUserName(user.getName());
+            }
+        }
+    }
+    
+    // Helper method to map ResultSet to Rental object (package-private for the JMH benchmarks)
+    Rental mapResultSetToRental(ResultSet rs) throws SQLException {
+        Rental rental = new Rental();
+        rental.setId(rs.getInt("id"));
+        rental.setUserId(rs.getInt("user_id"));
+        rental.setMovieId(rs.getInt("movie_id"));
+        rental.setRentalDate(rs.getDate("rental_date").toLocalDate());
+        rental.setDueDate(rs.getDate("due_date").toLocalDate());
+        
+        Date returnDate = rs.getDate("return_date");
+        if (returnDate != null) {
+            rental.setReturnDate(returnDate.toLocalDate());
+        }
+        
+        rental.setBasePrice(rs.getBigDecimal("base_price"));
+        rental.setLateFee(rs.getBigDecimal("late_fee"));
+        rental.setTotalPrice(rs.getBigDecimal("total_price"));
+        
+        int copyId = rs.getInt("copy_id");
+        if (!rs.wasNull()) {
+            rental.setCopyId(copyId);
+        }
+        
+        rental.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        
+        // Set additional display fields
+        rental.setMovieTitle(rs.getString("movie_title"));
+        rental.setUserName(rs.getString("user_name"));
+        
+        return rental;
+    }
+    
+    // Map a row holding only the columns of a sparse fieldset
+    private Rental mapResultSetToRental(ResultSet rs, FieldSet fields) throws SQLException {
+        Rental rental = new Rental();
+        if (fields.includes("id")) {
+            rental.setId(rs.getInt("id"));
+        }
+        if (fields.includes("userId")) {
+            rental.setUserId(rs.getInt("user_id"));
+        }
+        if (fields.includes("movieId")) {
+            rental.setMovieId(rs.getInt("movie_id"));
+        }
+        if (fields.includes("rentalDate")) {
+            rental.setRentalDate(rs.getDate("rental_date").toLocalDate());
+        }
+        if (fields.includes("dueDate")) {
+            rental.setDueDate(rs.getDate("due_date").toLocalDate());
+        }
+        if (fields.includes("returnDate")) {
+            Date returnDate = rs.getDate("return_date");
+            if (returnDate != null) {
+                rental.setReturnDate(returnDate.toLocalDate());
+            }
+        }
+        if (fields.includes("basePrice")) {
+            rental.setBasePrice(rs.getBigDecimal("base_price"));
+        }
+        if (fields.includes("lateFee")) {
+            rental.setLateFee(rs.getBigDecimal("late_fee"));
+        }
+        if (fields.includes("totalPrice")) {
+            rental.setTotalPrice(rs.getBigDecimal("total_price"));
+        }
+        if (fields.includes("copyId")) {
+            int copyId = rs.getInt("copy_id");
+            if (!rs.wasNull()) {
+                rental.setCopyId(copyId);
+            }
+        }
+        if (fields.includes("createdAt")) {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            if (createdAt != null) {
+                rental.setCreatedAt(createdAt.toLocalDateTime());
+            }
+        }
+        if (fields.includes("movieTitle")) {
+            rental.setMovieTitle(rs.getString("movie_title"));
+        }
+        if (fields.includes("userName")) {
+            rental.setUserName(rs.getString("user_name"));
+        }
+        return rental;
+    }
+}
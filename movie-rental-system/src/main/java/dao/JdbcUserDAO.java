@@ -0,0 +1,316 @@
+package dao;
+
+import model.User;
+import util.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JdbcUserDAO implements UserDAO {
+    // Create a new user
+    @Override
+    public User create(User user) throws SQLException {
+        String sql = "INSERT INTO users (name, email, phone) VALUES (?, ?, ?)";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            
+            stmt.setString(1, user.getName());
+            stmt.setString(2, user.getEmail());
+            stmt.setString(3, user.getPhone());
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows == 0) {
+                throw new SQLException("Creating user failed, no rows affected.");
+            }
+            
+            rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                user.setId(rs.getInt(1));
+            } else {
+                throw new SQLException("Creating user failed, no ID obtained.");
+            }
+            
+            return user;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get user by ID
+    @Override
+    public User getById(int id) throws SQLException {
+        String sql = "SELECT * FROM users WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToUser(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get users by ids, one query per IdLists.CHUNK ids
+    @Override
+    public Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT * FROM users WHERE id IN (";
+        
+        Connection conn = DatabaseConnection.getConnection();
+        Map<Integer, User> found = new HashMap<>();
+        for (List<Integer> chunk : IdLists.chunks(ids)) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql + IdLists.placeholders(chunk.size()) + ")")) {
+                IdLists.bind(stmt, chunk);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = mapResultSetToUser(rs);
+                        found.putIfAbsent(user.getId(), user);
+                    }
+                }
+            }
+        }
+        
+        return IdLists.inOrder(ids, found);
+    }
+    
+    // Get user by email
+    @Override
+    public User getByEmail(String email) throws SQLException {
+        String sql = "SELECT * FROM users WHERE email = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, email);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToUser(rs);
+            }
+            
+            return null;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Get all users
+    @Override
+    public List<User> getAll() throws SQLException {
+        String sql = "SELECT * FROM users ORDER BY name";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<User> users = new ArrayList<>();
+            while (rs.next()) {
+                users.add(mapResultSetToUser(rs));
+            }
+            
+            return users;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Only the columns behind the fields
+    @Override
+    public List<User> getAll(FieldSet fields) throws SQLException {
+        String sql = "SELECT " + fields.columns() + " FROM users ORDER BY name";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+            
+            List<User> users = new ArrayList<>();
+            while (rs.next()) {
+                users.add(mapResultSetToUser(rs, fields));
+            }
+            
+            return users;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Update user if the caller still holds the current version
+    @Override
+    public UpdateResult update(User user) throws SQLException {
+        String nameSql = "SELECT name FROM users WHERE id = ? FOR UPDATE";
+        String sql = "UPDATE users SET name = ?, email = ?, phone = ?, version = version + 1 WHERE id = ? AND version = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        boolean renamed;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Only a new name sends the catch-up through the user's rentals
+            String oldName = null;
+            try (PreparedStatement nameStmt = conn.prepareStatement(nameSql)) {
+                nameStmt.setInt(1, user.getId());
+                try (ResultSet rs = nameStmt.executeQuery()) {
+                    if (rs.next()) {
+                        oldName = rs.getString(1);
+                    }
+                }
+            }
+            
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, user.getName());
+            stmt.setString(2, user.getEmail());
+            stmt.setString(3, user.getPhone());
+            stmt.setInt(4, user.getId());
+            stmt.setInt(5, user.getVersion());
+            
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows == 0) {
+                conn.rollback();
+                return oldName != null ? UpdateResult.CONFLICT : UpdateResult.NOT_FOUND;
+            }
+            
+            conn.commit();
+            user.setVersion(user.getVersion() + 1);
+            renamed = !user.getName().equals(oldName);
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.closeStatement(stmt);
+        }
+        
+        RentalView.userUpdated(user.getId(), renamed);
+        return UpdateResult.UPDATED;
+    }
+    
+    // Delete user
+    @Override
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM users WHERE id = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, id);
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows > 0;
+        } finally {
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+    
+    // Helper method to map ResultSet to User object
+    private User mapResultSetToUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setName(rs.getString("name"));
+        user.setEmail(rs.getString("email"));
+        user.setPhone(rs.getString("phone"));
+        user.setVersion(rs.getInt("version"));
+        user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return user;
+    }
+    
+    // Map a row holding only the columns of a sparse fieldset
+    private User mapResultSetToUser(ResultSet rs, FieldSet fields) throws SQLException {
+        User user = new User();
+        if (fields.includes("id")) {
+            user.setId(rs.getInt("id"));
+        }
+        if (fields.includes("name")) {
+            user.setName(rs.getString("name"));
+        }
+        if (fields.includes("email")) {
+            user.setEmail(rs.getString("email"));
+        }
+        if (fields.includes("phone")) {
+            user.setPhone(rs.getString("phone"));
+        }
+        if (fields.includes("version")) {
+            user.setVersion(rs.getInt("version"));
+        }
+        if (fields.includes("createdAt")) {
+            user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        }
+        return user;
+    }
+    
+    // Check if email exists
+    @Override
+    public boolean emailExists(String email) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
+        
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, email);
+            
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt(1) > 0;
+            }
+            
+            return false;
+        } finally {
+            DatabaseConnection.closeResultSet(rs);
+            DatabaseConnection.closeStatement(stmt);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dao;
+
+import model.LateFee;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Immutable in-memory copy of the late fee tiers with the same semantics as
+// LateFeeDAO.calculateLateFee: fee_per_day of the matching tier times days late.
+public class LateFeeTierTable {
+    // Fees for the first days late are precomputed so the common case is an array read
+    private static final int DENSE_DAYS = 366;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final BigDecimal[] feesPerDay;
+    private final BigDecimal[] denseFees;
+
+    public LateFeeTierTable(List<LateFee> lateFees) {
+        List<LateFee> sorted = new ArrayList<>(lateFees);
+        sorted.sort(Comparator.comparingInt(LateFee::getDaysLateStart));
+
+        starts = new int[sorted.size()];
+        ends = new int[sorted.size()];
+        feesPerDay = new BigDecimal[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            LateFee fee = sorted.get(i);
+            starts[i] = fee.getDaysLateStart();
+            ends[i] = fee.getDaysLateEnd();
+            feesPerDay[i] = fee.getFeePerDay();
+        }
+
+        denseFees = new BigDecimal[DENSE_DAYS];
+        for (int days = 0; days < DENSE_DAYS; days++) {
+            denseFees[days] = lookup(days);
+        }
+    }
+
+    // Load the current tiers from the database
+    public static LateFeeTierTable load(LateFeeDAO lateFeeDAO) throws SQLException {
+        return new LateFeeTierTable(lateFeeDAO.getAll());
+    }
+
+    // Late fee owed for the given number of days late
+    public BigDecimal calculateLateFee(int daysLate) {
+        if (daysLate <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (daysLate < DENSE_DAYS) {
+            return denseFees[daysLate];
+        }
+        return lookup(daysLate);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    private BigDecimal lookup(int daysLate) {
+        // Binary search for the last tier starting at or before daysLate
+        int low = 0;
+        int high = starts.length - 1;
+        int match = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= daysLate) {
+                match = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (match < 0 || daysLate > ends[match]) {
+            return BigDecimal.ZERO;
+        }
+        return feesPerDay[match].multiply(BigDecimal.valueOf(daysLate));
+    }
+}
@@ -0,0 +1,36 @@
+package dao;
+
+import util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Per-copy inventory storage; see JdbcMovieCopyDAO. The methods taking a connection run
+// inside the caller's transaction.
+public interface MovieCopyDAO {
+    String AVAILABLE = "AVAILABLE";
+    String RENTED = "RENTED";
+
+    // True when inventory.mode=copies, false for the available_copies counter model
+    static boolean isEnabled() {
+        return "copies".equalsIgnoreCase(DatabaseConfig.get("inventory.mode", "counter"));
+    }
+
+    // Claim a free copy of the movie; null if none is free
+    Integer claimCopy(Connection conn, int movieId) throws SQLException;
+
+    // Record which rental holds a claimed copy
+    void assignRental(Connection conn, int copyId, int rentalId) throws SQLException;
+
+    // Put a copy back on the shelf
+    void releaseCopy(Connection conn, int copyId) throws SQLException;
+
+    // Add available copies for a movie
+    void createCopies(Connection conn, int movieId, int count) throws SQLException;
+
+    // Count the copies of a movie currently on the shelf
+    int countAvailable(int movieId) throws SQLException;
+
+    // Rewrite movies.available_copies from the copy table; only rows that drifted are touched
+    int reconcileAvailableCopies(Connection conn) throws SQLException;
+}
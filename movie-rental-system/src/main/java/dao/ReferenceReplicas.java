@@ -0,0 +1,37 @@
+package dao;
+
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Movies, pricing categories and late fee tiers are a reference set copied to every shard,
+// so rentals can still join them locally. Writes go to the first shard, which assigns ids,
+// and are then repeated on the others with the same ids.
+final class ReferenceReplicas {
+    private ReferenceReplicas() {}
+
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Insert a row that already has its id on every shard but the first
+    static void insert(String sql, Binder binder) throws SQLException {
+        for (int shard = 1; shard < Shards.count(); shard++) {
+            Shards.on(shard, () -> {
+                try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(sql)) {
+                    binder.bind(stmt);
+                    return stmt.executeUpdate();
+                }
+            });
+        }
+    }
+
+    // Repeat a write on every shard but the first
+    static void apply(Shards.ShardCall<?> write) throws SQLException {
+        for (int shard = 1; shard < Shards.count(); shard++) {
+            Shards.on(shard, write);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package dao;
+
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Denormalized read model behind the rental listings. rental_view holds every rental, live
+// or archived, with its movie title and user name, so reads need no joins. The write paths
+// keep it current in their own transactions: checkouts insert the row, returns update it.
+// Renaming a movie or user rewrites its rows afterwards, on a background thread with a
+// connection of its own, in batches of rental.view.catchup.batch.size, each committed on its
+// own, so a popular title neither holds up the update nor locks its whole history at once;
+// until the catch-up finishes some rows show the old name. A catch-up that fails is logged and
+// run again on the next update of that movie or user.
+public final class RentalView {
+    static final String COLUMNS = JdbcRentalDAO.RENTAL_COLUMNS + ", copy_id, movie_title, user_name";
+    // Same parameters as the UPDATE of the rentals row: return_date, late_fee, late_fee, id
+    public static final String RETURN_SQL =
+        "UPDATE rental_view SET return_date = ?, late_fee = ?, total_price = base_price + ? WHERE id = ?";
+
+    private static final int CATCH_UP_BATCH = DatabaseConfig.getInt("rental.view.catchup.batch.size", 500);
+    // Rentals per INSERT ... SELECT when copying rows in, and ids per rebuild transaction
+    private static final int INSERT_BATCH = 500;
+    private static final int REBUILD_RANGE = 10_000;
+
+    // Movies and users whose last catch-up on this node failed
+    private static final Set<Integer> MOVIES_BEHIND = ConcurrentHashMap.newKeySet();
+    private static final Set<Integer> USERS_BEHIND = ConcurrentHashMap.newKeySet();
+    // Catch-ups run one at a time, in the order the updates committed
+    private static final ExecutorService CATCH_UP_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rental-view-catch-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private RentalView() {}
+
+    // Copy freshly inserted rentals into the view, inside the caller's transaction
+    public static void insert(Connection conn, Collection<Integer> rentalIds) throws SQLException {
+        Iterator<Integer> ids = rentalIds.iterator();
+        while (ids.hasNext()) {
+            StringBuilder inList = new StringBuilder();
+            int count = 0;
+            while (ids.hasNext() && count < INSERT_BATCH) {
+                inList.append(count++ == 0 ? "" : ", ").append(ids.next().intValue());
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(copySql("rentals", "JOIN") + " WHERE r.id IN (" + inList + ")");
+            }
+        }
+    }
+
+    public static void insert(Connection conn, int rentalId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(copySql("rentals", "JOIN") + " WHERE r.id = ?")) {
+            stmt.setInt(1, rentalId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Record a return, inside the caller's transaction
+    public static void returned(Connection conn, int rentalId, LocalDate returnDate, BigDecimal lateFee)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RETURN_SQL)) {
+            stmt.setDate(1, Date.valueOf(returnDate));
+            stmt.setBigDecimal(2, lateFee);
+            stmt.setBigDecimal(3, lateFee);
+            stmt.setInt(4, rentalId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // After a committed movie update: catch up its rentals if it was renamed or is still behind
+    static void movieUpdated(int movieId, boolean renamed) {
+        schedule("movie_id", "movie_title = (SELECT title FROM movies WHERE id = ?)", movieId, renamed, MOVIES_BEHIND);
+    }
+
+    // After a committed user update: catch up their rentals if they were renamed or are still behind
+    static void userUpdated(int userId, boolean renamed) {
+        schedule("user_id", "user_name = (SELECT name FROM users WHERE id = ?)", userId, renamed, USERS_BEHIND);
+    }
+
+    // Queue the catch-up on the caller's shard. The update itself is committed, so a failed
+    // catch-up only leaves old names in the view.
+    private static void schedule(String keyColumn, String assignment, int id, boolean renamed, Set<Integer> behind) {
+        if (!renamed && !behind.contains(id)) {
+            return;
+        }
+        Integer shard = Shards.current();
+        CATCH_UP_EXECUTOR.execute(() -> {
+            try {
+                Shards.on(shard, () -> catchUp(keyColumn, assignment, id));
+                behind.remove(id);
+            } catch (SQLException | RuntimeException e) {
+                behind.add(id);
+                System.err.println("Rental view catch-up for " + keyColumn + " " + id + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // Walk the rows in id order, one committed batch at a time, so each row is visited once.
+    // Each batch reads the current name, so overlapping renames still converge on the last one.
+    // Returns the rows visited.
+    private static int catchUp(String keyColumn, String assignment, int id) throws SQLException {
+        Connection conn = DatabaseConnection.openConnection();
+        try {
+            conn.setAutoCommit(false);
+            return catchUp(conn, keyColumn, assignment, id);
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static int catchUp(Connection conn, String keyColumn, String assignment, int id) throws SQLException {
+        int total = 0;
+        int lastId = 0;
+        try (PreparedStatement select = conn.prepareStatement(
+                 "SELECT id FROM rental_view WHERE " + keyColumn + " = ? AND id > ? ORDER BY id LIMIT ?")) {
+            while (true) {
+                select.setInt(1, id);
+                select.setInt(2, lastId);
+                select.setInt(3, CATCH_UP_BATCH);
+                StringBuilder inList = new StringBuilder();
+                int count = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getInt(1);
+                        inList.append(count++ == 0 ? "" : ", ").append(lastId);
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                try (PreparedStatement update = conn.prepareStatement(
+                         "UPDATE rental_view SET " + assignment + " WHERE id IN (" + inList + ")")) {
+                    update.setInt(1, id);
+                    update.executeUpdate();
+                }
+                conn.commit();
+                total += count;
+                if (count < CATCH_UP_BATCH) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    // Add the rentals missing from the view, e.g. after a bulk load or on a database created
+    // before the view existed; one committed batch of ids at a time. Returns the rows added.
+    public static int rebuild(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            if (count(conn, "rental_view") == count(conn, "rentals") + count(conn, "rentals_archive")) {
+                return 0;
+            }
+            return backfill(conn, "rentals", "JOIN") + backfill(conn, "rentals_archive", "LEFT JOIN");
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int backfill(Connection conn, String table, String join) throws SQLException {
+        long maxId = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            if (rs.next()) {
+                maxId = rs.getLong(1);
+            }
+        }
+        int added = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(copySql(table, join) +
+                 " WHERE r.id > ? AND r.id <= ? AND NOT EXISTS (SELECT 1 FROM rental_view v WHERE v.id = r.id)")) {
+            for (long from = 0; from < maxId; from += REBUILD_RANGE) {
+                stmt.setLong(1, from);
+                stmt.setLong(2, from + REBUILD_RANGE);
+                added += stmt.executeUpdate();
+                conn.commit();
+            }
+        }
+        return added;
+    }
+
+    // Archived rentals may outlive their movie or user, hence the outer join for them. copy_id
+    // stays null in counter mode, where the source tables may not have it.
+    private static String copySql(String table, String join) {
+        String columns = JdbcRentalDAO.copiedColumns();
+        return "INSERT INTO rental_view (" + columns + ", movie_title, user_name) " +
+               "SELECT r." + columns.replace(", ", ", r.") + ", m.title, u.name " +
+               "FROM " + table + " r " +
+               join + " movies m ON r.movie_id = m.id " +
+               join + " users u ON r.user_id = u.id";
+    }
+
+    private static long count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dao;
+
+import model.LateFee;
+import util.Shards;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+// Late fee tiers when sharded: read and written on the first shard, writes repeated on the others
+public class ReplicatedLateFeeDAO implements LateFeeDAO {
+    private static final int PRIMARY = 0;
+
+    private final JdbcLateFeeDAO lateFees = new JdbcLateFeeDAO();
+
+    @Override
+    public LateFee create(LateFee lateFee) throws SQLException {
+        Shards.on(PRIMARY, () -> lateFees.create(lateFee));
+        ReferenceReplicas.insert(
+            "INSERT INTO late_fees (id, days_late_start, days_late_end, fee_per_day) VALUES (?, ?, ?, ?)", stmt -> {
+                stmt.setInt(1, lateFee.getId());
+                stmt.setInt(2, lateFee.getDaysLateStart());
+                stmt.setInt(3, lateFee.getDaysLateEnd());
+                stmt.setBigDecimal(4, lateFee.getFeePerDay());
+            });
+        return lateFee;
+    }
+
+    @Override
+    public LateFee getById(int id) throws SQLException {
+        return Shards.on(PRIMARY, () -> lateFees.getById(id));
+    }
+
+    @Override
+    public List<LateFee> getAll() throws SQLException {
+        return Shards.on(PRIMARY, lateFees::getAll);
+    }
+
+    @Override
+    public boolean update(LateFee lateFee) throws SQLException {
+        boolean updated = Shards.on(PRIMARY, () -> lateFees.update(lateFee));
+        if (updated) {
+            ReferenceReplicas.apply(() -> lateFees.update(lateFee));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = Shards.on(PRIMARY, () -> lateFees.delete(id));
+        if (deleted) {
+            ReferenceReplicas.apply(() -> lateFees.delete(id));
+        }
+        return deleted;
+    }
+
+    @Override
+    public LateFee getApplicableLateFee(int daysLate) throws SQLException {
+        return Shards.on(PRIMARY, () -> lateFees.getApplicableLateFee(daysLate));
+    }
+
+    @Override
+    public BigDecimal calculateLateFee(int daysLate) throws SQLException {
+        return Shards.on(PRIMARY, () -> lateFees.calculateLateFee(daysLate));
+    }
+
+    @Override
+    public boolean rangeOverlaps(int start, int end, Integer excludeId) throws SQLException {
+        return Shards.on(PRIMARY, () -> lateFees.rangeOverlaps(start, end, excludeId));
+    }
+}
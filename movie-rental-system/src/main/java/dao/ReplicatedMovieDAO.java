@@ -0,0 +1,91 @@
+package dao;
+
+import model.Movie;
+import util.Shards;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Movies when sharded: the first shard is authoritative, including the copy counters that
+// ShardedRentalDAO moves, and the other shards hold copies of the rows so rentals and prices
+// can join them locally. The copies' counters are not kept up to date.
+public class ReplicatedMovieDAO implements MovieDAO {
+    private static final int PRIMARY = 0;
+
+    private final JdbcMovieDAO movies = new JdbcMovieDAO();
+
+    @Override
+    public Movie create(Movie movie, int pricingCategoryId) throws SQLException {
+        Shards.on(PRIMARY, () -> movies.create(movie, pricingCategoryId));
+        ReferenceReplicas.insert("INSERT INTO movies (id, title, genre, available_copies) VALUES (?, ?, ?, ?)", stmt -> {
+            stmt.setInt(1, movie.getId());
+            stmt.setString(2, movie.getTitle());
+            stmt.setString(3, movie.getGenre());
+            stmt.setInt(4, movie.getAvailableCopies());
+        });
+        ReferenceReplicas.insert("INSERT INTO movie_pricing (movie_id, pricing_category_id) VALUES (?, ?)", stmt -> {
+            stmt.setInt(1, movie.getId());
+            stmt.setInt(2, pricingCategoryId);
+        });
+        return movie;
+    }
+
+    @Override
+    public Movie getById(int id) throws SQLException {
+        return Shards.on(PRIMARY, () -> movies.getById(id));
+    }
+
+    @Override
+    public Map<Integer, Movie> getByIds(Collection<Integer> ids) throws SQLException {
+        return Shards.on(PRIMARY, () -> movies.getByIds(ids));
+    }
+
+    @Override
+    public List<Movie> getAll() throws SQLException {
+        return Shards.on(PRIMARY, movies::getAll);
+    }
+
+    @Override
+    public List<Movie> getAll(FieldSet fields) throws SQLException {
+        return Shards.on(PRIMARY, () -> movies.getAll(fields));
+    }
+
+    // The version check happens on the first shard; the copies just take the new values
+    @Override
+    public UpdateResult update(Movie movie, Integer pricingCategoryId) throws SQLException {
+        int version = movie.getVersion();
+        UpdateResult result = Shards.on(PRIMARY, () -> movies.update(movie, pricingCategoryId));
+        if (result == UpdateResult.UPDATED) {
+            ReferenceReplicas.apply(() -> {
+                movie.setVersion(version);
+                try {
+                    return movies.update(movie, pricingCategoryId);
+                } finally {
+                    movie.setVersion(version + 1);
+                }
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public boolean adjustAvailableCopies(int movieId, int delta) throws SQLException {
+        return Shards.on(PRIMARY, () -> movies.adjustAvailableCopies(movieId, delta));
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = Shards.on(PRIMARY, () -> movies.delete(id));
+        if (deleted) {
+            ReferenceReplicas.apply(() -> movies.delete(id));
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Movie> getAvailableMovies() throws SQLException {
+        return Shards.on(PRIMARY, movies::getAvailableMovies);
+    }
+}
@@ -0,0 +1,69 @@
+package dao;
+
+import model.PricingCategory;
+import util.Shards;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// Pricing categories when sharded: read and written on the first shard, writes repeated on the others
+public class ReplicatedPricingCategoryDAO implements PricingCategoryDAO {
+    private static final int PRIMARY = 0;
+
+    private final JdbcPricingCategoryDAO categories = new JdbcPricingCategoryDAO();
+
+    @Override
+    public PricingCategory create(PricingCategory category) throws SQLException {
+        Shards.on(PRIMARY, () -> categories.create(category));
+        ReferenceReplicas.insert("INSERT INTO pricing_categories (id, name, base_price) VALUES (?, ?, ?)", stmt -> {
+            stmt.setInt(1, category.getId());
+            stmt.setString(2, category.getName());
+            stmt.setBigDecimal(3, category.getBasePrice());
+        });
+        return category;
+    }
+
+    @Override
+    public PricingCategory getById(int id) throws SQLException {
+        return Shards.on(PRIMARY, () -> categories.getById(id));
+    }
+
+    @Override
+    public List<PricingCategory> getAll() throws SQLException {
+        return Shards.on(PRIMARY, categories::getAll);
+    }
+
+    @Override
+    public boolean update(PricingCategory category) throws SQLException {
+        boolean updated = Shards.on(PRIMARY, () -> categories.update(category));
+        if (updated) {
+            ReferenceReplicas.apply(() -> categories.update(category));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        boolean deleted = Shards.on(PRIMARY, () -> categories.delete(id));
+        if (deleted) {
+            ReferenceReplicas.apply(() -> categories.delete(id));
+        }
+        return deleted;
+    }
+
+    @Override
+    public PricingCategory getPricingCategoryForMovie(int movieId) throws SQLException {
+        return Shards.on(PRIMARY, () -> categories.getPricingCategoryForMovie(movieId));
+    }
+
+    @Override
+    public Map<Integer, Integer> getCategoryIdsByMovie() throws SQLException {
+        return Shards.on(PRIMARY, categories::getCategoryIdsByMovie);
+    }
+
+    @Override
+    public boolean nameExists(String name) throws SQLException {
+        return Shards.on(PRIMARY, () -> categories.nameExists(name));
+    }
+}
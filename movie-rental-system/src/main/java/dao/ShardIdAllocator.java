@@ -0,0 +1,82 @@
+package dao;
+
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ids for sharded rows. The id decides the shard (Shards.shardForId), so it cannot come from
+// AUTO_INCREMENT: each shard keeps a high-water mark and the next id is the first one above it
+// that falls in the requested slot. Marks are seeded from MAX(id) of the tables on every shard,
+// not just their own: rows loaded from an unsharded database keep their old ids, which can sit
+// on another shard than their slot maps to, and a new id must never repeat one of them.
+// Another process allocating on the same shard shows up as a duplicate key, after which the
+// mark is re-read.
+final class ShardIdAllocator {
+    private final String[] tables;
+    private final AtomicInteger[] highWater;
+
+    // Rentals pass rentals_archive too, whose ids must not be reused
+    ShardIdAllocator(String... tables) {
+        this.tables = tables;
+        this.highWater = new AtomicInteger[Shards.count()];
+    }
+
+    int next(int shard, int slot) throws SQLException {
+        AtomicInteger mark = mark(shard);
+        int slots = Shards.slots();
+        while (true) {
+            int current = mark.get();
+            int candidate = current - Math.floorMod(current, slots) + slot;
+            if (candidate <= current) {
+                candidate += slots;
+            }
+            if (mark.compareAndSet(current, candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    // Re-read the mark after a duplicate key
+    void reseed(int shard) throws SQLException {
+        int max = readMax();
+        mark(shard).accumulateAndGet(max, Math::max);
+    }
+
+    static boolean isDuplicateKey(SQLException e) {
+        // MySQL reports ER_DUP_ENTRY (1062); other databases use SQLSTATE 23505
+        return e instanceof SQLIntegrityConstraintViolationException && e.getErrorCode() == 1062
+            || "23505".equals(e.getSQLState());
+    }
+
+    private synchronized AtomicInteger mark(int shard) throws SQLException {
+        if (highWater[shard] == null) {
+            highWater[shard] = new AtomicInteger(readMax());
+        }
+        return highWater[shard];
+    }
+
+    // Highest id in any of the tables on any shard
+    private int readMax() throws SQLException {
+        int max = 0;
+        for (int shard = 0; shard < Shards.count(); shard++) {
+            max = Math.max(max, Shards.on(shard, () -> {
+                int shardMax = 0;
+                for (String table : tables) {
+                    try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(
+                             "SELECT COALESCE(MAX(id), 0) FROM " + table);
+                         ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        shardMax = Math.max(shardMax, rs.getInt(1));
+                    }
+                }
+                return shardMax;
+            }));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,261 @@
+package dao;
+
+import index.DueDateIndex;
+import jfr.JfrEvents;
+import model.Rental;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rentals partitioned by user: a rental lives on its user's shard and its id is allocated in
+// the user's slot, so lookups by rental id route to one shard. Rentals loaded from an unsharded
+// database keep their old ids; those are found by asking the other shards. Lists ask every
+// shard in parallel and merge the sorted results.
+//
+// Copy counters live on the first shard only. Checkout takes the copy there and then inserts
+// the rental on the user's shard, giving the copy back if the insert fails; returns update
+// the rental, then put the copy back. The two steps are separate transactions, so a crash
+// between them leaves a counter one off.
+public class ShardedRentalDAO implements RentalDAO {
+    private static final Comparator<Rental> NEWEST_FIRST = Comparator.comparing(Rental::getRentalDate).reversed();
+    private static final Comparator<Rental> BY_DUE_DATE = Comparator.comparing(Rental::getDueDate);
+    private static final int PRIMARY = 0;
+
+    private static final ShardIdAllocator IDS = new ShardIdAllocator("rentals", "rentals_archive");
+
+    private final JdbcRentalDAO rentals = new JdbcRentalDAO();
+
+    @Override
+    public Rental create(Rental rental) throws SQLException {
+        if (!adjustCopies(rental.getMovieId(), -1)) {
+            throw new SQLException("Creating rental failed, no copies of movie " + rental.getMovieId() + " available.");
+        }
+        insertTaken(rental);
+        return rental;
+    }
+
+    // Insert a rental whose copy has already been taken, e.g. by a hold; the copy goes back
+    // on the shelf if the insert fails
+    void insertTaken(Rental rental) throws SQLException {
+        String sql = "INSERT INTO rentals (id, user_id, movie_id, rental_date, due_date, base_price, total_price) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        int shard = Shards.shardForId(rental.getUserId());
+        int slot = Shards.slotOf(rental.getUserId());
+        try {
+            for (int attempt = 0; ; attempt++) {
+                int id = IDS.next(shard, slot);
+                try {
+                    Shards.on(shard, () -> {
+                        Connection conn = DatabaseConnection.getConnection();
+                        conn.setAutoCommit(false);
+                        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                            stmt.setInt(1, id);
+                            stmt.setInt(2, rental.getUserId());
+                            stmt.setInt(3, rental.getMovieId());
+                            stmt.setDate(4, Date.valueOf(rental.getRentalDate()));
+                            stmt.setDate(5, Date.valueOf(rental.getDueDate()));
+                            stmt.setBigDecimal(6, rental.getBasePrice());
+                            stmt.setBigDecimal(7, rental.getTotalPrice());
+                            stmt.executeUpdate();
+                            RentalView.insert(conn, id);
+                            conn.commit();
+                            return null;
+                        } catch (SQLException e) {
+                            DatabaseConnection.rollback(conn);
+                            throw e;
+                        } finally {
+                            conn.setAutoCommit(true);
+                        }
+                    });
+                    rental.setId(id);
+                    break;
+                } catch (SQLException e) {
+                    if (!ShardIdAllocator.isDuplicateKey(e) || attempt == 2) {
+                        throw e;
+                    }
+                    IDS.reseed(shard);
+                }
+            }
+        } catch (SQLException e) {
+            adjustCopies(rental.getMovieId(), 1);
+            throw e;
+        }
+        DueDateIndex.getInstance().add(rental);
+    }
+
+    @Override
+    public Rental getById(int id) throws SQLException {
+        int home = Shards.shardForId(id);
+        Rental rental = Shards.on(home, () -> rentals.getById(id));
+        if (rental != null) {
+            return rental;
+        }
+        for (int shard = 0; shard < Shards.count(); shard++) {
+            if (shard != home) {
+                rental = Shards.on(shard, () -> rentals.getById(id));
+                if (rental != null) {
+                    return rental;
+                }
+            }
+        }
+        return null;
+    }
+
+    // One batch per home shard, then one per other shard for ids not found at home, as getById
+    @Override
+    public Map<Integer, Rental> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Rental> found = new HashMap<>();
+        Map<Integer, List<Integer>> byShard = IdLists.byShard(ids);
+        for (Map.Entry<Integer, List<Integer>> shard : byShard.entrySet()) {
+            found.putAll(Shards.on(shard.getKey(), () -> rentals.getByIds(shard.getValue())));
+        }
+        for (int shard = 0; shard < Shards.count(); shard++) {
+            List<Integer> missing = new ArrayList<>();
+            for (Map.Entry<Integer, List<Integer>> home : byShard.entrySet()) {
+                if (home.getKey() != shard) {
+                    for (Integer id : home.getValue()) {
+                        if (!found.containsKey(id)) {
+                            missing.add(id);
+                        }
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                found.putAll(Shards.on(shard, () -> rentals.getByIds(missing)));
+            }
+        }
+        return IdLists.inOrder(ids, found);
+    }
+
+    // The FieldSet reads fall back to these whole-row ones, as the merges sort on dates
+    @Override
+    public List<Rental> getAll() throws SQLException {
+        return Shards.merge(Shards.scatter(rentals::getAll), NEWEST_FIRST);
+    }
+
+    @Override
+    public List<Rental> getActiveRentals() throws SQLException {
+        return Shards.merge(Shards.scatter(rentals::getActiveRentals), BY_DUE_DATE);
+    }
+
+    @Override
+    public boolean returnMovie(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        String sql = "UPDATE rentals SET return_date = ?, late_fee = ?, total_price = base_price + ? " +
+                    "WHERE id = ? AND return_date IS NULL";
+        String movieSql = "SELECT movie_id FROM rentals WHERE id = ?";
+        Integer shard = locate(rentalId);
+        if (shard == null) {
+            return false;
+        }
+        Integer movieId = Shards.on(shard, () -> {
+            Connection conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setDate(1, Date.valueOf(returnDate));
+                    stmt.setBigDecimal(2, lateFee);
+                    stmt.setBigDecimal(3, lateFee);
+                    stmt.setInt(4, rentalId);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return null;
+                    }
+                }
+                RentalView.returned(conn, rentalId, returnDate, lateFee);
+                Integer rented;
+                try (PreparedStatement stmt = conn.prepareStatement(movieSql)) {
+                    stmt.setInt(1, rentalId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rented = rs.next() ? rs.getInt(1) : null;
+                    }
+                }
+                conn.commit();
+                return rented;
+            } catch (SQLException e) {
+                DatabaseConnection.rollback(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+        if (movieId == null) {
+            return false;
+        }
+        adjustCopies(movieId, 1);
+        DueDateIndex.getInstance().remove(rentalId);
+        return true;
+    }
+
+    @Override
+    public List<Rental> getOverdueRentals() throws SQLException {
+        DueDateIndex index = DueDateIndex.getInstance();
+        JfrEvents.cacheAccess("DueDateIndex", "overdue", index.isLoaded());
+        if (!index.isLoaded()) {
+            return Shards.merge(Shards.scatter(rentals::queryOverdueRentals), BY_DUE_DATE);
+        }
+        // Rentals indexed straight from create() get their titles and names from the movie and
+        // user DAOs, which route each user to their shard
+        List<Rental> overdue = index.getOverdue(LocalDate.now());
+        rentals.resolveDisplayFields(overdue);
+        return overdue;
+    }
+
+    // Each shard counts its own users' rentals; a movie's total is the sum
+    @Override
+    public Map<Integer, Integer> getRentalCountsByMovie() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Map<Integer, Integer> shard : Shards.scatter(rentals::getRentalCountsByMovie)) {
+            shard.forEach((movieId, count) -> counts.merge(movieId, count, Integer::sum));
+        }
+        return counts;
+    }
+
+    // Shard holding a rental: its slot's shard, or for rentals with pre-sharding ids any shard
+    private Integer locate(int rentalId) throws SQLException {
+        int home = Shards.shardForId(rentalId);
+        if (exists(home, rentalId)) {
+            return home;
+        }
+        for (int shard = 0; shard < Shards.count(); shard++) {
+            if (shard != home && exists(shard, rentalId)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    private boolean exists(int shard, int rentalId) throws SQLException {
+        return Shards.on(shard, () -> {
+            try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(
+                     "SELECT 1 FROM rentals WHERE id = ?")) {
+                stmt.setInt(1, rentalId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+    }
+
+    // Move the copy counter on the first shard; never below zero
+    private boolean adjustCopies(int movieId, int delta) throws SQLException {
+        return Shards.on(PRIMARY, () -> {
+            try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(
+                     "UPDATE movies SET available_copies = available_copies + ? " +
+                     "WHERE id = ? AND available_copies + ? >= 0")) {
+                stmt.setInt(1, delta);
+                stmt.setInt(2, movieId);
+                stmt.setInt(3, delta);
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package dao;
+
+import model.User;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.sql.*;
+import java.text.Collator;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Users partitioned by id across the shards in shard.urls. Lookups by id go to one shard;
+// lookups by email and the full list ask every shard in parallel. Emails are unique per
+// shard by index and across shards by the check before each write.
+public class ShardedUserDAO implements UserDAO {
+    // Approximates MySQL's default accent- and case-insensitive collation for ORDER BY name
+    private static final Collator NAME_COLLATOR = primaryCollator();
+    static final Comparator<User> BY_NAME = (a, b) -> NAME_COLLATOR.compare(a.getName(), b.getName());
+
+    private static final ShardIdAllocator IDS = new ShardIdAllocator("users");
+    // New users are spread over the slots in turn
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    private final JdbcUserDAO users = new JdbcUserDAO();
+
+    @Override
+    public User create(User user) throws SQLException {
+        String sql = "INSERT INTO users (id, name, email, phone) VALUES (?, ?, ?, ?)";
+        if (emailExists(user.getEmail())) {
+            throw new SQLIntegrityConstraintViolationException(
+                "Duplicate entry '" + user.getEmail() + "' for key 'uk_email'", "23000", 1062);
+        }
+        int slot = Math.floorMod(NEXT_SLOT.getAndIncrement(), Shards.slots());
+        int shard = Shards.shardOfSlot(slot);
+        for (int attempt = 0; ; attempt++) {
+            int id = IDS.next(shard, slot);
+            try {
+                Shards.on(shard, () -> {
+                    try (PreparedStatement stmt = DatabaseConnection.getConnection().prepareStatement(sql)) {
+                        stmt.setInt(1, id);
+                        stmt.setString(2, user.getName());
+                        stmt.setString(3, user.getEmail());
+                        stmt.setString(4, user.getPhone());
+                        return stmt.executeUpdate();
+                    }
+                });
+                user.setId(id);
+                return user;
+            } catch (SQLException e) {
+                // Another process took the id; anything else, or repeated clashes, is a real error
+                if (!ShardIdAllocator.isDuplicateKey(e) || attempt == 2 || emailExists(user.getEmail())) {
+                    throw e;
+                }
+                IDS.reseed(shard);
+            }
+        }
+    }
+
+    @Override
+    public User getById(int id) throws SQLException {
+        return Shards.on(Shards.shardForId(id), () -> users.getById(id));
+    }
+
+    // One batch per shard that owns any of the ids
+    @Override
+    public Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, User> found = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> shard : IdLists.byShard(ids).entrySet()) {
+            found.putAll(Shards.on(shard.getKey(), () -> users.getByIds(shard.getValue())));
+        }
+        return IdLists.inOrder(ids, found);
+    }
+
+    @Override
+    public User getByEmail(String email) throws SQLException {
+        for (User user : Shards.scatter(() -> users.getByEmail(email))) {
+            if (user != null) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    // Also behind getAll(FieldSet), as the merge needs every user's name
+    @Override
+    public List<User> getAll() throws SQLException {
+        return Shards.merge(Shards.scatter(users::getAll), BY_NAME);
+    }
+
+    @Override
+    public UpdateResult update(User user) throws SQLException {
+        User holder = getByEmail(user.getEmail());
+        if (holder != null && holder.getId() != user.getId()) {
+            throw new SQLIntegrityConstraintViolationException(
+                "Duplicate entry '" + user.getEmail() + "' for key 'uk_email'", "23000", 1062);
+        }
+        return Shards.on(Shards.shardForId(user.getId()), () -> users.update(user));
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return Shards.on(Shards.shardForId(id), () -> users.delete(id));
+    }
+
+    @Override
+    public boolean emailExists(String email) throws SQLException {
+        for (Boolean exists : Shards.scatter(() -> users.emailExists(email))) {
+            if (exists) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Collator primaryCollator() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+}
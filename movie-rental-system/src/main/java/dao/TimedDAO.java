@@ -0,0 +1,90 @@
+package dao;
+
+import jfr.DaoCallEvent;
+import jfr.JfrEvents;
+import metrics.Metrics;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Times every call into a storage engine through its DAO interface, so the engines carry no
+// timing code: dao_call_duration_seconds under "<interface>.<method>" (e.g. "RentalDAO.create"),
+// and dao_rows_returned for methods returning a list or map. DAOFactory puts one directly
+// around each engine, beneath the caching and indexing decorators, so cache hits are not
+// counted and a call into the engine is recorded once however many statements it runs.
+//
+// Default methods the engine inherits (getAll(FieldSet), the async reads) run against the
+// proxy, so the calls they make are timed in their place; overridden ones are timed themselves.
+final class TimedDAO implements InvocationHandler {
+    private final Object target;
+    private final String prefix;
+    private final Class<?> type;
+    // Per interface method: the metric name, or the inherited default to run on the proxy
+    private final Map<Method, Object> dispatch = new ConcurrentHashMap<>();
+
+    private TimedDAO(Class<?> type, Object target) {
+        this.type = type;
+        this.target = target;
+        this.prefix = type.getSimpleName() + ".";
+    }
+
+    static <T> T wrap(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                                                new TimedDAO(type, target)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+        Object how = dispatch.computeIfAbsent(method, this::dispatchFor);
+        if (how instanceof MethodHandle) {
+            return ((MethodHandle) how).bindTo(proxy).invokeWithArguments(args == null ? new Object[0] : args);
+        }
+
+        String name = (String) how;
+        long started = System.nanoTime();
+        DaoCallEvent call = JfrEvents.daoCallStarted();
+        try {
+            Object result = invokeTarget(method, args);
+            if (result instanceof Collection) {
+                Metrics.recordDaoRows(name, ((Collection<?>) result).size());
+            } else if (result instanceof Map) {
+                Metrics.recordDaoRows(name, ((Map<?, ?>) result).size());
+            }
+            return result;
+        } finally {
+            Metrics.recordDaoCall(name, started, call);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object dispatchFor(Method method) {
+        if (method.isDefault()) {
+            try {
+                Method implementation = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+                if (implementation.getDeclaringClass().isInterface()) {
+                    return MethodHandles.privateLookupIn(type, MethodHandles.lookup()).unreflectSpecial(method, type);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot dispatch " + method, e);
+            }
+        }
+        return prefix + method.getName();
+    }
+}
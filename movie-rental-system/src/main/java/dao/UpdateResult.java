@@ -0,0 +1,12 @@
+package dao;
+
+// Outcome of a version-checked update
+public enum UpdateResult {
+    UPDATED,
+    CONFLICT,
+    NOT_FOUND;
+
+    public boolean isUpdated() {
+        return this == UPDATED;
+    }
+}
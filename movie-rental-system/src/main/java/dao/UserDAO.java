@@ -1,202 +1,45 @@
 package dao;
 
 import model.User;
-import util.DatabaseConnection;
 
-import java.sql.*;
-import java.util.ArrayList;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-public class UserDAO {
-    // Create a new user
-    public User create(User user) throws SQLException {
-        String sql = "INSERT INTO users (name, email, phone) VALUES (?, ?, ?)";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getPhone());
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows == 0) {
-                throw new SQLException("Creating user failed, no rows affected.");
-            }
-            
-            rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                user.setId(rs.getInt(1));
-            } else {
-                throw new SQLException("Creating user failed, no ID obtained.");
-            }
-            
-            return user;
-        } finally {
-            DatabaseConnection.closeResultSet(rs);
-            DatabaseConnection.closeStatement(stmt);
-        }
-    }
-    
-    // Get user by ID
-    public User getById(int id) throws SQLException {
-        String sql = "SELECT * FROM users WHERE id = ?";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
-            
-            rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToUser(rs);
-            }
-            
-            return null;
-        } finally {
-            DatabaseConnection.closeResultSet(rs);
-            DatabaseConnection.closeStatement(stmt);
-        }
-    }
-    
-    // Get user by email
-    public User getByEmail(String email) throws SQLException {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, email);
-            
-            rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToUser(rs);
-            }
-            
-            return null;
-        } finally {
-            DatabaseConnection.closeResultSet(rs);
-            DatabaseConnection.closeStatement(stmt);
-        }
-    }
-    
-    // Get all users
-    public List<User> getAll() throws SQLException {
-        String sql = "SELECT * FROM users ORDER BY name";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            rs = stmt.executeQuery();
-            
-            List<User> users = new ArrayList<>();
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
-            }
-            
-            return users;
-        } finally {
-            DatabaseConnection.closeResultSet(rs);
-            DatabaseConnection.closeStatement(stmt);
-        }
-    }
-    
-    // Update user
-    public boolean update(User user) throws SQLException {
-        String sql = "UPDATE users SET name = ?, email = ?, phone = ? WHERE id = ?";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getPhone());
-            stmt.setInt(4, user.getId());
-            
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        } finally {
-            DatabaseConnection.closeStatement(stmt);
-        }
-    }
-    
-    // Delete user
-    public boolean delete(int id) throws SQLException {
-        String sql = "DELETE FROM users WHERE id = ?";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
-            
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        } finally {
-            DatabaseConnection.closeStatement(stmt);
-        }
+// User storage; see DAOFactory for the available engines
+public interface UserDAO {
+    User create(User user) throws SQLException;
+
+    User getById(int id) throws SQLException;
+
+    // Users keyed by id in the order of ids, fetched in batches; ids with no user are left out
+    Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException;
+
+    User getByEmail(String email) throws SQLException;
+
+    // All users ordered by name
+    List<User> getAll() throws SQLException;
+
+    // getAll reading only the given fields; engines that cannot narrow the read return whole rows
+    default List<User> getAll(FieldSet fields) throws SQLException {
+        return getAll();
     }
-    
-    // Helper method to map ResultSet to User object
-    private User mapResultSetToUser(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setName(rs.getString("name"));
-        user.setEmail(rs.getString("email"));
-        user.setPhone(rs.getString("phone"));
-        user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-        return user;
+
+    // Update user if the caller still holds the current version
+    UpdateResult update(User user) throws SQLException;
+
+    boolean delete(int id) throws SQLException;
+
+    boolean emailExists(String email) throws SQLException;
+
+    // Non-blocking variants of the reads above, run by AsyncReads
+    default CompletableFuture<User> getByIdAsync(int id) {
+        return AsyncReads.supply(() -> getById(id));
     }
-    
-    // Check if email exists
-    public boolean emailExists(String email) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
-        
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, email);
-            
-            rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-            
-            return false;
-        } finally {
-            DatabaseConnection.closeResultSet(rs);
-            DatabaseConnection.closeStatement(stmt);
-        }
+
+    default CompletableFuture<List<User>> getAllAsync() {
+        return AsyncReads.supply(this::getAll);
     }
 }
@@ -0,0 +1,351 @@
+package datagen;
+
+import dao.LateFeeTierTable;
+import model.LateFee;
+import util.DatabaseConfig;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic dataset at production scale: movies with Zipf-skewed popularity,
+// users with skewed activity, and rentals spread over a history window with weekend peaks
+// and growth, realistic return times, a late tail priced by the default late fee tiers, and
+// a configurable share of open and overdue rentals. The same seed always yields the same rows.
+//
+//   java datagen.DatasetGenerator --movies 100000 --users 1000000 --rentals 10000000 --out target/dataset
+//   java datagen.DatasetGenerator --scale 0.1 --jdbc            (insert through db.url from DatabaseConfig)
+//
+// Tables must exist (database.sql) and hold no movies, users or rentals; ids are written explicitly.
+public class DatasetGenerator {
+    private static final String[] GENRES = {"Drama", "Comedy", "Action", "Thriller", "Documentary", "Horror",
+                                            "Romance", "Sci-Fi", "Animation", "Crime", "Family", "Western"};
+    // Relative frequency of each genre above
+    private static final int[] GENRE_WEIGHTS = {22, 18, 14, 10, 8, 7, 6, 5, 4, 3, 2, 1};
+    private static final String[] TITLE_ADJECTIVES = {"Silent", "Last", "Broken", "Golden", "Hidden", "Midnight", "Crimson",
+                                                      "Forgotten", "Electric", "Distant", "Savage", "Quiet", "Burning", "Endless"};
+    private static final String[] TITLE_NOUNS = {"Harbor", "Empire", "Garden", "Signal", "Frontier", "Mirror", "Horizon",
+                                                 "Station", "Kingdom", "Witness", "Voyage", "Protocol", "Summer", "Orchard"};
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda",
+                                                 "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+                                                 "Thomas", "Sarah", "Maria", "Wei", "Aisha", "Carlos", "Yuki", "Olga"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+                                                "Rodriguez", "Martinez", "Hernandez", "Lopez", "Wilson", "Anderson", "Taylor",
+                                                "Nguyen", "Kim", "Patel", "Okafor", "Novak", "Schmidt", "Rossi"};
+    // pricing_categories ids and base prices as seeded by database.sql
+    private static final BigDecimal[] CATEGORY_PRICES = {null, new BigDecimal("5.00"), new BigDecimal("3.50"), new BigDecimal("2.00")};
+    // Overdue rentals are drawn from this many days before the due cutoff, not from the whole history
+    private static final int OVERDUE_WINDOW_DAYS = 90;
+
+    private final Settings settings;
+    private final LocalDate today;
+    private final LateFeeTierTable lateFees;
+
+    public DatasetGenerator(Settings settings) {
+        this(settings, LocalDate.now());
+    }
+
+    public DatasetGenerator(Settings settings, LocalDate today) {
+        this.settings = settings;
+        this.today = today;
+        List<LateFee> tiers = new ArrayList<>();
+        tiers.add(new LateFee(1, 3, new BigDecimal("1.00")));
+        tiers.add(new LateFee(4, 7, new BigDecimal("2.00")));
+        tiers.add(new LateFee(8, 999999, new BigDecimal("3.00")));
+        this.lateFees = new LateFeeTierTable(tiers);
+    }
+
+    // Generation knobs; the defaults describe a mid-sized chain
+    public static class Settings {
+        public int movies = 100_000;
+        public int users = 1_000_000;
+        public int rentals = 10_000_000;
+        public long seed = 42;
+        public int historyDays = 730;
+        public int rentalDays = 7;
+        // Zipf exponents for movie popularity and user activity
+        public double movieSkew = 1.0;
+        public double userSkew = 0.6;
+        public double weekendBoost = 1.6;
+        // Daily volume at the end of the history relative to the start
+        public double growth = 1.5;
+        // Share of closed rentals returned after the due date
+        public double lateRatio = 0.15;
+        // Share of rentals not yet due that are still out
+        public double openRecentRatio = 0.75;
+        // Share of all rentals that are open and past due
+        public double overdueRatio = 0.002;
+
+        public Settings scale(double factor) {
+            movies = Math.max(1, (int) (movies * factor));
+            users = Math.max(1, (int) (users * factor));
+            rentals = Math.max(0, (int) (rentals * factor));
+            return this;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        String out = null;
+        boolean jdbc = false;
+        String url = null;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            switch (option) {
+                case "--movies": settings.movies = Integer.parseInt(args[++i]); break;
+                case "--users": settings.users = Integer.parseInt(args[++i]); break;
+                case "--rentals": settings.rentals = Integer.parseInt(args[++i]); break;
+                case "--scale": settings.scale(Double.parseDouble(args[++i])); break;
+                case "--seed": settings.seed = Long.parseLong(args[++i]); break;
+                case "--history-days": settings.historyDays = Integer.parseInt(args[++i]); break;
+                case "--movie-skew": settings.movieSkew = Double.parseDouble(args[++i]); break;
+                case "--user-skew": settings.userSkew = Double.parseDouble(args[++i]); break;
+                case "--late-ratio": settings.lateRatio = Double.parseDouble(args[++i]); break;
+                case "--overdue-ratio": settings.overdueRatio = Double.parseDouble(args[++i]); break;
+                case "--open-recent-ratio": settings.openRecentRatio = Double.parseDouble(args[++i]); break;
+                case "--out": out = args[++i]; break;
+                case "--jdbc": jdbc = true; break;
+                case "--db-url": jdbc = true; url = args[++i]; break;
+                default:
+                    System.err.println("Unknown option " + option);
+                    System.exit(2);
+            }
+        }
+
+        try (RowSink sink = jdbc
+                ? new JdbcRowSink(url != null ? url : DatabaseConfig.getUrl(), DatabaseConfig.getUser(), DatabaseConfig.getPassword())
+                : new TsvRowSink(Paths.get(out != null ? out : "target/dataset"))) {
+            new DatasetGenerator(settings).generate(sink);
+        }
+    }
+
+    public void generate(RowSink sink) throws Exception {
+        long started = System.nanoTime();
+        SplittableRandom setup = new SplittableRandom(settings.seed);
+        int[] movieByRank = shuffledIds(settings.movies, setup.split());
+        int[] userByRank = shuffledIds(settings.users, setup.split());
+        long rentalSeed = setup.nextLong();
+        ZipfDistribution moviePopularity = new ZipfDistribution(settings.movies, settings.movieSkew);
+        ZipfDistribution userActivity = new ZipfDistribution(settings.users, settings.userSkew);
+        byte[] category = categories(movieByRank);
+
+        // First pass over the rental stream: open rentals per movie, so copy counts stay consistent
+        int[] openByMovie = new int[settings.movies + 1];
+        int open = 0;
+        RentalStream stream = new RentalStream(rentalSeed, moviePopularity, userActivity, movieByRank, userByRank);
+        while (stream.next()) {
+            if (stream.returnDate == null) {
+                openByMovie[stream.movieId]++;
+                open++;
+            }
+        }
+
+        writeMovies(sink, movieByRank, category, openByMovie, open, moviePopularity);
+        writeUsers(sink, setup.split());
+
+        sink.beginTable("rentals", new String[] {"id", "user_id", "movie_id", "rental_date", "due_date", "return_date",
+                                                 "base_price", "late_fee", "total_price"});
+        stream = new RentalStream(rentalSeed, moviePopularity, userActivity, movieByRank, userByRank);
+        while (stream.next()) {
+            BigDecimal price = CATEGORY_PRICES[category[stream.movieId]];
+            BigDecimal lateFee = BigDecimal.ZERO;
+            if (stream.returnDate != null && stream.returnDate.isAfter(stream.dueDate)) {
+                lateFee = lateFees.calculateLateFee((int) (stream.returnDate.toEpochDay() - stream.dueDate.toEpochDay()));
+            }
+            sink.row(stream.id, stream.userId, stream.movieId, stream.rentalDate, stream.dueDate, stream.returnDate,
+                     price, lateFee, price.add(lateFee));
+        }
+        sink.endTable();
+        sink.finish(settings.movies, settings.users, settings.rentals);
+
+        System.out.printf("Generated %,d movies, %,d users, %,d rentals (%,d open) in %.1f s%n",
+            settings.movies, settings.users, settings.rentals, open, (System.nanoTime() - started) / 1e9);
+    }
+
+    // Copies scale with expected demand; available copies are what the open rentals leave on the shelf
+    private void writeMovies(RowSink sink, int[] movieByRank, byte[] category, int[] openByMovie, int open,
+                             ZipfDistribution popularity) throws Exception {
+        int[] rankOf = new int[settings.movies + 1];
+        for (int rank = 1; rank <= settings.movies; rank++) {
+            rankOf[movieByRank[rank - 1]] = rank;
+        }
+        SplittableRandom random = new SplittableRandom(settings.seed ^ 0x5DEECE66DL);
+
+        sink.beginTable("movies", new String[] {"id", "title", "genre", "available_copies"});
+        for (int id = 1; id <= settings.movies; id++) {
+            int expectedOpen = (int) Math.ceil(popularity.probability(rankOf[id]) * open);
+            int copies = Math.max(2 + expectedOpen + expectedOpen / 2, openByMovie[id] + 1);
+            String title = TITLE_ADJECTIVES[random.nextInt(TITLE_ADJECTIVES.length)] + " "
+                + TITLE_NOUNS[random.nextInt(TITLE_NOUNS.length)] + " (" + (1950 + random.nextInt(76)) + ")";
+            sink.row(id, title, weightedGenre(random), copies - openByMovie[id]);
+        }
+        sink.endTable();
+
+        sink.beginTable("movie_pricing", new String[] {"id", "movie_id", "pricing_category_id"});
+        for (int id = 1; id <= settings.movies; id++) {
+            sink.row(id, id, (int) category[id]);
+        }
+        sink.endTable();
+    }
+
+    private void writeUsers(RowSink sink, SplittableRandom random) throws Exception {
+        sink.beginTable("users", new String[] {"id", "name", "email", "phone"});
+        for (int id = 1; id <= settings.users; id++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            sink.row(id, first + " " + last, (first + "." + last + "." + id + "@example.com").toLowerCase(),
+                     String.format("%03d-%03d-%04d", 200 + random.nextInt(800), random.nextInt(1000), random.nextInt(10000)));
+        }
+        sink.endTable();
+    }
+
+    // The most popular tenth are new releases and the long tail is mostly classics
+    private byte[] categories(int[] movieByRank) {
+        byte[] category = new byte[settings.movies + 1];
+        for (int rank = 1; rank <= settings.movies; rank++) {
+            double percentile = (double) rank / settings.movies;
+            category[movieByRank[rank - 1]] = (byte) (percentile <= 0.10 ? 1 : percentile <= 0.70 ? 2 : 3);
+        }
+        return category;
+    }
+
+    private static int[] shuffledIds(int n, SplittableRandom random) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    private static String weightedGenre(SplittableRandom random) {
+        int total = 0;
+        for (int weight : GENRE_WEIGHTS) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < GENRES.length; i++) {
+            pick -= GENRE_WEIGHTS[i];
+            if (pick < 0) {
+                return GENRES[i];
+            }
+        }
+        return GENRES[0];
+    }
+
+    // Replayable sequence of rentals in id order; rental dates never decrease with id
+    private class RentalStream {
+        private final SplittableRandom random;
+        private final ZipfDistribution moviePopularity;
+        private final ZipfDistribution userActivity;
+        private final int[] movieByRank;
+        private final int[] userByRank;
+        private final int[] perDay;
+        private final LocalDate firstDay;
+        private final double overdueProbability;
+        private int day;
+        private int leftToday;
+
+        int id;
+        int movieId;
+        int userId;
+        LocalDate rentalDate;
+        LocalDate dueDate;
+        LocalDate returnDate;
+
+        RentalStream(long seed, ZipfDistribution moviePopularity, ZipfDistribution userActivity,
+                     int[] movieByRank, int[] userByRank) {
+            this.random = new SplittableRandom(seed);
+            this.moviePopularity = moviePopularity;
+            this.userActivity = userActivity;
+            this.movieByRank = movieByRank;
+            this.userByRank = userByRank;
+            this.firstDay = today.minusDays(settings.historyDays);
+            this.perDay = dailyVolume();
+
+            // Spread the overdue target over the rentals that fell due in the recent window
+            long candidates = 0;
+            for (int d = 0; d < perDay.length; d++) {
+                long age = settings.historyDays - d;
+                if (age > settings.rentalDays && age <= settings.rentalDays + OVERDUE_WINDOW_DAYS) {
+                    candidates += perDay[d];
+                }
+            }
+            this.overdueProbability = candidates == 0 ? 0 : Math.min(1.0, settings.overdueRatio * settings.rentals / candidates);
+            this.leftToday = perDay.length > 0 ? perDay[0] : 0;
+        }
+
+        boolean next() {
+            if (id == settings.rentals) {
+                return false;
+            }
+            while (leftToday == 0) {
+                day++;
+                leftToday = perDay[day];
+            }
+            leftToday--;
+            id++;
+
+            movieId = movieByRank[moviePopularity.sample(random) - 1];
+            userId = userByRank[userActivity.sample(random) - 1];
+            rentalDate = firstDay.plusDays(day);
+            dueDate = rentalDate.plusDays(settings.rentalDays);
+
+            long age = settings.historyDays - day;
+            double roll = random.nextDouble();
+            if (age <= settings.rentalDays) {
+                // Not due yet: most are still out, the rest came back early
+                returnDate = roll < settings.openRecentRatio ? null : rentalDate.plusDays(random.nextInt((int) age + 1));
+            } else if (age <= settings.rentalDays + OVERDUE_WINDOW_DAYS && roll < overdueProbability) {
+                returnDate = null;
+            } else if (random.nextDouble() < settings.lateRatio) {
+                // Late tail: geometric number of days past due, mean about three
+                int daysLate = 1;
+                while (daysLate < 60 && random.nextDouble() < 0.67) {
+                    daysLate++;
+                }
+                returnDate = dueDate.plusDays(daysLate);
+                if (returnDate.isAfter(today)) {
+                    returnDate = today;
+                }
+            } else {
+                returnDate = rentalDate.plusDays(1 + random.nextInt(settings.rentalDays));
+            }
+            return true;
+        }
+
+        // Rentals per day: weekend peaks on a linear growth trend, rounded so the days sum to the total
+        private int[] dailyVolume() {
+            int days = settings.historyDays + 1;
+            double[] weights = new double[days];
+            double total = 0;
+            for (int d = 0; d < days; d++) {
+                DayOfWeek weekday = firstDay.plusDays(d).getDayOfWeek();
+                double weekend = weekday == DayOfWeek.FRIDAY || weekday == DayOfWeek.SATURDAY ? settings.weekendBoost : 1.0;
+                double trend = 1.0 + (settings.growth - 1.0) * d / Math.max(1, days - 1);
+                weights[d] = weekend * trend;
+                total += weights[d];
+            }
+            int[] counts = new int[days];
+            double carry = 0;
+            int assigned = 0;
+            for (int d = 0; d < days; d++) {
+                double exact = settings.rentals * weights[d] / total + carry;
+                counts[d] = (int) Math.floor(exact);
+                carry = exact - counts[d];
+                assigned += counts[d];
+            }
+            counts[days - 1] += settings.rentals - assigned;
+            return counts;
+        }
+    }
+}
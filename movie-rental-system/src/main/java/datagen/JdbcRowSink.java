@@ -0,0 +1,121 @@
+package datagen;
+
+import dao.RentalView;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+
+// Writes rows with batched prepared inserts, committing every batch. Against MySQL the
+// driver is asked to rewrite each batch into multi-row INSERTs and key checks are
+// suspended for the session, which is what makes the load fast.
+public class JdbcRowSink implements RowSink {
+    private static final int BATCH_SIZE = 5000;
+
+    private final Connection conn;
+    private final boolean mysql;
+    private PreparedStatement stmt;
+    private String table;
+    private int pending;
+    private long written;
+
+    public JdbcRowSink(String url, String user, String password) throws SQLException {
+        mysql = url.startsWith("jdbc:mysql:");
+        if (mysql && !url.contains("rewriteBatchedStatements")) {
+            url += (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        }
+        conn = DriverManager.getConnection(url, user, password);
+        conn.setAutoCommit(false);
+        if (mysql) {
+            try (Statement session = conn.createStatement()) {
+                session.execute("SET FOREIGN_KEY_CHECKS = 0");
+                session.execute("SET UNIQUE_CHECKS = 0");
+            }
+        }
+    }
+
+    @Override
+    public void beginTable(String table, String[] columns) throws SQLException {
+        this.table = table;
+        this.written = 0;
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+            .append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        stmt = conn.prepareStatement(sql.append(')').toString());
+    }
+
+    @Override
+    public void row(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                stmt.setNull(i + 1, Types.NULL);
+            } else if (value instanceof Integer) {
+                stmt.setInt(i + 1, (Integer) value);
+            } else if (value instanceof BigDecimal) {
+                stmt.setBigDecimal(i + 1, (BigDecimal) value);
+            } else if (value instanceof LocalDate) {
+                stmt.setDate(i + 1, Date.valueOf((LocalDate) value));
+            } else {
+                stmt.setString(i + 1, value.toString());
+            }
+        }
+        stmt.addBatch();
+        if (++pending == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public void endTable() throws SQLException {
+        flush();
+        stmt.close();
+        stmt = null;
+        System.out.printf("  %s: %,d rows%n", table, written);
+    }
+
+    private void flush() throws SQLException {
+        if (pending > 0) {
+            stmt.executeBatch();
+            conn.commit();
+            written += pending;
+            pending = 0;
+        }
+    }
+
+    @Override
+    public void finish(int movies, int users, int rentals) throws SQLException {
+        try (Statement alter = conn.createStatement()) {
+            if (mysql) {
+                alter.execute("ALTER TABLE movies AUTO_INCREMENT = " + (movies + 1));
+                alter.execute("ALTER TABLE movie_pricing AUTO_INCREMENT = " + (movies + 1));
+                alter.execute("ALTER TABLE users AUTO_INCREMENT = " + (users + 1));
+                alter.execute("ALTER TABLE rentals AUTO_INCREMENT = " + (rentals + 1));
+                alter.execute("SET FOREIGN_KEY_CHECKS = 1");
+                alter.execute("SET UNIQUE_CHECKS = 1");
+            } else {
+                alter.execute("ALTER TABLE movies ALTER COLUMN id RESTART WITH " + (movies + 1));
+                alter.execute("ALTER TABLE movie_pricing ALTER COLUMN id RESTART WITH " + (movies + 1));
+                alter.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+                alter.execute("ALTER TABLE rentals ALTER COLUMN id RESTART WITH " + (rentals + 1));
+            }
+        }
+        conn.commit();
+        // The rental listings read the denormalized copy
+        System.out.printf("  rental_view: %,d rows%n", RentalView.rebuild(conn));
+    }
+
+    @Override
+    public void close() throws SQLException, IOException {
+        conn.close();
+    }
+}
@@ -0,0 +1,20 @@
+package datagen;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+// Destination for generated rows, written one table at a time in id order
+public interface RowSink extends AutoCloseable {
+    void beginTable(String table, String[] columns) throws SQLException, IOException;
+
+    // Values are Integer, String, BigDecimal, LocalDate or null, in column order
+    void row(Object... values) throws SQLException, IOException;
+
+    void endTable() throws SQLException, IOException;
+
+    // Move auto-increment counters past the explicit ids that were written
+    void finish(int movies, int users, int rentals) throws SQLException, IOException;
+
+    @Override
+    void close() throws SQLException, IOException;
+}
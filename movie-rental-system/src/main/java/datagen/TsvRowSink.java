@@ -0,0 +1,92 @@
+package datagen;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+// Writes one tab-separated file per table plus load.sql, which bulk-loads them with
+// LOAD DATA LOCAL INFILE. Run it from the output directory:
+//   cd target/dataset && mysql --local-infile=1 movie_rental_system < load.sql
+public class TsvRowSink implements RowSink {
+    private final Path directory;
+    private final Writer script;
+    private Writer out;
+    private String table;
+    private long written;
+
+    public TsvRowSink(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        script = Files.newBufferedWriter(directory.resolve("load.sql"), StandardCharsets.UTF_8);
+        script.write("-- Generated by datagen.DatasetGenerator; run with mysql --local-infile=1 from this directory\n");
+        script.write("SET FOREIGN_KEY_CHECKS = 0;\nSET UNIQUE_CHECKS = 0;\n");
+    }
+
+    @Override
+    public void beginTable(String table, String[] columns) throws IOException {
+        this.table = table;
+        this.written = 0;
+        out = new BufferedWriter(Files.newBufferedWriter(directory.resolve(table + ".tsv"), StandardCharsets.UTF_8), 1 << 20);
+        script.write("LOAD DATA LOCAL INFILE '" + table + ".tsv' INTO TABLE " + table
+            + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' ("
+            + String.join(", ", columns) + ");\n");
+    }
+
+    @Override
+    public void row(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write('\t');
+            }
+            Object value = values[i];
+            if (value == null) {
+                out.write("\\N");
+            } else if (value instanceof LocalDate) {
+                out.write(value.toString());
+            } else {
+                out.write(escape(value.toString()));
+            }
+        }
+        out.write('\n');
+        written++;
+    }
+
+    // Generated text never contains tabs or newlines, but backslashes must still be escaped for LOAD DATA
+    private static String escape(String value) {
+        return value.indexOf('\\') < 0 ? value : value.replace("\\", "\\\\");
+    }
+
+    @Override
+    public void endTable() throws IOException {
+        out.close();
+        out = null;
+        System.out.printf("  %s.tsv: %,d rows%n", table, written);
+    }
+
+    @Override
+    public void finish(int movies, int users, int rentals) throws IOException {
+        script.write("ALTER TABLE movies AUTO_INCREMENT = " + (movies + 1) + ";\n");
+        script.write("ALTER TABLE movie_pricing AUTO_INCREMENT = " + (movies + 1) + ";\n");
+        script.write("ALTER TABLE users AUTO_INCREMENT = " + (users + 1) + ";\n");
+        script.write("ALTER TABLE rentals AUTO_INCREMENT = " + (rentals + 1) + ";\n");
+        // The rental listings read the denormalized copy
+        script.write("INSERT INTO rental_view (id, user_id, movie_id, rental_date, due_date, return_date, base_price, "
+            + "late_fee, total_price, copy_id, created_at, movie_title, user_name)\n"
+            + "SELECT r.id, r.user_id, r.movie_id, r.rental_date, r.due_date, r.return_date, r.base_price, "
+            + "r.late_fee, r.total_price, r.copy_id, r.created_at, m.title, u.name\n"
+            + "FROM rentals r JOIN movies m ON r.movie_id = m.id JOIN users u ON r.user_id = u.id;\n");
+        script.write("SET FOREIGN_KEY_CHECKS = 1;\nSET UNIQUE_CHECKS = 1;\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        script.close();
+    }
+}
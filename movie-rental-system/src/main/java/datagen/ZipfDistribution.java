@@ -0,0 +1,42 @@
+package datagen;
+
+import java.util.SplittableRandom;
+
+// Zipf distribution over ranks 1..n with exponent s: P(rank k) is proportional to 1 / k^s.
+// The cumulative table is built once, so a sample is one random draw and a binary search.
+public class ZipfDistribution {
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    // Rank between 1 and n; rank 1 is the most likely
+    public int sample(SplittableRandom random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low + 1;
+    }
+
+    // Probability of the given rank
+    public double probability(int rank) {
+        return rank == 1 ? cumulative[0] : cumulative[rank - 1] - cumulative[rank - 2];
+    }
+}
@@ -0,0 +1,337 @@
+package eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only log of RentalEvents in memory-mapped segment files named after their first
+// sequence number. Each record is [body length][CRC32C of body][body]; a zero length marks
+// the end of a segment's records. Appends are serialised and only copy bytes into the
+// mapping. Durability is a group fsync: the first caller waiting in awaitDurable forces the
+// segment for every record appended so far, and the callers queued behind it find their
+// records already durable. On open, a torn or corrupt tail of the last segment is cut off.
+public final class EventLog implements AutoCloseable {
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BODY_BYTES = 256;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_BODY_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private final Object flushLock = new Object();
+    private final Object publishLock = new Object();
+
+    private Segment active;
+    private long lastSequence;
+    // Highest sequence forced to disk (everything appended when fsync is off)
+    private volatile long durableSequence;
+
+    private static final class Segment {
+        final long baseSequence;
+        final Path file;
+        final MappedByteBuffer buffer;
+
+        Segment(long baseSequence, Path file, MappedByteBuffer buffer) {
+            this.baseSequence = baseSequence;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private EventLog(Path dir, int segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    public static EventLog open(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        Files.createDirectories(dir);
+        EventLog log = new EventLog(dir, segmentBytes, fsync);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long base = Long.parseLong(file.getFileName().toString().replace(".log", ""));
+            Segment segment = new Segment(base, file, map(file, Math.max(segmentBytes, (int) Files.size(file))));
+            log.segments.add(segment);
+            log.recover(segment, i == files.size() - 1);
+        }
+        if (log.active == null) {
+            log.roll(1);
+        }
+        log.durableSequence = log.lastSequence;
+        return log;
+    }
+
+    // Walk a segment's records; the last segment keeps its write position after the last good record
+    private void recover(Segment segment, boolean last) throws IOException {
+        if (segments.size() == 1) {
+            lastSequence = segment.baseSequence - 1;
+        } else if (segment.baseSequence != lastSequence + 1) {
+            throw new IOException("Gap in event log before " + segment.file);
+        }
+        ByteBuffer view = segment.buffer.duplicate();
+        while (true) {
+            int start = view.position();
+            RentalEvent event = next(view);
+            if (event != null && event.sequence == lastSequence + 1) {
+                lastSequence = event.sequence;
+                continue;
+            }
+            if (!last && (event != null || view.position() != start)) {
+                throw new IOException("Corrupt record in " + segment.file + " at offset " + start);
+            }
+            if (last) {
+                // Zero what a torn write may have left so the next append starts from a clean end marker
+                for (int i = start; i < view.limit(); i++) {
+                    if (segment.buffer.get(i) != 0) {
+                        segment.buffer.put(i, (byte) 0);
+                    }
+                }
+                segment.buffer.position(start);
+                active = segment;
+            }
+            return;
+        }
+    }
+
+    // Read the record at the buffer's position; null at the end marker or on a bad record
+    private static RentalEvent next(ByteBuffer view) {
+        if (view.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int start = view.position();
+        int length = view.getInt();
+        if (length <= 0 || length > MAX_BODY_BYTES || view.remaining() < 4 + length) {
+            view.position(start);
+            return null;
+        }
+        int checksum = view.getInt();
+        ByteBuffer body = view.slice();
+        body.limit(length);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            view.position(start + HEADER_BYTES);
+            return null;
+        }
+        view.position(view.position() + length);
+        return RentalEvent.decode(body);
+    }
+
+    // Append an event and return its sequence; it is durable once awaitDurable(sequence) returns
+    public synchronized long append(RentalEvent event) throws IOException {
+        event.sequence = lastSequence + 1;
+        event.timestamp = System.currentTimeMillis();
+        scratch.clear();
+        event.encode(scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+
+        // Leave room for the end marker
+        if (active.buffer.remaining() < HEADER_BYTES + length + 4) {
+            roll(event.sequence);
+        }
+        crc.reset();
+        crc.update(scratch.duplicate());
+        MappedByteBuffer buffer = active.buffer;
+        buffer.putInt(length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(scratch);
+        lastSequence = event.sequence;
+        if (!fsync) {
+            publish(lastSequence);
+        }
+        return lastSequence;
+    }
+
+    // Group fsync: one force covers every record appended before it started
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = lastSequence;
+                buffer = active.buffer;
+            }
+            buffer.force();
+            publish(target);
+        }
+    }
+
+    private void publish(long sequence) {
+        synchronized (publishLock) {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+                publishLock.notifyAll();
+            }
+        }
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    // Keep sequences past a point the state already reflects, e.g. after the log directory was cleared
+    public synchronized void advanceTo(long sequence) throws IOException {
+        if (lastSequence < sequence) {
+            if (active.buffer.position() == 0) {
+                // Nothing was written to it, so it must not leave a gap behind
+                segments.remove(active);
+                Files.deleteIfExists(active.file);
+                active = null;
+            }
+            roll(sequence + 1);
+            lastSequence = sequence;
+            publish(sequence);
+        }
+    }
+
+    // Start a new segment whose first record will have the given sequence
+    private void roll(long baseSequence) throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        Path file = dir.resolve(String.format("%020d.log", baseSequence));
+        Segment segment = new Segment(baseSequence, file, map(file, segmentBytes));
+        segments.add(segment);
+        active = segment;
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    // Feed every durable event after the given sequence to the consumer, in order
+    public void replay(long afterSequence, EventConsumer consumer) throws IOException {
+        Reader reader = reader(afterSequence);
+        List<RentalEvent> batch;
+        while (!(batch = reader.poll(1000)).isEmpty()) {
+            for (RentalEvent event : batch) {
+                consumer.accept(event);
+            }
+        }
+    }
+
+    public interface EventConsumer {
+        void accept(RentalEvent event) throws IOException;
+    }
+
+    public Reader reader(long afterSequence) {
+        return new Reader(afterSequence);
+    }
+
+    // Tails the log from a sequence; sees events once they are durable
+    public final class Reader {
+        private long position;
+        private Segment segment;
+        private ByteBuffer view;
+
+        private Reader(long afterSequence) {
+            this.position = afterSequence;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        // Up to max events after the current position, without waiting
+        public List<RentalEvent> poll(int max) {
+            List<RentalEvent> events = new ArrayList<>();
+            long limit = durableSequence;
+            while (events.size() < max && position < limit) {
+                if (view == null) {
+                    open(segmentFor(position + 1));
+                }
+                RentalEvent event = next(view);
+                if (event == null) {
+                    // End of this segment's records; continue in the next one
+                    Segment following = segmentAfter(segment);
+                    if (following == null) {
+                        break;
+                    }
+                    open(following);
+                    continue;
+                }
+                if (event.sequence > position) {
+                    events.add(event);
+                    position = event.sequence;
+                }
+            }
+            return events;
+        }
+
+        // Wait until events after the current position are durable, or the timeout passes
+        public void await(long timeoutMillis) throws InterruptedException {
+            synchronized (publishLock) {
+                if (durableSequence <= position) {
+                    publishLock.wait(timeoutMillis);
+                }
+            }
+        }
+
+        private void open(Segment next) {
+            segment = next;
+            view = next.buffer.duplicate();
+            view.position(0);
+        }
+    }
+
+    // The last segment starting at or before the sequence (the oldest one if all start after it)
+    private Segment segmentFor(long sequence) {
+        Segment match = segments.get(0);
+        for (Segment segment : segments) {
+            if (segment.baseSequence <= sequence) {
+                match = segment;
+            }
+        }
+        return match;
+    }
+
+    private Segment segmentAfter(Segment current) {
+        for (Segment segment : segments) {
+            if (segment.baseSequence > current.baseSequence) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    // Delete whole segments whose records all precede the given sequence
+    public void deleteBefore(long sequence) throws IOException {
+        while (segments.size() > 1 && segments.get(1).baseSequence <= sequence) {
+            Segment oldest = segments.remove(0);
+            Files.deleteIfExists(oldest.file);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            active.buffer.force();
+            publish(lastSequence);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package eventlog;
+
+import index.DueDateIndex;
+import model.Rental;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Write path of the event-sourced storage engine. Checkouts, returns and inventory changes
+// are validated against the in-process RentalWriteModel, appended to the EventLog and applied
+// to the model under one lock; the caller then waits for the group fsync outside the lock.
+// MySqlProjector copies the events into the MySQL tables afterwards, so the tables are a read
+// model that trails the log by the projection lag. State is recovered from the latest
+// snapshot plus the log after it, or rebuilt from MySQL when there is no usable snapshot.
+public final class EventSourcedRentals {
+    private static EventSourcedRentals instance;
+
+    private final Object writeLock = new Object();
+    private final EventLog log;
+    private final Path snapshotFile;
+    private final MySqlProjector projector;
+    private final ScheduledExecutorService snapshots;
+    private final RentalWriteModel model;
+
+    private EventSourcedRentals() throws IOException, SQLException {
+        Path dir = Paths.get(DatabaseConfig.get("eventlog.dir", "data/eventlog"));
+        int segmentBytes = DatabaseConfig.getInt("eventlog.segment.mb", 64) << 20;
+        log = EventLog.open(dir, segmentBytes, DatabaseConfig.getBoolean("eventlog.fsync", true));
+        snapshotFile = dir.resolve("snapshot.bin");
+
+        Connection conn = DatabaseConnection.getConnection();
+        long checkpoint = MySqlProjector.readCheckpoint(conn, MySqlProjector.NAME);
+        RentalWriteModel recovered = Files.exists(snapshotFile) ? RentalWriteModel.load(snapshotFile) : null;
+        // A snapshot behind the checkpoint with no log to bridge the gap would lose events MySQL already has
+        if (recovered == null || recovered.getLastSequence() < checkpoint && log.getDurableSequence() < checkpoint) {
+            recovered = RentalWriteModel.bootstrap(conn, MySqlProjector.NAME);
+        }
+        RentalWriteModel replaying = recovered;
+        log.replay(replaying.getLastSequence(), event -> {
+            if (event.getSequence() != replaying.getLastSequence() + 1) {
+                throw new IOException("Event log has no events between " + replaying.getLastSequence() + " and " + event.getSequence());
+            }
+            replaying.apply(event);
+        });
+        log.advanceTo(replaying.getLastSequence());
+        model = replaying;
+        System.out.println("Event log recovered at sequence " + model.getLastSequence() + ", projected to " + checkpoint);
+
+        projector = new MySqlProjector(log, DatabaseConfig.getInt("eventlog.projector.batch.size", 500));
+        projector.start(checkpoint);
+
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eventlog-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = DatabaseConfig.getInt("eventlog.snapshot.interval.seconds", 60);
+        if (interval > 0) {
+            snapshots.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    System.err.println("Event log snapshot failed: " + e.getMessage());
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    // Open the log and recover on first use
+    public static synchronized EventSourcedRentals getInstance() throws SQLException {
+        if (instance == null) {
+            try {
+                instance = new EventSourcedRentals();
+            } catch (IOException e) {
+                throw new SQLException("Event log unavailable: " + e.getMessage(), e);
+            }
+        }
+        return instance;
+    }
+
+    // Record a checkout; the rental gets its id here and is durable when this returns
+    public Rental checkout(Rental rental) throws SQLException {
+        if (rental.getBasePrice() == null) {
+            throw new SQLException("Creating rental failed, base price is required.");
+        }
+        if (!knowsUser(rental.getUserId())) {
+            throw new SQLIntegrityConstraintViolationException("Cannot add rental: user " + rental.getUserId() + " does not exist");
+        }
+        if (!knowsMovie(rental.getMovieId())) {
+            throw new SQLIntegrityConstraintViolationException("Cannot add rental: movie " + rental.getMovieId() + " does not exist");
+        }
+        long sequence;
+        synchronized (writeLock) {
+            Integer available = model.available(rental.getMovieId());
+            if (available == null || available <= 0) {
+                throw new SQLException("Creating rental failed, no copies of movie " + rental.getMovieId() + " available.");
+            }
+            rental.setId(model.nextRentalId());
+            sequence = append(RentalEvent.rentalCreated(rental));
+        }
+        log.awaitDurable(sequence);
+        if (rental.getTotalPrice() == null) {
+            rental.setTotalPrice(rental.getBasePrice());
+        }
+        rental.setCreatedAt(LocalDateTime.now());
+        DueDateIndex.getInstance().add(rental);
+        return rental;
+    }
+
+    // Record a return; false if the rental is unknown or already returned
+    public boolean returnRental(int rentalId, LocalDate returnDate, BigDecimal lateFee) throws SQLException {
+        long sequence;
+        synchronized (writeLock) {
+            RentalWriteModel.OpenRental open = model.openRental(rentalId);
+            if (open == null) {
+                return false;
+            }
+            sequence = append(RentalEvent.movieReturned(rentalId, open.movieId, returnDate, lateFee));
+        }
+        log.awaitDurable(sequence);
+        DueDateIndex.getInstance().remove(rentalId);
+        return true;
+    }
+
+    // Add or withdraw copies; false if the movie is unknown or the count would go below zero
+    public boolean adjustInventory(int movieId, int delta) throws SQLException {
+        if (!knowsMovie(movieId)) {
+            return false;
+        }
+        long sequence;
+        synchronized (writeLock) {
+            Integer available = model.available(movieId);
+            if (available == null || available + delta < 0) {
+                return false;
+            }
+            sequence = append(RentalEvent.inventoryAdjusted(movieId, delta));
+        }
+        log.awaitDurable(sequence);
+        return true;
+    }
+
+    // Copies on the shelf as of the log, which may be ahead of movies.available_copies
+    public Integer availableCopies(int movieId) {
+        return model.available(movieId);
+    }
+
+    // Deletes must not overtake events still on their way to MySQL, or the projector would
+    // insert rentals for a row that no longer exists; wait for the projector to catch up first
+    public boolean deleteMovie(int movieId, RowDelete delete) throws SQLException {
+        synchronized (writeLock) {
+            awaitProjection(model.getLastSequence());
+            boolean deleted = delete.run(movieId);
+            if (deleted) {
+                model.forgetMovie(movieId);
+            }
+            return deleted;
+        }
+    }
+
+    public boolean deleteUser(int userId, RowDelete delete) throws SQLException {
+        synchronized (writeLock) {
+            awaitProjection(model.getLastSequence());
+            boolean deleted = delete.run(userId);
+            if (deleted) {
+                model.forgetUser(userId);
+            }
+            return deleted;
+        }
+    }
+
+    public interface RowDelete {
+        boolean run(int id) throws SQLException;
+    }
+
+    private void awaitProjection(long sequence) throws SQLException {
+        try {
+            if (!projector.awaitProjected(sequence, 10000)) {
+                throw new SQLException("Timed out waiting for the event projector to reach sequence " + sequence);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the event projector", e);
+        }
+    }
+
+    private long append(RentalEvent event) throws SQLException {
+        try {
+            long sequence = log.append(event);
+            model.apply(event);
+            return sequence;
+        } catch (IOException e) {
+            throw new SQLException("Appending to the event log failed: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean knowsUser(int userId) throws SQLException {
+        if (model.hasUser(userId)) {
+            return true;
+        }
+        Connection conn = DatabaseConnection.getConnection();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM users WHERE id = ?")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+            }
+        }
+        synchronized (writeLock) {
+            model.learnUser(userId);
+        }
+        return true;
+    }
+
+    private boolean knowsMovie(int movieId) throws SQLException {
+        if (model.available(movieId) != null) {
+            return true;
+        }
+        Connection conn = DatabaseConnection.getConnection();
+        int copies;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT available_copies FROM movies WHERE id = ?")) {
+            stmt.setInt(1, movieId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                copies = rs.getInt(1);
+            }
+        }
+        synchronized (writeLock) {
+            model.learnMovie(movieId, copies);
+        }
+        return true;
+    }
+
+    // Write the model to the snapshot file, then drop log segments that neither the snapshot
+    // nor the projector still needs
+    public void snapshot() throws IOException {
+        RentalWriteModel copy;
+        synchronized (writeLock) {
+            copy = model.copy();
+        }
+        // Only durable state may be snapshotted, or a crash could leave the snapshot ahead of the log
+        log.awaitDurable(copy.getLastSequence());
+        copy.save(snapshotFile);
+        log.deleteBefore(Math.min(copy.getLastSequence(), projector.getProjectedSequence()) + 1);
+    }
+
+    // Give the projector a moment to drain, then stop it and write a final snapshot
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        EventSourcedRentals engine = instance;
+        instance = null;
+        engine.snapshots.shutdownNow();
+        try {
+            engine.projector.awaitProjected(engine.log.getDurableSequence(), 5000);
+            engine.projector.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            engine.snapshot();
+        } catch (IOException e) {
+            System.err.println("Event log snapshot failed: " + e.getMessage());
+        }
+        engine.log.close();
+    }
+}
@@ -0,0 +1,258 @@
+package eventlog;
+
+import dao.RentalView;
+import metrics.Metrics;
+import util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tails the event log and writes the events into the rentals and movies tables. Each batch
+// is one transaction that also moves the checkpoint in event_projections, so after a crash
+// projection resumes exactly after the last committed event. A batch's inventory changes
+// are summed per movie, so a popular title costs one UPDATE per batch rather than per event.
+final class MySqlProjector implements Runnable {
+    static final String NAME = "mysql";
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final EventLog log;
+    private final int batchSize;
+    private final Object progressLock = new Object();
+    private volatile long projectedSequence;
+    private volatile boolean running = true;
+    private Thread thread;
+    private Connection conn;
+
+    MySqlProjector(EventLog log, int batchSize) {
+        this.log = log;
+        this.batchSize = batchSize;
+    }
+
+    // Sequence of the last event the tables reflect; 0 before anything was projected
+    static long readCheckpoint(Connection conn, String projection) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT last_sequence FROM event_projections WHERE name = ?")) {
+            stmt.setString(1, projection);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    void start(long checkpoint) {
+        projectedSequence = checkpoint;
+        thread = new Thread(this, "eventlog-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    long getProjectedSequence() {
+        return projectedSequence;
+    }
+
+    // Wait until the tables reflect the given sequence; false if the timeout passed first
+    boolean awaitProjected(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progressLock) {
+            while (projectedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progressLock.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    @Override
+    public void run() {
+        EventLog.Reader reader = log.reader(projectedSequence);
+        long backoff = 100;
+        try {
+            while (running) {
+                List<RentalEvent> batch = reader.poll(batchSize);
+                if (batch.isEmpty()) {
+                    reader.await(1000);
+                    continue;
+                }
+                while (running) {
+                    try {
+                        projectBatch(batch);
+                        backoff = 100;
+                        break;
+                    } catch (SQLException e) {
+                        System.err.println("Event projection failed, retrying in " + backoff + " ms: " + e.getMessage());
+                        closeConnection();
+                        Thread.sleep(backoff);
+                        backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeConnection();
+        }
+    }
+
+    // Project a batch; an event the tables reject (e.g. its user was deleted meanwhile) is
+    // logged and skipped on its own so it cannot hold up every event behind it
+    private void projectBatch(List<RentalEvent> batch) throws SQLException {
+        try {
+            project(batch, batch.get(batch.size() - 1).getSequence());
+        } catch (SQLException e) {
+            if (!isIntegrityViolation(e)) {
+                throw e;
+            }
+            for (RentalEvent event : batch) {
+                try {
+                    project(Collections.singletonList(event), event.getSequence());
+                } catch (SQLException rejected) {
+                    if (!isIntegrityViolation(rejected)) {
+                        throw rejected;
+                    }
+                    System.err.println("Skipping event " + event + ": " + rejected.getMessage());
+                    project(Collections.emptyList(), event.getSequence());
+                }
+            }
+        }
+    }
+
+    // Batched statements report constraint failures wrapped in a BatchUpdateException; SQLSTATE class 23 either way
+    private static boolean isIntegrityViolation(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+                    && ((SQLException) cause).getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void project(List<RentalEvent> events, long upTo) throws SQLException {
+        if (conn == null) {
+            conn = DatabaseConnection.openConnection();
+            conn.setAutoCommit(false);
+        }
+        String insertSql = "INSERT INTO rentals (id, user_id, movie_id, rental_date, due_date, base_price, total_price) " +
+                          "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String returnSql = "UPDATE rentals SET return_date = ?, late_fee = ?, total_price = base_price + ? WHERE id = ?";
+        List<Integer> created = new ArrayList<>();
+        String inventorySql = "UPDATE movies SET available_copies = available_copies + ? WHERE id = ?";
+        String checkpointSql = "INSERT INTO event_projections (name, last_sequence) VALUES (?, ?) " +
+                              "ON DUPLICATE KEY UPDATE last_sequence = VALUES(last_sequence)";
+
+        Map<Integer, Integer> inventory = new LinkedHashMap<>();
+        try (PreparedStatement insert = conn.prepareStatement(insertSql);
+             PreparedStatement update = conn.prepareStatement(returnSql);
+             PreparedStatement viewUpdate = conn.prepareStatement(RentalView.RETURN_SQL);
+             PreparedStatement adjust = conn.prepareStatement(inventorySql);
+             PreparedStatement checkpoint = conn.prepareStatement(checkpointSql)) {
+            int inserts = 0;
+            int returns = 0;
+            for (RentalEvent event : events) {
+                switch (event.getType()) {
+                    case RENTAL_CREATED:
+                        insert.setInt(1, event.rentalId);
+                        insert.setInt(2, event.userId);
+                        insert.setInt(3, event.movieId);
+                        insert.setDate(4, Date.valueOf(event.rentalDate));
+                        insert.setDate(5, Date.valueOf(event.dueDate));
+                        insert.setBigDecimal(6, event.basePrice);
+                        insert.setBigDecimal(7, event.totalPrice);
+                        insert.addBatch();
+                        created.add(event.rentalId);
+                        inserts++;
+                        inventory.merge(event.movieId, -1, Integer::sum);
+                        break;
+                    case MOVIE_RETURNED:
+                        update.setDate(1, Date.valueOf(event.returnDate));
+                        update.setBigDecimal(2, event.lateFee);
+                        update.setBigDecimal(3, event.lateFee);
+                        update.setInt(4, event.rentalId);
+                        update.addBatch();
+                        viewUpdate.setDate(1, Date.valueOf(event.returnDate));
+                        viewUpdate.setBigDecimal(2, event.lateFee);
+                        viewUpdate.setBigDecimal(3, event.lateFee);
+                        viewUpdate.setInt(4, event.rentalId);
+                        viewUpdate.addBatch();
+                        returns++;
+                        inventory.merge(event.movieId, 1, Integer::sum);
+                        break;
+                    case INVENTORY_ADJUSTED:
+                        inventory.merge(event.movieId, event.delta, Integer::sum);
+                        break;
+                }
+            }
+            // Inserts first: a rental may be created and returned within the same batch
+            if (inserts > 0) {
+                insert.executeBatch();
+                RentalView.insert(conn, created);
+            }
+            if (returns > 0) {
+                update.executeBatch();
+                viewUpdate.executeBatch();
+            }
+            boolean adjusted = false;
+            for (Map.Entry<Integer, Integer> entry : inventory.entrySet()) {
+                if (entry.getValue() != 0) {
+                    adjust.setInt(1, entry.getValue());
+                    adjust.setInt(2, entry.getKey());
+                    adjust.addBatch();
+                    adjusted = true;
+                }
+            }
+            if (adjusted) {
+                adjust.executeBatch();
+            }
+            checkpoint.setString(1, NAME);
+            checkpoint.setLong(2, upTo);
+            checkpoint.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        }
+
+        for (RentalEvent event : events) {
+            Metrics.recordProjectionLag(event.getTimestamp());
+        }
+        synchronized (progressLock) {
+            projectedSequence = upTo;
+            progressLock.notifyAll();
+        }
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing projector connection: " + e.getMessage());
+            }
+            conn = null;
+        }
+    }
+}
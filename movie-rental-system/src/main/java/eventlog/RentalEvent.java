@@ -0,0 +1,164 @@
+package eventlog;
+
+import model.Rental;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+// A change to rentals or inventory as recorded in the event log. The fields used depend on
+// the type; sequence and timestamp are assigned when the event is appended.
+public final class RentalEvent {
+    public enum Type {
+        RENTAL_CREATED(1),
+        MOVIE_RETURNED(2),
+        INVENTORY_ADJUSTED(3);
+
+        final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        static Type fromCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown event type " + code);
+        }
+    }
+
+    private final Type type;
+    long sequence;
+    long timestamp;
+
+    int rentalId;
+    int userId;
+    int movieId;
+    LocalDate rentalDate;
+    LocalDate dueDate;
+    LocalDate returnDate;
+    BigDecimal basePrice;
+    BigDecimal totalPrice;
+    BigDecimal lateFee;
+    int delta;
+
+    private RentalEvent(Type type) {
+        this.type = type;
+    }
+
+    static RentalEvent rentalCreated(Rental rental) {
+        RentalEvent event = new RentalEvent(Type.RENTAL_CREATED);
+        event.rentalId = rental.getId();
+        event.userId = rental.getUserId();
+        event.movieId = rental.getMovieId();
+        event.rentalDate = rental.getRentalDate();
+        event.dueDate = rental.getDueDate();
+        event.basePrice = rental.getBasePrice();
+        event.totalPrice = rental.getTotalPrice() != null ? rental.getTotalPrice() : rental.getBasePrice();
+        return event;
+    }
+
+    static RentalEvent movieReturned(int rentalId, int movieId, LocalDate returnDate, BigDecimal lateFee) {
+        RentalEvent event = new RentalEvent(Type.MOVIE_RETURNED);
+        event.rentalId = rentalId;
+        event.movieId = movieId;
+        event.returnDate = returnDate;
+        event.lateFee = lateFee != null ? lateFee : BigDecimal.ZERO;
+        return event;
+    }
+
+    static RentalEvent inventoryAdjusted(int movieId, int delta) {
+        RentalEvent event = new RentalEvent(Type.INVENTORY_ADJUSTED);
+        event.movieId = movieId;
+        event.delta = delta;
+        return event;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Record body: sequence, timestamp, type, then the fields of the type
+    void encode(ByteBuffer buffer) {
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+        buffer.put(type.code);
+        switch (type) {
+            case RENTAL_CREATED:
+                buffer.putInt(rentalId);
+                buffer.putInt(userId);
+                buffer.putInt(movieId);
+                buffer.putLong(rentalDate.toEpochDay());
+                buffer.putLong(dueDate.toEpochDay());
+                putDecimal(buffer, basePrice);
+                putDecimal(buffer, totalPrice);
+                break;
+            case MOVIE_RETURNED:
+                buffer.putInt(rentalId);
+                buffer.putInt(movieId);
+                buffer.putLong(returnDate.toEpochDay());
+                putDecimal(buffer, lateFee);
+                break;
+            case INVENTORY_ADJUSTED:
+                buffer.putInt(movieId);
+                buffer.putInt(delta);
+                break;
+        }
+    }
+
+    static RentalEvent decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        RentalEvent event = new RentalEvent(Type.fromCode(buffer.get()));
+        event.sequence = sequence;
+        event.timestamp = timestamp;
+        switch (event.type) {
+            case RENTAL_CREATED:
+                event.rentalId = buffer.getInt();
+                event.userId = buffer.getInt();
+                event.movieId = buffer.getInt();
+                event.rentalDate = LocalDate.ofEpochDay(buffer.getLong());
+                event.dueDate = LocalDate.ofEpochDay(buffer.getLong());
+                event.basePrice = getDecimal(buffer);
+                event.totalPrice = getDecimal(buffer);
+                break;
+            case MOVIE_RETURNED:
+                event.rentalId = buffer.getInt();
+                event.movieId = buffer.getInt();
+                event.returnDate = LocalDate.ofEpochDay(buffer.getLong());
+                event.lateFee = getDecimal(buffer);
+                break;
+            case INVENTORY_ADJUSTED:
+                event.movieId = buffer.getInt();
+                event.delta = buffer.getInt();
+                break;
+        }
+        return event;
+    }
+
+    // Prices are small, so unscaled value and scale fit a long and a byte
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        buffer.putLong(value.unscaledValue().longValueExact());
+        buffer.put((byte) value.scale());
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        return BigDecimal.valueOf(buffer.getLong(), buffer.get());
+    }
+
+    @Override
+    public String toString() {
+        return type + "#" + sequence + (type == Type.INVENTORY_ADJUSTED ? " movie " + movieId : " rental " + rentalId);
+    }
+}
@@ -0,0 +1,201 @@
+package eventlog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The state checkouts and returns are validated against: copies on the shelf per movie,
+// open rentals, known users and the next rental id, as of lastSequence. Only the event-log
+// writer mutates it (under its lock); readers may look at it at any time.
+final class RentalWriteModel {
+    private static final int SNAPSHOT_MAGIC = 0x4d524531; // "MRE1"
+
+    private final Map<Integer, Integer> available = new ConcurrentHashMap<>();
+    private final Map<Integer, OpenRental> open = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> users = new ConcurrentHashMap<>();
+    private volatile int lastRentalId;
+    private volatile long lastSequence;
+
+    static final class OpenRental {
+        final int movieId;
+        final long dueEpochDay;
+
+        OpenRental(int movieId, long dueEpochDay) {
+            this.movieId = movieId;
+            this.dueEpochDay = dueEpochDay;
+        }
+    }
+
+    void apply(RentalEvent event) {
+        switch (event.getType()) {
+            case RENTAL_CREATED:
+                available.merge(event.movieId, -1, Integer::sum);
+                open.put(event.rentalId, new OpenRental(event.movieId, event.dueDate.toEpochDay()));
+                users.put(event.userId, Boolean.TRUE);
+                lastRentalId = Math.max(lastRentalId, event.rentalId);
+                break;
+            case MOVIE_RETURNED:
+                open.remove(event.rentalId);
+                available.merge(event.movieId, 1, Integer::sum);
+                break;
+            case INVENTORY_ADJUSTED:
+                available.merge(event.movieId, event.delta, Integer::sum);
+                break;
+        }
+        lastSequence = event.sequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    int nextRentalId() {
+        return lastRentalId + 1;
+    }
+
+    // Copies on the shelf, or null for a movie the model has not seen yet
+    Integer available(int movieId) {
+        return available.get(movieId);
+    }
+
+    OpenRental openRental(int rentalId) {
+        return open.get(rentalId);
+    }
+
+    boolean hasUser(int userId) {
+        return users.containsKey(userId);
+    }
+
+    // Movies and users created after the model was built are learned from MySQL on first use.
+    // No event can mention them before that, so the MySQL row is still authoritative.
+    void learnMovie(int movieId, int copies) {
+        available.putIfAbsent(movieId, copies);
+    }
+
+    void learnUser(int userId) {
+        users.put(userId, Boolean.TRUE);
+    }
+
+    void forgetMovie(int movieId) {
+        available.remove(movieId);
+    }
+
+    void forgetUser(int userId) {
+        users.remove(userId);
+    }
+
+    // Build the model from the MySQL tables and the projector checkpoint in one transaction,
+    // so the tables reflect exactly the events up to the checkpoint
+    static RentalWriteModel bootstrap(Connection conn, String projection) throws SQLException {
+        RentalWriteModel model = new RentalWriteModel();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            model.lastSequence = MySqlProjector.readCheckpoint(conn, projection);
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, available_copies FROM movies");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    model.available.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, movie_id, due_date FROM rentals WHERE return_date IS NULL");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    model.open.put(rs.getInt(1), new OpenRental(rs.getInt(2), rs.getDate(3).toLocalDate().toEpochDay()));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    model.users.put(rs.getInt(1), Boolean.TRUE);
+                }
+            }
+            // Archived rentals keep their ids, so new ids continue past both tables
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT GREATEST(COALESCE((SELECT MAX(id) FROM rentals), 0), " +
+                     "COALESCE((SELECT MAX(id) FROM rentals_archive), 0))");
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                model.lastRentalId = rs.getInt(1);
+            }
+            conn.commit();
+            return model;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Copy the state; the caller holds the writer lock so the copy is consistent
+    RentalWriteModel copy() {
+        RentalWriteModel copy = new RentalWriteModel();
+        copy.available.putAll(available);
+        copy.open.putAll(open);
+        copy.users.putAll(users);
+        copy.lastRentalId = lastRentalId;
+        copy.lastSequence = lastSequence;
+        return copy;
+    }
+
+    // Write to a temporary file and move it into place, so a crash never leaves a torn snapshot
+    void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lastSequence);
+            out.writeInt(lastRentalId);
+            out.writeInt(available.size());
+            for (Map.Entry<Integer, Integer> entry : available.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeInt(open.size());
+            for (Map.Entry<Integer, OpenRental> entry : open.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().movieId);
+                out.writeLong(entry.getValue().dueEpochDay);
+            }
+            out.writeInt(users.size());
+            for (Integer userId : users.keySet()) {
+                out.writeInt(userId);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static RentalWriteModel load(Path file) throws IOException {
+        RentalWriteModel model = new RentalWriteModel();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an event log snapshot: " + file);
+            }
+            model.lastSequence = in.readLong();
+            model.lastRentalId = in.readInt();
+            for (int i = in.readInt(); i > 0; i--) {
+                model.available.put(in.readInt(), in.readInt());
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                int rentalId = in.readInt();
+                model.open.put(rentalId, new OpenRental(in.readInt(), in.readLong()));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                model.users.put(in.readInt(), Boolean.TRUE);
+            }
+        }
+        return model;
+    }
+}
@@ -0,0 +1,201 @@
+package holds;
+
+import cache.Change;
+import cache.ChangeFeed;
+import dao.DAOFactory;
+import dao.HoldDAO;
+import dao.MovieCopyDAO;
+import index.MovieFacetIndex;
+import index.TimingWheel;
+import model.Hold;
+import model.Rental;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Timed checkout holds. A hold takes a copy off the shelf for a few minutes, then is
+// confirmed into a rental or released; holds nobody confirms are released by their timer.
+// Timers sit on a hierarchical timing wheel, so placing, confirming and expiring a hold cost
+// O(1) however many are outstanding. The holds table is the durable record: timers are
+// rebuilt from it at startup, and sweep() releases anything past its expiry that no timer on
+// this node covers, such as holds placed on another node that went away.
+public final class HoldManager {
+    private static final HoldManager INSTANCE = new HoldManager();
+    // Expired holds are released in transactions of this many
+    private static final int EXPIRE_BATCH = 500;
+
+    private final HoldDAO holdDAO = DAOFactory.holdDAO();
+    private final int defaultMinutes = DatabaseConfig.getInt("holds.default.minutes", 10);
+    private final int maxMinutes = DatabaseConfig.getInt("holds.max.minutes", 60);
+    private final TimingWheel<Integer> wheel = new TimingWheel<>(
+        DatabaseConfig.getInt("holds.wheel.tick.millis", 1000), DatabaseConfig.getInt("holds.wheel.slots", 64),
+        DatabaseConfig.getInt("holds.wheel.levels", 4), System.currentTimeMillis());
+    // Pending timers by hold id; the wheel and this map are guarded by the manager
+    private final Map<Integer, TimingWheel.Timer<Integer>> timers = new HashMap<>();
+
+    private HoldManager() {}
+
+    public static HoldManager getInstance() {
+        return INSTANCE;
+    }
+
+    // Holds need the available_copies counter in the database: the event log and the memory
+    // engine keep their own counts, and per-copy inventory would have to hold a copy row
+    public static boolean isSupported() {
+        return !MovieCopyDAO.isEnabled() && !DAOFactory.isInMemory() && !DAOFactory.isEventSourced();
+    }
+
+    public long getTickMillis() {
+        return wheel.getTickMillis();
+    }
+
+    // Hold a copy of the movie for the user; null when no copy is available
+    public Hold place(int userId, int movieId, Integer minutes) throws SQLException {
+        int holdMinutes = minutes != null ? minutes : defaultMinutes;
+        if (holdMinutes < 1 || holdMinutes > maxMinutes) {
+            throw new IllegalArgumentException("Hold minutes must be between 1 and " + maxMinutes);
+        }
+        if (DAOFactory.userDAO().getById(userId) == null) {
+            throw new IllegalArgumentException("User " + userId + " not found");
+        }
+
+        // Whole seconds, as a TIMESTAMP column keeps them
+        long deadline = (System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(holdMinutes)) / 1000 * 1000;
+        Hold hold = holdDAO.create(userId, movieId, toLocalDateTime(deadline));
+        if (hold == null) {
+            return null;
+        }
+        copiesChanged(movieId, -1);
+        synchronized (this) {
+            timers.put(hold.getId(), schedule(deadline, hold.getId()));
+        }
+        return hold;
+    }
+
+    public Hold get(int holdId) throws SQLException {
+        return holdDAO.getById(holdId);
+    }
+
+    // Turn a hold into the rental; null when it was released or has expired
+    public Rental confirm(int holdId, Rental rental) throws SQLException {
+        Rental confirmed = holdDAO.confirm(holdId, rental, LocalDateTime.now());
+        if (confirmed != null) {
+            cancelTimer(holdId);
+        }
+        return confirmed;
+    }
+
+    // Give the copy back before the hold runs out; null when the hold is already gone
+    public Hold release(int holdId) throws SQLException {
+        Hold released = holdDAO.release(holdId);
+        cancelTimer(holdId);
+        if (released != null) {
+            copiesChanged(released.getMovieId(), 1);
+        }
+        return released;
+    }
+
+    // Schedule a timer for every hold in the table; run once at startup
+    public void load() throws SQLException {
+        int loaded = 0;
+        try (Connection conn = DatabaseConnection.openConnection()) {
+            List<Hold> holds = new ArrayList<>();
+            holdDAO.forEach(conn, holds::add);
+            synchronized (this) {
+                for (Hold hold : holds) {
+                    if (!timers.containsKey(hold.getId())) {
+                        timers.put(hold.getId(), schedule(toMillis(hold.getExpiresAt()), hold.getId()));
+                        loaded++;
+                    }
+                }
+            }
+        }
+        System.out.println("Hold timers loaded for " + loaded + " holds");
+    }
+
+    // Advance the wheel to now and release the holds whose timers fired
+    public void tick() {
+        List<Integer> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(System.currentTimeMillis(), holdId -> {
+                timers.remove(holdId);
+                due.add(holdId);
+            });
+        }
+        if (!due.isEmpty()) {
+            expire(due);
+        }
+    }
+
+    // Release holds expired for longer than the grace period; those are not covered by a
+    // timer here, since the wheel fires within a tick
+    public void sweep(long graceMillis) {
+        LocalDateTime asOf = toLocalDateTime(System.currentTimeMillis() - graceMillis);
+        try (Connection conn = DatabaseConnection.openConnection()) {
+            List<Integer> ids;
+            do {
+                ids = holdDAO.getExpiredIds(conn, asOf, EXPIRE_BATCH);
+                released(holdDAO.expire(conn, ids, asOf));
+            } while (ids.size() == EXPIRE_BATCH);
+        } catch (SQLException e) {
+            System.err.println("Hold sweep failed: " + e.getMessage());
+        }
+    }
+
+    private void expire(List<Integer> holdIds) {
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection conn = DatabaseConnection.openConnection()) {
+            for (int from = 0; from < holdIds.size(); from += EXPIRE_BATCH) {
+                List<Integer> batch = holdIds.subList(from, Math.min(from + EXPIRE_BATCH, holdIds.size()));
+                released(holdDAO.expire(conn, batch, now));
+            }
+        } catch (SQLException e) {
+            // The sweep picks these up once they are past the grace period
+            System.err.println("Expiring " + holdIds.size() + " holds failed: " + e.getMessage());
+        }
+    }
+
+    private void released(List<Hold> expired) {
+        for (Hold hold : expired) {
+            copiesChanged(hold.getMovieId(), 1);
+        }
+        if (!expired.isEmpty()) {
+            System.out.println("Released " + expired.size() + " expired holds");
+        }
+    }
+
+    // The wheel fires on the tick a deadline falls in; one tick later the hold is surely past it
+    private TimingWheel.Timer<Integer> schedule(long deadlineMillis, int holdId) {
+        return wheel.schedule(deadlineMillis + wheel.getTickMillis(), holdId);
+    }
+
+    private synchronized void cancelTimer(int holdId) {
+        wheel.cancel(timers.remove(holdId));
+    }
+
+    // A hold took a copy off the shelf (delta -1) or gave one back
+    private static void copiesChanged(int movieId, int delta) {
+        MovieFacetIndex.getInstance().adjustCopies(movieId, delta);
+        if (DAOFactory.isCached()) {
+            ChangeFeed.getInstance().publish(Change.MOVIE, movieId);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
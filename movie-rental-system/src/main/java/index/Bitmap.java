@@ -0,0 +1,554 @@
+package index;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Compressed set of non-negative ints, laid out like a Roaring bitmap: values are grouped by
+// their upper 16 bits into chunks of 65536, and each chunk keeps whichever container is
+// smaller for its count, a sorted array of the lower 16 bits (up to 4096 values, 8 KB at most)
+// or a plain 65536-bit set (always 8 KB). Dense chunks cost one bit per value and sparse ones
+// two bytes, and set operations work a chunk at a time with word-wide AND/OR on the bit sets.
+// add and remove change this bitmap in place and keep it compact. and/or/andNot build new
+// bitmaps and never change their inputs; a chunk that comes out of them as a bit set stays
+// one however few values it has, as results are short-lived and counting against a bit set
+// goes a word at a time. Not thread-safe.
+public final class Bitmap {
+    // Past this many values a chunk is smaller as a bit set than as an array
+    private static final int ARRAY_MAX = 4096;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int i = find(key);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) value);
+        } else {
+            insert(-i - 1, key, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(int value) {
+        int i = find((char) (value >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Container container = containers[i].remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        } else {
+            containers[i] = container;
+        }
+    }
+
+    public boolean contains(int value) {
+        int i = find((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Size of the intersection, without building it
+    public int andCardinality(Bitmap other) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += containers[i++].andCardinality(other.containers[j++]);
+            }
+        }
+        return cardinality;
+    }
+
+    public static Bitmap and(Bitmap a, Bitmap b) {
+        Bitmap result = new Bitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.append(a.keys[i], a.containers[i++].and(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public static Bitmap or(Bitmap a, Bitmap b) {
+        Bitmap result = new Bitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.append(a.keys[i], a.containers[i++].or(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public static Bitmap or(Collection<Bitmap> bitmaps) {
+        Bitmap result = new Bitmap();
+        for (Bitmap bitmap : bitmaps) {
+            result = or(result, bitmap);
+        }
+        return result;
+    }
+
+    // The values of a that are not in b
+    public static Bitmap andNot(Bitmap a, Bitmap b) {
+        Bitmap result = new Bitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size) {
+            if (j == b.size || a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.append(a.keys[i], a.containers[i++].andNot(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    // Up to limit values in ascending order, after skipping the first offset
+    public int[] toArray(int offset, int limit) {
+        int[] values = new int[Math.max(0, Math.min(limit, cardinality() - offset))];
+        int count = 0;
+        int skip = offset;
+        for (int i = 0; i < size && count < values.length; i++) {
+            Container container = containers[i];
+            if (skip >= container.cardinality()) {
+                skip -= container.cardinality();
+                continue;
+            }
+            count = container.fill(keys[i] << 16, skip, values, count);
+            skip = 0;
+        }
+        return values;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int i, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    // Add a chunk past the last one; empty results of a set operation are left out
+    private void append(char key, Container container) {
+        if (container.cardinality() > 0) {
+            insert(size, key, container);
+        }
+    }
+
+    private abstract static class Container {
+        // add and remove return the container to keep, which may be a converted one
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container copy();
+
+        // Write high | value for the values after the first skip into out from index count,
+        // until out is full; returns the new count
+        abstract int fill(int high, int skip, int[] out, int count);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBits().add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] out = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        out[count++] = values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                long[] words = ((BitsContainer) other).words;
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    if ((words[value >>> 6] & (1L << value)) != 0) {
+                        out[count++] = value;
+                    }
+                }
+            }
+            return new ArrayContainer(out, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitsContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                BitsContainer bits = toBits();
+                for (int j = 0; j < array.cardinality; j++) {
+                    bits.add(array.values[j]);
+                }
+                return bits;
+            }
+            char[] out = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    out[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    out[count++] = array.values[j++];
+                } else {
+                    out[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] out = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int j = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    while (j < array.cardinality && array.values[j] < values[i]) {
+                        j++;
+                    }
+                    if (j == array.cardinality || array.values[j] != values[i]) {
+                        out[count++] = values[i];
+                    }
+                }
+            } else {
+                long[] words = ((BitsContainer) other).words;
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    if ((words[value >>> 6] & (1L << value)) == 0) {
+                        out[count++] = value;
+                    }
+                }
+            }
+            return new ArrayContainer(out, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                long[] words = ((BitsContainer) other).words;
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    if ((words[value >>> 6] & (1L << value)) != 0) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        int fill(int high, int skip, int[] out, int count) {
+            for (int i = skip; i < cardinality && count < out.length; i++) {
+                out[count++] = high | values[i];
+            }
+            return count;
+        }
+
+        BitsContainer toBits() {
+            BitsContainer bits = new BitsContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bits.add(values[i]);
+            }
+            return bits;
+        }
+    }
+
+    private static final class BitsContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitsContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitsContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitsContainer) other).words;
+            long[] out = new long[1024];
+            int count = 0;
+            for (int i = 0; i < out.length; i++) {
+                out[i] = words[i] & otherWords[i];
+                count += Long.bitCount(out[i]);
+            }
+            return new BitsContainer(out, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            BitsContainer out = (BitsContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int j = 0; j < array.cardinality; j++) {
+                    out.add(array.values[j]);
+                }
+                return out;
+            }
+            long[] otherWords = ((BitsContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < out.words.length; i++) {
+                out.words[i] |= otherWords[i];
+                count += Long.bitCount(out.words[i]);
+            }
+            out.cardinality = count;
+            return out;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            BitsContainer out = (BitsContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int j = 0; j < array.cardinality; j++) {
+                    char value = array.values[j];
+                    long bit = 1L << value;
+                    if ((out.words[value >>> 6] & bit) != 0) {
+                        out.words[value >>> 6] &= ~bit;
+                        out.cardinality--;
+                    }
+                }
+                return out;
+            }
+            long[] otherWords = ((BitsContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < out.words.length; i++) {
+                out.words[i] &= ~otherWords[i];
+                count += Long.bitCount(out.words[i]);
+            }
+            out.cardinality = count;
+            return out;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            long[] otherWords = ((BitsContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Container copy() {
+            return new BitsContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int fill(int high, int skip, int[] out, int count) {
+            int seen = 0;
+            for (int i = 0; i < words.length && count < out.length; i++) {
+                long word = words[i];
+                int bits = Long.bitCount(word);
+                if (seen + bits <= skip) {
+                    seen += bits;
+                    continue;
+                }
+                while (word != 0 && count < out.length) {
+                    int value = (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (seen++ >= skip) {
+                        out[count++] = high | value;
+                    }
+                }
+            }
+            return count;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
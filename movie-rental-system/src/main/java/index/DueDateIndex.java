@@ -0,0 +1,185 @@
+package index;
+
+import model.Rental;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// In-memory index of active rentals keyed by due date (epoch day).
+// Overdue lookups walk only the days before today, so they cost O(overdue).
+// Writers are serialised on the index; readers never block. The index holds its own copies
+// and hands out copies, so callers may fill in or change what they get.
+//
+// Only this node's checkouts and returns reach it directly. Other API nodes, direct SQL,
+// the archiver and movie or user renames are picked up by the next load(), which
+// BackgroundJobsListener repeats every overdue.index.reload.interval.minutes.
+public class DueDateIndex {
+    private static final DueDateIndex INSTANCE = new DueDateIndex();
+
+    private volatile Days days = new Days();
+    // Rentals created or returned while the index was being built, applied to what it built
+    private final Map<Integer, Rental> addedDuringLoad = new LinkedHashMap<>();
+    private final Set<Integer> removedDuringLoad = new HashSet<>();
+    private volatile boolean loading;
+    private volatile boolean loaded;
+
+    public static DueDateIndex getInstance() {
+        return INSTANCE;
+    }
+
+    // Source of the active rentals used to build the index
+    public interface RentalSource {
+        List<Rental> load() throws SQLException;
+    }
+
+    // Build the index from the active rentals and swap it in for the current one; rentals
+    // created or returned while loading are kept
+    public void load(RentalSource source) throws SQLException {
+        synchronized (this) {
+            loading = true;
+        }
+        try {
+            List<Rental> activeRentals = source.load();
+            Days built = new Days();
+            synchronized (this) {
+                for (Rental rental : activeRentals) {
+                    if (!removedDuringLoad.contains(rental.getId()) && !rental.isReturned()) {
+                        built.put(copy(rental));
+                    }
+                }
+                for (Rental rental : addedDuringLoad.values()) {
+                    if (!removedDuringLoad.contains(rental.getId())) {
+                        built.put(rental);
+                    }
+                }
+                days = built;
+                loaded = true;
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+                addedDuringLoad.clear();
+                removedDuringLoad.clear();
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Track a newly created rental
+    public synchronized void add(Rental rental) {
+        if (loaded || loading) {
+            Rental indexed = copy(rental);
+            days.put(indexed);
+            if (loading) {
+                addedDuringLoad.put(indexed.getId(), indexed);
+            }
+        }
+    }
+
+    // Stop tracking a rental once it has been returned
+    public synchronized void remove(int rentalId) {
+        if (loading) {
+            removedDuringLoad.add(rentalId);
+        }
+        days.remove(rentalId);
+    }
+
+    // A copy of an active rental by id, or null if it is not tracked
+    public Rental get(int rentalId) {
+        Days current = days;
+        Long day = current.dueDayById.get(rentalId);
+        if (day == null) {
+            return null;
+        }
+        Map<Integer, Rental> bucket = current.byDueDay.get(day);
+        Rental rental = bucket == null ? null : bucket.get(rentalId);
+        return rental == null ? null : copy(rental);
+    }
+
+    // Rentals whose due date is before the given day, ordered by due date
+    public List<Rental> getOverdue(LocalDate asOf) {
+        return collect(days.byDueDay.headMap(asOf.toEpochDay(), false));
+    }
+
+    // Rentals that became overdue in [from, to): due on or after from, before to
+    public List<Rental> getDueBetween(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyList();
+        }
+        return collect(days.byDueDay.subMap(from.toEpochDay(), true, to.toEpochDay(), false));
+    }
+
+    public int size() {
+        return days.dueDayById.size();
+    }
+
+    private static List<Rental> collect(Map<Long, Map<Integer, Rental>> days) {
+        List<Rental> rentals = new ArrayList<>();
+        for (Map<Integer, Rental> bucket : days.values()) {
+            for (Rental rental : bucket.values()) {
+                rentals.add(copy(rental));
+            }
+        }
+        return rentals;
+    }
+
+    private static Rental copy(Rental rental) {
+        Rental copy = new Rental();
+        copy.setId(rental.getId());
+        copy.setUserId(rental.getUserId());
+        copy.setMovieId(rental.getMovieId());
+        copy.setRentalDate(rental.getRentalDate());
+        copy.setDueDate(rental.getDueDate());
+        copy.setReturnDate(rental.getReturnDate());
+        copy.setBasePrice(rental.getBasePrice());
+        copy.setLateFee(rental.getLateFee());
+        copy.setTotalPrice(rental.getTotalPrice());
+        copy.setCopyId(rental.getCopyId());
+        copy.setCreatedAt(rental.getCreatedAt());
+        copy.setMovieTitle(rental.getMovieTitle());
+        copy.setUserName(rental.getUserName());
+        return copy;
+    }
+
+    private static final class Days {
+        final ConcurrentSkipListMap<Long, Map<Integer, Rental>> byDueDay = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<Integer, Long> dueDayById = new ConcurrentHashMap<>();
+
+        void put(Rental rental) {
+            long day = rental.getDueDate().toEpochDay();
+            Long previous = dueDayById.put(rental.getId(), day);
+            if (previous != null && previous != day) {
+                Map<Integer, Rental> old = byDueDay.get(previous);
+                if (old != null) {
+                    old.remove(rental.getId());
+                }
+            }
+            byDueDay.computeIfAbsent(day, d -> new ConcurrentHashMap<>()).put(rental.getId(), rental);
+        }
+
+        void remove(int rentalId) {
+            Long day = dueDayById.remove(rentalId);
+            if (day != null) {
+                Map<Integer, Rental> bucket = byDueDay.get(day);
+                if (bucket != null) {
+                    bucket.remove(rentalId);
+                    if (bucket.isEmpty()) {
+                        byDueDay.remove(day, bucket);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package index;
+
+import model.Movie;
+import util.DatabaseConfig;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// In-memory facets over the movie catalogue for storefront filters. Each genre, each pricing
+// category and "has a copy on the shelf" is a Bitmap of movie ids, so a filter is an OR of the
+// values picked within a facet and an AND across facets. A facet's counts are cardinalities of
+// its bitmaps ANDed with the other facets' filters but not its own, so with Drama picked the
+// genre counts still say how many movies every other genre would give.
+//
+// load() builds the bitmaps from the movies table. IndexingMovieDAO and IndexingRentalDAO keep
+// them current with this node's writes, and HoldManager with the copies its holds take and
+// give back. Copy counts moved by other API nodes, or while a load runs, are picked up by the
+// next load (facets.reload.interval.minutes). Queries share a read lock; a write holds the
+// write lock for the few bitmap bits it flips.
+public final class MovieFacetIndex {
+    private static final MovieFacetIndex INSTANCE = new MovieFacetIndex();
+    public static final int MAX_LIMIT = Math.max(1, DatabaseConfig.getInt("facets.max.limit", 200));
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Tables tables = new Tables();
+    private volatile boolean loaded;
+    // Movie writes made while a load runs, replayed onto the tables it built
+    private List<Consumer<Tables>> writesDuringLoad;
+
+    private MovieFacetIndex() {}
+
+    public static MovieFacetIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public interface MovieSource {
+        List<Movie> load() throws SQLException;
+    }
+
+    // Pricing category id by movie id
+    public interface CategorySource {
+        Map<Integer, Integer> load() throws SQLException;
+    }
+
+    // Build the bitmaps from every movie and its pricing category; movie writes made meanwhile are kept
+    public void load(MovieSource movies, CategorySource categories) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            writesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Tables built = new Tables();
+        try {
+            Map<Integer, Integer> categoryIds = categories.load();
+            for (Movie movie : movies.load()) {
+                built.put(movie.getId(), movie.getGenre(), categoryIds.get(movie.getId()), movie.getAvailableCopies());
+            }
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                writesDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Tables> write : writesDuringLoad) {
+                write.accept(built);
+            }
+            writesDuringLoad = null;
+            tables = built;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return tables.movies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Index a new movie, or the new genre or category of an existing one. A null category or
+    // copy count leaves the indexed one as it is.
+    public void put(int id, String genre, Integer categoryId, Integer copies) {
+        write(tables -> tables.put(id, genre, categoryId, copies), true);
+    }
+
+    public void remove(int id) {
+        write(tables -> tables.remove(id), true);
+    }
+
+    // Copies of the movie went onto the shelf (delta > 0) or off it, through a return,
+    // checkout, hold or inventory change
+    public void adjustCopies(int id, int delta) {
+        write(tables -> tables.adjustCopies(id, delta), false);
+    }
+
+    // Movies matching every given facet, with counts for each facet value. Empty genres or
+    // categories and a null available leave that facet unfiltered; unknown values match
+    // nothing. Ids come in ascending order, offset and limit page through them.
+    public Result query(Collection<String> genres, Collection<Integer> categoryIds, Boolean available,
+                        int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Tables current = tables;
+            Bitmap genre = genres.isEmpty() ? null : union(current.byGenre, genres);
+            Bitmap category = categoryIds.isEmpty() ? null : union(current.byCategory, categoryIds);
+            Bitmap shelf = available == null ? null
+                : available ? current.available : Bitmap.andNot(current.all, current.available);
+
+            Bitmap matching = intersect(current.all, genre, category, shelf);
+            Result result = new Result(matching.cardinality(), matching.toArray(offset, limit));
+
+            Bitmap genreBase = intersect(current.all, category, shelf);
+            for (Map.Entry<String, Bitmap> entry : current.byGenre.entrySet()) {
+                result.genreCounts.put(entry.getKey(), count(entry.getValue(), genreBase, current.all));
+            }
+            Bitmap categoryBase = intersect(current.all, genre, shelf);
+            for (Map.Entry<Integer, Bitmap> entry : current.byCategory.entrySet()) {
+                result.categoryCounts.put(entry.getKey(), count(entry.getValue(), categoryBase, current.all));
+            }
+            Bitmap shelfBase = intersect(current.all, genre, category);
+            result.availableCount = count(current.available, shelfBase, current.all);
+            result.unavailableCount = shelfBase.cardinality() - result.availableCount;
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<Tables> write, boolean replayAfterLoad) {
+        lock.writeLock().lock();
+        try {
+            write.accept(tables);
+            if (replayAfterLoad && writesDuringLoad != null) {
+                writesDuringLoad.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static <K> Bitmap union(Map<K, Bitmap> bitmaps, Collection<K> keys) {
+        List<Bitmap> picked = new ArrayList<>();
+        for (K key : keys) {
+            Bitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                picked.add(bitmap);
+            }
+        }
+        return picked.size() == 1 ? picked.get(0) : Bitmap.or(picked);
+    }
+
+    // Movies of a facet value among base; every movie is in all, so that needs no AND
+    private static int count(Bitmap facet, Bitmap base, Bitmap all) {
+        return base == all ? facet.cardinality() : facet.andCardinality(base);
+    }
+
+    // all narrowed by each filter that is set; all itself when none is
+    private static Bitmap intersect(Bitmap all, Bitmap... filters) {
+        Bitmap result = all;
+        for (Bitmap filter : filters) {
+            if (filter != null) {
+                result = result == all ? filter : Bitmap.and(result, filter);
+            }
+        }
+        return result;
+    }
+
+    public static final class Result {
+        private final int total;
+        private final int[] ids;
+        private final Map<String, Integer> genreCounts = new LinkedHashMap<>();
+        private final Map<Integer, Integer> categoryCounts = new LinkedHashMap<>();
+        private int availableCount;
+        private int unavailableCount;
+
+        Result(int total, int[] ids) {
+            this.total = total;
+            this.ids = ids;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int[] getIds() {
+            return ids;
+        }
+
+        // Genres in alphabetical order, spelled as first indexed
+        public Map<String, Integer> getGenreCounts() {
+            return genreCounts;
+        }
+
+        // By pricing category id
+        public Map<Integer, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+
+        public int getAvailableCount() {
+            return availableCount;
+        }
+
+        public int getUnavailableCount() {
+            return unavailableCount;
+        }
+    }
+
+    // What the index knows of a movie, to find the bitmaps to clear when it changes
+    private static final class Facets {
+        String genre;
+        Integer categoryId;
+        int copies;
+    }
+
+    private static final class Tables {
+        final Bitmap all = new Bitmap();
+        final Bitmap available = new Bitmap();
+        // Genres match whatever their case
+        final Map<String, Bitmap> byGenre = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<Integer, Bitmap> byCategory = new TreeMap<>();
+        final Map<Integer, Facets> movies = new HashMap<>();
+
+        void put(int id, String genre, Integer categoryId, Integer copies) {
+            Facets facets = movies.get(id);
+            if (facets == null) {
+                facets = new Facets();
+                movies.put(id, facets);
+                all.add(id);
+            }
+            if (genre != null && !genre.equals(facets.genre)) {
+                if (facets.genre != null) {
+                    clear(byGenre, facets.genre, id);
+                }
+                facets.genre = genre;
+                byGenre.computeIfAbsent(genre, key -> new Bitmap()).add(id);
+            }
+            if (categoryId != null && !categoryId.equals(facets.categoryId)) {
+                if (facets.categoryId != null) {
+                    clear(byCategory, facets.categoryId, id);
+                }
+                facets.categoryId = categoryId;
+                byCategory.computeIfAbsent(categoryId, key -> new Bitmap()).add(id);
+            }
+            if (copies != null) {
+                setCopies(id, facets, copies);
+            }
+        }
+
+        void remove(int id) {
+            Facets facets = movies.remove(id);
+            if (facets == null) {
+                return;
+            }
+            all.remove(id);
+            available.remove(id);
+            if (facets.genre != null) {
+                clear(byGenre, facets.genre, id);
+            }
+            if (facets.categoryId != null) {
+                clear(byCategory, facets.categoryId, id);
+            }
+        }
+
+        void adjustCopies(int id, int delta) {
+            Facets facets = movies.get(id);
+            if (facets != null) {
+                setCopies(id, facets, facets.copies + delta);
+            }
+        }
+
+        private void setCopies(int id, Facets facets, int copies) {
+            facets.copies = Math.max(0, copies);
+            if (facets.copies > 0) {
+                available.add(id);
+            } else {
+                available.remove(id);
+            }
+        }
+
+        private static <K> void clear(Map<K, Bitmap> bitmaps, K key, int id) {
+            Bitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+}
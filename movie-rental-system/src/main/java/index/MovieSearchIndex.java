@@ -0,0 +1,545 @@
+package index;
+
+import model.Movie;
+import util.DatabaseConfig;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// In-memory search over movie titles and genres, for type-ahead. Text is cut into tokens at
+// anything but letters and digits, lower-cased and stripped of accents. Every query term must
+// match a token of the movie by prefix, so "sta wa" finds "Star Wars"; when that gives fewer
+// than the limit, terms of three or more characters may also match inside a token ("wars" in
+// "starwars"), found through a trigram index over the token dictionary. Prefix matches come
+// first, then the rest; within each, movies rank by popularity (rentals), then title.
+//
+// The bulk of the index is an immutable segment built by load(): a sorted token dictionary
+// with one posting list per token. Movies are numbered in rank order, so a posting list is
+// already ranked and a search merges lists only until it has enough results. The best movies
+// for every one- and two-character prefix are precomputed, since those prefixes span much of
+// the dictionary. Writes since the last load go to a small delta that every search scans and
+// that hides the segment's stale copy of the movie; the next load folds them in.
+// Readers work on a snapshot and never block; writers are serialised on the index.
+public final class MovieSearchIndex {
+    private static final MovieSearchIndex INSTANCE = new MovieSearchIndex();
+    public static final int MAX_LIMIT = Math.max(1, DatabaseConfig.getInt("search.max.limit", 50));
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+    private static final int NGRAM = 3;
+
+    private volatile State state = new State(Segment.build(Collections.emptyList(), Collections.emptyMap()),
+                                             Collections.emptyMap(), Collections.emptyMap());
+    private volatile boolean loaded;
+    // Write sequence; a load keeps the delta entries written after it started
+    private long writes;
+
+    private MovieSearchIndex() {}
+
+    public static MovieSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public interface MovieSource {
+        List<Movie> load() throws SQLException;
+    }
+
+    public interface PopularitySource {
+        Map<Integer, Integer> load() throws SQLException;
+    }
+
+    // Build the segment from every movie and its rental count; writes made meanwhile are kept
+    public void load(MovieSource movies, PopularitySource popularity) throws SQLException {
+        long startedAt;
+        synchronized (this) {
+            startedAt = writes;
+        }
+        Segment segment = Segment.build(movies.load(), popularity.load());
+        synchronized (this) {
+            Map<Integer, Doc> delta = new HashMap<>();
+            state.delta.forEach((id, doc) -> {
+                if (doc.written > startedAt) {
+                    delta.put(id, doc);
+                }
+            });
+            Map<Integer, Long> hidden = new HashMap<>();
+            state.hidden.forEach((id, written) -> {
+                if (written > startedAt) {
+                    hidden.put(id, written);
+                }
+            });
+            state = new State(segment, delta, hidden);
+            loaded = true;
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Movies in the index, counting the delta
+    public int size() {
+        State current = state;
+        int size = current.delta.size();
+        for (int id : current.segment.ids) {
+            if (!current.hidden.containsKey(id)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // Index a new movie or the new title and genre of an existing one
+    public synchronized void put(int id, String title, String genre) {
+        State current = state;
+        Doc previous = current.delta.get(id);
+        int doc = current.segment.docOf(id);
+        int popularity = previous != null ? previous.popularity : doc >= 0 ? current.segment.popularity[doc] : 0;
+        Map<Integer, Doc> delta = new HashMap<>(current.delta);
+        long written = ++writes;
+        delta.put(id, new Doc(id, title, popularity, tokens(title + " " + genre), written));
+        state = new State(current.segment, delta, hide(current, id, written));
+    }
+
+    public synchronized void remove(int id) {
+        State current = state;
+        Map<Integer, Doc> delta = new HashMap<>(current.delta);
+        delta.remove(id);
+        state = new State(current.segment, delta, hide(current, id, ++writes));
+    }
+
+    // Ids of the best matching movies, best first
+    public List<Integer> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokens(query == null ? "" : query)));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        State current = state;
+        Set<Integer> found = new LinkedHashSet<>();
+        collect(current, terms, false, limit, found);
+        boolean infix = false;
+        for (String term : terms) {
+            infix |= term.length() >= NGRAM;
+        }
+        if (found.size() < limit && infix) {
+            collect(current, terms, true, limit, found);
+        }
+        return new ArrayList<>(found);
+    }
+
+    // Add up to limit matches not found yet: the segment's best, merged with the delta's
+    private void collect(State current, List<String> terms, boolean infix, int limit, Set<Integer> found) {
+        int wanted = limit - found.size();
+        List<Doc> hits = new ArrayList<>();
+        Segment segment = current.segment;
+        int[] ranked = segment.search(terms, infix, wanted, doc ->
+            !current.hidden.containsKey(segment.ids[doc]) && !found.contains(segment.ids[doc]));
+        for (int doc : ranked) {
+            hits.add(new Doc(segment.ids[doc], segment.titles[doc], segment.popularity[doc], null, 0));
+        }
+        int fromDelta = 0;
+        for (int i = 0; i < current.ranked.length && fromDelta < wanted; i++) {
+            Doc doc = current.ranked[i];
+            if (!found.contains(doc.id) && matches(doc.tokens, terms, infix)) {
+                hits.add(doc);
+                fromDelta++;
+            }
+        }
+        hits.sort(RANK);
+        for (int i = 0; i < hits.size() && i < wanted; i++) {
+            found.add(hits.get(i).id);
+        }
+    }
+
+    // Also recorded for ids the segment lacks, as the segment a running load builds may have them
+    private static Map<Integer, Long> hide(State current, int id, long written) {
+        Map<Integer, Long> hidden = new HashMap<>(current.hidden);
+        hidden.put(id, written);
+        return hidden;
+    }
+
+    // Every term matches one of the tokens, by prefix or, in the infix pass, anywhere
+    static boolean matches(String[] tokens, List<String> terms, boolean infix) {
+        for (String term : terms) {
+            boolean matched = false;
+            for (String token : tokens) {
+                if (token.startsWith(term) || infix && term.length() >= NGRAM && token.contains(term)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lower-cased, accent-free runs of letters and digits
+    static List<String> tokens(String text) {
+        String folded = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 127) {
+                folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+                break;
+            }
+        }
+        folded = folded.toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Most rented first, then by title and id
+    private static final Comparator<Doc> RANK = Comparator.comparingInt((Doc doc) -> -doc.popularity)
+        .thenComparing(doc -> doc.title, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+        .thenComparingInt(doc -> doc.id);
+
+    // A movie written since the last load; written orders it against loads
+    private static final class Doc {
+        final int id;
+        final String title;
+        final int popularity;
+        final String[] tokens;
+        final long written;
+
+        Doc(int id, String title, int popularity, List<String> tokens, long written) {
+            this.id = id;
+            this.title = title;
+            this.popularity = popularity;
+            this.tokens = tokens == null ? null : new LinkedHashSet<>(tokens).toArray(new String[0]);
+            this.written = written;
+        }
+    }
+
+    private static final class State {
+        final Segment segment;
+        final Map<Integer, Doc> delta;
+        // Movies written since the load, with the write that hid their segment copy
+        final Map<Integer, Long> hidden;
+        // The delta in rank order, so a search stops at the first matches
+        final Doc[] ranked;
+
+        State(Segment segment, Map<Integer, Doc> delta, Map<Integer, Long> hidden) {
+            this.segment = segment;
+            this.delta = delta;
+            this.hidden = hidden;
+            this.ranked = delta.values().toArray(new Doc[0]);
+            Arrays.sort(ranked, RANK);
+        }
+    }
+
+    interface DocFilter {
+        boolean accept(int doc);
+    }
+
+    // The immutable part. Movies are numbered 0..n-1 in rank order; postings[t] lists the
+    // movies with token t in ascending number, i.e. best first.
+    static final class Segment {
+        final String[] dictionary;
+        final int[][] postings;
+        // postingsBefore[t] = total length of postings[0..t), to size up a prefix range in O(1)
+        final long[] postingsBefore;
+        final int[] ids;
+        final String[] titles;
+        final int[] popularity;
+        final String[][] docTokens;
+        // Movie ids in ascending order and their numbers, for docOf
+        final int[] sortedIds;
+        final int[] sortedDocs;
+        // Trigram -> ordinals of the tokens containing it, ascending
+        final Map<String, int[]> trigrams;
+        // One- and two-character prefix -> its best MAX_LIMIT movies
+        final Map<String, int[]> prefixTop;
+
+        private Segment(String[] dictionary, int[][] postings, int[] ids, String[] titles, int[] popularity,
+                        String[][] docTokens) {
+            this.dictionary = dictionary;
+            this.postings = postings;
+            this.ids = ids;
+            this.titles = titles;
+            this.popularity = popularity;
+            this.docTokens = docTokens;
+            this.postingsBefore = new long[dictionary.length + 1];
+            for (int t = 0; t < dictionary.length; t++) {
+                postingsBefore[t + 1] = postingsBefore[t] + postings[t].length;
+            }
+
+            Integer[] byId = new Integer[ids.length];
+            for (int doc = 0; doc < ids.length; doc++) {
+                byId[doc] = doc;
+            }
+            Arrays.sort(byId, Comparator.comparingInt(doc -> ids[doc]));
+            this.sortedIds = new int[ids.length];
+            this.sortedDocs = new int[ids.length];
+            for (int i = 0; i < byId.length; i++) {
+                sortedDocs[i] = byId[i];
+                sortedIds[i] = ids[byId[i]];
+            }
+
+            Map<String, IntList> grams = new HashMap<>();
+            for (int t = 0; t < dictionary.length; t++) {
+                String token = dictionary[t];
+                for (int i = 0; i + NGRAM <= token.length(); i++) {
+                    IntList list = grams.computeIfAbsent(token.substring(i, i + NGRAM), gram -> new IntList());
+                    if (list.size == 0 || list.values[list.size - 1] != t) {
+                        list.add(t);
+                    }
+                }
+            }
+            this.trigrams = new HashMap<>();
+            grams.forEach((gram, list) -> trigrams.put(gram, list.toArray()));
+
+            this.prefixTop = new HashMap<>();
+            for (String token : dictionary) {
+                for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH && length <= token.length(); length++) {
+                    String prefix = token.substring(0, length);
+                    if (!prefixTop.containsKey(prefix)) {
+                        int[] range = prefixRange(prefix);
+                        prefixTop.put(prefix, merge(range[0], range[1], null, MAX_LIMIT, doc -> true));
+                    }
+                }
+            }
+        }
+
+        static Segment build(List<Movie> movies, Map<Integer, Integer> rentals) {
+            List<Movie> ranked = new ArrayList<>(movies);
+            ranked.sort(Comparator.comparingInt((Movie movie) -> -rentals.getOrDefault(movie.getId(), 0))
+                .thenComparing(Movie::getTitle, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparingInt(Movie::getId));
+            int[] ids = new int[ranked.size()];
+            String[] titles = new String[ranked.size()];
+            int[] popularity = new int[ranked.size()];
+            String[][] docTokens = new String[ranked.size()][];
+            Map<String, IntList> lists = new HashMap<>();
+            for (int doc = 0; doc < ranked.size(); doc++) {
+                Movie movie = ranked.get(doc);
+                ids[doc] = movie.getId();
+                titles[doc] = movie.getTitle();
+                popularity[doc] = rentals.getOrDefault(movie.getId(), 0);
+                Set<String> tokens = new LinkedHashSet<>(tokens(movie.getTitle() + " " + movie.getGenre()));
+                docTokens[doc] = new String[tokens.size()];
+                int i = 0;
+                for (String token : tokens) {
+                    IntList list = lists.get(token);
+                    if (list == null) {
+                        // Movies share the dictionary's copy of each token
+                        list = new IntList();
+                        list.token = token;
+                        lists.put(token, list);
+                    }
+                    list.add(doc);
+                    docTokens[doc][i++] = list.token;
+                }
+            }
+            String[] dictionary = lists.keySet().toArray(new String[0]);
+            Arrays.sort(dictionary);
+            int[][] postings = new int[dictionary.length][];
+            for (int t = 0; t < dictionary.length; t++) {
+                postings[t] = lists.get(dictionary[t]).toArray();
+            }
+            return new Segment(dictionary, postings, ids, titles, popularity, docTokens);
+        }
+
+        // Number of a movie id, or -1
+        int docOf(int id) {
+            int i = Arrays.binarySearch(sortedIds, id);
+            return i >= 0 ? sortedDocs[i] : -1;
+        }
+
+        // Up to limit accepted movies matching every term, best first
+        int[] search(List<String> terms, boolean infix, int limit, DocFilter accept) {
+            // Drive the merge with the most selective term; the others are checked per movie
+            int[] best = null;
+            int[] bestTokens = null;
+            long bestPostings = Long.MAX_VALUE;
+            String driver = null;
+            for (String term : terms) {
+                int[] range = prefixRange(term);
+                int[] extra = infix ? infixTokens(term, range) : null;
+                long total = postingsBefore[range[1]] - postingsBefore[range[0]];
+                if (extra != null) {
+                    for (int t : extra) {
+                        total += postings[t].length;
+                    }
+                }
+                if (total < bestPostings) {
+                    bestPostings = total;
+                    best = range;
+                    bestTokens = extra;
+                    driver = term;
+                }
+            }
+            if (bestPostings == 0) {
+                return new int[0];
+            }
+            List<String> others = new ArrayList<>(terms);
+            others.remove(driver);
+            DocFilter filter = others.isEmpty() ? accept
+                : doc -> accept.accept(doc) && matches(docTokens[doc], others, infix);
+
+            // Short prefixes alone are answered from the precomputed lists when those suffice
+            int[] top = !infix && others.isEmpty() && driver.length() <= PRECOMPUTED_PREFIX_LENGTH
+                ? prefixTop.get(driver) : null;
+            if (top != null) {
+                IntList hits = new IntList();
+                for (int doc : top) {
+                    if (hits.size < limit && filter.accept(doc)) {
+                        hits.add(doc);
+                    }
+                }
+                if (hits.size == limit || top.length < MAX_LIMIT) {
+                    return hits.toArray();
+                }
+            }
+            return merge(best[0], best[1], bestTokens, limit, filter);
+        }
+
+        // Ordinals of the tokens containing term that are outside the prefix range, ascending
+        private int[] infixTokens(String term, int[] range) {
+            if (term.length() < NGRAM) {
+                return new int[0];
+            }
+            int[] candidates = null;
+            for (int i = 0; i + NGRAM <= term.length(); i++) {
+                int[] list = trigrams.get(term.substring(i, i + NGRAM));
+                if (list == null) {
+                    return new int[0];
+                }
+                if (candidates == null || list.length < candidates.length) {
+                    candidates = list;
+                }
+            }
+            IntList tokens = new IntList();
+            for (int t : candidates) {
+                if ((t < range[0] || t >= range[1]) && dictionary[t].contains(term)) {
+                    tokens.add(t);
+                }
+            }
+            return tokens.toArray();
+        }
+
+        // Dictionary ordinals [from, to) of the tokens starting with prefix
+        int[] prefixRange(String prefix) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            return new int[] {from, to};
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = dictionary.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (dictionary[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // k-way merge of the posting lists of tokens [from, to) plus extra, in movie order,
+        // stopping at limit accepted movies. A binary heap of list heads keyed by movie number.
+        private int[] merge(int from, int to, int[] extra, int limit, DocFilter accept) {
+            int lists = (to - from) + (extra == null ? 0 : extra.length);
+            int[] heapList = new int[lists];
+            int[] heapPos = new int[lists];
+            int size = 0;
+            for (int t = from; t < to; t++) {
+                heapList[size++] = t;
+            }
+            if (extra != null) {
+                for (int t : extra) {
+                    heapList[size++] = t;
+                }
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(heapList, heapPos, size, i);
+            }
+            IntList hits = new IntList();
+            int last = -1;
+            while (size > 0 && hits.size < limit) {
+                int doc = postings[heapList[0]][heapPos[0]];
+                if (doc != last) {
+                    last = doc;
+                    if (accept.accept(doc)) {
+                        hits.add(doc);
+                    }
+                }
+                if (++heapPos[0] == postings[heapList[0]].length) {
+                    size--;
+                    heapList[0] = heapList[size];
+                    heapPos[0] = heapPos[size];
+                }
+                siftDown(heapList, heapPos, size, 0);
+            }
+            return hits.toArray();
+        }
+
+        private void siftDown(int[] heapList, int[] heapPos, int size, int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && head(heapList, heapPos, left) < head(heapList, heapPos, smallest)) {
+                    smallest = left;
+                }
+                if (right < size && head(heapList, heapPos, right) < head(heapList, heapPos, smallest)) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                int list = heapList[i];
+                int pos = heapPos[i];
+                heapList[i] = heapList[smallest];
+                heapPos[i] = heapPos[smallest];
+                heapList[smallest] = list;
+                heapPos[smallest] = pos;
+                i = smallest;
+            }
+        }
+
+        private int head(int[] heapList, int[] heapPos, int i) {
+            return postings[heapList[i]][heapPos[i]];
+        }
+    }
+
+    // Growable int array
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+        String token;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package index;
+
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel. Time is cut into ticks; each level is a ring of slots, level 0
+// one tick per slot and each level above covering a whole ring of the level below. A timer
+// goes into the lowest level whose span reaches its deadline, so scheduling and cancelling
+// are O(1). When a ring wraps, the matching slot of the next level is cascaded: its timers
+// move down a level, closer to their deadline. Each timer cascades at most once per level,
+// and advancing costs O(1) per tick plus the timers that fire. Deadlines beyond the top
+// level wait in its last slot and are placed again when it cascades.
+// Not thread-safe; callers serialise access.
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final Timer<T>[][] slots;
+    private long currentTick;
+    private int size;
+
+    // A scheduled item; slots hold their timers in circular lists headed by a sentinel
+    public static final class Timer<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    // slotsPerLevel is rounded up to a power of two
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, int slotsPerLevel, int levels, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(2, slotsPerLevel) - 1));
+        this.mask = (1 << bits) - 1;
+        this.levels = Math.max(1, Math.min(levels, 62 / bits));
+        this.slots = new Timer[this.levels][1 << bits];
+        for (Timer<T>[] level : slots) {
+            for (int slot = 0; slot < level.length; slot++) {
+                Timer<T> sentinel = new Timer<>(null, 0);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[slot] = sentinel;
+            }
+        }
+        this.currentTick = nowMillis / this.tickMillis;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Schedule an item; a deadline already passed fires on the next advance
+    public Timer<T> schedule(long deadlineMillis, T item) {
+        Timer<T> timer = new Timer<>(item, Math.max(deadlineMillis / tickMillis, currentTick));
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    // Remove a timer that has not fired; false if it already fired or was cancelled
+    public boolean cancel(Timer<T> timer) {
+        if (timer == null || !timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    // Move time forward to nowMillis, handing every timer that fell due to expired
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        fire(expired);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the top so timers can fall through several levels on one tick
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * bits)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (level * bits)) & mask));
+                }
+            }
+            fire(expired);
+        }
+    }
+
+    private void fire(Consumer<T> expired) {
+        Timer<T> sentinel = slots[0][(int) (currentTick & mask)];
+        while (sentinel.next != sentinel) {
+            Timer<T> timer = sentinel.next;
+            unlink(timer);
+            size--;
+            expired.accept(timer.item);
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> sentinel = slots[level][slot];
+        Timer<T> timer = sentinel.next;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        while (timer != sentinel) {
+            Timer<T> next = timer.next;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        long ticks = timer.deadlineTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << ((level + 1) * bits)) {
+            level++;
+        }
+        if (level == levels - 1 && delta >= 1L << (levels * bits)) {
+            // Beyond the wheel: park in the top slot that cascades last
+            ticks = currentTick + (1L << (levels * bits)) - 1;
+        }
+        Timer<T> sentinel = slots[level][(int) ((ticks >>> (level * bits)) & mask)];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    private static <T> void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}
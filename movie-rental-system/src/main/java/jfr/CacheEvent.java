@@ -0,0 +1,23 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A lookup against one of the in-memory caches or indexes
+@Name("movierental.Cache")
+@Label("Cache Access")
+@Category({"Movie Rental", "Cache"})
+@StackTrace(false)
+public class CacheEvent extends Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Key")
+    String key;
+
+    @Label("Hit")
+    boolean hit;
+}
@@ -0,0 +1,33 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One public DAO method call, from entry to return
+@Name("movierental.DaoCall")
+@Label("DAO Call")
+@Category({"Movie Rental", "Database"})
+@Description("A DAO method call with the SQL it issued and the rows it touched")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("SQL")
+    @Description("Distinct statements issued by the call, separated by ';'")
+    String sql;
+
+    @Label("Statements")
+    int statements;
+
+    @Label("Rows")
+    @Description("Rows fetched plus rows updated")
+    long rows;
+
+    // The call this one was made from, current again once this one returns; not recorded
+    transient DaoCallEvent outer;
+}
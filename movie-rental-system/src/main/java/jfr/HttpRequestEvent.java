@@ -0,0 +1,26 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One API request handled by MovieRentalServlet
+@Name("movierental.HttpRequest")
+@Label("HTTP Request")
+@Category({"Movie Rental", "HTTP"})
+@StackTrace(false)
+public class HttpRequestEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    String route;
+
+    @Label("Status")
+    int status;
+
+    @Label("SQL Statements")
+    int statements;
+}
@@ -0,0 +1,119 @@
+package jfr;
+
+// Flight Recorder events emitted by the DAOs, the JDBC tracer and the servlet.
+// Each event type is checked with isEnabled() first, so with no recording running
+// (or the event disabled in the settings profile) a call costs one flag check.
+public final class JfrEvents {
+    // SQL text kept per DAO call event; a call rarely issues more than a few distinct statements
+    private static final int MAX_SQL_LENGTH = 2000;
+
+    private static final ThreadLocal<DaoCallEvent> CURRENT_DAO_CALL = new ThreadLocal<>();
+
+    private JfrEvents() {}
+
+    // A DAO method was entered; starts its call event, which takes the statements issued until
+    // it finishes. Null when DAO call events are not being recorded
+    public static DaoCallEvent daoCallStarted() {
+        DaoCallEvent event = new DaoCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.outer = CURRENT_DAO_CALL.get();
+        event.begin();
+        CURRENT_DAO_CALL.set(event);
+        return event;
+    }
+
+    // Whether DAO call events are being recorded, which want the rows of every statement
+    public static boolean isRecordingDaoCalls() {
+        return new DaoCallEvent().isEnabled();
+    }
+
+    // A statement finished inside the current DAO call
+    public static void statementFinished(String sql, long rows) {
+        DaoCallEvent event = CURRENT_DAO_CALL.get();
+        if (event == null) {
+            return;
+        }
+        event.statements++;
+        event.rows += rows;
+        if (sql != null && (event.sql == null || !event.sql.contains(sql))) {
+            String joined = event.sql == null ? sql : event.sql + "; " + sql;
+            event.sql = joined.length() > MAX_SQL_LENGTH ? joined.substring(0, MAX_SQL_LENGTH) : joined;
+        }
+    }
+
+    // A DAO method returned; commits the event daoCallStarted() gave it under the method's name
+    // and hands later statements back to the call it was made from
+    public static void daoCallFinished(DaoCallEvent event, String method) {
+        if (event == null) {
+            return;
+        }
+        if (event.outer == null) {
+            CURRENT_DAO_CALL.remove();
+        } else {
+            CURRENT_DAO_CALL.set(event.outer);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.commit();
+        }
+    }
+
+    // Start a transaction event; null when transaction events are not being recorded
+    public static TransactionEvent transactionStarted() {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void transactionFinished(TransactionEvent event, boolean committed, int statements) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.outcome = committed ? "COMMIT" : "ROLLBACK";
+            event.statements = statements;
+            event.commit();
+        }
+    }
+
+    // Start an HTTP request event; null when request events are not being recorded
+    public static HttpRequestEvent requestStarted() {
+        HttpRequestEvent event = new HttpRequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void requestFinished(HttpRequestEvent event, String method, String route, int status, int statements) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.route = route;
+            event.status = status;
+            event.statements = statements;
+            event.commit();
+        }
+    }
+
+    public static void cacheAccess(String cache, Object key, boolean hit) {
+        CacheEvent event = new CacheEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.key = key == null ? null : String.valueOf(key);
+            event.hit = hit;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One explicit transaction, from setAutoCommit(false) or the previous commit to commit or rollback
+@Name("movierental.Transaction")
+@Label("Transaction")
+@Category({"Movie Rental", "Database"})
+@Description("A JDBC transaction ended by commit or rollback")
+@StackTrace(false)
+public class TransactionEvent extends Event {
+    @Label("Outcome")
+    @Description("COMMIT or ROLLBACK")
+    String outcome;
+
+    @Label("Statements")
+    int statements;
+}
@@ -0,0 +1,28 @@
+package jobs;
+
+import cache.Change;
+import cache.ChangeFeed;
+import dao.DAOFactory;
+import dao.MovieCopyDAO;
+import util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Keeps movies.available_copies in step with movie_copies when per-copy inventory is enabled
+public class InventoryReconciler implements Runnable {
+    private final MovieCopyDAO movieCopyDAO = DAOFactory.movieCopyDAO();
+
+    @Override
+    public void run() {
+        try (Connection conn = DatabaseConnection.openConnection()) {
+            int corrected = movieCopyDAO.reconcileAvailableCopies(conn);
+            // The UPDATE does not say which movies it touched
+            if (corrected > 0 && DAOFactory.isCached()) {
+                ChangeFeed.getInstance().publish(Change.MOVIE, Change.ALL);
+            }
+        } catch (SQLException e) {
+            System.err.println("Inventory reconciliation failed: " + e.getMessage());
+        }
+    }
+}
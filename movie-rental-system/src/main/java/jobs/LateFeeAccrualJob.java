@@ -0,0 +1,282 @@
+package jobs;
+
+import dao.JdbcLateFeeDAO;
+import dao.LateFeeTierTable;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Nightly job that writes the late fee accrued so far onto every overdue open rental.
+// Open rentals are read in id-ordered (keyset) chunks, priced by a pool of workers
+// and written back with batched UPDATEs. The highest id below which every chunk has
+// been written is checkpointed, so a failed run resumes where it stopped.
+public class LateFeeAccrualJob implements Runnable {
+    private static final String JOB_NAME = "late-fee-accrual";
+
+    private final int chunkSize;
+    private final int workers;
+    private final int maxInFlight;
+
+    public LateFeeAccrualJob() {
+        this(DatabaseConfig.getInt("accrual.chunk.size", 5000),
+             DatabaseConfig.getInt("accrual.workers", 4),
+             DatabaseConfig.getInt("accrual.max.in.flight", 8));
+    }
+
+    public LateFeeAccrualJob(int chunkSize, int workers, int maxInFlight) {
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+        this.maxInFlight = Math.max(maxInFlight, workers);
+    }
+
+    public static void main(String[] args) {
+        new LateFeeAccrualJob().run();
+    }
+
+    @Override
+    public void run() {
+        try {
+            int updated = accrue(LocalDate.now());
+            System.out.println("Late fee accrual finished, " + updated + " rentals updated");
+        } catch (SQLException e) {
+            System.err.println("Late fee accrual failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Accrue late fees as of the given date; returns the number of rentals updated
+    public int accrue(LocalDate asOf) throws SQLException, InterruptedException {
+        LateFeeTierTable tiers = LateFeeTierTable.load(new JdbcLateFeeDAO());
+        List<Connection> workerConnections = new ArrayList<>();
+        ThreadLocal<Connection> workerConnection = new ThreadLocal<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "late-fee-accrual");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<SQLException> failure = new AtomicReference<>();
+        AtomicInteger updated = new AtomicInteger();
+        // Workers write to the shard this run was started on
+        Integer shard = Shards.current();
+
+        try (Connection reader = DatabaseConnection.openConnection();
+             Connection checkpointConn = DatabaseConnection.openConnection()) {
+            Checkpoint checkpoint = Checkpoint.open(checkpointConn, asOf);
+            if (checkpoint.completed) {
+                return 0;
+            }
+
+            String sql = "SELECT id, due_date FROM rentals " +
+                        "WHERE return_date IS NULL AND due_date < ? AND id > ? " +
+                        "ORDER BY id LIMIT ?";
+            int lastId = checkpoint.lastId;
+            int sequence = 0;
+
+            try (PreparedStatement stmt = reader.prepareStatement(sql)) {
+                while (failure.get() == null) {
+                    stmt.setDate(1, Date.valueOf(asOf));
+                    stmt.setInt(2, lastId);
+                    stmt.setInt(3, chunkSize);
+
+                    int count = 0;
+                    int[] ids = new int[chunkSize];
+                    long[] dueDays = new long[chunkSize];
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids[count] = rs.getInt(1);
+                            dueDays[count] = rs.getDate(2).toLocalDate().toEpochDay();
+                            count++;
+                        }
+                    }
+                    if (count == 0) {
+                        break;
+                    }
+
+                    lastId = ids[count - 1];
+                    Chunk chunk = new Chunk(sequence++, ids, dueDays, count, lastId);
+                    checkpoint.started(chunk);
+
+                    // Bound the number of chunks held in memory while the workers catch up
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        try {
+                            if (failure.get() == null) {
+                                Connection conn = workerConnection.get();
+                                if (conn == null) {
+                                    conn = Shards.on(shard, DatabaseConnection::openConnection);
+                                    synchronized (workerConnections) {
+                                        workerConnections.add(conn);
+                                    }
+                                    workerConnection.set(conn);
+                                }
+                                updated.addAndGet(writeChunk(conn, chunk, tiers, asOf));
+                                checkpoint.finished(chunk);
+                            }
+                        } catch (SQLException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+
+                    if (count < chunkSize) {
+                        break;
+                    }
+                }
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            checkpoint.complete();
+            return updated.get();
+        } finally {
+            pool.shutdownNow();
+            synchronized (workerConnections) {
+                for (Connection conn : workerConnections) {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        System.err.println("Error closing accrual connection: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    // Price one chunk and write it back in a single batched transaction
+    private int writeChunk(Connection conn, Chunk chunk, LateFeeTierTable tiers, LocalDate asOf) throws SQLException {
+        String sql = "UPDATE rentals SET accrued_late_fee = ?, accrued_at = ? WHERE id = ? AND return_date IS NULL";
+        long today = asOf.toEpochDay();
+        Date accruedAt = Date.valueOf(asOf);
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < chunk.count; i++) {
+                BigDecimal fee = tiers.calculateLateFee((int) (today - chunk.dueDays[i]));
+                stmt.setBigDecimal(1, fee);
+                stmt.setDate(2, accruedAt);
+                stmt.setInt(3, chunk.ids[i]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            return chunk.count;
+        } catch (SQLException e) {
+            DatabaseConnection.rollback(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static class Chunk {
+        final int sequence;
+        final int[] ids;
+        final long[] dueDays;
+        final int count;
+        final int lastId;
+
+        Chunk(int sequence, int[] ids, long[] dueDays, int count, int lastId) {
+            this.sequence = sequence;
+            this.ids = ids;
+            this.dueDays = dueDays;
+            this.count = count;
+            this.lastId = lastId;
+        }
+    }
+
+    // Tracks chunks completing out of order and persists the contiguous low watermark
+    private static class Checkpoint {
+        private final Connection conn;
+        private final LocalDate runDate;
+        private final TreeMap<Integer, Integer> pending = new TreeMap<>();
+        private final TreeMap<Integer, Integer> done = new TreeMap<>();
+        private int lastId;
+        private boolean completed;
+
+        private Checkpoint(Connection conn, LocalDate runDate) {
+            this.conn = conn;
+            this.runDate = runDate;
+        }
+
+        static Checkpoint open(Connection conn, LocalDate runDate) throws SQLException {
+            Checkpoint checkpoint = new Checkpoint(conn, runDate);
+            String sql = "SELECT run_date, last_id, completed FROM batch_checkpoints WHERE job_name = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, JOB_NAME);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && rs.getDate("run_date").toLocalDate().equals(runDate)) {
+                        // Resume today's run
+                        checkpoint.lastId = rs.getInt("last_id");
+                        checkpoint.completed = rs.getBoolean("completed");
+                        return checkpoint;
+                    }
+                }
+            }
+
+            String upsert = "INSERT INTO batch_checkpoints (job_name, run_date, last_id, completed) VALUES (?, ?, 0, FALSE) " +
+                           "ON DUPLICATE KEY UPDATE run_date = VALUES(run_date), last_id = 0, completed = FALSE";
+            try (PreparedStatement stmt = conn.prepareStatement(upsert)) {
+                stmt.setString(1, JOB_NAME);
+                stmt.setDate(2, Date.valueOf(runDate));
+                stmt.executeUpdate();
+            }
+            return checkpoint;
+        }
+
+        synchronized void started(Chunk chunk) {
+            pending.put(chunk.sequence, chunk.lastId);
+        }
+
+        synchronized void finished(Chunk chunk) throws SQLException {
+            pending.remove(chunk.sequence);
+            done.put(chunk.sequence, chunk.lastId);
+
+            // Advance over every finished chunk older than the oldest unfinished one
+            Integer oldestPending = pending.isEmpty() ? null : pending.firstKey();
+            int watermark = lastId;
+            while (!done.isEmpty() && (oldestPending == null || done.firstKey() < oldestPending)) {
+                watermark = done.pollFirstEntry().getValue();
+            }
+            if (watermark != lastId) {
+                lastId = watermark;
+                save(false);
+            }
+        }
+
+        synchronized void complete() throws SQLException {
+            completed = true;
+            save(true);
+        }
+
+        private void save(boolean complete) throws SQLException {
+            String sql = "UPDATE batch_checkpoints SET last_id = ?, completed = ? WHERE job_name = ? AND run_date = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, lastId);
+                stmt.setBoolean(2, complete);
+                stmt.setString(3, JOB_NAME);
+                stmt.setDate(4, Date.valueOf(runDate));
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
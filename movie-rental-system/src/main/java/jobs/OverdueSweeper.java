@@ -0,0 +1,64 @@
+package jobs;
+
+import index.DueDateIndex;
+import metrics.Metrics;
+import model.Rental;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Reports the rentals that became overdue since the previous sweep: their number goes to
+// overdue_sweep_rentals and one log line, and each rental to the registered listeners.
+public class OverdueSweeper implements Runnable {
+    // Notified once for every rental that becomes overdue
+    public interface OverdueListener {
+        void onOverdue(Rental rental, LocalDate asOf);
+    }
+
+    private final DueDateIndex index;
+    private final List<OverdueListener> listeners = new CopyOnWriteArrayList<>();
+    private LocalDate sweptUntil;
+
+    public OverdueSweeper(DueDateIndex index) {
+        this.index = index;
+    }
+
+    public void addListener(OverdueListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void run() {
+        if (!index.isLoaded()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        if (sweptUntil == null) {
+            // First sweep: everything already overdue is reported once
+            sweptUntil = LocalDate.MIN;
+        }
+        if (!sweptUntil.isBefore(today)) {
+            return;
+        }
+
+        // Only the due days crossed since the previous sweep are visited
+        List<Rental> newlyOverdue = index.getDueBetween(sweptUntil, today);
+        sweptUntil = today;
+        Metrics.recordOverdueSweep(newlyOverdue.size());
+        if (!newlyOverdue.isEmpty()) {
+            System.out.println("Overdue sweep: " + newlyOverdue.size() + " rentals newly overdue as of " + today);
+        }
+
+        for (Rental rental : newlyOverdue) {
+            for (OverdueListener listener : listeners) {
+                try {
+                    listener.onOverdue(rental, today);
+                } catch (RuntimeException e) {
+                    System.err.println("Overdue listener failed for rental " + rental.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package jobs;
+
+import dao.JdbcRentalDAO;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RentalArchiver implements Runnable {
+    // MySQL TO_DAYS('1970-01-01'), used to convert partition boundaries to LocalDate
+    private static final long TO_DAYS_EPOCH_OFFSET = 719528L;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final int horizonDays;
+    private final int batchSize;
+    private final long batchPauseMillis;
+    private final int monthsAhead;
+
+    public RentalArchiver() {
+        this(DatabaseConfig.getInt("archive.horizon.days", 180),
+             DatabaseConfig.getInt("archive.batch.size", 500),
+             DatabaseConfig.getInt("archive.batch.pause.ms", 200),
+             DatabaseConfig.getInt("archive.partition.months.ahead", 3));
+    }
+
+    public RentalArchiver(int horizonDays, int batchSize, long batchPauseMillis, int monthsAhead) {
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.batchPauseMillis = batchPauseMillis;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @Override
+    public void run() {
+        try (Connection conn = DatabaseConnection.openConnection()) {
+            LocalDate today = LocalDate.now();
+            LocalDate cutoff = today.minusDays(horizonDays);
+
+            int archived = archiveClosedRentals(conn, cutoff);
+            if (archived > 0) {
+                System.out.println("Archived " + archived + " rentals returned before " + cutoff);
+            }
+
+            List<String> partitions = loadMonthPartitions(conn);
+            if (partitions != null) {
+                addFuturePartitions(conn, today);
+                dropEmptyPartitions(conn, partitions, cutoff);
+            }
+        } catch (SQLException e) {
+            System.err.println("Rental archiving failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Move closed rentals older than the cutoff into rentals_archive, one throttled batch per transaction
+    public int archiveClosedRentals(Connection conn, LocalDate cutoff) throws SQLException, InterruptedException {
+        String selectSql = "SELECT id FROM rentals WHERE return_date IS NOT NULL AND return_date < ? " +
+                          "ORDER BY id LIMIT ? FOR UPDATE";
+        String columns = JdbcRentalDAO.copiedColumns();
+        int total = 0;
+
+        conn.setAutoCommit(false);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                    stmt.setDate(1, Date.valueOf(cutoff));
+                    stmt.setInt(2, batchSize);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getInt(1));
+                        }
+                    }
+                }
+
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    break;
+                }
+
+                String inList = placeholders(ids.size());
+                try (PreparedStatement copy = conn.prepareStatement(
+                        "INSERT INTO rentals_archive (" + columns + ") " +
+                        "SELECT " + columns + " FROM rentals WHERE id IN (" + inList + ")");
+                     PreparedStatement delete = conn.prepareStatement(
+                        "DELETE FROM rentals WHERE id IN (" + inList + ")")) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        copy.setInt(i + 1, ids.get(i));
+                        delete.setInt(i + 1, ids.get(i));
+                    }
+                    copy.executeUpdate();
+                    delete.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    DatabaseConnection.rollback(conn);
+                    throw e;
+                }
+
+                total += ids.size();
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                // Throttle so the archiver never monopolises the buffer pool or the redo log
+                Thread.sleep(batchPauseMillis);
+            }
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return total;
+    }
+
+    // Names of the monthly partitions in order, or null when rentals is not partitioned
+    private List<String> loadMonthPartitions(Connection conn) throws SQLException {
+        String sql = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals' " +
+                    "ORDER BY PARTITION_ORDINAL_POSITION";
+        List<String> partitions = new ArrayList<>();
+        boolean partitioned = false;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name != null) {
+                    partitioned = true;
+                    if (name.matches("p\\d{6}")) {
+                        partitions.add(name);
+                    }
+                }
+            }
+        }
+        return partitioned ? partitions : null;
+    }
+
+    // Split p_future so that monthly partitions exist up to monthsAhead months from now
+    private void addFuturePartitions(Connection conn, LocalDate today) throws SQLException {
+        String sql = "SELECT MAX(CAST(PARTITION_DESCRIPTION AS UNSIGNED)) FROM information_schema.PARTITIONS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals' " +
+                    "AND PARTITION_DESCRIPTION <> 'MAXVALUE'";
+        LocalDate boundary;
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return;
+            }
+            boundary = LocalDate.ofEpochDay(rs.getLong(1) - TO_DAYS_EPOCH_OFFSET);
+        }
+
+        LocalDate end = today.withDayOfMonth(1).plusMonths(monthsAhead + 1L);
+        StringBuilder partitions = new StringBuilder();
+        while (boundary.isBefore(end)) {
+            LocalDate next = boundary.withDayOfMonth(1).plusMonths(1);
+            partitions.append("PARTITION p").append(boundary.format(PARTITION_SUFFIX))
+                      .append(" VALUES LESS THAN (TO_DAYS('").append(next).append("')), ");
+            boundary = next;
+        }
+
+        if (partitions.length() > 0) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE rentals REORGANIZE PARTITION p_future INTO (" +
+                                   partitions + "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+            }
+        }
+    }
+
+    // Drop monthly partitions that lie entirely before the cutoff and have been emptied by archiving
+    private void dropEmptyPartitions(Connection conn, List<String> partitions, LocalDate cutoff) throws SQLException {
+        String cutoffSuffix = cutoff.withDayOfMonth(1).format(PARTITION_SUFFIX);
+        for (String partition : partitions) {
+            if (partition.substring(1).compareTo(cutoffSuffix) >= 0) {
+                break;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                boolean empty;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM rentals PARTITION (" + partition + ") LIMIT 1")) {
+                    empty = !rs.next();
+                }
+                if (empty) {
+                    stmt.executeUpdate("ALTER TABLE rentals DROP PARTITION " + partition);
+                }
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-bucket histogram. Every bucket and the sum are LongAdders, so concurrent
+// observers update striped cells instead of contending on a shared counter or lock.
+public class Histogram {
+    private final long[] upperBounds;
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    // Upper bounds are in the recorded unit (e.g. nanoseconds), ascending
+    public Histogram(long[] upperBounds) {
+        this.upperBounds = upperBounds;
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(long value) {
+        buckets[bucketIndex(value)].increment();
+        sum.add(value);
+    }
+
+    // Cumulative counts per bucket; the last entry is the +Inf bucket (total count)
+    public long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            counts[i] = running;
+        }
+        return counts;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long count() {
+        long total = 0;
+        for (LongAdder bucket : buckets) {
+            total += bucket.sum();
+        }
+        return total;
+    }
+
+    // Mean of the observed values, 0 before the first observation
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum() / count;
+    }
+
+    private int bucketIndex(long value) {
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= upperBounds[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
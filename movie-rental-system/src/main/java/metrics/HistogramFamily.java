@@ -0,0 +1,89 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A named histogram metric with one child histogram per combination of label values
+public class HistogramFamily {
+    private static final String LABEL_SEPARATOR = "\u0001";
+
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final double[] bounds;
+    private final long[] rawBounds;
+    private final double scale;
+    private final ConcurrentHashMap<String, Histogram> children = new ConcurrentHashMap<>();
+
+    // bounds are in the exposed unit; scale converts them to the recorded unit (1e9 for seconds recorded as nanos)
+    HistogramFamily(String name, String help, String[] labelNames, double[] bounds, double scale) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+        this.bounds = bounds;
+        this.scale = scale;
+        this.rawBounds = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            rawBounds[i] = Math.round(bounds[i] * scale);
+        }
+    }
+
+    public Histogram labels(String... values) {
+        String key = values.length == 1 ? values[0] : String.join(LABEL_SEPARATOR, values);
+        Histogram histogram = children.get(key);
+        if (histogram == null) {
+            histogram = children.computeIfAbsent(key, k -> new Histogram(rawBounds));
+        }
+        return histogram;
+    }
+
+    // Append this family in Prometheus text exposition format
+    void writeTo(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+
+        for (Map.Entry<String, Histogram> child : children.entrySet()) {
+            String labels = formatLabels(child.getKey().split(LABEL_SEPARATOR, -1));
+            long[] counts = child.getValue().cumulativeCounts();
+
+            for (int i = 0; i < counts.length; i++) {
+                String le = i < bounds.length ? formatNumber(bounds[i]) : "+Inf";
+                out.append(name).append("_bucket{").append(labels);
+                if (!labels.isEmpty()) {
+                    out.append(',');
+                }
+                out.append("le=\"").append(le).append("\"} ").append(counts[i]).append('\n');
+            }
+            String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+            out.append(name).append("_sum").append(braces).append(' ')
+               .append(formatNumber(child.getValue().sum() / scale)).append('\n');
+            out.append(name).append("_count").append(braces).append(' ')
+               .append(counts[counts.length - 1]).append('\n');
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    private String formatLabels(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = i < values.length ? values[i] : "";
+            sb.append(labelNames[i]).append("=\"")
+              .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+              .append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,116 @@
+package metrics;
+
+import jfr.DaoCallEvent;
+import jfr.JfrEvents;
+
+// Metrics recorded by the DAOs, the connection helper and the servlet
+public final class Metrics {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double[] LATENCY_BUCKETS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final double[] ROW_BUCKETS = {
+        0, 1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 50000, 100000, 1000000
+    };
+    private static final double[] BYTE_BUCKETS = {
+        256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864
+    };
+    private static final double[] ALLOCATION_BUCKETS = {
+        16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864, 268435456, 1073741824
+    };
+
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.getInstance();
+
+    private static final HistogramFamily DAO_DURATION = REGISTRY.histogram("dao_call_duration_seconds",
+        "Latency of DAO method calls", new String[] {"method"}, LATENCY_BUCKETS, NANOS_PER_SECOND);
+    private static final HistogramFamily DAO_ROWS = REGISTRY.histogram("dao_rows_returned",
+        "Rows returned by DAO list methods", new String[] {"method"}, ROW_BUCKETS, 1);
+    private static final HistogramFamily CONNECTION_WAIT = REGISTRY.histogram("db_connection_acquire_seconds",
+        "Time spent obtaining a database connection", new String[0], LATENCY_BUCKETS, NANOS_PER_SECOND);
+    private static final HistogramFamily HTTP_DURATION = REGISTRY.histogram("http_request_duration_seconds",
+        "Latency of API requests", new String[] {"route", "method", "status"}, LATENCY_BUCKETS, NANOS_PER_SECOND);
+    private static final HistogramFamily REQUEST_STATEMENTS = REGISTRY.histogram("http_request_sql_statements",
+        "SQL statements executed per API request", new String[] {"route"}, ROW_BUCKETS, 1);
+    private static final HistogramFamily JSON_BYTES = REGISTRY.histogram("http_response_json_bytes",
+        "Size of JSON response bodies", new String[] {"route"}, BYTE_BUCKETS, 1);
+    private static final HistogramFamily REQUEST_ALLOCATED = REGISTRY.histogram("http_request_allocated_bytes",
+        "Heap bytes allocated by the request thread per API request", new String[] {"route"}, ALLOCATION_BUCKETS, 1);
+    private static final HistogramFamily REQUEST_CPU = REGISTRY.histogram("http_request_cpu_seconds",
+        "CPU time used by the request thread per API request", new String[] {"route"}, LATENCY_BUCKETS, NANOS_PER_SECOND);
+    private static final HistogramFamily CHECKOUT_GROUP = REGISTRY.histogram("checkout_group_commit_size",
+        "Checkouts committed together by the group commit coordinator", new String[0], ROW_BUCKETS, 1);
+    private static final HistogramFamily OVERDUE_SWEEP = REGISTRY.histogram("overdue_sweep_rentals",
+        "Rentals found newly overdue per overdue sweep", new String[0], ROW_BUCKETS, 1);
+    private static final HistogramFamily PROJECTION_LAG = REGISTRY.histogram("eventlog_projection_lag_seconds",
+        "Time from appending a rental event to its projection into MySQL", new String[0], LATENCY_BUCKETS, NANOS_PER_SECOND);
+    private static final HistogramFamily INVALIDATION_LAG = REGISTRY.histogram("cache_invalidation_lag_seconds",
+        "Time from a write on another API node to its cache invalidation here", new String[0], LATENCY_BUCKETS, NANOS_PER_SECOND);
+
+    private Metrics() {}
+
+    // Called by TimedDAO when a call into a storage engine returns, with the JFR call event
+    // JfrEvents.daoCallStarted() began on entry, which it closes
+    public static void recordDaoCall(String method, long startNanos, DaoCallEvent call) {
+        DAO_DURATION.labels(method).observe(System.nanoTime() - startNanos);
+        JfrEvents.daoCallFinished(call, method);
+    }
+
+    public static void recordDaoRows(String method, int rows) {
+        DAO_ROWS.labels(method).observe(rows);
+    }
+
+    public static void recordConnectionWait(long startNanos) {
+        CONNECTION_WAIT.labels().observe(System.nanoTime() - startNanos);
+    }
+
+    public static void recordHttpRequest(String route, String method, int status, long startNanos) {
+        HTTP_DURATION.labels(route, method, Integer.toString(status)).observe(System.nanoTime() - startNanos);
+    }
+
+    public static void recordRequestStatements(String route, int statements) {
+        REQUEST_STATEMENTS.labels(route).observe(statements);
+    }
+
+    public static void recordJsonBytes(String route, int bytes) {
+        JSON_BYTES.labels(route).observe(bytes);
+    }
+
+    public static void recordRequestAllocation(String route, long bytes) {
+        REQUEST_ALLOCATED.labels(route).observe(bytes);
+    }
+
+    public static void recordRequestCpu(String route, long cpuNanos) {
+        REQUEST_CPU.labels(route).observe(cpuNanos);
+    }
+
+    public static void recordCheckoutGroup(int checkouts) {
+        CHECKOUT_GROUP.labels().observe(checkouts);
+    }
+
+    public static void recordOverdueSweep(int newlyOverdue) {
+        OVERDUE_SWEEP.labels().observe(newlyOverdue);
+    }
+
+    // appendedMillis is the event's wall-clock timestamp from the log
+    public static void recordProjectionLag(long appendedMillis) {
+        PROJECTION_LAG.labels().observe(Math.max(0, System.currentTimeMillis() - appendedMillis) * 1_000_000L);
+    }
+
+    // publishedMillis is the writing node's wall clock, so clock skew between nodes shows up here
+    public static void recordInvalidationLag(long publishedMillis) {
+        INVALIDATION_LAG.labels().observe(Math.max(0, System.currentTimeMillis() - publishedMillis) * 1_000_000L);
+    }
+
+    // Mean bytes allocated per request on a route so far, used to spot outliers
+    public static double meanRequestAllocation(String route) {
+        return REQUEST_ALLOCATED.labels(route).mean();
+    }
+
+    public static double meanRequestCpu(String route) {
+        return REQUEST_CPU.labels(route).mean();
+    }
+
+    public static String scrape() {
+        return REGISTRY.scrape();
+    }
+}
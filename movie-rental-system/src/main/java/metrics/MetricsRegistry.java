@@ -0,0 +1,32 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide registry of metric families, exposed in Prometheus text format
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, HistogramFamily> histograms = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public HistogramFamily histogram(String name, String help, String[] labelNames, double[] bounds, double scale) {
+        return histograms.computeIfAbsent(name, n -> new HistogramFamily(n, help, labelNames, bounds, scale));
+    }
+
+    public String scrape() {
+        List<HistogramFamily> families = new ArrayList<>(histograms.values());
+        families.sort(Comparator.comparing(HistogramFamily::getName));
+
+        StringBuilder out = new StringBuilder(4096);
+        for (HistogramFamily family : families) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+}
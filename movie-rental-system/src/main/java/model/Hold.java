@@ -0,0 +1,65 @@
+package model;
+
+import java.time.LocalDateTime;
+
+// A copy of a movie set aside for a user until expiresAt, then confirmed into a rental or released
+public class Hold {
+    private int id;
+    private int userId;
+    private int movieId;
+    private LocalDateTime expiresAt;
+
+    // Default constructor
+    public Hold() {}
+
+    // Full constructor
+    public Hold(int id, int userId, int movieId, LocalDateTime expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.movieId = movieId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(int movieId) {
+        this.movieId = movieId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", movieId=" + movieId +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
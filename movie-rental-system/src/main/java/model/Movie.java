@@ -8,6 +8,7 @@ public class Movie {
     private String title;
     private String genre;
     private int availableCopies;
+    private int version; // Incremented on every update, used for optimistic locking
     private LocalDateTime createdAt;
     private BigDecimal currentPrice; // To store the current price based on pricing category
 
@@ -63,6 +64,14 @@ public class Movie {
         this.availableCopies = availableCopies;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
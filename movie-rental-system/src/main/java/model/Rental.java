@@ -15,6 +15,7 @@ public class Rental {
     private BigDecimal basePrice;
     private BigDecimal lateFee;
     private BigDecimal totalPrice;
+    private Integer copyId; // Set when per-copy inventory is enabled
     private LocalDateTime createdAt;
 
     // Additional fields for displaying rental information
@@ -124,6 +125,14 @@ public class Rental {
         this.totalPrice = totalPrice;
     }
 
+    public Integer getCopyId() {
+        return copyId;
+    }
+
+    public void setCopyId(Integer copyId) {
+        this.copyId = copyId;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -179,6 +188,7 @@ public class Rental {
                 ", basePrice=" + basePrice +
                 ", lateFee=" + lateFee +
                 ", totalPrice=" + totalPrice +
+                ", copyId=" + copyId +
                 ", createdAt=" + createdAt +
                 '}';
     }
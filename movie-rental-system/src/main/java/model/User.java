@@ -7,6 +7,7 @@ public class User {
     private String name;
     private String email;
     private String phone;
+    private int version; // Incremented on every update, used for optimistic locking
     private LocalDateTime createdAt;
 
     // Default constructor
@@ -61,6 +62,14 @@ public class User {
         this.phone = phone;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
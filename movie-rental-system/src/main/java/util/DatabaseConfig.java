@@ -24,15 +24,42 @@ public class DatabaseConfig {
     }
 
     public static String getUrl() {
-        return props.getProperty("db.url", DEFAULT_URL);
+        return get("db.url", DEFAULT_URL);
     }
 
     public static String getUser() {
-        return props.getProperty("db.user", DEFAULT_USER);
+        return get("db.user", DEFAULT_USER);
     }
 
     public static String getPassword() {
-        return props.getProperty("db.password", DEFAULT_PASSWORD);
+        return get("db.password", DEFAULT_PASSWORD);
+    }
+
+    // Generic accessors for application settings kept alongside the connection settings.
+    // A JVM system property of the same name (-Ddb.url=...) overrides the file.
+    public static String get(String key, String defaultValue) {
+        String override = System.getProperty(key);
+        return override != null ? override : props.getProperty(key, defaultValue);
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
     }
 
     public static void setCredentials(String url, String user, String password) {
@@ -1,31 +1,112 @@
 package util;
 
+import metrics.Metrics;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/movie_rental_system";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
-    
     private static Connection connection = null;
+    // Threads that called useOwnConnections() get connections of their own, one per shard
+    private static final ThreadLocal<Connection[]> OWN = new ThreadLocal<>();
+    private static final List<Connection> OWNED = new ArrayList<>();
 
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        RequestTimings.markDispatched();
+        long started = System.nanoTime();
+        try {
+            Connection[] own = OWN.get();
+            if (own != null) {
+                return ownConnection(own);
+            }
+            if (Shards.isEnabled()) {
+                Integer shard = Shards.current();
+                return Shards.connection(shard != null ? shard : 0);
+            }
+            if (connection == null || connection.isClosed()) {
+                connection = JdbcTracer.wrap(connect());
+            }
+            return connection;
+        } finally {
+            Metrics.recordConnectionWait(started);
+            RequestTimings.add(RequestTimings.Phase.ACQUIRE, System.nanoTime() - started);
+        }
+    }
+
+    // Open a dedicated connection for background work; the caller must close it
+    public static Connection openConnection() throws SQLException {
+        RequestTimings.markDispatched();
+        long started = System.nanoTime();
+        try {
+            if (Shards.isEnabled()) {
+                Integer shard = Shards.current();
+                return JdbcTracer.wrap(connect(Shards.url(shard != null ? shard : 0)));
+            }
+            return JdbcTracer.wrap(connect());
+        } finally {
+            Metrics.recordConnectionWait(started);
+            RequestTimings.add(RequestTimings.Phase.ACQUIRE, System.nanoTime() - started);
+        }
+    }
+
+    // From now on getConnection() on this thread returns connections only this thread uses,
+    // opened on first use and kept until shutdown; for long-lived workers such as AsyncReads
+    public static void useOwnConnections() {
+        OWN.set(new Connection[Math.max(1, Shards.count())]);
+    }
+
+    private static Connection ownConnection(Connection[] own) throws SQLException {
+        Integer shard = Shards.isEnabled() ? Shards.current() : null;
+        int index = shard != null ? shard : 0;
+        Connection conn = own[index];
+        if (conn == null || conn.isClosed()) {
+            conn = JdbcTracer.wrap(Shards.isEnabled() ? connect(Shards.url(index)) : connect());
+            own[index] = conn;
+            synchronized (OWNED) {
+                OWNED.add(conn);
+            }
+        }
+        return conn;
+    }
+
+    private static Connection connect() throws SQLException {
+        return connect(DatabaseConfig.getUrl());
+    }
+
+    // Connect to db.url or a shard URL; other JDBC drivers register themselves through the service loader
+    static Connection connect(String url) throws SQLException {
+        if (url.startsWith("jdbc:mysql:")) {
             try {
                 Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
             } catch (ClassNotFoundException e) {
                 throw new SQLException("MySQL JDBC Driver not found.", e);
             }
         }
-        return connection;
+        // Shards share db.user and db.password unless shard.user and shard.password are set
+        if (Shards.isEnabled()) {
+            return DriverManager.getConnection(url, DatabaseConfig.get("shard.user", DatabaseConfig.getUser()),
+                                               DatabaseConfig.get("shard.password", DatabaseConfig.getPassword()));
+        }
+        return DriverManager.getConnection(url, DatabaseConfig.getUser(), DatabaseConfig.getPassword());
     }
 
     public static void closeConnection() {
+        Shards.closeConnections();
+        synchronized (OWNED) {
+            for (Connection conn : OWNED) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing database connection: " + e.getMessage());
+                }
+            }
+            OWNED.clear();
+        }
         if (connection != null) {
             try {
                 connection.close();
@@ -0,0 +1,385 @@
+package util;
+
+import jfr.JfrEvents;
+import jfr.TransactionEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Tracing wrapper for the JDBC objects handed out by DatabaseConnection.
+// Every statement is timed; statements slower than trace.slow.query.ms go to a rotating
+// slow-query log together with the DAO method that issued them. Result sets are wrapped
+// while a request is being timed, so the fetch and the mapping between next() calls reach
+// RequestTimings on every response, and while Flight Recorder records DAO call events;
+// outside requests only a sample of them is. Servlet requests are counted and flagged when
+// they run many statements; the sampled fraction (trace.sample.rate) also keeps per-SQL
+// repeat counts, which flag N+1 patterns, and the statement list for the trace log.
+// Statements and transactions are reported to Flight Recorder through JfrEvents.
+public final class JdbcTracer {
+    private static final boolean ENABLED = DatabaseConfig.getBoolean("trace.enabled", true);
+    private static final long SLOW_QUERY_NANOS = DatabaseConfig.getInt("trace.slow.query.ms", 200) * 1_000_000L;
+    private static final double SAMPLE_RATE = Double.parseDouble(DatabaseConfig.get("trace.sample.rate", "0.01"));
+    private static final int STATEMENT_WARN = DatabaseConfig.getInt("trace.request.statement.warn", 3);
+    private static final int REPEAT_WARN = DatabaseConfig.getInt("trace.request.repeat.warn", 3);
+
+    private static final Logger SLOW_LOG = createSlowLog();
+    private static final Logger TRACE_LOG = Logger.getLogger("movierental.jdbc");
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private JdbcTracer() {}
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Wrap a connection so that its statements are traced
+    public static Connection wrap(Connection connection) {
+        if (!ENABLED || connection == null || Proxy.isProxyClass(connection.getClass())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(JdbcTracer.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    // Start collecting a statement summary for the current request thread
+    public static void beginRequest(String route) {
+        if (ENABLED) {
+            CURRENT.set(new RequestTrace(route, ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE));
+        }
+    }
+
+    // Finish the current request; flagged or sampled summaries are logged
+    public static RequestTrace endRequest() {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return null;
+        }
+        CURRENT.remove();
+        if (trace.isFlagged() || trace.sampled) {
+            TRACE_LOG.info(trace.summary());
+        }
+        return trace;
+    }
+
+    public static RequestTrace currentRequest() {
+        return CURRENT.get();
+    }
+
+    // Statements issued while serving one request
+    public static class RequestTrace {
+        private final String route;
+        private final boolean sampled;
+        private final Map<String, Integer> countsBySql = new LinkedHashMap<>();
+        private final List<String> details = new ArrayList<>();
+        private int statementCount;
+        private long sqlNanos;
+
+        RequestTrace(String route, boolean sampled) {
+            this.route = route;
+            this.sampled = sampled;
+        }
+
+        void record(StatementTrace statement) {
+            statementCount++;
+            sqlNanos += statement.executeNanos + statement.fetchNanos;
+            if (sampled) {
+                countsBySql.merge(statement.sql, 1, Integer::sum);
+                details.add(statement.describe());
+            }
+        }
+
+        public int getStatementCount() {
+            return statementCount;
+        }
+
+        public long getSqlNanos() {
+            return sqlNanos;
+        }
+
+        // Many statements, or on sampled requests the same statement repeated, in a single request
+        public boolean isFlagged() {
+            if (statementCount >= STATEMENT_WARN) {
+                return true;
+            }
+            for (int count : countsBySql.values()) {
+                if (count >= REPEAT_WARN) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(route).append(": ").append(statementCount).append(" statements, ")
+              .append(sqlNanos / 1_000).append(" us in SQL");
+            if (isFlagged()) {
+                sb.append(" [possible N+1]");
+            }
+            for (Map.Entry<String, Integer> entry : countsBySql.entrySet()) {
+                sb.append("\n  ").append(entry.getValue()).append("x ").append(entry.getKey());
+            }
+            for (String detail : details) {
+                sb.append("\n  ").append(detail);
+            }
+            return sb.toString();
+        }
+    }
+
+    // Timing of one statement execution
+    static class StatementTrace {
+        final String sql;
+        final ConnectionHandler connection;
+        int bindParameters;
+        long executeNanos;
+        long fetchNanos;
+        long rows;
+        boolean finished;
+
+        StatementTrace(String sql, ConnectionHandler connection) {
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        String describe() {
+            return String.format("%.3f ms exec, %.3f ms fetch, %d rows, %d params: %s",
+                executeNanos / 1e6, fetchNanos / 1e6, rows, bindParameters, sql);
+        }
+    }
+
+    static void finish(StatementTrace trace) {
+        if (trace.finished) {
+            return;
+        }
+        trace.finished = true;
+        RequestTimings.add(RequestTimings.Phase.SQL, trace.executeNanos + trace.fetchNanos);
+        JfrEvents.statementFinished(trace.sql, trace.rows);
+        trace.connection.statementFinished();
+
+        RequestTrace request = CURRENT.get();
+        if (request != null) {
+            request.record(trace);
+        }
+        if (trace.executeNanos + trace.fetchNanos >= SLOW_QUERY_NANOS && SLOW_LOG != null) {
+            SLOW_LOG.warning(callingDaoMethod() + " " + trace.describe());
+        }
+    }
+
+    // Whether to wrap a statement's result set: while a request is timed, for a sample of the
+    // statements run outside requests, and while Flight Recorder takes DAO call events
+    private static boolean followsRows() {
+        return RequestTimings.current() != null || ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE
+               || JfrEvents.isRecordingDaoCalls();
+    }
+
+    // The DAO method that issued the statement; only computed for slow statements
+    private static String callingDaoMethod() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> frame.getClassName().startsWith("dao.") || frame.getClassName().startsWith("jobs."))
+            .findFirst()
+            .map(frame -> frame.getClassName().substring(frame.getClassName().indexOf('.') + 1) + "." + frame.getMethodName())
+            .orElse("unknown"));
+    }
+
+    private static Logger createSlowLog() {
+        if (!ENABLED) {
+            return null;
+        }
+        Logger logger = LogFiles.rotating("slow-query", "trace.slow");
+        logger.setLevel(Level.WARNING);
+        return logger;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        // Open transaction event while auto-commit is off; null when not recording
+        private TransactionEvent transaction;
+        private int transactionStatements;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = JdbcTracer.invoke(target, method, args);
+            String name = method.getName();
+
+            if ("prepareStatement".equals(name)) {
+                return Proxy.newProxyInstance(JdbcTracer.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, new StatementHandler((Statement) result, (String) args[0], this));
+            }
+            if ("createStatement".equals(name)) {
+                return Proxy.newProxyInstance(JdbcTracer.class.getClassLoader(),
+                    new Class<?>[] {Statement.class}, new StatementHandler((Statement) result, null, this));
+            }
+            if ("setAutoCommit".equals(name)) {
+                autoCommitChanged((Boolean) args[0]);
+            } else if ("commit".equals(name) || "rollback".equals(name) && (args == null || args.length == 0)) {
+                transactionEnded("commit".equals(name));
+            }
+            return result;
+        }
+
+        synchronized void statementFinished() {
+            transactionStatements++;
+        }
+
+        private synchronized void autoCommitChanged(boolean autoCommit) {
+            if (autoCommit) {
+                // Switching auto-commit back on commits any pending work
+                if (transaction != null && transactionStatements > 0) {
+                    JfrEvents.transactionFinished(transaction, true, transactionStatements);
+                }
+                transaction = null;
+            } else if (transaction == null) {
+                transaction = JfrEvents.transactionStarted();
+                transactionStatements = 0;
+            }
+        }
+
+        // The next transaction starts as soon as the previous one ends while auto-commit is off
+        private synchronized void transactionEnded(boolean committed) {
+            if (transaction == null) {
+                return;
+            }
+            JfrEvents.transactionFinished(transaction, committed, transactionStatements);
+            transaction = JfrEvents.transactionStarted();
+            transactionStatements = 0;
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final ConnectionHandler connection;
+        private int bindParameters;
+        private StatementTrace pending;
+
+        StatementHandler(Statement target, String preparedSql, ConnectionHandler connection) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("execute")) {
+                if (pending != null) {
+                    finish(pending);
+                }
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                StatementTrace trace = new StatementTrace(sql, connection);
+                trace.bindParameters = bindParameters;
+
+                long started = System.nanoTime();
+                Object result;
+                try {
+                    result = JdbcTracer.invoke(target, method, args);
+                } finally {
+                    trace.executeNanos = System.nanoTime() - started;
+                }
+
+                if (result instanceof ResultSet && followsRows()) {
+                    // Finished when the result set is closed, so fetch time and rows are included
+                    pending = trace;
+                    return Proxy.newProxyInstance(JdbcTracer.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class}, new ResultSetHandler((ResultSet) result, trace));
+                }
+                trace.rows = updateCount(result);
+                finish(trace);
+                return result;
+            }
+
+            if ("close".equals(name) && pending != null) {
+                finish(pending);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindParameters = Math.max(bindParameters, (Integer) args[0]);
+            }
+            return JdbcTracer.invoke(target, method, args);
+        }
+
+        private static long updateCount(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long total = 0;
+                for (int count : (int[]) result) {
+                    total += Math.max(count, 0);
+                }
+                return total;
+            }
+            return 0;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementTrace trace;
+        // When the caller got its last row; the gap until the next call on the cursor is mapping time
+        private long rowReturnedNanos;
+
+        ResultSetHandler(ResultSet target, StatementTrace trace) {
+            this.target = target;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if ("next".equals(name)) {
+                long started = System.nanoTime();
+                recordMapping(started);
+                Object hasRow = JdbcTracer.invoke(target, method, args);
+                long fetched = System.nanoTime();
+                trace.fetchNanos += fetched - started;
+                if (Boolean.TRUE.equals(hasRow)) {
+                    trace.rows++;
+                    rowReturnedNanos = fetched;
+                }
+                return hasRow;
+            }
+            if ("close".equals(name)) {
+                recordMapping(System.nanoTime());
+                try {
+                    return JdbcTracer.invoke(target, method, args);
+                } finally {
+                    finish(trace);
+                }
+            }
+            return JdbcTracer.invoke(target, method, args);
+        }
+
+        private void recordMapping(long now) {
+            if (rowReturnedNanos != 0) {
+                RequestTimings.add(RequestTimings.Phase.MAP, now - rowReturnedNanos);
+                rowReturnedNanos = 0;
+            }
+        }
+    }
+}
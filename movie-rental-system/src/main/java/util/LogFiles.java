@@ -0,0 +1,40 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// Rotating one-line-per-record log files under logs/
+public final class LogFiles {
+    private LogFiles() {}
+
+    // Logger writing to <prefix>.log.pattern (default logs/<name>.%g.log), rotated by size
+    public static Logger rotating(String name, String prefix) {
+        Logger logger = Logger.getLogger("movierental." + name);
+        try {
+            String pattern = DatabaseConfig.get(prefix + ".log", "logs/" + name + ".%g.log");
+            File parent = new File(pattern).getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            FileHandler handler = new FileHandler(pattern,
+                DatabaseConfig.getInt(prefix + ".log.limit.bytes", 10 * 1024 * 1024),
+                DatabaseConfig.getInt(prefix + ".log.count", 5), true);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return Instant.ofEpochMilli(record.getMillis()) + " " + record.getMessage() + System.lineSeparator();
+                }
+            });
+            logger.addHandler(handler);
+            logger.setUseParentHandlers(false);
+        } catch (IOException e) {
+            System.err.println("Log file for " + name + " unavailable, logging to console: " + e.getMessage());
+        }
+        return logger;
+    }
+}
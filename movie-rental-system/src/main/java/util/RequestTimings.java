@@ -0,0 +1,115 @@
+package util;
+
+import java.util.Locale;
+
+// Per-request phase breakdown for the Server-Timing header and the access log.
+// Phases are accumulated on the request thread; outside a request every call is a no-op.
+public final class RequestTimings {
+    public enum Phase {
+        DISPATCH("dispatch", "routing and request parsing"),
+        ACQUIRE("acquire", "connection acquire"),
+        SQL("sql", "statement execute and fetch"),
+        MAP("map", "result set mapping"),
+        SERIALIZE("serialize", "JSON serialization"),
+        WRITE("write", "response write");
+
+        private final String metricName;
+        private final String description;
+
+        Phase(String metricName, String description) {
+            this.metricName = metricName;
+            this.description = description;
+        }
+    }
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startedNanos;
+    private final long[] nanos = new long[Phase.values().length];
+    private boolean dispatched;
+    private long totalNanos = -1;
+
+    private RequestTimings(long startedNanos) {
+        this.startedNanos = startedNanos;
+    }
+
+    // Start timing the current request thread
+    public static void begin(long startedNanos) {
+        CURRENT.set(new RequestTimings(startedNanos));
+    }
+
+    // Stop timing and return the finished breakdown, or null outside a request
+    public static RequestTimings end() {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return null;
+        }
+        CURRENT.remove();
+        timings.dispatched();
+        timings.totalNanos = System.nanoTime() - timings.startedNanos;
+        return timings;
+    }
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    // Add time to a phase of the current request
+    public static void add(Phase phase, long elapsedNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.nanos[phase.ordinal()] += elapsedNanos;
+        }
+    }
+
+    // Close the dispatch phase on the first data access or response write
+    public static void markDispatched() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.dispatched();
+        }
+    }
+
+    private void dispatched() {
+        if (!dispatched) {
+            dispatched = true;
+            nanos[Phase.DISPATCH.ordinal()] = System.nanoTime() - startedNanos;
+        }
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    // Server-Timing header value, e.g. dispatch;dur=0.120;desc="routing and request parsing", sql;dur=2.481.
+    // The header is sent before the body, so the write phase is left out.
+    public String toServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (phase == Phase.WRITE) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(phase.metricName).append(";dur=").append(millis(nanos[phase.ordinal()]))
+              .append(";desc=\"").append(phase.description).append('"');
+        }
+        long total = totalNanos >= 0 ? totalNanos : System.nanoTime() - startedNanos;
+        sb.append(", total;dur=").append(millis(total));
+        return sb.toString();
+    }
+
+    // Access log fields, e.g. total=4.210 dispatch=0.120 acquire=0.015 sql=2.481 ...
+    public String toLogFields() {
+        StringBuilder sb = new StringBuilder("total=").append(millis(totalNanos));
+        for (Phase phase : Phase.values()) {
+            sb.append(' ').append(phase.metricName).append('=').append(millis(nanos[phase.ordinal()]));
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,229 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// User-id sharding. shard.urls lists the shard databases; an id belongs to slot id mod
+// shard.slots, and shard.map gives each shard its range of slots (by default the slots are
+// split evenly), so a shard can be split later by moving slot ranges. Users live on the
+// shard of their id and rentals on the shard of their user. The first shard is the reference
+// primary: connections taken outside Shards.on() go there.
+public final class Shards {
+    private static final List<String> URLS = parseUrls(DatabaseConfig.get("shard.urls", ""));
+    private static final int SLOTS = DatabaseConfig.getInt("shard.slots", 64);
+    private static final int[] SLOT_TO_SHARD = buildMap(DatabaseConfig.get("shard.map", ""));
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    private static final Connection[] CONNECTIONS = new Connection[URLS.size()];
+    private static final ExecutorService SCATTER = Executors.newFixedThreadPool(
+        Math.max(1, DatabaseConfig.getInt("shard.scatter.threads", 8)), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private Shards() {}
+
+    public interface ShardCall<T> {
+        T call() throws SQLException;
+    }
+
+    public static boolean isEnabled() {
+        return !URLS.isEmpty();
+    }
+
+    public static int count() {
+        return URLS.size();
+    }
+
+    public static int slots() {
+        return SLOTS;
+    }
+
+    public static int slotOf(int id) {
+        return Math.floorMod(id, SLOTS);
+    }
+
+    public static int shardOfSlot(int slot) {
+        return SLOT_TO_SHARD[slot];
+    }
+
+    // Shard holding a user id, or a rental id allocated in its user's slot
+    public static int shardForId(int id) {
+        return SLOT_TO_SHARD[slotOf(id)];
+    }
+
+    // Shard the calling thread is routed to, or null outside Shards.on()
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    // Run with DatabaseConnection routed to a shard; a null shard runs unrouted
+    public static <T> T on(Integer shard, ShardCall<T> call) throws SQLException {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    // Run on every shard in parallel; results in shard order
+    public static <T> List<T> scatter(ShardCall<T> call) throws SQLException {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < URLS.size(); shard++) {
+            int target = shard;
+            futures.add(SCATTER.submit(() -> on(target, call)));
+        }
+        List<T> results = new ArrayList<>();
+        SQLException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                        : new SQLException("Shard query failed: " + e.getCause(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    // Run a job once per shard, e.g. a batch job that works on rentals
+    public static Runnable forEachShard(Runnable job) {
+        return () -> {
+            for (int shard = 0; shard < URLS.size(); shard++) {
+                CURRENT.set(shard);
+                try {
+                    job.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Job failed on shard " + shard + ": " + e.getMessage());
+                } finally {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    // k-way merge of per-shard lists that are each sorted by the same order, keeping that
+    // order across shards; ties keep shard order
+    public static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order) {
+        int total = 0;
+        for (List<T> list : sorted) {
+            total += list.size();
+        }
+        List<T> merged = new ArrayList<>(total);
+        // Heap entries are [shard, position]
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            int byValue = order.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1]));
+            return byValue != 0 ? byValue : Integer.compare(a[0], b[0]);
+        });
+        for (int shard = 0; shard < sorted.size(); shard++) {
+            if (!sorted.get(shard).isEmpty()) {
+                heads.add(new int[] {shard, 0});
+            }
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = sorted.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    static String url(int shard) {
+        return URLS.get(shard);
+    }
+
+    // Shared connection per shard, the sharded counterpart of DatabaseConnection's connection
+    static synchronized Connection connection(int shard) throws SQLException {
+        Connection conn = CONNECTIONS[shard];
+        if (conn == null || conn.isClosed()) {
+            conn = JdbcTracer.wrap(DatabaseConnection.connect(URLS.get(shard)));
+            CONNECTIONS[shard] = conn;
+        }
+        return conn;
+    }
+
+    static synchronized void closeConnections() {
+        for (int shard = 0; shard < CONNECTIONS.length; shard++) {
+            if (CONNECTIONS[shard] != null) {
+                try {
+                    CONNECTIONS[shard].close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing shard " + shard + " connection: " + e.getMessage());
+                }
+                CONNECTIONS[shard] = null;
+            }
+        }
+    }
+
+    private static List<String> parseUrls(String value) {
+        List<String> urls = new ArrayList<>();
+        for (String url : value.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+
+    // shard.map is one slot range per shard, in shard order, e.g. "0-31,32-63"
+    private static int[] buildMap(String value) {
+        int[] map = new int[SLOTS];
+        if (URLS.isEmpty()) {
+            return map;
+        }
+        if (value.trim().isEmpty()) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                map[slot] = (int) ((long) slot * URLS.size() / SLOTS);
+            }
+            return map;
+        }
+        Arrays.fill(map, -1);
+        String[] ranges = value.split(",");
+        if (ranges.length != URLS.size()) {
+            throw new IllegalStateException("shard.map needs one slot range per shard URL");
+        }
+        for (int shard = 0; shard < ranges.length; shard++) {
+            String[] bounds = ranges[shard].trim().split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = Integer.parseInt(bounds[bounds.length - 1].trim());
+            for (int slot = from; slot <= to; slot++) {
+                if (slot < 0 || slot >= SLOTS || map[slot] != -1) {
+                    throw new IllegalStateException("shard.map assigns slot " + slot + " twice or out of range");
+                }
+                map[slot] = shard;
+            }
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (map[slot] == -1) {
+                throw new IllegalStateException("shard.map leaves slot " + slot + " unassigned");
+            }
+        }
+        return map;
+    }
+}
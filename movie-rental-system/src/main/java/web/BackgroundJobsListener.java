@@ -0,0 +1,178 @@
+package web;
+
+import dao.DAOFactory;
+import dao.MovieCopyDAO;
+import eventlog.EventSourcedRentals;
+import holds.HoldManager;
+import index.DueDateIndex;
+import index.MovieFacetIndex;
+import index.MovieSearchIndex;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jobs.InventoryReconciler;
+import jobs.LateFeeAccrualJob;
+import jobs.OverdueSweeper;
+import jobs.RentalArchiver;
+import util.DatabaseConfig;
+import util.DatabaseConnection;
+import util.Shards;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class BackgroundJobsListener implements ServletContextListener {
+    private ScheduledExecutorService scheduler;
+    // The hold timing wheel ticks on its own thread, so archiving or accrual runs cannot hold up expiries
+    private ScheduledExecutorService holdTimers;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Jobs read through the DAOs on connections of their own, never inside a request's transaction
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(() -> {
+                DatabaseConnection.useOwnConnections();
+                runnable.run();
+            }, "background-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Recover the event log and start projecting it before requests arrive
+        if (DAOFactory.isEventSourced()) {
+            try {
+                EventSourcedRentals.getInstance();
+            } catch (SQLException e) {
+                System.err.println("Failed to open the event log: " + e.getMessage());
+            }
+        }
+
+        // Build the due-date index from the active rentals, then sweep it for newly overdue rentals.
+        // Rebuilding it now and then picks up other nodes' checkouts and returns, the archiver
+        // and renamed movies and users; this node's checkouts and returns reach it at once
+        DueDateIndex index = DueDateIndex.getInstance();
+        long indexInterval = DatabaseConfig.getInt("overdue.index.reload.interval.minutes", 5);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                index.load(DAOFactory.rentalDAO()::getActiveRentals);
+                System.out.println("Due-date index built with " + index.size() + " active rentals");
+            } catch (SQLException e) {
+                System.err.println("Failed to build due-date index: " + e.getMessage());
+            }
+        }, 0, Math.max(1, indexInterval), TimeUnit.MINUTES);
+        // Build the movie search index, then rebuild it now and then to pick up rental counts
+        // and other nodes' movie writes; this node's writes reach it at once
+        MovieSearchIndex search = MovieSearchIndex.getInstance();
+        long reloadInterval = DatabaseConfig.getInt("search.reload.interval.minutes", 10);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                search.load(DAOFactory.movieDAO()::getAll, DAOFactory.rentalDAO()::getRentalCountsByMovie);
+                System.out.println("Movie search index built with " + search.size() + " movies");
+            } catch (SQLException e) {
+                System.err.println("Failed to build movie search index: " + e.getMessage());
+            }
+        }, 0, Math.max(1, reloadInterval), TimeUnit.MINUTES);
+        // Same for the facet bitmaps; a rebuild also corrects availability that other nodes' checkouts moved
+        MovieFacetIndex facets = MovieFacetIndex.getInstance();
+        long facetsInterval = DatabaseConfig.getInt("facets.reload.interval.minutes", 5);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                facets.load(DAOFactory.movieDAO()::getAll, DAOFactory.pricingCategoryDAO()::getCategoryIdsByMovie);
+                System.out.println("Movie facet index built with " + facets.size() + " movies");
+            } catch (SQLException e) {
+                System.err.println("Failed to build movie facet index: " + e.getMessage());
+            }
+        }, 0, Math.max(1, facetsInterval), TimeUnit.MINUTES);
+
+        OverdueSweeper sweeper = new OverdueSweeper(index);
+        long sweepInterval = DatabaseConfig.getInt("overdue.sweep.interval.minutes", 15);
+        scheduler.scheduleWithFixedDelay(sweeper, 0, sweepInterval, TimeUnit.MINUTES);
+
+        // The in-memory engine only needs its snapshot written; the jobs below work on the MySQL tables
+        if (DAOFactory.isInMemory()) {
+            long interval = DatabaseConfig.getInt("storage.memory.snapshot.interval.minutes", 10);
+            if (interval > 0) {
+                scheduler.scheduleWithFixedDelay(BackgroundJobsListener::saveSnapshot, interval, interval, TimeUnit.MINUTES);
+            }
+            return;
+        }
+
+        // Move closed rentals out of the live table
+        if (DatabaseConfig.getBoolean("archive.enabled", true)) {
+            long interval = DatabaseConfig.getInt("archive.interval.minutes", 60);
+            scheduler.scheduleWithFixedDelay(perShard(new RentalArchiver()), 1, interval, TimeUnit.MINUTES);
+        }
+
+        // Derive movies.available_copies from movie_copies under per-copy inventory
+        if (MovieCopyDAO.isEnabled()) {
+            long interval = DatabaseConfig.getInt("inventory.reconcile.interval.seconds", 30);
+            scheduler.scheduleWithFixedDelay(new InventoryReconciler(), interval, interval, TimeUnit.SECONDS);
+        }
+
+        // Rebuild the hold timers from the holds table, then release holds as they run out
+        if (HoldManager.isSupported()) {
+            HoldManager holds = HoldManager.getInstance();
+            holdTimers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    DatabaseConnection.useOwnConnections();
+                    runnable.run();
+                }, "hold-timers");
+                thread.setDaemon(true);
+                return thread;
+            });
+            holdTimers.execute(() -> {
+                try {
+                    holds.load();
+                } catch (SQLException e) {
+                    System.err.println("Failed to load hold timers: " + e.getMessage());
+                }
+            });
+            holdTimers.scheduleWithFixedDelay(holds::tick, holds.getTickMillis(), holds.getTickMillis(), TimeUnit.MILLISECONDS);
+            long interval = DatabaseConfig.getInt("holds.sweep.interval.seconds", 60);
+            scheduler.scheduleWithFixedDelay(() -> holds.sweep(TimeUnit.SECONDS.toMillis(interval)),
+                                             interval, interval, TimeUnit.SECONDS);
+        }
+
+        // Accrue late fees on open rentals once a night
+        if (DatabaseConfig.getBoolean("accrual.enabled", true)) {
+            int hour = DatabaseConfig.getInt("accrual.run.hour", 2);
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime nextRun = now.toLocalDate().atTime(hour, 0);
+            if (!nextRun.isAfter(now)) {
+                nextRun = nextRun.plusDays(1);
+            }
+            long initialDelay = Duration.between(now, nextRun).toMinutes();
+            scheduler.scheduleAtFixedRate(perShard(new LateFeeAccrualJob()), initialDelay,
+                                          TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (holdTimers != null) {
+            holdTimers.shutdownNow();
+        }
+        saveSnapshot();
+        DAOFactory.shutdown();
+    }
+
+    // Rental jobs run once on each shard when sharded
+    private static Runnable perShard(Runnable job) {
+        return Shards.isEnabled() ? Shards.forEachShard(job) : job;
+    }
+
+    private static void saveSnapshot() {
+        try {
+            DAOFactory.saveSnapshot();
+        } catch (IOException e) {
+            System.err.println("In-memory snapshot failed: " + e.getMessage());
+        }
+    }
+}
@@ -23,7 +23,11 @@ public class CORSFilter implements Filter {
         httpResponse.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
         
         // Allow specific headers
-        httpResponse.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        httpResponse.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, If-Match");
+        
+        // Let browsers read the version tag returned by updates and the phase timings
+        httpResponse.setHeader("Access-Control-Expose-Headers", "ETag, Server-Timing");
+        httpResponse.setHeader("Timing-Allow-Origin", "*");
         
         // Allow credentials
         httpResponse.setHeader("Access-Control-Allow-Credentials", "true");
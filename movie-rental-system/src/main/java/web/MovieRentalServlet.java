@@ -6,20 +6,93 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import dao.*;
+import holds.HoldManager;
+import index.MovieFacetIndex;
+import index.MovieSearchIndex;
+import jfr.HttpRequestEvent;
+import jfr.JfrEvents;
+import metrics.Metrics;
 import model.*;
+import util.DatabaseConfig;
+import util.JdbcTracer;
+import util.LogFiles;
+import util.RequestTimings;
 
-@WebServlet("/api/*")
+@WebServlet(name = "MovieRentalServlet", urlPatterns = "/api/*")
 public class MovieRentalServlet extends HttpServlet {
-    private final UserDAO userDAO = new UserDAO();
-    private final MovieDAO movieDAO = new MovieDAO();
-    private final RentalDAO rentalDAO = new RentalDAO();
+    private static final Logger ACCESS_LOG = DatabaseConfig.getBoolean("access.log.enabled", true)
+        ? LogFiles.rotating("access", "access") : null;
+    // Sections of GET /dashboard; ?include= picks a subset
+    private static final List<String> DASHBOARD_SECTIONS = List.of("users", "movies", "activeRentals", "overdueRentals");
+    // Serializers for ?fields= by fieldset; past the cap, odd combinations get one per request
+    private static final int SPARSE_SERIALIZERS_MAX = 256;
+    // Precondition Required, for updates that name no version; not among the servlet constants
+    private static final int SC_PRECONDITION_REQUIRED = 428;
+    private static final Map<FieldSet, Gson> SPARSE_SERIALIZERS = new ConcurrentHashMap<>();
+    // Set on requests no route matched, which are recorded as Routes.UNMATCHED
+    private static final String UNMATCHED_ATTRIBUTE = MovieRentalServlet.class.getName() + ".unmatched";
+
+    private final UserDAO userDAO = DAOFactory.userDAO();
+    private final MovieDAO movieDAO = DAOFactory.movieDAO();
+    private final RentalDAO rentalDAO = DAOFactory.rentalDAO();
+    private final PricingCategoryDAO pricingCategoryDAO = DAOFactory.pricingCategoryDAO();
     private final Gson gson = new Gson();
 
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        RequestTimings.begin(started);
+        HttpRequestEvent event = JfrEvents.requestStarted();
+        JdbcTracer.beginRequest(request.getMethod() + " " + Routes.template(request.getPathInfo()));
+        try {
+            super.service(request, response);
+        } finally {
+            // Responses not written by writeJson are still buffered, so the header can go on now
+            if (!response.isCommitted() && !response.containsHeader("Server-Timing")) {
+                response.setHeader("Server-Timing", RequestTimings.current().toServerTiming());
+            }
+            RequestTimings timings = RequestTimings.end();
+            int status = response.getStatus();
+            String route = request.getAttribute(UNMATCHED_ATTRIBUTE) != null ? Routes.UNMATCHED
+                           : Routes.template(request.getPathInfo());
+            Metrics.recordHttpRequest(route, request.getMethod(), status, started);
+            JdbcTracer.RequestTrace trace = JdbcTracer.endRequest();
+            if (trace != null) {
+                Metrics.recordRequestStatements(route, trace.getStatementCount());
+            }
+            JfrEvents.requestFinished(event, request.getMethod(), route, status, trace != null ? trace.getStatementCount() : 0);
+            if (ACCESS_LOG != null) {
+                ACCESS_LOG.info(request.getMethod() + " " + request.getRequestURI() + " " + status + " route=" + route
+                    + " " + timings.toLogFields()
+                    + " statements=" + (trace != null ? trace.getStatementCount() : 0));
+            }
+        }
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
@@ -28,25 +101,91 @@ public class MovieRentalServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
 
         try {
-            if ("/users".equals(pathInfo)) {
-                List<User> users = userDAO.getAll();
-                response.getWriter().write(gson.toJson(users));
+            // ?fields=id,title on the list endpoints: read and written sparsely below
+            FieldSet fields;
+            try {
+                fields = requestedFields(request);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                // Escaped, as the message quotes the field asked for
+                response.getWriter().write(gson.toJson(Collections.singletonMap("error", e.getMessage())));
+                return;
+            }
+
+            if ("/metrics".equals(pathInfo)) {
+                // Prometheus text exposition format
+                response.setContentType("text/plain; version=0.0.4");
+                response.getWriter().write(Metrics.scrape());
+            }
+            else if ("/users".equals(pathInfo)) {
+                List<User> users = fields == null ? userDAO.getAll() : userDAO.getAll(fields);
+                writeJson(request, response, users, fields);
             } 
+            else if ("/movies/search".equals(pathInfo)) {
+                MovieSearchIndex index = MovieSearchIndex.getInstance();
+                if (!index.isLoaded()) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.getWriter().write("{\"error\": \"Search index is still loading\"}");
+                    return;
+                }
+                int limit;
+                try {
+                    String limitParam = request.getParameter("limit");
+                    limit = limitParam == null ? 10 : Integer.parseInt(limitParam);
+                } catch (NumberFormatException e) {
+                    limit = -1;
+                }
+                if (limit < 1 || limit > MovieSearchIndex.MAX_LIMIT) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"error\": \"limit must be between 1 and " + MovieSearchIndex.MAX_LIMIT + "\"}");
+                    return;
+                }
+                // Ranked ids from the index, then the movies themselves in one batched read
+                List<Integer> ids = index.search(request.getParameter("q"), limit);
+                writeJson(request, response, new ArrayList<>(movieDAO.getByIds(ids).values()), fields);
+            }
+            else if ("/movies".equals(pathInfo) && request.getParameter("ids") != null) {
+                // ?ids=1,2,3: the movies found, in the order asked for, from one batched read
+                List<Integer> ids = parseIds(request.getParameter("ids"));
+                if (ids == null) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"error\": \"ids must be a comma-separated list of movie IDs\"}");
+                    return;
+                }
+                writeJson(request, response, new ArrayList<>(movieDAO.getByIds(ids).values()), fields);
+            }
+            else if ("/movies".equals(pathInfo) && (request.getParameter("genre") != null
+                     || request.getParameter("category") != null || request.getParameter("available") != null)) {
+                writeFacetedMovies(request, response, fields);
+            }
             else if ("/movies".equals(pathInfo)) {
-                List<Movie> movies = movieDAO.getAll();
-                response.getWriter().write(gson.toJson(movies));
+                List<Movie> movies = fields == null ? movieDAO.getAll() : movieDAO.getAll(fields);
+                writeJson(request, response, movies, fields);
             }
             else if ("/rentals".equals(pathInfo)) {
-                List<Rental> rentals = rentalDAO.getAll();
-                response.getWriter().write(gson.toJson(rentals));
+                List<Rental> rentals = fields == null ? rentalDAO.getAll() : rentalDAO.getAll(fields);
+                writeJson(request, response, rentals, fields);
             }
             else if ("/active-rentals".equals(pathInfo)) {
-                List<Rental> activeRentals = rentalDAO.getActiveRentals();
-                response.getWriter().write(gson.toJson(activeRentals));
+                List<Rental> activeRentals = fields == null ? rentalDAO.getActiveRentals() : rentalDAO.getActiveRentals(fields);
+                writeJson(request, response, activeRentals, fields);
+            }
+            else if ("/dashboard".equals(pathInfo)) {
+                writeDashboard(request, response);
+            }
+            else if (pathInfo != null && pathInfo.matches("/holds/\\d+")) {
+                if (!holdsSupported(response)) {
+                    return;
+                }
+                Hold hold = HoldManager.getInstance().get(Integer.parseInt(pathInfo.substring(7)));
+                if (hold == null) {
+                    writeHoldNotFound(response);
+                    return;
+                }
+                writeJson(request, response, hold);
             }
             else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                response.getWriter().write("{\"error\": \"Endpoint not found\"}");
+                writeEndpointNotFound(request, response);
             }
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -66,23 +205,74 @@ public class MovieRentalServlet extends HttpServlet {
                 // Create new user
                 User user = gson.fromJson(request.getReader(), User.class);
                 user = userDAO.create(user);
-                response.getWriter().write(gson.toJson(user));
+                writeJson(request, response, user);
             }
             else if ("/movies".equals(pathInfo)) {
                 // Create new movie
                 Movie movie = gson.fromJson(request.getReader(), Movie.class);
                 movie = movieDAO.create(movie, 1); // Default pricing category
-                response.getWriter().write(gson.toJson(movie));
+                writeJson(request, response, movie);
             }
             else if ("/rentals".equals(pathInfo)) {
                 // Create new rental
                 Rental rental = gson.fromJson(request.getReader(), Rental.class);
                 rental = rentalDAO.create(rental);
-                response.getWriter().write(gson.toJson(rental));
+                writeJson(request, response, rental);
+            }
+            else if (pathInfo != null && pathInfo.matches("/movies/\\d+/copies")) {
+                // Add or withdraw copies by delta, e.g. {"delta": -1}
+                int movieId = Integer.parseInt(pathInfo.substring(8, pathInfo.lastIndexOf('/')));
+                JsonObject body = gson.fromJson(request.getReader(), JsonObject.class);
+                JsonElement delta = body == null ? null : body.get("delta");
+                if (delta == null || !delta.isJsonPrimitive() || !delta.getAsJsonPrimitive().isNumber()) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"error\": \"delta must be a number\"}");
+                    return;
+                }
+                boolean adjusted = movieDAO.adjustAvailableCopies(movieId, delta.getAsInt());
+                if (!adjusted) {
+                    response.setStatus(HttpServletResponse.SC_CONFLICT);
+                }
+                response.getWriter().write("{\"success\": " + adjusted + "}");
+            }
+            else if ("/holds".equals(pathInfo)) {
+                // Hold a copy for a while, e.g. {"userId": 1, "movieId": 2, "minutes": 10}
+                if (!holdsSupported(response)) {
+                    return;
+                }
+                HoldRequest holdRequest = gson.fromJson(request.getReader(), HoldRequest.class);
+                Hold hold;
+                try {
+                    hold = HoldManager.getInstance().place(holdRequest.userId, holdRequest.movieId, holdRequest.minutes);
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"error\": \"" + e.getMessage() + "\"}");
+                    return;
+                }
+                if (hold == null) {
+                    response.setStatus(HttpServletResponse.SC_CONFLICT);
+                    response.getWriter().write("{\"error\": \"No copies of movie " + holdRequest.movieId + " available\"}");
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_CREATED);
+                writeJson(request, response, hold);
+            }
+            else if (pathInfo != null && pathInfo.matches("/holds/\\d+/confirm")) {
+                // Rent the held copy; the body is a rental as for POST /rentals, user and movie come from the hold
+                if (!holdsSupported(response)) {
+                    return;
+                }
+                int holdId = Integer.parseInt(pathInfo.substring(7, pathInfo.lastIndexOf('/')));
+                Rental rental = gson.fromJson(request.getReader(), Rental.class);
+                rental = HoldManager.getInstance().confirm(holdId, rental);
+                if (rental == null) {
+                    writeHoldNotFound(response);
+                    return;
+                }
+                writeJson(request, response, rental);
             }
             else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                response.getWriter().write("{\"error\": \"Endpoint not found\"}");
+                writeEndpointNotFound(request, response);
             }
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -101,29 +291,40 @@ public class MovieRentalServlet extends HttpServlet {
             if (pathInfo.startsWith("/users/")) {
                 // Update user
                 int userId = Integer.parseInt(pathInfo.substring(7));
-                User user = gson.fromJson(request.getReader(), User.class);
+                JsonObject body = gson.fromJson(request.getReader(), JsonObject.class);
+                Integer version = expectedVersion(request, response, body);
+                if (version == null) {
+                    return;
+                }
+                User user = gson.fromJson(body, User.class);
                 user.setId(userId);
-                boolean updated = userDAO.update(user);
-                response.getWriter().write("{\"success\": " + updated + "}");
+                user.setVersion(version);
+                UpdateResult result = userDAO.update(user);
+                writeUpdateResult(response, result, user.getVersion());
             }
             else if (pathInfo.startsWith("/movies/")) {
-                // Update movie
+                // Update movie details; copy counts change only through POST /movies/{id}/copies
                 int movieId = Integer.parseInt(pathInfo.substring(8));
-                Movie movie = gson.fromJson(request.getReader(), Movie.class);
+                JsonObject body = gson.fromJson(request.getReader(), JsonObject.class);
+                Integer version = expectedVersion(request, response, body);
+                if (version == null) {
+                    return;
+                }
+                Movie movie = gson.fromJson(body, Movie.class);
                 movie.setId(movieId);
-                boolean updated = movieDAO.update(movie, null);
-                response.getWriter().write("{\"success\": " + updated + "}");
+                movie.setVersion(version);
+                UpdateResult result = movieDAO.update(movie, null);
+                writeUpdateResult(response, result, movie.getVersion());
             }
             else if (pathInfo.startsWith("/rentals/return/")) {
                 // Return rental
-                int rentalId = Integer.parseInt(pathInfo.substring(15));
+                int rentalId = Integer.parseInt(pathInfo.substring(16));
                 Rental rental = gson.fromJson(request.getReader(), Rental.class);
                 boolean updated = rentalDAO.returnMovie(rentalId, rental.getReturnDate(), rental.getLateFee());
                 response.getWriter().write("{\"success\": " + updated + "}");
             }
             else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                response.getWriter().write("{\"error\": \"Endpoint not found\"}");
+                writeEndpointNotFound(request, response);
             }
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -149,13 +350,355 @@ public class MovieRentalServlet extends HttpServlet {
                 boolean deleted = movieDAO.delete(movieId);
                 response.getWriter().write("{\"success\": " + deleted + "}");
             }
+            else if (pathInfo.matches("/holds/\\d+")) {
+                // Put the held copy back before the hold runs out
+                if (!holdsSupported(response)) {
+                    return;
+                }
+                Hold released = HoldManager.getInstance().release(Integer.parseInt(pathInfo.substring(7)));
+                if (released == null) {
+                    writeHoldNotFound(response);
+                    return;
+                }
+                response.getWriter().write("{\"success\": true}");
+            }
             else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                response.getWriter().write("{\"error\": \"Endpoint not found\"}");
+                writeEndpointNotFound(request, response);
             }
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
+
+    // Serialize to JSON and write it as UTF-8 bytes with an exact Content-Length.
+    // Server-Timing is set before the body goes out, so the write phase only reaches the access log.
+    private void writeJson(HttpServletRequest request, HttpServletResponse response, Object value) throws IOException {
+        writeJson(request, response, value, null);
+    }
+
+    // With a fieldset, the entity's other properties are left out
+    private void writeJson(HttpServletRequest request, HttpServletResponse response, Object value, FieldSet fields)
+            throws IOException {
+        RequestTimings.markDispatched();
+        long serializeStarted = System.nanoTime();
+        byte[] body = serializer(fields).toJson(value).getBytes(StandardCharsets.UTF_8);
+        long writeStarted = System.nanoTime();
+        RequestTimings.add(RequestTimings.Phase.SERIALIZE, writeStarted - serializeStarted);
+        Metrics.recordJsonBytes(Routes.template(request.getPathInfo()), body.length);
+
+        response.setContentLength(body.length);
+        response.setHeader("Server-Timing", RequestTimings.current().toServerTiming());
+        response.getOutputStream().write(body);
+        RequestTimings.add(RequestTimings.Phase.WRITE, System.nanoTime() - writeStarted);
+    }
+
+    // Start every requested read at once, then stream each section as soon as its read is done,
+    // so the screen costs one round trip and about the slowest read. Sections go out in
+    // completion order; those that fail or time out are listed under "errors" after the rest.
+    // Server-Timing only covers dispatch, as it goes out before the first section.
+    private void writeDashboard(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<String> sections = new ArrayList<>();
+        String include = request.getParameter("include");
+        for (String section : include == null || include.trim().isEmpty() ? DASHBOARD_SECTIONS
+                              : List.of(include.split(","))) {
+            if (!DASHBOARD_SECTIONS.contains(section.trim())) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"error\": \"Unknown dashboard section, expected " +
+                                           String.join(", ", DASHBOARD_SECTIONS) + "\"}");
+                return;
+            }
+            if (!sections.contains(section.trim())) {
+                sections.add(section.trim());
+            }
+        }
+
+        RequestTimings.markDispatched();
+        Map<String, CompletableFuture<?>> reads = new LinkedHashMap<>();
+        BlockingQueue<String> finished = new LinkedBlockingQueue<>();
+        for (String section : sections) {
+            CompletableFuture<?> read = startDashboardRead(section);
+            reads.put(section, read);
+            read.whenComplete((value, failure) -> finished.add(section));
+        }
+
+        response.setHeader("Server-Timing", RequestTimings.current().toServerTiming());
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject();
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (int i = 0; i < reads.size(); i++) {
+            String section;
+            try {
+                section = finished.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for dashboard reads", e);
+            }
+            Object value;
+            try {
+                value = AsyncReads.join(reads.get(section));
+            } catch (SQLException e) {
+                errors.put(section, e.getMessage());
+                continue;
+            }
+            long serializeStarted = System.nanoTime();
+            json.name(section);
+            gson.toJson(value, value.getClass(), json);
+            json.flush();
+            RequestTimings.add(RequestTimings.Phase.SERIALIZE, System.nanoTime() - serializeStarted);
+            response.flushBuffer();
+        }
+        if (!errors.isEmpty()) {
+            json.name("errors");
+            gson.toJson(errors, Map.class, json);
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    private CompletableFuture<?> startDashboardRead(String section) {
+        switch (section) {
+            case "users":
+                return userDAO.getAllAsync();
+            case "movies":
+                return movieDAO.getAllAsync();
+            case "activeRentals":
+                return rentalDAO.getActiveRentalsAsync();
+            default:
+                return rentalDAO.getOverdueRentalsAsync();
+        }
+    }
+
+    // One page of the movies matching every facet given, from MovieFacetIndex, with the count
+    // for each facet value. genre and category (a pricing category name) match any of their
+    // values, comma-separated or repeated; available is true or false.
+    private void writeFacetedMovies(HttpServletRequest request, HttpServletResponse response, FieldSet fields)
+            throws IOException, SQLException {
+        MovieFacetIndex index = MovieFacetIndex.getInstance();
+        if (!index.isLoaded()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.getWriter().write("{\"error\": \"Facet index is still loading\"}");
+            return;
+        }
+        String availableParam = request.getParameter("available");
+        Boolean available = null;
+        if (availableParam != null && !availableParam.isEmpty()) {
+            if (!"true".equalsIgnoreCase(availableParam) && !"false".equalsIgnoreCase(availableParam)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"error\": \"available must be true or false\"}");
+                return;
+            }
+            available = Boolean.parseBoolean(availableParam);
+        }
+        int offset;
+        int limit;
+        try {
+            String offsetParam = request.getParameter("offset");
+            String limitParam = request.getParameter("limit");
+            offset = offsetParam == null ? 0 : Integer.parseInt(offsetParam);
+            limit = limitParam == null ? 50 : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            offset = -1;
+            limit = -1;
+        }
+        if (offset < 0 || limit < 1 || limit > MovieFacetIndex.MAX_LIMIT) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"error\": \"offset must be 0 or more and limit between 1 and "
+                + MovieFacetIndex.MAX_LIMIT + "\"}");
+            return;
+        }
+
+        Map<Integer, String> categoryNames = new LinkedHashMap<>();
+        Map<String, Integer> categoryIdsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (PricingCategory category : pricingCategoryDAO.getAll()) {
+            categoryNames.put(category.getId(), category.getName());
+            categoryIdsByName.put(category.getName(), category.getId());
+        }
+        List<Integer> categoryIds = new ArrayList<>();
+        for (String name : facetValues(request, "category")) {
+            // An unknown name matches nothing, like an unknown genre
+            categoryIds.add(categoryIdsByName.getOrDefault(name, -1));
+        }
+
+        MovieFacetIndex.Result result = index.query(facetValues(request, "genre"), categoryIds, available, offset, limit);
+        List<Integer> ids = new ArrayList<>(result.getIds().length);
+        for (int id : result.getIds()) {
+            ids.add(id);
+        }
+        Map<String, Integer> categoryCounts = new LinkedHashMap<>();
+        result.getCategoryCounts().forEach((id, count) ->
+            categoryCounts.put(categoryNames.getOrDefault(id, String.valueOf(id)), count));
+        Map<String, Integer> availableCounts = new LinkedHashMap<>();
+        availableCounts.put("true", result.getAvailableCount());
+        availableCounts.put("false", result.getUnavailableCount());
+        Map<String, Object> facets = new LinkedHashMap<>();
+        facets.put("genre", result.getGenreCounts());
+        facets.put("category", categoryCounts);
+        facets.put("available", availableCounts);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", result.getTotal());
+        body.put("offset", offset);
+        body.put("limit", limit);
+        body.put("movies", new ArrayList<>(movieDAO.getByIds(ids).values()));
+        body.put("facets", facets);
+        writeJson(request, response, body, fields);
+    }
+
+    // Values of a multi-valued query parameter, whether repeated or comma-separated
+    private static List<String> facetValues(HttpServletRequest request, String name) {
+        String[] params = request.getParameterValues(name);
+        if (params == null) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (String param : params) {
+            for (String value : param.split(",")) {
+                if (!value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    // The fieldset asked for with ?fields=, or null; the entity follows from the endpoint
+    private static FieldSet requestedFields(HttpServletRequest request) {
+        String value = request.getParameter("fields");
+        if (value == null) {
+            return null;
+        }
+        String pathInfo = request.getPathInfo();
+        FieldSet.Entity entity;
+        if ("/users".equals(pathInfo)) {
+            entity = FieldSet.Entity.USER;
+        } else if ("/movies".equals(pathInfo) || "/movies/search".equals(pathInfo)) {
+            entity = FieldSet.Entity.MOVIE;
+        } else if ("/rentals".equals(pathInfo) || "/active-rentals".equals(pathInfo)) {
+            entity = FieldSet.Entity.RENTAL;
+        } else {
+            throw new IllegalArgumentException("fields is not supported on " + pathInfo);
+        }
+        return FieldSet.parse(entity, value);
+    }
+
+    private Gson serializer(FieldSet fields) {
+        if (fields == null) {
+            return gson;
+        }
+        Gson sparse = SPARSE_SERIALIZERS.get(fields);
+        if (sparse == null) {
+            sparse = new GsonBuilder().setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getDeclaringClass() == fields.getEntity().getType() && !fields.includes(field.getName());
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> type) {
+                    return false;
+                }
+            }).create();
+            if (SPARSE_SERIALIZERS.size() < SPARSE_SERIALIZERS_MAX) {
+                SPARSE_SERIALIZERS.putIfAbsent(fields, sparse);
+            }
+        }
+        return sparse;
+    }
+
+    // Ids from a comma-separated list; null if any of them is not a number
+    private static List<Integer> parseIds(String value) {
+        List<Integer> ids = new ArrayList<>();
+        for (String id : value.split(",")) {
+            if (id.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                ids.add(Integer.parseInt(id.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    // Expected version from an If-Match header ("3" or W/"3"), falling back to "version" in the
+    // body. Null once the response is written: 428 with neither, 412 for a tag that is not a
+    // version (such as *), 400 for a body version that is not a number.
+    private Integer expectedVersion(HttpServletRequest request, HttpServletResponse response, JsonObject body)
+            throws IOException {
+        String ifMatch = request.getHeader("If-Match");
+        if (ifMatch == null || ifMatch.trim().isEmpty()) {
+            JsonElement bodyVersion = body == null ? null : body.get("version");
+            if (bodyVersion == null || bodyVersion.isJsonNull()) {
+                response.setStatus(SC_PRECONDITION_REQUIRED);
+                response.getWriter().write("{\"error\": \"Send If-Match: \\\"<version>\\\" or the version in the body\"}");
+                return null;
+            }
+            if (!bodyVersion.isJsonPrimitive() || !bodyVersion.getAsJsonPrimitive().isNumber()) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"error\": \"version must be a number\"}");
+                return null;
+            }
+            return bodyVersion.getAsInt();
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (!tag.matches("\"?\\d{1,9}\"?")) {
+            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            response.getWriter().write("{\"error\": \"If-Match must be the version ETag of the current row\"}");
+            return null;
+        }
+        return Integer.parseInt(tag.replace("\"", ""));
+    }
+
+    // 404 for a path no route matched; a route's own 404s (e.g. an unknown id) keep the route's label
+    private void writeEndpointNotFound(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        request.setAttribute(UNMATCHED_ATTRIBUTE, Boolean.TRUE);
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        response.getWriter().write("{\"error\": \"Endpoint not found\"}");
+    }
+
+    // Map a version-checked update to the response: 409 on conflict, 404 for a missing row, ETag on success
+    private void writeUpdateResult(HttpServletResponse response, UpdateResult result, int version) throws IOException {
+        if (result == UpdateResult.CONFLICT) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            response.getWriter().write("{\"error\": \"Version conflict, reload and retry\"}");
+            return;
+        }
+        if (result == UpdateResult.NOT_FOUND) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.getWriter().write("{\"error\": \"Not found\"}");
+            return;
+        }
+        if (result.isUpdated()) {
+            response.setHeader("ETag", "\"" + version + "\"");
+        }
+        response.getWriter().write("{\"success\": " + result.isUpdated() + "}");
+    }
+
+    // Holds need the counter inventory model on the jdbc engine; 501 otherwise
+    private boolean holdsSupported(HttpServletResponse response) throws IOException {
+        if (HoldManager.isSupported()) {
+            return true;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_IMPLEMENTED);
+        response.getWriter().write("{\"error\": \"Holds need storage.engine=jdbc and inventory.mode=counter\"}");
+        return false;
+    }
+
+    // Released, expired or confirmed holds are gone
+    private void writeHoldNotFound(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        response.getWriter().write("{\"error\": \"Hold not found or expired\"}");
+    }
+
+    // Request body for holds; minutes defaults to holds.default.minutes
+    private static class HoldRequest {
+        int userId;
+        int movieId;
+        Integer minutes;
+    }
 }
@@ -0,0 +1,172 @@
+package web;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import metrics.Metrics;
+import util.DatabaseConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+// Measures heap bytes allocated and CPU time per API request through the thread MXBean
+// and records them per route. Requests far above their route's mean are logged.
+// Each dispatch (the original one and any async re-dispatch) is measured on the thread
+// running it and summed; the total is recorded once the response is complete. Work that
+// an async request hands to other executors, and requests on virtual threads (for which
+// the MXBean reports -1), are counted as unmeasured rather than attributed to the carrier.
+public class ResourceAccountingFilter implements Filter {
+    private static final String ACCOUNT_ATTRIBUTE = ResourceAccountingFilter.class.getName() + ".account";
+    private static final Logger LOG = Logger.getLogger("movierental.accounting");
+
+    private com.sun.management.ThreadMXBean threads;
+    private boolean enabled;
+    private double outlierFactor;
+    private long outlierMinBytes;
+    private long outlierMinCpuNanos;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        enabled = DatabaseConfig.getBoolean("accounting.enabled", true);
+        outlierFactor = Double.parseDouble(DatabaseConfig.get("accounting.outlier.factor", "10"));
+        outlierMinBytes = DatabaseConfig.getInt("accounting.outlier.min.mb", 16) * 1024L * 1024L;
+        outlierMinCpuNanos = DatabaseConfig.getInt("accounting.outlier.min.cpu.ms", 50) * 1_000_000L;
+
+        if (enabled && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+                threads.setThreadCpuTimeEnabled(true);
+            }
+        } else if (enabled) {
+            System.err.println("Per-request accounting disabled: thread allocation counters are not available on this JVM");
+            enabled = false;
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Account account = (Account) request.getAttribute(ACCOUNT_ATTRIBUTE);
+        if (account == null) {
+            account = new Account();
+            request.setAttribute(ACCOUNT_ATTRIBUTE, account);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocatedBytes(threadId);
+        long cpuBefore = cpuTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long allocatedAfter = allocatedBytes(threadId);
+            long cpuAfter = cpuTime();
+            account.add(allocatedBefore, allocatedAfter, cpuBefore, cpuAfter);
+
+            if (request.isAsyncStarted()) {
+                // Recorded when the async cycle completes, after any re-dispatches have added to the account
+                if (!account.listening) {
+                    account.listening = true;
+                    Account pending = account;
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            record(event.getSuppliedRequest(), event.getSuppliedResponse(), pending);
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {}
+
+                        @Override
+                        public void onError(AsyncEvent event) {}
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {
+                            event.getAsyncContext().addListener(this);
+                        }
+                    });
+                }
+            } else if (!account.listening) {
+                record(request, response, account);
+            }
+        }
+    }
+
+    // Counters read -1 where the JVM cannot attribute them to this thread
+    private long allocatedBytes(long threadId) {
+        try {
+            return threads.getThreadAllocatedBytes(threadId);
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private long cpuTime() {
+        try {
+            return threads.getCurrentThreadCpuTime();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private void record(ServletRequest request, ServletResponse response, Account account) {
+        if (account.unmeasured
+                || !(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            return;
+        }
+        int status = ((HttpServletResponse) response).getStatus();
+        String route = status == HttpServletResponse.SC_NOT_FOUND
+            ? Routes.UNMATCHED : Routes.template(((HttpServletRequest) request).getPathInfo());
+
+        double meanBytes = Metrics.meanRequestAllocation(route);
+        double meanCpu = Metrics.meanRequestCpu(route);
+        Metrics.recordRequestAllocation(route, account.allocatedBytes);
+        Metrics.recordRequestCpu(route, account.cpuNanos);
+
+        boolean allocationOutlier = account.allocatedBytes >= outlierMinBytes
+            && (meanBytes == 0 || account.allocatedBytes > meanBytes * outlierFactor);
+        boolean cpuOutlier = account.cpuNanos >= outlierMinCpuNanos
+            && (meanCpu == 0 || account.cpuNanos > meanCpu * outlierFactor);
+        if (allocationOutlier || cpuOutlier) {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            LOG.warning(String.format(Locale.ROOT,
+                "Outlier request %s %s (route %s, status %d): %.1f MB allocated (route mean %.1f MB), "
+                    + "%.1f ms CPU (route mean %.1f ms)",
+                httpRequest.getMethod(), httpRequest.getRequestURI(), route, status,
+                account.allocatedBytes / 1048576.0, meanBytes / 1048576.0,
+                account.cpuNanos / 1e6, meanCpu / 1e6));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+
+    // Resources used across all dispatches of one request
+    private static class Account {
+        long allocatedBytes;
+        long cpuNanos;
+        boolean unmeasured;
+        boolean listening;
+
+        void add(long allocatedBefore, long allocatedAfter, long cpuBefore, long cpuAfter) {
+            // -1 means unsupported for this thread, e.g. a virtual thread
+            if (allocatedBefore < 0 || allocatedAfter < 0 || cpuBefore < 0 || cpuAfter < 0) {
+                unmeasured = true;
+                return;
+            }
+            allocatedBytes += allocatedAfter - allocatedBefore;
+            cpuNanos += cpuAfter - cpuBefore;
+        }
+    }
+}
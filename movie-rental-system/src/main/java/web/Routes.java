@@ -0,0 +1,41 @@
+package web;
+
+// Maps request paths to low-cardinality route templates for metrics and logs
+public final class Routes {
+    public static final String UNMATCHED = "unmatched";
+
+    private Routes() {}
+
+    // "/movies/12/copies" becomes "/movies/{id}/copies"
+    public static String template(String pathInfo) {
+        if (pathInfo == null || pathInfo.isEmpty()) {
+            return "/";
+        }
+
+        StringBuilder route = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= pathInfo.length(); i++) {
+            if (i == pathInfo.length() || pathInfo.charAt(i) == '/') {
+                boolean numeric = i > segmentStart;
+                for (int j = segmentStart; j < i && numeric; j++) {
+                    numeric = Character.isDigit(pathInfo.charAt(j));
+                }
+                if (numeric && route == null) {
+                    route = new StringBuilder(pathInfo.length()).append(pathInfo, 0, segmentStart);
+                }
+                if (route != null) {
+                    if (numeric) {
+                        route.append("{id}");
+                    } else {
+                        route.append(pathInfo, segmentStart, i);
+                    }
+                    if (i < pathInfo.length()) {
+                        route.append('/');
+                    }
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return route == null ? pathInfo : route.toString();
+    }
+}
@@ -0,0 +1,16 @@
+-- Late fee accrual columns and the batch job checkpoints for databases created before they existed.
+-- Run once before deploying a version with the nightly accrual job (accrual.enabled):
+--   mysql -u root -p movie_rental_system < src/main/resources/accrual.sql
+USE movie_rental_system;
+
+ALTER TABLE rentals
+    ADD COLUMN accrued_late_fee DECIMAL(10,2) DEFAULT 0.00,
+    ADD COLUMN accrued_at DATE;
+
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+    job_name VARCHAR(100) PRIMARY KEY,
+    run_date DATE NOT NULL,
+    last_id INT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
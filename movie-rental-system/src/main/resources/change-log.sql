@@ -0,0 +1,13 @@
+-- Change log for databases created before cross-node cache invalidation existed.
+-- Run once before starting with the cache on, whose default transport is this table:
+--   mysql -u root -p movie_rental_system < src/main/resources/change-log.sql
+USE movie_rental_system;
+
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    node VARCHAR(100) NOT NULL,
+    entity VARCHAR(32) NOT NULL,
+    entity_id INT NOT NULL,
+    published_millis BIGINT NOT NULL,
+    INDEX idx_change_log_published (published_millis)
+);
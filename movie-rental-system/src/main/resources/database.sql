@@ -8,6 +8,7 @@ CREATE TABLE IF NOT EXISTS users (
     name VARCHAR(100) NOT NULL,
     email VARCHAR(100) NOT NULL UNIQUE,
     phone VARCHAR(20) NOT NULL,
+    version INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT uk_email UNIQUE (email)
 );
@@ -27,6 +28,7 @@ CREATE TABLE IF NOT EXISTS movies (
     title VARCHAR(200) NOT NULL,
     genre VARCHAR(50) NOT NULL,
     available_copies INT NOT NULL,
+    version INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -40,6 +42,17 @@ CREATE TABLE IF NOT EXISTS movie_pricing (
     FOREIGN KEY (pricing_category_id) REFERENCES pricing_categories(id)
 );
 
+-- Create movie_copies table (per-copy inventory, used when inventory.mode=copies)
+CREATE TABLE IF NOT EXISTS movie_copies (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    movie_id INT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'AVAILABLE',
+    rental_id INT,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    INDEX idx_copies_movie_status (movie_id, status)
+);
+
 -- Create late_fees table
 CREATE TABLE IF NOT EXISTS late_fees (
     id INT PRIMARY KEY AUTO_INCREMENT,
@@ -60,11 +73,90 @@ CREATE TABLE IF NOT EXISTS rentals (
     base_price DECIMAL(10,2) NOT NULL,
     late_fee DECIMAL(10,2) DEFAULT 0.00,
     total_price DECIMAL(10,2) NOT NULL,
+    accrued_late_fee DECIMAL(10,2) DEFAULT 0.00,
+    accrued_at DATE,
+    copy_id INT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (movie_id) REFERENCES movies(id)
 );
 
+-- Create rentals_archive table (closed rentals moved out of the live table by the archiver)
+CREATE TABLE IF NOT EXISTS rentals_archive (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    copy_id INT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_archive_user (user_id),
+    INDEX idx_archive_rental_date (rental_date)
+);
+
+-- Create rental_view table (rentals live and archived with movie title and user name, read by the
+-- rental listings without joins; maintained by the DAO write paths)
+CREATE TABLE IF NOT EXISTS rental_view (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    copy_id INT,
+    created_at TIMESTAMP NULL,
+    movie_title VARCHAR(200),
+    user_name VARCHAR(100),
+    INDEX idx_rental_view_rental_date (rental_date),
+    INDEX idx_rental_view_open_due (return_date, due_date),
+    INDEX idx_rental_view_user (user_id),
+    INDEX idx_rental_view_movie (movie_id)
+);
+
+-- Create batch_checkpoints table (resume points for batch jobs)
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+    job_name VARCHAR(100) PRIMARY KEY,
+    run_date DATE NOT NULL,
+    last_id INT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Create event_projections table (how far each projector has applied the rental event log)
+CREATE TABLE IF NOT EXISTS event_projections (
+    name VARCHAR(100) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Create change_log table (writes to cached entities, tailed by every API node to invalidate its caches)
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    node VARCHAR(100) NOT NULL,
+    entity VARCHAR(32) NOT NULL,
+    entity_id INT NOT NULL,
+    published_millis BIGINT NOT NULL,
+    INDEX idx_change_log_published (published_millis)
+);
+
+-- Create holds table (copies set aside for a user until expires_at, then rented or put back)
+CREATE TABLE IF NOT EXISTS holds (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    INDEX idx_holds_expires (expires_at)
+);
+
 -- Insert default pricing categories
 INSERT INTO pricing_categories (name, base_price) VALUES
 ('New Release', 5.00),
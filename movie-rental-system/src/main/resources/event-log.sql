@@ -0,0 +1,10 @@
+-- Projector checkpoint for databases created before the event-sourced engine existed.
+-- Run once, then set storage.engine=eventlog in config/database.properties:
+--   mysql -u root -p movie_rental_system < src/main/resources/event-log.sql
+USE movie_rental_system;
+
+CREATE TABLE IF NOT EXISTS event_projections (
+    name VARCHAR(100) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
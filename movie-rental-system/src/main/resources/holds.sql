@@ -0,0 +1,13 @@
+-- Holds table for databases created before timed checkout holds existed.
+-- Run once before deploying a version with /api/holds:
+--   mysql -u root -p movie_rental_system < src/main/resources/holds.sql
+USE movie_rental_system;
+
+CREATE TABLE IF NOT EXISTS holds (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    INDEX idx_holds_expires (expires_at)
+);
@@ -0,0 +1,41 @@
+-- Per-copy inventory for databases created before movie_copies existed.
+-- Run once, then set inventory.mode=copies in config/database.properties:
+--   mysql -u root -p movie_rental_system < src/main/resources/movie-copies.sql
+USE movie_rental_system;
+
+ALTER TABLE rentals ADD COLUMN copy_id INT;
+ALTER TABLE rentals_archive ADD COLUMN copy_id INT;
+
+CREATE TABLE IF NOT EXISTS movie_copies (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    movie_id INT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'AVAILABLE',
+    rental_id INT,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    INDEX idx_copies_movie_status (movie_id, status)
+);
+
+-- One AVAILABLE copy for every counted copy on the shelf. The sequence recurses once per copy of
+-- the most stocked title, so lift MySQL's cte_max_recursion_depth (1000 by default) to match.
+SET @copies_depth = (SELECT GREATEST(1000, COALESCE(MAX(available_copies), 0) + 1) FROM movies);
+SET SESSION cte_max_recursion_depth = @copies_depth;
+
+INSERT INTO movie_copies (movie_id, status)
+WITH RECURSIVE seq (n) AS (
+    SELECT 1
+    UNION ALL
+    SELECT n + 1 FROM seq WHERE n < (SELECT MAX(available_copies) FROM movies)
+)
+SELECT m.id, 'AVAILABLE'
+FROM movies m
+JOIN seq ON seq.n <= m.available_copies;
+
+-- One RENTED copy for every open rental, linked both ways
+INSERT INTO movie_copies (movie_id, status, rental_id)
+SELECT movie_id, 'RENTED', id FROM rentals WHERE return_date IS NULL;
+
+UPDATE rentals r
+JOIN movie_copies c ON c.rental_id = r.id
+SET r.copy_id = c.id
+WHERE r.return_date IS NULL;
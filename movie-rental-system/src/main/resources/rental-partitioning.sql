@@ -0,0 +1,62 @@
+-- Monthly range partitioning for the rentals table.
+-- Run once against an existing database:
+--   mysql -u root -p movie_rental_system < src/main/resources/rental-partitioning.sql
+--
+-- It also creates rentals_archive, which the archiver (archive.enabled, on by
+-- default) moves closed rentals into, and which the rental id allocators read.
+--
+-- MySQL requires the partitioning column to be part of every unique key and
+-- does not allow foreign keys on partitioned InnoDB tables, so the primary key
+-- becomes (id, rental_date) and the rental foreign keys are dropped. The id
+-- column stays AUTO_INCREMENT and remains unique in practice.
+--
+-- New monthly partitions are split off p_future by the RentalArchiver job
+-- (archive.partition.months.ahead), and emptied months older than the archive
+-- horizon are dropped by it as well.
+USE movie_rental_system;
+
+-- Closed rentals moved out of the live table by the archiver; copy_id is added by movie-copies.sql
+CREATE TABLE IF NOT EXISTS rentals_archive (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_archive_user (user_id),
+    INDEX idx_archive_rental_date (rental_date)
+);
+
+-- Drop the foreign keys on rentals (names are generated by MySQL)
+SET @fk_user = (SELECT CONSTRAINT_NAME FROM information_schema.KEY_COLUMN_USAGE
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals'
+                  AND COLUMN_NAME = 'user_id' AND REFERENCED_TABLE_NAME = 'users' LIMIT 1);
+SET @sql = IF(@fk_user IS NULL, 'SELECT 1', CONCAT('ALTER TABLE rentals DROP FOREIGN KEY ', @fk_user));
+PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk_movie = (SELECT CONSTRAINT_NAME FROM information_schema.KEY_COLUMN_USAGE
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals'
+                   AND COLUMN_NAME = 'movie_id' AND REFERENCED_TABLE_NAME = 'movies' LIMIT 1);
+SET @sql = IF(@fk_movie IS NULL, 'SELECT 1', CONCAT('ALTER TABLE rentals DROP FOREIGN KEY ', @fk_movie));
+PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- Include rental_date in the primary key and keep lookup indexes for the old foreign key columns
+ALTER TABLE rentals
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, rental_date),
+    ADD INDEX idx_rentals_id (id),
+    ADD INDEX idx_rentals_user (user_id),
+    ADD INDEX idx_rentals_movie (movie_id),
+    ADD INDEX idx_rentals_open (return_date, due_date);
+
+-- Partition by month; everything before the first partition boundary lands in p_history
+ALTER TABLE rentals
+    PARTITION BY RANGE (TO_DAYS(rental_date)) (
+        PARTITION p_history VALUES LESS THAN (TO_DAYS('2024-01-01')),
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
@@ -0,0 +1,52 @@
+-- Denormalized rental read model for databases created before rental_view existed.
+-- Run once before deploying a version that reads the rental listings from it:
+--   mysql -u root -p movie_rental_system < src/main/resources/rental-view.sql
+USE movie_rental_system;
+
+CREATE TABLE IF NOT EXISTS rental_view (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rental_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    base_price DECIMAL(10,2) NOT NULL,
+    late_fee DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    copy_id INT,
+    created_at TIMESTAMP NULL,
+    movie_title VARCHAR(200),
+    user_name VARCHAR(100),
+    INDEX idx_rental_view_rental_date (rental_date),
+    INDEX idx_rental_view_open_due (return_date, due_date),
+    INDEX idx_rental_view_user (user_id),
+    INDEX idx_rental_view_movie (movie_id)
+);
+
+-- copy_id exists only once movie-copies.sql has run, and rentals_archive only once
+-- rental-partitioning.sql has, so the backfill is put together from what this database has
+SET @rental_copy = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                       WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals' AND COLUMN_NAME = 'copy_id') > 0,
+                      'r.copy_id', 'NULL');
+SET @archive_copy = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals_archive' AND COLUMN_NAME = 'copy_id') > 0,
+                       'a.copy_id', 'NULL');
+SET @has_archive = (SELECT COUNT(*) FROM information_schema.TABLES
+                    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rentals_archive') > 0;
+
+SET @sql = CONCAT(
+    'INSERT INTO rental_view (id, user_id, movie_id, rental_date, due_date, return_date, base_price, late_fee, ',
+    '                         total_price, copy_id, created_at, movie_title, user_name) ',
+    'SELECT r.id, r.user_id, r.movie_id, r.rental_date, r.due_date, r.return_date, r.base_price, r.late_fee, ',
+    '       r.total_price, ', @rental_copy, ', r.created_at, m.title, u.name ',
+    'FROM rentals r ',
+    'JOIN movies m ON r.movie_id = m.id ',
+    'JOIN users u ON r.user_id = u.id',
+    IF(@has_archive, CONCAT(
+    ' UNION ALL ',
+    'SELECT a.id, a.user_id, a.movie_id, a.rental_date, a.due_date, a.return_date, a.base_price, a.late_fee, ',
+    '       a.total_price, ', @archive_copy, ', a.created_at, m.title, u.name ',
+    'FROM rentals_archive a ',
+    'LEFT JOIN movies m ON a.movie_id = m.id ',
+    'LEFT JOIN users u ON a.user_id = u.id'), ''));
+PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
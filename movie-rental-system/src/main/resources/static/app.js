@@ -4,7 +4,8 @@ const ENDPOINTS = {
     USERS: `${API_BASE_URL}/users`,
     MOVIES: `${API_BASE_URL}/movies`,
     RENTALS: `${API_BASE_URL}/rentals`,
-    ACTIVE_RENTALS: `${API_BASE_URL}/active-rentals`
+    ACTIVE_RENTALS: `${API_BASE_URL}/active-rentals`,
+    DASHBOARD: `${API_BASE_URL}/dashboard`
 };
 
 // Navigation
@@ -44,18 +45,18 @@ function loadPageData(page) {
 // Dashboard
 async function loadDashboard() {
     try {
-        const [users, movies, activeRentals] = await Promise.all([
-            fetch(ENDPOINTS.USERS).then(res => res.json()),
-            fetch(ENDPOINTS.MOVIES).then(res => res.json()),
-            fetch(ENDPOINTS.ACTIVE_RENTALS).then(res => res.json())
-        ]);
+        // One request; the server runs the reads concurrently
+        const dashboard = await fetch(ENDPOINTS.DASHBOARD).then(res => res.json());
+        if (dashboard.errors) {
+            throw new Error(`Dashboard sections failed: ${Object.keys(dashboard.errors).join(', ')}`);
+        }
+        const { users, movies, activeRentals, overdueRentals } = dashboard;
 
         // Update stats
         document.querySelector('#totalMovies').textContent = movies.length;
         document.querySelector('#activeUsers').textContent = users.length;
         document.querySelector('#activeRentals').textContent = activeRentals.length;
-        document.querySelector('#overdueRentals').textContent = 
-            activeRentals.filter(rental => new Date(rental.dueDate) < new Date()).length;
+        document.querySelector('#overdueRentals').textContent = overdueRentals.length;
 
         // Update recent rentals table
         const recentRentalsTable = document.querySelector('#recentRentalsTable tbody');
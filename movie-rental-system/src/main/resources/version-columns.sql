@@ -0,0 +1,7 @@
+-- Version columns for optimistic concurrency on movies and users.
+-- Run once against databases created before the columns existed:
+--   mysql -u root -p movie_rental_system < src/main/resources/version-columns.sql
+USE movie_rental_system;
+
+ALTER TABLE movies ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN version INT NOT NULL DEFAULT 0;
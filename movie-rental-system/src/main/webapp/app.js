@@ -6,7 +6,8 @@ const ENDPOINTS = {
     RENTALS: `${API_BASE_URL}/rentals`,
     ACTIVE_RENTALS: `${API_BASE_URL}/rentals/active`,
     PRICING_CATEGORIES: `${API_BASE_URL}/pricing-categories`,
-    LATE_FEES: `${API_BASE_URL}/late-fees`
+    LATE_FEES: `${API_BASE_URL}/late-fees`,
+    DASHBOARD: `${API_BASE_URL}/dashboard`
 };
 
 // Page Management
@@ -145,10 +146,11 @@ function openAddMovieModal() {
 
 // Rental Management
 function openAddRentalModal() {
-    Promise.all([
-        fetchAPI(ENDPOINTS.USERS),
-        fetchAPI(ENDPOINTS.MOVIES)
-    ]).then(([users, movies]) => {
+    // Users and movies in one round trip, read concurrently on the server
+    fetchAPI(`${ENDPOINTS.DASHBOARD}?include=users,movies`).then(({users, movies, errors}) => {
+        if (errors) {
+            throw new Error(Object.values(errors).join('; '));
+        }
         const content = `
             <form id="addRentalForm" onsubmit="addRental(event)">
                 ${createFormGroup('User', createSelect('userId', 